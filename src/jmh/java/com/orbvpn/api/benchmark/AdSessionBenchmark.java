@@ -0,0 +1,58 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.repository.AdViewingSessionRepository;
+import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.service.AdSessionLimiter;
+import com.orbvpn.api.service.AdVerificationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AdVerificationService#requestAdSession} from 32 threads, with the
+ * per-user, per-IP and per-device limits checked in memory by
+ * {@link AdSessionLimiter}. Every request comes from a new user, IP and
+ * device so none is rejected; sessions are saved to a repository that keeps
+ * nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+public class AdSessionBenchmark {
+
+    private AdVerificationService adVerificationService;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        AdViewingSessionRepository sessionRepository = InMemoryRepositories.fake(AdViewingSessionRepository.class,
+                Map.of("save", args -> args[0],
+                        "findRecentSessionsForLimits", args -> List.of()));
+        UserRepository userRepository = InMemoryRepositories.fake(UserRepository.class,
+                Map.of("getReferenceById", args -> {
+                    User user = new User();
+                    user.setId((Integer) args[0]);
+                    return user;
+                }));
+
+        AdSessionLimiter limiter = new AdSessionLimiter(sessionRepository);
+        limiter.rebuild();
+        adVerificationService = new AdVerificationService(sessionRepository, userRepository, null, limiter);
+        ReflectionTestUtils.setField(adVerificationService, "verificationSecret", "benchmark-ad-verification-secret");
+        ReflectionTestUtils.setField(adVerificationService, "sessionExpiryMinutes", 5);
+        ReflectionTestUtils.setField(adVerificationService, "minAdDurationSeconds", 15);
+    }
+
+    @Benchmark
+    public AdVerificationService.AdSessionResponse requestAdSession() {
+        int i = sequence.incrementAndGet();
+        return adVerificationService.requestAdSession(i, "google", "us", "device-" + i,
+                "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff));
+    }
+}
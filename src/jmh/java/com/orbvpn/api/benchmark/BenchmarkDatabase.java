@@ -0,0 +1,46 @@
+package com.orbvpn.api.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * A throwaway PostgreSQL database for benchmarks of SQL paths, where an
+ * in-memory fake would measure nothing. Started once per benchmark fork and
+ * removed when it exits; needs Docker. Benchmarks create only the tables
+ * they touch, with the columns the measured statements use.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> container;
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    private BenchmarkDatabase(PostgreSQLContainer<?> container) {
+        this.container = container;
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(container.getJdbcUrl());
+        config.setUsername(container.getUsername());
+        config.setPassword(container.getPassword());
+        config.setMaximumPoolSize(4);
+        this.dataSource = new HikariDataSource(config);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    static BenchmarkDatabase start() {
+        PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:16-alpine");
+        container.start();
+        return new BenchmarkDatabase(container);
+    }
+
+    JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+        container.stop();
+    }
+}
@@ -0,0 +1,118 @@
+package com.orbvpn.api.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * connection_stats retention on PostgreSQL: removing the three oldest months
+ * of a year of rows with one DELETE on an unpartitioned table, against
+ * detaching and dropping three monthly partitions the way
+ * {@code PostgresPartitionDialect} does, plus a one-week range query on each
+ * table. Both tables are rebuilt from the same generated rows before every
+ * iteration, against PostgreSQL in a container ({@link BenchmarkDatabase}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class ConnectionStatsRetentionBenchmark {
+
+    private static final String SOURCE = "connection_stats_source";
+    private static final String PLAIN = "connection_stats_plain";
+    private static final String PARTITIONED = "connection_stats_part";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+    private static final int MONTHS = 12;
+    private static final int EXPIRED_MONTHS = 3;
+
+    private static final String COLUMNS = "id BIGINT NOT NULL, user_id INTEGER, server_id BIGINT, "
+            + "connection_start TIMESTAMP NOT NULL, connection_end TIMESTAMP, data_transferred NUMERIC(19,4), "
+            + "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP";
+
+    @Param({ "5000000" })
+    public long rows;
+
+    private BenchmarkDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private final Timestamp cutoff = Timestamp.valueOf(FIRST_DAY.plusMonths(EXPIRED_MONTHS).atStartOfDay());
+    private final Timestamp weekFrom = Timestamp.valueOf(FIRST_DAY.plusMonths(6).atStartOfDay());
+    private final Timestamp weekTo = Timestamp.valueOf(FIRST_DAY.plusMonths(6).plusWeeks(1).atStartOfDay());
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        jdbcTemplate = database.jdbcTemplate();
+        // Rows spread evenly over the year, ~30 minute sessions
+        jdbcTemplate.execute("CREATE TABLE " + SOURCE + " (" + COLUMNS + ")");
+        jdbcTemplate.update("INSERT INTO " + SOURCE + " SELECT g, (g % 100000)::int, g % 500, s, "
+                + "s + interval '30 minutes', (g % 1000000)::numeric, s, s + interval '30 minutes' "
+                + "FROM generate_series(1, ?) g, "
+                + "LATERAL (SELECT timestamp '" + FIRST_DAY + "' + (g * (interval '365 days' / ?))) t(s)",
+                rows, rows);
+    }
+
+    @Setup(Level.Iteration)
+    public void rebuildTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + PLAIN);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + PARTITIONED);
+
+        jdbcTemplate.execute("CREATE TABLE " + PLAIN + " (" + COLUMNS + ", PRIMARY KEY (id))");
+        jdbcTemplate.execute("CREATE TABLE " + PARTITIONED + " (" + COLUMNS + ", PRIMARY KEY (id, connection_start)) "
+                + "PARTITION BY RANGE (connection_start)");
+        for (int month = 0; month < MONTHS; month++) {
+            jdbcTemplate.execute("CREATE TABLE " + partition(month) + " PARTITION OF " + PARTITIONED
+                    + " FOR VALUES FROM ('" + FIRST_DAY.plusMonths(month) + "') TO ('"
+                    + FIRST_DAY.plusMonths(month + 1) + "')");
+        }
+        jdbcTemplate.execute("CREATE TABLE " + PARTITIONED + "_default PARTITION OF " + PARTITIONED + " DEFAULT");
+
+        for (String table : new String[] { PLAIN, PARTITIONED }) {
+            jdbcTemplate.execute("INSERT INTO " + table + " SELECT * FROM " + SOURCE);
+            jdbcTemplate.execute("CREATE INDEX ON " + table + " (user_id, connection_start)");
+            jdbcTemplate.execute("CREATE INDEX ON " + table + " (connection_end)");
+            jdbcTemplate.execute("ANALYZE " + table);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public int deleteExpiredRows() {
+        return jdbcTemplate.update("DELETE FROM " + PLAIN + " WHERE connection_start < ?", cutoff);
+    }
+
+    @Benchmark
+    public void dropExpiredPartitions() {
+        for (int month = 0; month < EXPIRED_MONTHS; month++) {
+            jdbcTemplate.execute("ALTER TABLE " + PARTITIONED + " DETACH PARTITION " + partition(month));
+            jdbcTemplate.execute("DROP TABLE " + partition(month));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> weekRangeQueryUnpartitioned() {
+        return weekRangeQuery(PLAIN);
+    }
+
+    @Benchmark
+    public Map<String, Object> weekRangeQueryPartitioned() {
+        return weekRangeQuery(PARTITIONED);
+    }
+
+    private Map<String, Object> weekRangeQuery(String table) {
+        return jdbcTemplate.queryForMap("SELECT COUNT(*), COALESCE(SUM(data_transferred), 0) FROM " + table
+                + " WHERE connection_start >= ? AND connection_start < ?", weekFrom, weekTo);
+    }
+
+    private static String partition(int month) {
+        return PARTITIONED + "_p" + month;
+    }
+}
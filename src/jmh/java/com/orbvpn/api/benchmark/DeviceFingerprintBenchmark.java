@@ -0,0 +1,96 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.domain.entity.DeviceFingerprint;
+import com.orbvpn.api.domain.entity.MacOuiEntry;
+import com.orbvpn.api.repository.DeviceFingerprintRepository;
+import com.orbvpn.api.repository.MacOuiEntryRepository;
+import com.orbvpn.api.service.DeviceFingerprintService;
+import com.orbvpn.api.service.DeviceFingerprintService.DeviceIdentificationRequest;
+import com.orbvpn.api.service.DeviceFingerprintService.DeviceIdentificationResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * {@link DeviceFingerprintService#identifyDevice} against the built-in default
+ * fingerprints, for a device that matches early, one identified by its MAC
+ * vendor and one that falls through to the heuristics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeviceFingerprintBenchmark {
+
+    private DeviceFingerprintService service;
+    private DeviceIdentificationRequest appleTv;
+    private DeviceIdentificationRequest knownVendor;
+    private DeviceIdentificationRequest unknownDevice;
+
+    @Setup
+    public void setUp() {
+        List<DeviceFingerprint> fingerprints = new ArrayList<>();
+        Map<String, MacOuiEntry> ouis = new HashMap<>();
+        ouis.put("F0B479", MacOuiEntry.builder().ouiPrefix("F0B479").vendorName("Apple, Inc.").vendorShort("Apple").build());
+        ouis.put("3C5AB4", MacOuiEntry.builder().ouiPrefix("3C5AB4").vendorName("Google, Inc.").vendorShort("Google").build());
+
+        Map<String, Function<Object[], Object>> fingerprintAnswers = new HashMap<>();
+        fingerprintAnswers.put("findByMacPrefix", args -> List.of());
+        fingerprintAnswers.put("save", args -> {
+            fingerprints.add((DeviceFingerprint) args[0]);
+            return args[0];
+        });
+        fingerprintAnswers.put("findByIsActiveTrueOrderByPriorityDescConfidenceScoreDesc", args -> fingerprints);
+        fingerprintAnswers.put("incrementMatchCount", args -> null);
+
+        service = new DeviceFingerprintService(
+                InMemoryRepositories.fake(MacOuiEntryRepository.class, Map.of(
+                        "findByOuiPrefixIgnoreCase", args -> Optional.ofNullable(ouis.get(((String) args[0]).toUpperCase())),
+                        "incrementSeenCount", args -> null)),
+                InMemoryRepositories.fake(DeviceFingerprintRepository.class, fingerprintAnswers));
+
+        // Load the built-in fingerprints through the service, then order them as the repository would
+        service.seedDefaultFingerprints();
+        fingerprints.sort(Comparator
+                .comparing((DeviceFingerprint fp) -> fp.getPriority() != null ? fp.getPriority() : 0).reversed()
+                .thenComparing(fp -> fp.getConfidenceScore() != null ? fp.getConfidenceScore() : 0,
+                        Comparator.reverseOrder()));
+
+        appleTv = new DeviceIdentificationRequest();
+        appleTv.setMacAddress("F0:B4:79:12:34:56");
+        appleTv.setHostname("Living-Room-Apple-TV.local");
+        appleTv.setMdnsServices(List.of("_airplay._tcp", "_raop._tcp"));
+        appleTv.setOpenPorts(List.of(7000, 7100, 49152));
+
+        knownVendor = new DeviceIdentificationRequest();
+        knownVendor.setMacAddress("3C:5A:B4:AA:BB:CC");
+        knownVendor.setOpenPorts(List.of(8008, 8009));
+
+        unknownDevice = new DeviceIdentificationRequest();
+        unknownDevice.setMacAddress("02:00:00:00:00:01");
+        unknownDevice.setHostname("host-1234");
+        unknownDevice.setOpenPorts(List.of(22, 80, 443));
+        unknownDevice.setTtl(64);
+    }
+
+    @Benchmark
+    public DeviceIdentificationResult matchedByMdns() {
+        return service.identifyDevice(appleTv);
+    }
+
+    @Benchmark
+    public DeviceIdentificationResult matchedByVendor() {
+        return service.identifyDevice(knownVendor);
+    }
+
+    @Benchmark
+    public DeviceIdentificationResult heuristicFallback() {
+        return service.identifyDevice(unknownDevice);
+    }
+}
@@ -0,0 +1,78 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.domain.dto.GiftCardCreate;
+import com.orbvpn.api.domain.entity.Group;
+import com.orbvpn.api.repository.GroupRepository;
+import com.orbvpn.api.service.GroupService;
+import com.orbvpn.api.service.giftcard.GiftCardCodeGenerator;
+import com.orbvpn.api.service.giftcard.GiftCardService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GiftCardService#createBulkGiftCards} creating 100k cards for one
+ * group: code generation plus the JDBC batch inserts into gift_cards, against
+ * PostgreSQL in a container ({@link BenchmarkDatabase}). The table is emptied
+ * before each iteration, so every run inserts into the same unique index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class GiftCardBulkCreationBenchmark {
+
+    private static final int GROUP_ID = 1;
+
+    @Param({ "100000" })
+    public int cards;
+
+    private BenchmarkDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private GiftCardService giftCardService;
+    private GiftCardCreate create;
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        jdbcTemplate = database.jdbcTemplate();
+        jdbcTemplate.execute("CREATE TABLE gift_cards (id BIGSERIAL PRIMARY KEY, code VARCHAR(255) NOT NULL UNIQUE, "
+                + "group_id INTEGER NOT NULL, amount NUMERIC(19, 2), used BOOLEAN NOT NULL, "
+                + "cancelled BOOLEAN NOT NULL, expiration_date TIMESTAMP, created_at TIMESTAMP, updated_at TIMESTAMP)");
+
+        Group group = new Group();
+        group.setId(GROUP_ID);
+        group.setName("Benchmark");
+        group.setPrice(BigDecimal.TEN);
+        GroupService groupService = new GroupService(InMemoryRepositories.fake(GroupRepository.class,
+                Map.of("findById", args -> Optional.of(group))), null, null, null);
+
+        giftCardService = new GiftCardService(null, new GiftCardCodeGenerator(), groupService, null, null, null,
+                null, null, null, jdbcTemplate);
+        create = GiftCardCreate.builder()
+                .groupId(GROUP_ID)
+                .validityDays(30)
+                .build();
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTable() {
+        jdbcTemplate.execute("TRUNCATE gift_cards");
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void createBulkGiftCards(Blackhole blackhole) {
+        giftCardService.createBulkGiftCards(create, cards, blackhole::consume);
+    }
+}
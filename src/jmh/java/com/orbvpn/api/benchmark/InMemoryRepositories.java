@@ -0,0 +1,40 @@
+package com.orbvpn.api.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds in-memory stand-ins for Spring Data repository interfaces, so
+ * benchmarks measure the service code and not a database or a mocking library.
+ *
+ * Only the methods given in {@code answers} are implemented; any other call
+ * fails, which keeps a benchmark from silently measuring an unexpected path.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <R> R fake(Class<R> repositoryType, Map<String, Function<Object[], Object>> answers) {
+        return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[] { repositoryType },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "toString":
+                            return "InMemory" + repositoryType.getSimpleName();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            Function<Object[], Object> answer = answers.get(method.getName());
+                            if (answer == null) {
+                                throw new UnsupportedOperationException(
+                                        repositoryType.getSimpleName() + "." + method.getName() + " is not faked");
+                            }
+                            return answer.apply(args);
+                    }
+                });
+    }
+}
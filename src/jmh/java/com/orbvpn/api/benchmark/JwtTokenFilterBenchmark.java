@@ -0,0 +1,108 @@
+package com.orbvpn.api.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.orbvpn.api.config.security.JwtTokenFilter;
+import com.orbvpn.api.config.security.JwtTokenUtil;
+import com.orbvpn.api.domain.entity.Role;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.domain.enums.RoleName;
+import com.orbvpn.api.properties.JWTProperties;
+import com.orbvpn.api.repository.RevokedTokenRepository;
+import com.orbvpn.api.repository.TrialHistoryRepository;
+import com.orbvpn.api.service.TokenBlacklistService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JwtTokenFilter} on a valid, a revoked and a forged bearer token.
+ * Signing keys, the revocation store and the user lookup are all in memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtTokenFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    private JwtTokenFilter filter;
+    private String validHeader;
+    private String revokedHeader;
+    private String forgedHeader;
+
+    @Setup
+    public void setUp() {
+        JWTProperties properties = new JWTProperties();
+        properties.setSecret("benchmark-secret");
+        properties.setExpirationMillis(TimeUnit.HOURS.toMillis(1));
+        properties.setRefreshMillis(TimeUnit.MINUTES.toMillis(5));
+
+        Algorithm algorithm = Algorithm.HMAC256(properties.getSecret());
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil(properties, algorithm, JWT.require(algorithm).build(),
+                InMemoryRepositories.fake(TrialHistoryRepository.class, Map.of("hasTrialHistory", args -> false)));
+
+        Role role = new Role();
+        role.setId(3);
+        role.setName(RoleName.USER);
+        User user = new User();
+        user.setId(42);
+        user.setUsername("bench-user");
+        user.setEmail("bench-user@example.test");
+        user.setRole(role);
+
+        TokenBlacklistService blacklist = new TokenBlacklistService(InMemoryRepositories.fake(
+                RevokedTokenRepository.class, Map.of(
+                        "existsByJti", args -> false,
+                        "save", args -> args[0])));
+        filter = new JwtTokenFilter(jwtTokenUtil, username -> user, blacklist, new SimpleMeterRegistry());
+
+        validHeader = "Bearer " + jwtTokenUtil.generateAccessToken(user);
+
+        String revokedToken = JWT.create()
+                .withClaim("username", user.getUsername())
+                .withClaim("type", "access")
+                .withExpiresAt(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .sign(algorithm);
+        blacklist.revokeToken(revokedToken, user.getId(), user.getUsername(), "access",
+                new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)), "benchmark", "127.0.0.1");
+        revokedHeader = "Bearer " + revokedToken;
+
+        forgedHeader = "Bearer " + JWT.create()
+                .withClaim("username", user.getUsername())
+                .sign(Algorithm.HMAC256("some-other-secret"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse validToken() throws Exception {
+        return filter(validHeader);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse revokedToken() throws Exception {
+        return filter(revokedHeader);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse forgedToken() throws Exception {
+        return filter(forgedHeader);
+    }
+
+    // A fresh request each time: OncePerRequestFilter skips requests it has already seen
+    private MockHttpServletResponse filter(String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/graphql");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+}
@@ -0,0 +1,96 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.domain.entity.OrbMeshPartner;
+import com.orbvpn.api.repository.OrbMeshNodeRepository;
+import com.orbvpn.api.repository.OrbMeshPartnerRepository;
+import com.orbvpn.api.service.partner.PartnerApiKeyUsageRecorder;
+import com.orbvpn.api.service.partner.PartnerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Partner-authenticated request throughput: {@link PartnerService#validateApiKey}
+ * for keys that were already verified once, a key id that does not exist, and
+ * the BCrypt check every request used to pay, for comparison. Uses the
+ * application's BCrypt strength (12), so setup takes a few seconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class PartnerApiKeyBenchmark {
+
+    private static final int PARTNERS = 16;
+
+    private PartnerService partnerService;
+    private BCryptPasswordEncoder passwordEncoder;
+    private String[] apiKeys;
+    private String[] apiKeyHashes;
+    private String unknownKey;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new BCryptPasswordEncoder(12);
+
+        Map<Long, OrbMeshPartner> byId = new HashMap<>();
+        Map<String, OrbMeshPartner> byKeyId = new HashMap<>();
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("findById", args -> Optional.ofNullable(byId.get((Long) args[0])));
+        answers.put("save", args -> {
+            OrbMeshPartner partner = (OrbMeshPartner) args[0];
+            byKeyId.put(partner.getApiKeyId(), partner);
+            return partner;
+        });
+        answers.put("findByApiKeyIdAndIsActiveTrue", args -> Optional.ofNullable(byKeyId.get((String) args[0])));
+        answers.put("findByPartnerUuidStartingWith", args -> List.of());
+
+        partnerService = new PartnerService(
+                InMemoryRepositories.fake(OrbMeshPartnerRepository.class, answers),
+                InMemoryRepositories.fake(OrbMeshNodeRepository.class, Map.of()),
+                passwordEncoder,
+                // Never flushed here; recording a use is part of the measured path
+                new PartnerApiKeyUsageRecorder(null));
+
+        apiKeys = new String[PARTNERS];
+        apiKeyHashes = new String[PARTNERS];
+        for (int i = 0; i < PARTNERS; i++) {
+            OrbMeshPartner partner = OrbMeshPartner.builder()
+                    .id((long) i)
+                    .partnerUuid(UUID.randomUUID().toString())
+                    .partnerName("bench-partner-" + i)
+                    .contactEmail("partner-" + i + "@example.test")
+                    .build();
+            byId.put(partner.getId(), partner);
+            apiKeys[i] = partnerService.generateApiKey(partner.getId());
+            apiKeyHashes[i] = partner.getApiKeyHash();
+            // First use pays the BCrypt verification and fills the digest cache
+            partnerService.validateApiKey(apiKeys[i]);
+        }
+        unknownKey = "orb_0000000000000000_" + "x".repeat(43);
+    }
+
+    @Benchmark
+    public OrbMeshPartner verifiedKey() {
+        return partnerService.validateApiKey(apiKeys[ThreadLocalRandom.current().nextInt(PARTNERS)]);
+    }
+
+    @Benchmark
+    public OrbMeshPartner unknownKeyId() {
+        return partnerService.validateApiKey(unknownKey);
+    }
+
+    @Benchmark
+    public boolean bcryptPerRequest() {
+        int i = ThreadLocalRandom.current().nextInt(PARTNERS);
+        return passwordEncoder.matches(apiKeys[i], apiKeyHashes[i]);
+    }
+}
@@ -0,0 +1,105 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.config.RateLimitProperties;
+import com.orbvpn.api.domain.entity.Role;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.domain.enums.RoleName;
+import com.orbvpn.api.filter.RateLimitFilter;
+import com.orbvpn.api.filter.UserRateLimiter;
+import com.orbvpn.api.repository.BlacklistRepository;
+import com.orbvpn.api.repository.WhitelistRepository;
+import com.orbvpn.api.service.IPService;
+import com.orbvpn.api.service.TokenRateLimiterService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RateLimitFilter} resolving IP, user and token buckets for a
+ * population of clients. Limits are set high enough that every request is
+ * allowed, so the benchmark measures bucket lookup and consumption rather than
+ * the rejection path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RateLimitFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    @Param({ "100", "10000" })
+    public int clients;
+
+    private RateLimitFilter filter;
+    private String[] ips;
+    private String[] headers;
+    private UsernamePasswordAuthenticationToken[] authentications;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setIpLimit(Integer.MAX_VALUE);
+        properties.setIpRefillDuration(Duration.ofSeconds(1));
+        properties.setUserLimit(Integer.MAX_VALUE);
+        properties.setUserRefillDuration(Duration.ofSeconds(1));
+        properties.setResellerLimit(Integer.MAX_VALUE);
+        properties.setTokenUserLimit(Integer.MAX_VALUE);
+        properties.setTokenResellerLimit(Integer.MAX_VALUE);
+
+        // Nothing is white- or blacklisted
+        IPService ipService = new IPService(
+                InMemoryRepositories.fake(BlacklistRepository.class, Map.of("findByIpAddress", args -> null)),
+                InMemoryRepositories.fake(WhitelistRepository.class, Map.of("findByIpAddress", args -> null)));
+
+        filter = new RateLimitFilter();
+        ReflectionTestUtils.setField(filter, "ipService", ipService);
+        ReflectionTestUtils.setField(filter, "rateLimiter", new UserRateLimiter(ipService, properties));
+        ReflectionTestUtils.setField(filter, "tokenRateLimiterService", new TokenRateLimiterService(properties));
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+
+        Role role = new Role();
+        role.setId(3);
+        role.setName(RoleName.USER);
+
+        ips = new String[clients];
+        headers = new String[clients];
+        authentications = new UsernamePasswordAuthenticationToken[clients];
+        for (int i = 0; i < clients; i++) {
+            User user = new User();
+            user.setId(i);
+            user.setUsername("bench-user-" + i);
+            user.setRole(role);
+
+            ips[i] = "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+            headers[i] = "Bearer bench-token-" + i;
+            authentications[i] = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        }
+    }
+
+    @Benchmark
+    public MockHttpServletResponse authenticatedRequest() throws Exception {
+        int client = next;
+        next = (next + 1) % clients;
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/graphql");
+        request.setRemoteAddr(ips[client]);
+        request.addHeader("Authorization", headers[client]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        SecurityContextHolder.getContext().setAuthentication(authentications[client]);
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+}
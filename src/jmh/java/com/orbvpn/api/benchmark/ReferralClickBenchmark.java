@@ -0,0 +1,73 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.domain.entity.ReferralConfig;
+import com.orbvpn.api.repository.ReferralCodeRepository;
+import com.orbvpn.api.repostitory.ReferralConfigRepository;
+import com.orbvpn.api.service.referral.ReferralClickRecorder;
+import com.orbvpn.api.service.referral.ReferralClickTrackingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ReferralClickTrackingService#trackClick} from 8 threads with distinct
+ * client IPs, so every click passes the throttle and is buffered. The recorder
+ * is flushed in the background as the scheduler would, into a JdbcTemplate
+ * that discards the batches, so this measures the click path only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class ReferralClickBenchmark {
+
+    private static final String CODE = "benchmark";
+
+    private ReferralClickTrackingService clickTrackingService;
+    private ReferralClickRecorder clickRecorder;
+    private ScheduledExecutorService flusher;
+    private final AtomicLong ipSequence = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        JdbcTemplate discarding = new JdbcTemplate() {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                    ParameterizedPreparedStatementSetter<T> pss) {
+                return new int[][] { new int[batchArgs.size()] };
+            }
+        };
+        clickRecorder = new ReferralClickRecorder(discarding, event -> { });
+        ReferralConfig config = ReferralConfig.builder().build();
+        clickTrackingService = new ReferralClickTrackingService(
+                null,
+                InMemoryRepositories.fake(ReferralConfigRepository.class, Map.of("getConfig", args -> config)),
+                InMemoryRepositories.fake(ReferralCodeRepository.class,
+                        Map.of("findUserIdByCode", args -> Optional.of(42))),
+                clickRecorder,
+                event -> { });
+
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(clickRecorder::flush, 100, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        flusher.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean trackClick() {
+        // Only the hash of the address is used, so any unique string will do
+        String address = "10.0." + ipSequence.incrementAndGet();
+        return clickTrackingService.trackClick(CODE, address, "benchmark", null, "DE");
+    }
+}
@@ -0,0 +1,106 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.service.referral.ReferralLeaderboardRanking;
+import com.orbvpn.api.service.referral.ReferralLeaderboardService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request work of {@link ReferralLeaderboardService#getLeaderboard}
+ * at up to a million ranked users: reading the top 10 and a user's rank from
+ * a {@link ReferralLeaderboardRanking}, against sorting every participant on
+ * each request as the leaderboard used to (without the per-user queries it
+ * also ran), plus the periodic rebuild of a ranking from sorted rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReferralLeaderboardBenchmark {
+
+    private static final int TOP = 10;
+
+    @Param({ "10000", "1000000" })
+    public int users;
+
+    private ReferralLeaderboardRanking ranking;
+    private int[] rankedUserIds;
+    private BigDecimal[] rankedTokens;
+    private List<Object[]> unsorted;
+    private int[] lookupUserIds;
+    private int lookup;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        unsorted = new ArrayList<>(users);
+        for (int userId = 1; userId <= users; userId++) {
+            // Long-tailed earnings, a few large referrers and many small ones
+            double tokens = Math.pow(random.nextDouble(), 4) * 50_000;
+            unsorted.add(new Object[] { userId, BigDecimal.valueOf(tokens).setScale(8, RoundingMode.DOWN) });
+        }
+
+        List<Object[]> sorted = new ArrayList<>(unsorted);
+        sorted.sort(byTokensThenUser());
+        rankedUserIds = new int[users];
+        rankedTokens = new BigDecimal[users];
+        for (int i = 0; i < users; i++) {
+            rankedUserIds[i] = (Integer) sorted.get(i)[0];
+            rankedTokens[i] = (BigDecimal) sorted.get(i)[1];
+        }
+        ranking = rebuildRanking();
+
+        lookupUserIds = random.ints(1024, 1, users + 1).toArray();
+    }
+
+    @Benchmark
+    public void topTenAndRank(Blackhole blackhole) {
+        for (int i = 0; i < TOP; i++) {
+            blackhole.consume(ranking.userIdAt(i));
+            blackhole.consume(ranking.tokensAt(i));
+        }
+        blackhole.consume(ranking.rankOf(nextLookup()));
+    }
+
+    @Benchmark
+    public void sortAllParticipantsPerRequest(Blackhole blackhole) {
+        List<Object[]> entries = new ArrayList<>(unsorted);
+        entries.sort(byTokensThenUser());
+        for (int i = 0; i < TOP; i++) {
+            blackhole.consume(entries.get(i));
+        }
+        int userId = nextLookup();
+        for (int i = 0; i < entries.size(); i++) {
+            if ((Integer) entries.get(i)[0] == userId) {
+                blackhole.consume(i + 1);
+                break;
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ReferralLeaderboardRanking rebuildRanking() {
+        ReferralLeaderboardRanking.Builder builder = ReferralLeaderboardRanking.builder();
+        for (int i = 0; i < rankedUserIds.length; i++) {
+            builder.add(rankedUserIds[i], rankedTokens[i]);
+        }
+        return builder.build();
+    }
+
+    private int nextLookup() {
+        return lookupUserIds[lookup++ & (lookupUserIds.length - 1)];
+    }
+
+    private static Comparator<Object[]> byTokensThenUser() {
+        return Comparator.<Object[], BigDecimal>comparing(row -> (BigDecimal) row[1]).reversed()
+                .thenComparing(row -> (Integer) row[0]);
+    }
+}
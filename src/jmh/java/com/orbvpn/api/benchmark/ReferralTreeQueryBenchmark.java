@@ -0,0 +1,93 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The recursive-CTE referral queries of {@link UserRepository} on a complete
+ * 5-ary referral tree (100k users, about 8 levels deep): per-level counts and
+ * a page of the whole downline from the root, and the upline chain of a leaf.
+ *
+ * The SQL is read from the repository's {@link Query} annotations, so the
+ * benchmark runs what the application runs, against PostgreSQL in a
+ * container ({@link BenchmarkDatabase}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReferralTreeQueryBenchmark {
+
+    private static final int FAN_OUT = 5;
+    private static final int MAX_LEVELS = 10;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({ "100000" })
+    public int users;
+
+    private BenchmarkDatabase database;
+    private NamedParameterJdbcTemplate jdbc;
+    private String levelCountsSql;
+    private String downlinePageSql;
+    private String downlineCountSql;
+    private String uplineSql;
+    private Map<String, Object> fromRoot;
+    private Map<String, Object> fromLeaf;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        levelCountsSql = query("countDownlineByLevel", int.class, int.class).value();
+        Query page = query("findDownlinePage", int.class, int.class, Pageable.class);
+        // Spring Data appends the same limit and offset to the native query
+        downlinePageSql = page.value() + " LIMIT " + PAGE_SIZE + " OFFSET " + 10 * PAGE_SIZE;
+        downlineCountSql = page.countQuery();
+        uplineSql = query("findUpline", int.class, int.class).value();
+
+        database = BenchmarkDatabase.start();
+        JdbcTemplate jdbcTemplate = database.jdbcTemplate();
+        jdbcTemplate.execute("CREATE TABLE \"user\" (id INTEGER PRIMARY KEY, referred_by_id INTEGER)");
+        // User g is referred by user (g - 2) / FAN_OUT + 1, giving a complete 5-ary tree under user 1
+        jdbcTemplate.update("INSERT INTO \"user\" (id, referred_by_id) "
+                + "SELECT g, CASE WHEN g = 1 THEN NULL ELSE (g - 2) / ? + 1 END FROM generate_series(1, ?) g",
+                FAN_OUT, users);
+        jdbcTemplate.execute("CREATE INDEX idx_user_referred_by_id ON \"user\" (referred_by_id)");
+        jdbcTemplate.execute("ANALYZE \"user\"");
+
+        jdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        fromRoot = Map.of("rootId", 1, "maxDepth", MAX_LEVELS);
+        fromLeaf = Map.of("userId", users, "maxDepth", MAX_LEVELS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> levelCounts() {
+        return jdbc.queryForList(levelCountsSql, fromRoot);
+    }
+
+    @Benchmark
+    public void downlinePage(Blackhole blackhole) {
+        blackhole.consume(jdbc.queryForList(downlinePageSql, fromRoot));
+        blackhole.consume(jdbc.queryForObject(downlineCountSql, fromRoot, Long.class));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> uplineChain() {
+        return jdbc.queryForList(uplineSql, fromLeaf);
+    }
+
+    private static Query query(String method, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return UserRepository.class.getMethod(method, parameterTypes).getAnnotation(Query.class);
+    }
+}
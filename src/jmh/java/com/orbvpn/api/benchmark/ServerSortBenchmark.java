@@ -0,0 +1,115 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.domain.dto.ClientServerView;
+import com.orbvpn.api.domain.entity.CongestionLevel;
+import com.orbvpn.api.domain.entity.Server;
+import com.orbvpn.api.mapper.ServerViewMapperImpl;
+import com.orbvpn.api.config.ServerRecommendationProperties;
+import com.orbvpn.api.repository.CongestionLevelRepository;
+import com.orbvpn.api.repository.ServerMetricsRepository;
+import com.orbvpn.api.repository.ServerRepository;
+import com.orbvpn.api.service.ServerMetricsCache;
+import com.orbvpn.api.service.ServerRecommendationService;
+import com.orbvpn.api.service.ServerService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ServerService#getClientSortedServers} with the "congestion" sort,
+ * which reads the ranking {@link ServerRecommendationService} precomputed for
+ * the client's region, the default (unsorted) listing for comparison, and the
+ * rebuild that runs after every metrics refresh.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServerSortBenchmark {
+
+    @Param({ "50", "500" })
+    public int servers;
+
+    private ServerService serverService;
+    private ServerRecommendationService recommendationService;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Server> visible = new ArrayList<>(servers);
+        Map<Integer, Integer> connected = new HashMap<>();
+        for (int i = 1; i <= servers; i++) {
+            Server server = new Server();
+            server.setId(i);
+            server.setHostName("node-" + i + ".example.test");
+            server.setPublicIp("198.51.100." + (i % 250));
+            server.setCountry("C" + (i % 40));
+            server.setCity("City " + (i % 120));
+            server.setContinent("Continent " + (i % 6));
+            visible.add(server);
+            connected.put(i, random.nextInt(400));
+        }
+        int totalConnected = connected.values().stream().mapToInt(Integer::intValue).sum();
+
+        List<CongestionLevel> levels = List.of(level("low", 0, 1), level("medium", 1, 3), level("high", 3, 100));
+
+        ServerMetricsCache metrics = new ServerMetricsCache(null, null, null) {
+            @Override
+            public int getConnectedUserCount(int serverId) {
+                return connected.getOrDefault(serverId, 0);
+            }
+
+            @Override
+            public int getTotalConnectedUsers() {
+                return totalConnected;
+            }
+        };
+
+        ServerRepository serverRepository = InMemoryRepositories.fake(ServerRepository.class,
+                Map.of("findAllVisible", args -> visible));
+        recommendationService = new ServerRecommendationService(
+                serverRepository,
+                InMemoryRepositories.fake(ServerMetricsRepository.class, Map.of("findLatestMetrics", args -> List.of())),
+                InMemoryRepositories.fake(CongestionLevelRepository.class, Map.of("findAll", args -> levels)),
+                new ServerViewMapperImpl(),
+                metrics,
+                new ServerRecommendationProperties());
+        recommendationService.rebuild();
+
+        serverService = new ServerService(
+                serverRepository,
+                null,
+                new ServerViewMapperImpl(),
+                null,
+                recommendationService,
+                null,
+                null);
+    }
+
+    @Benchmark
+    public List<ClientServerView> congestionSort() {
+        return serverService.getClientSortedServers("congestion", "Continent 3");
+    }
+
+    @Benchmark
+    public void rebuildRecommendations() {
+        recommendationService.rebuild();
+    }
+
+    @Benchmark
+    public List<ClientServerView> defaultOrder() {
+        return serverService.getClientSortedServers("default", null);
+    }
+
+    private static CongestionLevel level(String name, float min, float max) {
+        CongestionLevel level = new CongestionLevel();
+        level.setName(name);
+        level.setMin(min);
+        level.setMax(max);
+        return level;
+    }
+}
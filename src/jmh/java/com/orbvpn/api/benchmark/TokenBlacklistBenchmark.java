@@ -0,0 +1,60 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.repository.RevokedTokenRepository;
+import com.orbvpn.api.service.TokenBlacklistService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenBlacklistService#isTokenRevoked} for a token in the revocation
+ * cache and for one that falls through to the (in-memory) repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenBlacklistBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int revokedTokens;
+
+    private TokenBlacklistService blacklist;
+    private String revokedToken;
+    private String activeToken;
+
+    @Setup
+    public void setUp() {
+        blacklist = new TokenBlacklistService(InMemoryRepositories.fake(RevokedTokenRepository.class, Map.of(
+                "existsByJti", args -> false,
+                "save", args -> args[0])));
+
+        Date expiresAt = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < revokedTokens; i++) {
+            revokedToken = fakeJwt();
+            blacklist.revokeToken(revokedToken, i, "user-" + i, "access", expiresAt, "benchmark", "127.0.0.1");
+        }
+        activeToken = fakeJwt();
+    }
+
+    @Benchmark
+    public boolean revokedTokenHit() {
+        return blacklist.isTokenRevoked(revokedToken);
+    }
+
+    @Benchmark
+    public boolean activeTokenMiss() {
+        return blacklist.isTokenRevoked(activeToken);
+    }
+
+    // Same length and alphabet as a real access token; only the hash input matters here
+    private static String fakeJwt() {
+        StringBuilder token = new StringBuilder("eyJhbGciOiJIUzI1NiJ9.");
+        while (token.length() < 600) {
+            token.append(UUID.randomUUID().toString().replace("-", ""));
+        }
+        return token.append(".signature").toString();
+    }
+}
@@ -0,0 +1,99 @@
+package com.orbvpn.api.benchmark;
+
+import com.orbvpn.api.config.RateLimitProperties;
+import com.orbvpn.api.service.notification.MessageRateLimiter;
+import com.orbvpn.api.service.notification.WhatsAppDeliveryTracker;
+import com.orbvpn.api.service.notification.WhatsAppService;
+import it.auties.whatsapp.api.Whatsapp;
+import it.auties.whatsapp.controller.Store;
+import it.auties.whatsapp.model.jid.Jid;
+import it.auties.whatsapp.model.jid.JidProvider;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * {@link WhatsAppService#sendMessage} against a fake WhatsApp client whose
+ * sends complete after 5 ms: each invocation sends a batch of messages to
+ * 50 recipients and waits for all of them, so the score is messages per
+ * second. Delivery records are flushed in the background, as the scheduler
+ * would, into a JdbcTemplate that discards the batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class WhatsAppSendBenchmark {
+
+    private static final int MESSAGES = 100;
+    private static final int RECIPIENTS = 50;
+    private static final long SEND_LATENCY_MS = 5;
+
+    private WhatsAppService whatsAppService;
+    private ScheduledExecutorService flusher;
+
+    @Setup
+    public void setUp() {
+        // The cobalt client and its store are concrete classes, not interfaces,
+        // so they are stubbed; stub-only mocks record no invocations
+        Store store = mock(Store.class, withSettings().stubOnly());
+        when(store.jid()).thenReturn(Optional.of(Jid.of("15550000000@s.whatsapp.net")));
+        when(store.contacts()).thenReturn(List.of());
+        when(store.findChatByJid(any())).thenReturn(Optional.empty());
+        when(store.findContactByJid(any())).thenReturn(Optional.empty());
+        when(store.findContactByName(anyString())).thenReturn(Optional.empty());
+        Whatsapp whatsapp = mock(Whatsapp.class, withSettings().stubOnly());
+        when(whatsapp.isConnected()).thenReturn(true);
+        when(whatsapp.store()).thenReturn(store);
+        doAnswer(inv -> CompletableFuture.supplyAsync(() -> null,
+                CompletableFuture.delayedExecutor(SEND_LATENCY_MS, TimeUnit.MILLISECONDS)))
+                .when(whatsapp).sendMessage(any(JidProvider.class), anyString());
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getWhatsapp().setTokensPerHour(Integer.MAX_VALUE);
+        properties.getWhatsapp().setTokensPerMinute(Integer.MAX_VALUE);
+
+        JdbcTemplate discarding = new JdbcTemplate() {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                    ParameterizedPreparedStatementSetter<T> pss) {
+                return new int[][] { new int[batchArgs.size()] };
+            }
+        };
+        WhatsAppDeliveryTracker deliveryTracker = new WhatsAppDeliveryTracker(discarding);
+        whatsAppService = new WhatsAppService(whatsapp, null, new MessageRateLimiter(properties), deliveryTracker);
+
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(deliveryTracker::flush, 100, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        flusher.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void sendMessages() {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            sends[i] = whatsAppService.sendMessage(String.format("+1555%07d", i % RECIPIENTS), "Message " + i);
+        }
+        CompletableFuture.allOf(sends).join();
+    }
+}
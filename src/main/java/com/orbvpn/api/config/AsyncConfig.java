@@ -1,40 +1,41 @@
 package com.orbvpn.api.config;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.lang.reflect.Method;
 import java.util.concurrent.Executor;
 
 /**
  * Async configuration for handling asynchronous operations.
- * Provides a properly configured thread pool for @Async methods.
+ * Each @Async call runs on its own virtual thread. There is no queue to fill,
+ * so bursts are never dropped; the load each downstream sees is capped by
+ * {@link com.orbvpn.api.service.common.DownstreamBulkhead} instead of pool size.
  */
 @Configuration
 @EnableAsync
 @Slf4j
+@RequiredArgsConstructor
 public class AsyncConfig implements AsyncConfigurer {
 
+    private final ConcurrencyProperties concurrencyProperties;
+
     @Override
     @Bean(name = "taskExecutor")
     public Executor getAsyncExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(20);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("Async-");
-        executor.setRejectedExecutionHandler((r, e) ->
-            log.warn("Task rejected from async executor. Queue size: {}", e.getQueue().size()));
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        executor.setAwaitTerminationSeconds(60);
-        executor.initialize();
-        log.info("Async executor initialized with core={}, max={}, queue={}",
-                executor.getCorePoolSize(), executor.getMaxPoolSize(), 100);
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("async-");
+        executor.setVirtualThreads(true);
+        // Lets in-flight emails and webhooks finish on shutdown; submissions after
+        // close fail with TaskRejectedException in the caller rather than vanishing
+        executor.setTaskTerminationTimeout(concurrencyProperties.getShutdownTimeout().toMillis());
+        log.info("Async executor initialized with virtual threads, shutdown timeout={}",
+                concurrencyProperties.getShutdownTimeout());
         return executor;
     }
 
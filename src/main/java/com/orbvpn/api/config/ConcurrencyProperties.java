@@ -0,0 +1,29 @@
+package com.orbvpn.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "concurrency")
+public class ConcurrencyProperties {
+    // @Scheduled jobs; each job still runs at most once at a time
+    private int schedulerPoolSize = 8;
+
+    // How long async work may keep running after shutdown starts
+    private Duration shutdownTimeout = Duration.ofSeconds(60);
+
+    // Concurrent calls allowed per downstream, shared by all callers on this instance
+    private int smtpPermits = 10;
+    private int fcmPermits = 50;
+    private int sshPermits = 20;
+    private int httpPermits = 50;
+    private int appStorePermits = 10;
+    private int googlePlayPermits = 10;
+
+    // How long a caller waits for a downstream permit before failing
+    private Duration permitTimeout = Duration.ofSeconds(30);
+}
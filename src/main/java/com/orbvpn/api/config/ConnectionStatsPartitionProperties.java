@@ -0,0 +1,33 @@
+package com.orbvpn.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "connection-stats.partitioning")
+public class ConnectionStatsPartitionProperties {
+
+    public enum Interval {
+        MONTHLY, WEEKLY
+    }
+
+    // Range covered by each connection_stats partition, by connection_start
+    private Interval interval = Interval.MONTHLY;
+
+    // Partitions whose whole range is older than this are removed
+    private int retentionMonths = 3;
+
+    // How many future partitions to keep created ahead of time
+    private int precreatePeriods = 3;
+
+    // Drop expired partitions; when false they are only detached and kept as standalone tables
+    private boolean dropExpired = true;
+
+    // Rows per DELETE while the table is still unpartitioned
+    private int deleteBatchSize = 10000;
+
+    // Convert an existing unpartitioned table on startup (ConnectionStatsPartitionMigrationRunner)
+    private boolean migrate = false;
+}
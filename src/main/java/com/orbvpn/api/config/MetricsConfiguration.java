@@ -1,15 +1,77 @@
 package com.orbvpn.api.config;
 
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.metrics.MeterRegistryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Micrometer setup. The registry itself is Spring Boot's auto-configured
+ * Prometheus registry (scraped at /actuator/prometheus); this class only adds
+ * common tags, histogram settings for the hot-path timers and tag-cardinality
+ * limits.
+ */
 @Configuration
 public class MetricsConfiguration {
 
+    // Timers that publish histogram buckets, so latency percentiles can be aggregated across instances
+    private static final List<String> HISTOGRAM_TIMERS = List.of(
+            "security.jwt.filter",
+            "security.ratelimit.filter",
+            "graphql.request",
+            "graphql.datafetcher",
+            "hikaricp.connections.acquire",
+            "ssh.command",
+            "webhook.delivery.http");
+
+    private static final int MAX_URI_TAGS = 100;
+    private static final int MAX_GRAPHQL_FIELD_TAGS = 500;
+
+    @Bean
+    public MeterRegistryCustomizer<MeterRegistry> commonTagsCustomizer(
+            @Value("${spring.application.name:orbnet}") String application) {
+        return registry -> registry.config().commonTags("application", application);
+    }
+
+    @Bean
+    public MeterFilter hotPathHistogramFilter() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() != Meter.Type.TIMER || HISTOGRAM_TIMERS.stream().noneMatch(id.getName()::startsWith)) {
+                    return config;
+                }
+                // Bounded range keeps the bucket count per timer small
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(30).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+
+    @Bean
+    public MeterFilter httpServerUriCardinalityFilter() {
+        return MeterFilter.maximumAllowableTags("http.server.requests", "uri", MAX_URI_TAGS, MeterFilter.deny());
+    }
+
+    @Bean
+    public MeterFilter httpClientUriCardinalityFilter() {
+        return MeterFilter.maximumAllowableTags("http.client.requests", "uri", MAX_URI_TAGS, MeterFilter.deny());
+    }
+
     @Bean
-    public MeterRegistry meterRegistry() {
-        return new SimpleMeterRegistry();
+    public MeterFilter graphqlFieldCardinalityFilter() {
+        return MeterFilter.maximumAllowableTags("graphql.datafetcher", "graphql.field.name",
+                MAX_GRAPHQL_FIELD_TAGS, MeterFilter.deny());
     }
 }
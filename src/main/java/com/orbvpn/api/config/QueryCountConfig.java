@@ -0,0 +1,48 @@
+package com.orbvpn.api.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-request SQL statement counting for GraphQL operations, so N+1 patterns
+ * in field resolvers show up in the logs.
+ */
+@Slf4j
+@Configuration
+public class QueryCountConfig {
+
+    @Value("${graphql.query-count.warn-threshold:50}")
+    private int warnThreshold;
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountHibernateCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountInspector());
+    }
+
+    @Bean
+    public WebGraphQlInterceptor queryCountInterceptor() {
+        return (request, chain) -> Mono.defer(() -> {
+            AtomicInteger counter = new AtomicInteger();
+            long startedAt = System.nanoTime();
+            return chain.next(request).contextWrite(QueryCountInspector.context(counter)).doFinally(signal -> {
+                int queries = counter.get();
+                long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+                if (queries > warnThreshold) {
+                    log.warn("GraphQL operation {} ran {} SQL statements in {} ms",
+                            request.getOperationName(), queries, elapsedMillis);
+                } else {
+                    log.debug("GraphQL operation {} ran {} SQL statements in {} ms",
+                            request.getOperationName(), queries, elapsedMillis);
+                }
+            });
+        });
+    }
+}
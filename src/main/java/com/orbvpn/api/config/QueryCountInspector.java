@@ -0,0 +1,48 @@
+package com.orbvpn.api.config;
+
+import io.micrometer.context.ContextRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import reactor.util.context.Context;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements Hibernate prepares while a GraphQL request's
+ * counter is in scope. Statements are passed through unchanged.
+ *
+ * The counter travels in the request's Reactor context under
+ * {@link #CONTEXT_KEY}. Spring GraphQL restores it onto whichever thread runs
+ * a controller method or batch loader for the request, and removes it again
+ * when that call returns, so thread hops are counted and nothing is left
+ * behind for the next request on the thread. {@link QueryCountConfig} adds a
+ * counter to every request; tests can add one with {@link #context(AtomicInteger)}.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    public static final String CONTEXT_KEY = "orbvpn.queryCount";
+
+    // Only set inside Spring GraphQL's context propagation scopes
+    private static final ThreadLocal<AtomicInteger> COUNTER = new ThreadLocal<>();
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor(
+                CONTEXT_KEY, COUNTER::get, COUNTER::set, COUNTER::remove);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger counter = COUNTER.get();
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+        return sql;
+    }
+
+    /**
+     * Reactor context that counts the statements of a GraphQL execution into
+     * {@code counter}; pass it to {@code contextWrite}.
+     */
+    public static Context context(AtomicInteger counter) {
+        return Context.of(CONTEXT_KEY, counter);
+    }
+}
@@ -0,0 +1,24 @@
+package com.orbvpn.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "server-recommendation")
+public class ServerRecommendationProperties {
+    // Sessions a server is assumed to handle when no max_connections is reported for it
+    private int defaultCapacity = 500;
+
+    // Score weights; each term is normalized to 0..1 and lower scores rank first
+    private double loadWeight = 0.45;
+    private double cpuWeight = 0.2;
+    private double bandwidthWeight = 0.15;
+    private double distanceWeight = 0.2;
+
+    // Reported CPU and bandwidth older than this are treated as unknown
+    private Duration metricsMaxAge = Duration.ofMinutes(10);
+}
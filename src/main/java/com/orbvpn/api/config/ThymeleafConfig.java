@@ -1,5 +1,6 @@
 package com.orbvpn.api.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.thymeleaf.spring5.SpringTemplateEngine;
@@ -11,6 +12,10 @@ import org.thymeleaf.extras.springsecurity6.dialect.SpringSecurityDialect;
 @Configuration
 public class ThymeleafConfig {
 
+    // Parsed templates are kept; messages inside them are still resolved per locale at render time
+    @Value("${email.templates.cache:true}")
+    private boolean cacheTemplates;
+
     @Bean
     public SpringResourceTemplateResolver templateResolver() {
         SpringResourceTemplateResolver resolver = new SpringResourceTemplateResolver();
@@ -18,7 +23,7 @@ public class ThymeleafConfig {
         resolver.setSuffix(".html");
         resolver.setTemplateMode(TemplateMode.HTML);
         resolver.setCharacterEncoding("UTF-8");
-        resolver.setCacheable(false); // Set to true in production
+        resolver.setCacheable(cacheTemplates);
         return resolver;
     }
 
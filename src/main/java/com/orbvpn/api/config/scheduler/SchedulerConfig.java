@@ -1,8 +1,13 @@
 package com.orbvpn.api.config.scheduler;
 
+import com.orbvpn.api.config.ConcurrencyProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+@Slf4j
 @Configuration
 public class SchedulerConfig {
 
@@ -10,4 +15,25 @@ public class SchedulerConfig {
     public SchedulerManager schedulerManager() {
         return new SchedulerManager();
     }
-}
\ No newline at end of file
+
+    /**
+     * Scheduler for @Scheduled methods. Several threads, so a slow job (server
+     * metrics over SSH, for example) no longer holds up every other job.
+     * A pooled scheduler never starts a fixed-rate, fixed-delay or cron job
+     * while its previous run is still going, which gives per-job overlap
+     * protection on this instance; ShedLock covers it across instances.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ConcurrencyProperties properties, MeterRegistry meterRegistry) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(properties.getSchedulerPoolSize());
+        scheduler.setThreadNamePrefix("scheduled-");
+        scheduler.setErrorHandler(e -> {
+            meterRegistry.counter("scheduled.task.failures").increment();
+            log.error("Scheduled task failed", e);
+        });
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds((int) properties.getShutdownTimeout().toSeconds());
+        return scheduler;
+    }
+}
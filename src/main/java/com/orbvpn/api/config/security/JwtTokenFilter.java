@@ -7,6 +7,8 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -25,49 +27,63 @@ public class JwtTokenFilter extends OncePerRequestFilter {
   private final JwtTokenUtil jwtTokenUtil;
   private final UserDetailsService userDetailsService;
   private final TokenBlacklistService tokenBlacklistService;
+  private final MeterRegistry meterRegistry;
+
+  private static final String FILTER_TIMER = "security.jwt.filter";
 
 @Override
 protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
     FilterChain chain) throws IOException, ServletException {
 
+  // Only token handling is timed, not the rest of the request
+  Timer.Sample sample = Timer.start(meterRegistry);
+  String outcome = authenticate(request, response);
+  sample.stop(meterRegistry.timer(FILTER_TIMER, "outcome", outcome));
+
+  chain.doFilter(request, response);
+}
+
+/**
+ * Authenticates the request from its bearer token, if it has a valid one.
+ *
+ * @return the outcome, used as a bounded metric tag
+ */
+private String authenticate(HttpServletRequest request, HttpServletResponse response) {
   String header = request.getHeader("Authorization");
   if (!hasLength(header) || !header.startsWith("Bearer ")) {
-    chain.doFilter(request, response);
-    return;
+    return "no_token";
   }
   
   // ✅ NEW: Skip OrbMesh API keys - let OrbMeshApiKeyFilter handle them
   final String token = header.split(" ")[1].trim();
   if (token.startsWith("orbmesh_")) {
-    chain.doFilter(request, response);
-    return;
+    return "api_key";
   }
   
   // Continue with JWT validation
   if (!jwtTokenUtil.validate(token)) {
-    chain.doFilter(request, response);
-    return;
+    return "invalid";
   }
 
   // Check if token is revoked/blacklisted
   if (tokenBlacklistService.isTokenRevoked(token)) {
     log.warn("Rejected revoked token for request: {}", request.getRequestURI());
-    chain.doFilter(request, response);
-    return;
+    return "revoked";
   }
 
   // Get user identity and set it on the spring security context
   UserDetails userDetails = userDetailsService.loadUserByUsername(jwtTokenUtil.getUsername(token));
 
-  if (userDetails != null) {
-    SecurityContextHolder.getContext().setAuthentication(
-        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
-    if (jwtTokenUtil.isTokenExpiring(token)) {
-      response.addHeader("Authorization", jwtTokenUtil.generateAccessToken(userDetails));
-    }
+  if (userDetails == null) {
+    return "unknown_user";
   }
 
-  chain.doFilter(request, response);
+  SecurityContextHolder.getContext().setAuthentication(
+      new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+  if (jwtTokenUtil.isTokenExpiring(token)) {
+    response.addHeader("Authorization", jwtTokenUtil.generateAccessToken(userDetails));
+  }
+  return "authenticated";
 }
 
 }
\ No newline at end of file
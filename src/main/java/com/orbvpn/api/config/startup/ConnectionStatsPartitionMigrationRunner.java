@@ -0,0 +1,47 @@
+package com.orbvpn.api.config.startup;
+
+import com.orbvpn.api.service.partition.ConnectionStatsPartitionManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off conversion of an existing connection_stats table into time-range
+ * partitions. Enable with connection-stats.partitioning.migrate=true on a
+ * single instance; it does nothing once the table is partitioned. On
+ * PostgreSQL the old table is kept as connection_stats_legacy and can be
+ * dropped after checking the row counts.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@Order(3)
+@ConditionalOnProperty(name = "connection-stats.partitioning.migrate", havingValue = "true", matchIfMissing = false)
+public class ConnectionStatsPartitionMigrationRunner implements CommandLineRunner {
+    private final ConnectionStatsPartitionManager partitionManager;
+    private final Environment environment;
+
+    @Override
+    public void run(String... args) {
+        if (environment.acceptsProfiles(Profiles.of("test"))) {
+            log.info("Skipping connection_stats partition migration in test environment");
+            return;
+        }
+
+        log.info("=== STARTING CONNECTION_STATS PARTITION MIGRATION ===");
+        try {
+            long startedAt = System.currentTimeMillis();
+            if (partitionManager.migrate()) {
+                log.info("=== CONNECTION_STATS PARTITION MIGRATION COMPLETED in {} ms ===",
+                        System.currentTimeMillis() - startedAt);
+            }
+        } catch (Exception e) {
+            log.error("connection_stats partition migration failed; the table was left unpartitioned", e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.orbvpn.api.config.startup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Makes sure token_balances has its unique index on user_id, which the token
+ * ledger's {@code ON CONFLICT (user_id)} upsert needs. Hibernate's schema
+ * update gives up quietly when a table already holds duplicate rows, so older
+ * databases may have none.
+ *
+ * When the index is missing, duplicate rows are merged into the oldest row
+ * per user (balances summed, matching the user's ledger) and the index is
+ * added, in one transaction that blocks balance writes meanwhile. Does
+ * nothing once the index exists; disable with
+ * token.balances.ensure-unique-index=false.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@Order(1)
+@ConditionalOnProperty(name = "token.balances.ensure-unique-index", havingValue = "true", matchIfMissing = true)
+public class TokenBalanceUniqueIndexRunner implements CommandLineRunner {
+
+    static final String CONSTRAINT = "uk_token_balances_user";
+
+    private static final String HAS_UNIQUE_USER_INDEX_SQL = "SELECT EXISTS (SELECT 1 FROM pg_index i "
+            + "JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0] "
+            + "WHERE i.indrelid = to_regclass('token_balances') AND i.indisunique AND i.indnatts = 1 "
+            + "AND a.attname = 'user_id')";
+
+    private static final String DUPLICATES_SQL = "SELECT user_id, COUNT(*) AS copies, SUM(balance) AS balance "
+            + "FROM token_balances GROUP BY user_id HAVING COUNT(*) > 1";
+
+    private static final String MERGE_SQL = "UPDATE token_balances b "
+            + "SET balance = d.balance, last_activity_date = d.last_activity_date, created_at = d.created_at, "
+            + "updated_at = now() "
+            + "FROM (SELECT MIN(id) AS id, SUM(balance) AS balance, MAX(last_activity_date) AS last_activity_date, "
+            + "MIN(created_at) AS created_at FROM token_balances GROUP BY user_id HAVING COUNT(*) > 1) d "
+            + "WHERE b.id = d.id";
+
+    private static final String DELETE_DUPLICATES_SQL = "DELETE FROM token_balances b USING token_balances k "
+            + "WHERE b.user_id = k.user_id AND b.id > k.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransactionTemplate;
+
+    @Override
+    public void run(String... args) {
+        if (!isPostgres() || !hasTable() || hasUniqueUserIndex()) {
+            return;
+        }
+
+        log.warn("token_balances has no unique index on user_id; merging duplicate balances and adding {}",
+                CONSTRAINT);
+        writeTransactionTemplate.executeWithoutResult(status -> {
+            // Writers wait until the index is in place; readers carry on
+            jdbcTemplate.execute("LOCK TABLE token_balances IN SHARE ROW EXCLUSIVE MODE");
+            if (hasUniqueUserIndex()) {
+                return;
+            }
+            List<Map<String, Object>> duplicates = jdbcTemplate.queryForList(DUPLICATES_SQL);
+            for (Map<String, Object> duplicate : duplicates) {
+                log.warn("Merging {} token balances of user {} into one holding {}",
+                        duplicate.get("copies"), duplicate.get("user_id"), duplicate.get("balance"));
+            }
+            jdbcTemplate.update(MERGE_SQL);
+            int deleted = jdbcTemplate.update(DELETE_DUPLICATES_SQL);
+            jdbcTemplate.execute("ALTER TABLE token_balances ADD CONSTRAINT " + CONSTRAINT + " UNIQUE (user_id)");
+            log.info("Added {} after removing {} duplicate token balances of {} users",
+                    CONSTRAINT, deleted, duplicates.size());
+        });
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        // The ledger's upserts are PostgreSQL-only
+        return product != null && product.toLowerCase(Locale.ROOT).contains("postgres");
+    }
+
+    private boolean hasTable() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('token_balances') IS NOT NULL", Boolean.class));
+    }
+
+    private boolean hasUniqueUserIndex() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_UNIQUE_USER_INDEX_SQL, Boolean.class));
+    }
+}
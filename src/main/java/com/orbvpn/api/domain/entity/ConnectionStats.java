@@ -9,7 +9,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "connection_stats")
+// Partitioned by connection_start where the database supports it; see ConnectionStatsPartitionManager
+@Table(name = "connection_stats", indexes = {
+        @Index(name = "idx_connection_stats_user_start", columnList = "user_id, connection_start"),
+        @Index(name = "idx_connection_stats_server_start", columnList = "server_id, connection_start"),
+        @Index(name = "idx_connection_stats_end", columnList = "connection_end")
+})
 @Data
 @Builder
 @NoArgsConstructor
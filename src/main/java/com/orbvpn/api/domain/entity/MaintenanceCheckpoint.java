@@ -0,0 +1,55 @@
+package com.orbvpn.api.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a chunked maintenance job over the user table. The last
+ * processed id is written in the same transaction as each chunk, so a job
+ * that is interrupted resumes after the last committed chunk.
+ */
+@Entity
+@Table(name = "maintenance_checkpoint", indexes = {
+        @Index(name = "idx_maintenance_checkpoint_job_name", columnList = "job_name", unique = true)
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaintenanceCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 100)
+    private String jobName;
+
+    @Column(name = "last_id", nullable = false)
+    @Builder.Default
+    private int lastId = 0;
+
+    @Column(name = "processed", nullable = false)
+    @Builder.Default
+    private long processed = 0;
+
+    @Column(name = "completed", nullable = false)
+    @Builder.Default
+    private boolean completed = false;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 @Table(name = "orbmesh_partner", indexes = {
     @Index(name = "idx_omp_partner_uuid", columnList = "partner_uuid", unique = true),
     @Index(name = "idx_omp_tier", columnList = "tier"),
-    @Index(name = "idx_omp_active", columnList = "is_active")
+    @Index(name = "idx_omp_active", columnList = "is_active"),
+    @Index(name = "idx_omp_api_key_id", columnList = "api_key_id", unique = true)
 })
 @Data
 @NoArgsConstructor
@@ -78,6 +79,10 @@ public class OrbMeshPartner {
     private Boolean isActive = true;
 
     // API credentials
+    // Public identifier embedded in the issued key, used for an exact-match lookup
+    @Column(name = "api_key_id", length = 16)
+    private String apiKeyId;
+
     @Column(name = "api_key_hash", length = 255)
     private String apiKeyHash;
 
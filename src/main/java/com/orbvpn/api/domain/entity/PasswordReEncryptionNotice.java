@@ -0,0 +1,42 @@
+package com.orbvpn.api.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user whose password was replaced by a password re-encryption job and who
+ * has not been emailed the new one yet. Written in the same transaction as the
+ * new password and removed once the email is sent, so a job that dies before
+ * sending finds the user again when it is re-run. The password itself is
+ * never stored; the re-run sets a fresh one and sends that.
+ */
+@Entity
+@Table(name = "password_reencryption_notice", indexes = {
+        @Index(name = "idx_password_reencryption_notice_job_user", columnList = "job_name, user_id", unique = true)
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PasswordReEncryptionNotice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 100)
+    private String jobName;
+
+    @Column(name = "user_id", nullable = false)
+    private int userId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
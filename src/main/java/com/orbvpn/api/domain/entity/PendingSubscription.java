@@ -6,7 +6,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "pending_subscriptions")
+@Table(name = "pending_subscriptions", indexes = {
+        @Index(name = "idx_pending_subscriptions_unprocessed", columnList = "processed_at, gateway, id"),
+        @Index(name = "idx_pending_subscriptions_subscription_id", columnList = "subscription_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -42,6 +45,13 @@ public class PendingSubscription {
     @Column
     private LocalDateTime processedAt;
 
+    // Set while an instance is processing the row; an expired lease can be claimed again
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "attempts", nullable = false, columnDefinition = "INTEGER DEFAULT 0")
+    private int attempts;
+
     @Builder
     public PendingSubscription(Integer paymentId, String subscriptionId, Integer userId,
             Integer groupId, GatewayName gateway, LocalDateTime createdAt) {
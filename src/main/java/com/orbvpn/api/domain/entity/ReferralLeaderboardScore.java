@@ -0,0 +1,66 @@
+package com.orbvpn.api.domain.entity;
+
+import com.orbvpn.api.domain.enums.ReferralLeaderboardPeriod;
+import lombok.*;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A user's referral totals for one leaderboard bucket (an ISO week, a calendar
+ * month, or all time). Maintained incrementally from commission and click
+ * events and rebuilt from the source tables by the nightly reconciliation.
+ */
+@Entity
+@Table(name = "referral_leaderboard_score",
+    uniqueConstraints = @UniqueConstraint(name = "uk_referral_leaderboard_bucket_user",
+        columnNames = {"period", "bucket_start", "user_id"}),
+    indexes = {
+        @Index(name = "idx_referral_leaderboard_ranking",
+            columnList = "period, bucket_start, tokens_earned DESC, user_id")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReferralLeaderboardScore {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReferralLeaderboardPeriod period;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate bucketStart;
+
+    @Column(name = "user_id", nullable = false)
+    private int userId;
+
+    /**
+     * Credited commission tokens in the bucket
+     */
+    @Column(name = "tokens_earned", nullable = false, precision = 19, scale = 8)
+    @Builder.Default
+    private BigDecimal tokensEarned = BigDecimal.ZERO;
+
+    /**
+     * Referral link clicks in the bucket
+     */
+    @Column(nullable = false)
+    private long clicks;
+
+    /**
+     * Clicks that converted to registrations in the bucket
+     */
+    @Column(nullable = false)
+    private long conversions;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
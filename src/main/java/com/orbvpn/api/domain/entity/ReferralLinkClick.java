@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
     @Index(name = "idx_referral_click_code", columnList = "referral_code"),
     @Index(name = "idx_referral_click_user", columnList = "referrer_id"),
     @Index(name = "idx_referral_click_created", columnList = "created_at"),
-    @Index(name = "idx_referral_click_converted", columnList = "converted")
+    @Index(name = "idx_referral_click_converted", columnList = "converted"),
+    @Index(name = "idx_referral_click_referrer_ip_created", columnList = "referrer_id, ip_hash, created_at")
 })
 @Getter
 @Setter
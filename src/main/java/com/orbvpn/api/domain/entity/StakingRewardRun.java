@@ -0,0 +1,63 @@
+package com.orbvpn.api.domain.entity;
+
+import com.orbvpn.api.domain.enums.StakingRewardRunStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The staking reward distribution for one day. The cursor and counters are
+ * updated in the same transaction as each batch of credits, so a run that
+ * stops halfway resumes after the last stake it paid.
+ */
+@Entity
+@Table(name = "staking_reward_run", indexes = {
+        @Index(name = "idx_staking_reward_run_date", columnList = "reward_date", unique = true)
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StakingRewardRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reward_date", nullable = false)
+    private LocalDate rewardDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StakingRewardRunStatus status;
+
+    @Column(name = "last_stake_id", nullable = false)
+    @Builder.Default
+    private long lastStakeId = 0;
+
+    @Column(name = "stakes_processed", nullable = false)
+    @Builder.Default
+    private int stakesProcessed = 0;
+
+    @Column(name = "rewards_credited", nullable = false)
+    @Builder.Default
+    private int rewardsCredited = 0;
+
+    @Column(name = "tokens_distributed", precision = 19, scale = 8, nullable = false)
+    @Builder.Default
+    private BigDecimal tokensDistributed = BigDecimal.ZERO;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,60 @@
+package com.orbvpn.api.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted claim on a due subscription payment during automatic renewal.
+ * A replica must win the claim (an expired or missing lease) before it calls
+ * the payment gateway, and a RENEWED claim is terminal, so a payment is never
+ * renewed twice even when several instances run the renewal job.
+ * CHARGED_UNRECORDED is terminal too: the gateway took the money but the
+ * renewal could not be recorded, so it is left for manual reconciliation
+ * against {@code gatewayPaymentId} instead of being charged again.
+ */
+@Entity
+@Table(name = "subscription_renewal_claim", indexes = {
+        @Index(name = "idx_subscription_renewal_claim_status", columnList = "status, lease_until")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class SubscriptionRenewalClaim {
+
+    public static final String STATUS_CLAIMED = "CLAIMED";
+    public static final String STATUS_RENEWED = "RENEWED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CHARGED_UNRECORDED = "CHARGED_UNRECORDED";
+
+    @Id
+    @Column(name = "payment_id")
+    private Integer paymentId;
+
+    @Column(name = "status", length = 32, nullable = false)
+    private String status;
+
+    @Column(name = "owner", length = 128)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "renewed_payment_id")
+    private Integer renewedPaymentId;
+
+    @Column(name = "gateway_payment_id")
+    private String gatewayPaymentId;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
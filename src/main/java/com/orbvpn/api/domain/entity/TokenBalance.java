@@ -11,7 +11,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "token_balances")
+@Table(name = "token_balances", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_token_balances_user", columnNames = "user_id")
+})
 @Data
 @Builder
 @NoArgsConstructor
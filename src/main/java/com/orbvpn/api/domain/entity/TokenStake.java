@@ -11,6 +11,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(name = "token_stake", indexes = {
+        @Index(name = "idx_token_stake_unstaked_id", columnList = "unstaked_at, id")
+})
 @Getter
 @Setter
 @EntityListeners(AuditingEntityListener.class)
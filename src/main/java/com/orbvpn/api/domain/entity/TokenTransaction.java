@@ -2,6 +2,7 @@ package com.orbvpn.api.domain.entity;
 
 import com.orbvpn.api.domain.enums.TokenTransactionType;
 import lombok.Getter;
+import org.hibernate.annotations.Immutable;
 import lombok.Setter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -10,7 +11,17 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * Append-only ledger of token balance changes. Rows are written by
+ * {@code TokenLedgerService} together with the matching balance update and
+ * are never modified afterwards, so the sum of a user's amounts is their
+ * balance.
+ */
 @Entity
+@Immutable
+@Table(name = "token_transaction", indexes = {
+        @Index(name = "idx_token_transaction_user_created", columnList = "user_id, created_at")
+})
 @Getter
 @Setter
 @EntityListeners(AuditingEntityListener.class)
@@ -26,7 +37,7 @@ public class TokenTransaction {
     @Column(name = "user_id", insertable = false, updatable = false)
     private Integer userId;
 
-    @Column(precision = 19, scale = 4)
+    @Column(precision = 19, scale = 8)
     private BigDecimal amount;
 
     @Enumerated(EnumType.STRING)
@@ -39,6 +50,13 @@ public class TokenTransaction {
     @Column
     private String region;
 
+    /**
+     * Idempotency key for credits that must be applied at most once, such as
+     * a scheduled reward for a given day
+     */
+    @Column(unique = true, length = 128)
+    private String reference;
+
     @Column
     @CreatedDate
     private LocalDateTime createdAt;
@@ -9,7 +9,9 @@ import jakarta.persistence.*;
 @Entity
 @Getter
 @Setter
-@Table(name = "transaction_user_mappings")
+@Table(name = "transaction_user_mappings", indexes = {
+        @Index(name = "idx_transaction_user_mappings_email_gateway", columnList = "email, gateway")
+})
 public class TransactionUserMapping {
 
     @Id
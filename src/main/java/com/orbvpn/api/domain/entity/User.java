@@ -18,7 +18,9 @@ import java.util.Collections;
 import java.util.List;
 
 @Entity
-@Table(name = "\"user\"")
+@Table(name = "\"user\"", indexes = {
+    @Index(name = "idx_user_referred_by_id", columnList = "referred_by_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
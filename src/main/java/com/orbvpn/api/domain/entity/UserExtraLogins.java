@@ -12,7 +12,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_extra_logins")
+@Table(name = "user_extra_logins", indexes = {
+        @Index(name = "idx_user_extra_logins_active_expiry", columnList = "active, expiry_date"),
+        @Index(name = "idx_user_extra_logins_user_active", columnList = "user_id, active")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -52,6 +55,13 @@ public class UserExtraLogins {
     @Column(name = "subscription_id")
     private String subscriptionId;
 
+    /**
+     * Smallest reminder stage (days before expiry) already sent, so each stage
+     * goes out once however often the reminder job runs.
+     */
+    @Column(name = "reminder_days_sent")
+    private Integer reminderDaysSent;
+
     @CreatedDate
     private LocalDateTime createdAt;
 
@@ -0,0 +1,68 @@
+package com.orbvpn.api.domain.entity;
+
+import com.orbvpn.api.domain.enums.UserImportStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A bulk user import from an uploaded workbook. Counters are updated after
+ * every committed chunk so callers can poll progress while the job runs.
+ */
+@Entity
+@Table(name = "user_import_job", indexes = {
+        @Index(name = "idx_user_import_job_job_id", columnList = "job_id", unique = true)
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false, length = 36)
+    private String jobId;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private UserImportStatus status;
+
+    @Column(name = "requested_by")
+    private Integer requestedBy;
+
+    @Column(name = "processed_rows", nullable = false)
+    @Builder.Default
+    private int processedRows = 0;
+
+    @Column(name = "imported_rows", nullable = false)
+    @Builder.Default
+    private int importedRows = 0;
+
+    @Column(name = "failed_rows", nullable = false)
+    @Builder.Default
+    private int failedRows = 0;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,35 @@
+package com.orbvpn.api.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A spreadsheet row that could not be imported, with the reason.
+ */
+@Entity
+@Table(name = "user_import_row_error", indexes = {
+        @Index(name = "idx_user_import_row_error_job", columnList = "job_id, sheet_row")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserImportRowError {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false, length = 36)
+    private String jobId;
+
+    @Column(name = "sheet_row", nullable = false)
+    private int rowNumber;
+
+    @Column(name = "username")
+    private String username;
+
+    @Column(name = "message", length = 500)
+    private String message;
+}
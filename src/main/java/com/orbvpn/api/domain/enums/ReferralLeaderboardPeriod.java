@@ -0,0 +1,55 @@
+package com.orbvpn.api.domain.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Period a referral leaderboard covers. Weekly and monthly leaderboards are
+ * calendar buckets (ISO weeks starting Monday, calendar months); all-time is a
+ * single bucket.
+ */
+public enum ReferralLeaderboardPeriod {
+    ALL_TIME,
+    MONTHLY,
+    WEEKLY;
+
+    private static final LocalDate ALL_TIME_START = LocalDate.of(2000, 1, 1);
+    private static final LocalDate ALL_TIME_END = LocalDate.of(3000, 1, 1);
+
+    /**
+     * First day of the bucket containing {@code day}.
+     */
+    public LocalDate bucketStart(LocalDate day) {
+        return switch (this) {
+            case WEEKLY -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY -> day.withDayOfMonth(1);
+            case ALL_TIME -> ALL_TIME_START;
+        };
+    }
+
+    /**
+     * First day after the bucket starting at {@code bucketStart}.
+     */
+    public LocalDate bucketEnd(LocalDate bucketStart) {
+        return switch (this) {
+            case WEEKLY -> bucketStart.plusWeeks(1);
+            case MONTHLY -> bucketStart.plusMonths(1);
+            case ALL_TIME -> ALL_TIME_END;
+        };
+    }
+
+    /**
+     * Parses the API name ("all_time", "monthly", "weekly"), defaulting to all-time.
+     */
+    public static ReferralLeaderboardPeriod fromName(String name) {
+        if (name == null) {
+            return ALL_TIME;
+        }
+        return switch (name.toLowerCase()) {
+            case "weekly" -> WEEKLY;
+            case "monthly" -> MONTHLY;
+            default -> ALL_TIME;
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package com.orbvpn.api.domain.enums;
+
+/**
+ * Status of a daily staking reward distribution.
+ */
+public enum StakingRewardRunStatus {
+    RUNNING,      // Stakes are being rewarded; a crashed run resumes from its cursor
+    COMPLETED     // Every eligible stake was rewarded for the day
+}
@@ -7,6 +7,10 @@ public enum TokenTransactionType {
     UNSTAKE, // For unstaking tokens
     STAKE_REWARD, // For staking rewards
     REFERRAL, // From MLM referral commissions
+    MINING_REWARD, // From mining on a server
+    WITHDRAWAL, // Tokens transferred out to a blockchain wallet
+    CONNECTION_FEE, // Charged for data transferred over a connection
+    CONNECTION_REWARD, // Paid to a server operator for a connection
 
     // Credit/Wallet related transactions
     CREDIT_DEPOSIT, // From credit card or payment gateway deposit
@@ -0,0 +1,11 @@
+package com.orbvpn.api.domain.enums;
+
+/**
+ * Status of a bulk user import job.
+ */
+public enum UserImportStatus {
+    PENDING,      // Uploaded, waiting for a worker
+    RUNNING,      // Rows are being imported
+    COMPLETED,    // All rows processed (some may have failed, see row errors)
+    FAILED        // The file could not be read
+}
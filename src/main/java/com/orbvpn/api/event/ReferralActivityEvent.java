@@ -0,0 +1,46 @@
+package com.orbvpn.api.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Published when something counting towards a referrer's leaderboard totals
+ * happens: a commission is credited, or their referral link is clicked or
+ * converts to a registration.
+ */
+@Getter
+public class ReferralActivityEvent extends ApplicationEvent {
+
+    public enum Type {
+        COMMISSION_CREDITED,
+        CLICK,
+        CONVERSION
+    }
+
+    private final int referrerId;
+    private final Type type;
+    private final BigDecimal tokens;
+    private final LocalDateTime occurredAt;
+    /**
+     * Number of clicks or conversions this event stands for
+     */
+    private final long count;
+
+    public ReferralActivityEvent(Object source, int referrerId, Type type, BigDecimal tokens,
+            LocalDateTime occurredAt) {
+        this(source, referrerId, type, tokens, occurredAt, 1);
+    }
+
+    public ReferralActivityEvent(Object source, int referrerId, Type type, BigDecimal tokens,
+            LocalDateTime occurredAt, long count) {
+        super(source);
+        this.referrerId = referrerId;
+        this.type = type;
+        this.tokens = tokens;
+        this.occurredAt = occurredAt;
+        this.count = count;
+    }
+}
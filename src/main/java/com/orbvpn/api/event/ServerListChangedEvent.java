@@ -0,0 +1,17 @@
+package com.orbvpn.api.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when a server is created, edited or deleted.
+ */
+@Getter
+public class ServerListChangedEvent extends ApplicationEvent {
+    private final int serverId;
+
+    public ServerListChangedEvent(Object source, int serverId) {
+        super(source);
+        this.serverId = serverId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.orbvpn.api.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published after {@code ServerMetricsCache} finishes a refresh of the
+ * connected user counts.
+ */
+@Getter
+public class ServerMetricsRefreshedEvent extends ApplicationEvent {
+    private final int serverCount;
+
+    public ServerMetricsRefreshedEvent(Object source, int serverCount) {
+        super(source);
+        this.serverCount = serverCount;
+    }
+}
@@ -0,0 +1,21 @@
+package com.orbvpn.api.event;
+
+import com.orbvpn.api.domain.enums.GatewayName;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when a store purchase token is mapped to a user, either by a new
+ * transaction mapping or by updating an existing one.
+ */
+@Getter
+public class TransactionMappingChangedEvent extends ApplicationEvent {
+    private final String transactionId;
+    private final GatewayName gateway;
+
+    public TransactionMappingChangedEvent(Object source, String transactionId, GatewayName gateway) {
+        super(source);
+        this.transactionId = transactionId;
+        this.gateway = gateway;
+    }
+}
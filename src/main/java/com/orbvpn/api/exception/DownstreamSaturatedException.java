@@ -0,0 +1,7 @@
+package com.orbvpn.api.exception;
+
+public class DownstreamSaturatedException extends RuntimeException {
+    public DownstreamSaturatedException(String message) {
+        super(message);
+    }
+}
@@ -1,5 +1,7 @@
 package com.orbvpn.api.filter;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
@@ -28,31 +30,71 @@ public class RateLimitFilter extends OncePerRequestFilter {
     @Autowired
     private IPService ipService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String FILTER_TIMER = "security.ratelimit.filter";
+
+    /**
+     * Result of the limit checks. The tag is a bounded metric tag value;
+     * outcomes with a rejection message stop the request.
+     */
+    private enum Outcome {
+        WHITELISTED("whitelisted", null, null),
+        BLACKLISTED("blacklisted", HttpStatus.FORBIDDEN, "This IP address is blacklisted."),
+        NO_TOKEN("no_token", null, null),
+        TRUSTED_SERVER("trusted_server", null, null),
+        IP_LIMITED("ip_limited", HttpStatus.TOO_MANY_REQUESTS, "Too many requests from this IP address"),
+        USER_LIMITED("user_limited", HttpStatus.TOO_MANY_REQUESTS, "User has exceeded their rate limit"),
+        TOKEN_LIMITED("token_limited", HttpStatus.TOO_MANY_REQUESTS, "Too many requests from this token"),
+        ALLOWED("allowed", null, null);
+
+        private final String tag;
+        private final HttpStatus status;
+        private final String rejection;
+
+        Outcome(String tag, HttpStatus status, String rejection) {
+            this.tag = tag;
+            this.status = status;
+            this.rejection = rejection;
+        }
+    }
+
     @Override
     protected void doFilterInternal(jakarta.servlet.http.HttpServletRequest request,
             jakarta.servlet.http.HttpServletResponse response,
             jakarta.servlet.FilterChain filterChain)
             throws jakarta.servlet.ServletException, java.io.IOException {
 
+        // Only the limit checks are timed, not the rest of the request
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Outcome outcome = applyLimits(request);
+        sample.stop(meterRegistry.timer(FILTER_TIMER, "outcome", outcome.tag));
+
+        if (outcome.rejection == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(outcome.status.value());
+        response.getWriter().write(outcome.rejection);
+    }
+
+    private Outcome applyLimits(HttpServletRequest request) {
         String clientIp = request.getRemoteAddr();
 
         // Whitelist and Blacklist Checks
         if (ipService.isIPWhitelisted(clientIp)) {
-            filterChain.doFilter(request, response); // Allow whitelisted IPs without further checks
-            return;
+            return Outcome.WHITELISTED; // Allow whitelisted IPs without further checks
         }
 
         if (ipService.isIPBlacklisted(clientIp)) {
-            response.setStatus(HttpStatus.FORBIDDEN.value());
-            response.getWriter().write("This IP address is blacklisted.");
-            return;
+            return Outcome.BLACKLISTED;
         }
 
         // Check if there's an Authorization header before applying rate limiting checks
         String authHeader = request.getHeader("Authorization");
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            filterChain.doFilter(request, response);
-            return;
+            return Outcome.NO_TOKEN;
         }
 
         // ✅ NEW: Skip rate limiting for OrbMesh servers (server-to-server communication)
@@ -61,37 +103,30 @@ public class RateLimitFilter extends OncePerRequestFilter {
             for (GrantedAuthority authority : authentication.getAuthorities()) {
                 if (ORBMESH_SERVER.equals(authority.getAuthority())) {
                     // OrbMesh servers are trusted - skip all rate limiting
-                    filterChain.doFilter(request, response);
-                    return;
+                    return Outcome.TRUSTED_SERVER;
                 }
             }
         }
 
         // IP Based Rate Limiting
         if (!rateLimiter.isAllowedForIp(clientIp)) {
-            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-            response.getWriter().write("Too many requests from this IP address");
-            return;
+            return Outcome.IP_LIMITED;
         }
 
         // User Based Rate Limiting
         String userId = retrieveUserIdFromRequest(request);
         String roleName = retrieveRoleFromRequest();
         if (!rateLimiter.isAllowedForUser(userId, roleName)) {
-            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-            response.getWriter().write("User has exceeded their rate limit");
-            return;
+            return Outcome.USER_LIMITED;
         }
 
         // Token Based Rate Limiting
         String token = extractTokenFromRequest(request);
         if (!tokenRateLimiterService.isAllowed(token, roleName)) {
-            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-            response.getWriter().write("Too many requests from this token");
-            return;
+            return Outcome.TOKEN_LIMITED;
         }
 
-        filterChain.doFilter(request, response);
+        return Outcome.ALLOWED;
     }
 
     private String retrieveUserIdFromRequest(HttpServletRequest request) {
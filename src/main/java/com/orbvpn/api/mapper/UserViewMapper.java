@@ -14,5 +14,6 @@ public interface UserViewMapper {
   @Mapping(target = "managedBy", ignore = true) // Avoid circular reference, populate manually if needed
   @Mapping(target = "currentSubscription", ignore = true)
   @Mapping(target = "subscription", ignore = true)
+  @Mapping(target = "userSubscriptionList", ignore = true) // Batch-loaded by UserViewFieldResolver
   UserView toView(User user);
 }
@@ -1,6 +1,7 @@
 package com.orbvpn.api.repository;
 
 import com.orbvpn.api.domain.entity.AdViewingSession;
+import com.orbvpn.api.domain.entity.AdViewingSession.AdSessionStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -43,6 +44,38 @@ public interface AdViewingSessionRepository extends JpaRepository<AdViewingSessi
     @Query("SELECT COUNT(s) FROM AdViewingSession s WHERE s.deviceId = :deviceId AND s.createdAt > :since")
     long countRecentSessionsFromDevice(@Param("deviceId") String deviceId, @Param("since") LocalDateTime since);
 
+    /**
+     * Sessions created since a point in time, oldest first, as
+     * [userId, sessionId, ipAddress, deviceId, createdAt, expiresAt, status]
+     * rows. Used to rebuild the in-memory ad session limits on startup.
+     */
+    @Query("SELECT s.user.id, s.sessionId, s.ipAddress, s.deviceId, s.createdAt, s.expiresAt, s.status "
+            + "FROM AdViewingSession s WHERE s.createdAt > :since ORDER BY s.createdAt ASC")
+    List<Object[]> findRecentSessionsForLimits(@Param("since") LocalDateTime since);
+
+    /**
+     * Complete a session that is still pending and unexpired.
+     *
+     * @return 1 if this call completed the session, 0 if it was no longer pending
+     */
+    @Modifying
+    @Query("UPDATE AdViewingSession s SET s.status = 'COMPLETED', s.completedAt = :now, "
+            + "s.reportedDurationSeconds = :duration, s.tokensGranted = true "
+            + "WHERE s.sessionId = :sessionId AND s.status = 'PENDING' AND s.expiresAt > :now")
+    int completePendingSession(@Param("sessionId") String sessionId, @Param("duration") int duration,
+                               @Param("now") LocalDateTime now);
+
+    /**
+     * Move a session that is still pending to a final status.
+     *
+     * @return 1 if this call changed the session, 0 if it was no longer pending
+     */
+    @Modifying
+    @Query("UPDATE AdViewingSession s SET s.status = :status, s.rejectionReason = :reason "
+            + "WHERE s.sessionId = :sessionId AND s.status = 'PENDING'")
+    int closePendingSession(@Param("sessionId") String sessionId, @Param("status") AdSessionStatus status,
+                            @Param("reason") String reason);
+
     /**
      * Mark expired sessions.
      */
@@ -6,7 +6,6 @@ import com.orbvpn.api.domain.entity.MiningServer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -66,10 +65,6 @@ public interface ConnectionStatsRepository extends JpaRepository<ConnectionStats
             @Param("user") User user,
             @Param("since") LocalDateTime since);
 
-    @Modifying
-    @Query("DELETE FROM ConnectionStats cs WHERE cs.connectionEnd < :cutoffDate")
-    int deleteByConnectionEndBefore(@Param("cutoffDate") LocalDateTime cutoffDate);
-
     // Add to ConnectionStatsRepository.java
 
     @Query("SELECT COUNT(DISTINCT c) FROM ConnectionStats c WHERE c.connectionEnd IS NULL")
@@ -0,0 +1,23 @@
+package com.orbvpn.api.repository;
+
+import com.orbvpn.api.domain.entity.MaintenanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface MaintenanceCheckpointRepository extends JpaRepository<MaintenanceCheckpoint, Long> {
+
+    Optional<MaintenanceCheckpoint> findByJobName(String jobName);
+
+    @Modifying
+    @Query("UPDATE MaintenanceCheckpoint c SET c.lastId = :lastId, c.processed = c.processed + :processed, " +
+            "c.updatedAt = :now WHERE c.jobName = :jobName")
+    int advance(@Param("jobName") String jobName,
+                @Param("lastId") int lastId,
+                @Param("processed") int processed,
+                @Param("now") LocalDateTime now);
+}
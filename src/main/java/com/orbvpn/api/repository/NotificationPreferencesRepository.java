@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface NotificationPreferencesRepository extends JpaRepository<NotificationPreferences, Long> {
@@ -15,6 +17,11 @@ public interface NotificationPreferencesRepository extends JpaRepository<Notific
 
     Page<NotificationPreferences> findAll(Pageable pageable);
 
+    // Channels and categories are fetched in the same query instead of two selects per row
+    @Query("SELECT DISTINCT np FROM NotificationPreferences np LEFT JOIN FETCH np.enabledChannels "
+            + "LEFT JOIN FETCH np.enabledCategories WHERE np.user.id IN :userIds")
+    List<NotificationPreferences> findAllByUserIdIn(@Param("userIds") Collection<Integer> userIds);
+
     @Modifying
     @Query("DELETE FROM NotificationPreferences np WHERE np.user = :user")
     void deleteByUser(@Param("user") User user);
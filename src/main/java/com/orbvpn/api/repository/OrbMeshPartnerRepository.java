@@ -76,7 +76,10 @@ public interface OrbMeshPartnerRepository extends JpaRepository<OrbMeshPartner,
     // Find by active status (paginated)
     org.springframework.data.domain.Page<OrbMeshPartner> findByIsActive(Boolean isActive, org.springframework.data.domain.Pageable pageable);
 
-    // Find by UUID prefix (for API key lookup)
+    // Find by the key id embedded in an API key
+    Optional<OrbMeshPartner> findByApiKeyIdAndIsActiveTrue(String apiKeyId);
+
+    // Find by UUID prefix (for API keys issued before key ids)
     @Query("SELECT p FROM OrbMeshPartner p WHERE p.partnerUuid LIKE CONCAT(:prefix, '%') AND p.isActive = true")
     List<OrbMeshPartner> findByPartnerUuidStartingWith(@Param("prefix") String prefix);
 }
@@ -0,0 +1,18 @@
+package com.orbvpn.api.repository;
+
+import com.orbvpn.api.domain.entity.PasswordReEncryptionNotice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface PasswordReEncryptionNoticeRepository extends JpaRepository<PasswordReEncryptionNotice, Long> {
+
+    List<PasswordReEncryptionNotice> findByJobNameOrderByUserIdAsc(String jobName);
+
+    @Modifying
+    @Query("DELETE FROM PasswordReEncryptionNotice n WHERE n.jobName = :jobName AND n.userId = :userId")
+    int deleteByJobNameAndUserId(@Param("jobName") String jobName, @Param("userId") int userId);
+}
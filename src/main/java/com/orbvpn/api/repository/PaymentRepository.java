@@ -4,9 +4,11 @@ import com.orbvpn.api.domain.entity.Payment;
 import com.orbvpn.api.domain.entity.User;
 import com.orbvpn.api.domain.enums.GatewayName;
 import com.orbvpn.api.domain.enums.PaymentStatus;
+import com.orbvpn.api.repository.projections.RenewalCandidateProjection;
 
 import jakarta.persistence.LockModeType;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
@@ -33,6 +35,16 @@ public interface PaymentRepository extends JpaRepository<Payment, Integer> {
   @Query("SELECT p FROM Payment p WHERE p.status = 'PENDING' AND p.expiresAt <= :now")
   List<Payment> findAllSubscriptionPaymentsToRenew(@Param("now") LocalDateTime now);
 
+  /**
+   * Keyset page of due renewals after {@code afterId}, skipping payments whose
+   * renewal has already completed or was charged and awaits reconciliation.
+   */
+  @Query("SELECT p.id AS id, p.gateway AS gateway FROM Payment p WHERE p.status = 'PENDING' AND p.expiresAt <= :now " +
+      "AND p.id > :afterId AND NOT EXISTS (SELECT 1 FROM SubscriptionRenewalClaim c " +
+      "WHERE c.paymentId = p.id AND c.status IN ('RENEWED', 'CHARGED_UNRECORDED')) ORDER BY p.id")
+  List<RenewalCandidateProjection> findRenewalCandidatesAfter(@Param("now") LocalDateTime now,
+      @Param("afterId") int afterId, Pageable pageable);
+
   @Query("select count(payment.id) from Payment payment where payment.createdAt > :createdAt and payment.renewed = true and payment.category = 'GROUP'")
   int getTotalRenewSubscriptionCount(LocalDateTime createdAt);
 
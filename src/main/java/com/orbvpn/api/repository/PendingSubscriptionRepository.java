@@ -2,6 +2,12 @@ package com.orbvpn.api.repository;
 
 import com.orbvpn.api.domain.entity.PendingSubscription;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.time.LocalDateTime;
 
@@ -10,7 +16,37 @@ public interface PendingSubscriptionRepository extends JpaRepository<PendingSubs
 
     Optional<PendingSubscription> findByPaymentId(Long paymentId);
 
-    void deleteByProcessedAtBefore(LocalDateTime dateTime);
+    @Modifying
+    @Query("DELETE FROM PendingSubscription p WHERE p.processedAt < :dateTime")
+    int deleteByProcessedAtBefore(@Param("dateTime") LocalDateTime dateTime);
+
+    Optional<PendingSubscription> findByIdAndProcessedAtIsNull(Integer id);
+
+    /**
+     * Lock up to {@code limit} unprocessed store subscriptions whose purchase
+     * token now maps to a user, skipping rows another instance holds. Must run
+     * in the transaction that then calls {@link #lease}.
+     */
+    @Query(value = "SELECT ps.id FROM pending_subscriptions ps " +
+            "WHERE ps.processed_at IS NULL " +
+            "AND ps.gateway IN ('GOOGLE_PLAY', 'APPLE_STORE') " +
+            "AND (ps.lease_until IS NULL OR ps.lease_until < :now) " +
+            "AND ps.attempts < :maxAttempts " +
+            "AND (CAST(:subscriptionId AS TEXT) IS NULL OR ps.subscription_id = :subscriptionId) " +
+            "AND EXISTS (SELECT 1 FROM transaction_user_mappings m " +
+            "    WHERE m.transaction_id = ps.subscription_id AND m.gateway = ps.gateway " +
+            "    AND (m.user_id IS NOT NULL OR EXISTS (SELECT 1 FROM transaction_user_mappings e " +
+            "        WHERE e.email = m.email AND e.gateway = m.gateway AND e.user_id IS NOT NULL))) " +
+            "ORDER BY ps.id LIMIT :limit FOR UPDATE OF ps SKIP LOCKED", nativeQuery = true)
+    List<Integer> lockMatchable(@Param("subscriptionId") String subscriptionId,
+            @Param("now") LocalDateTime now,
+            @Param("maxAttempts") int maxAttempts,
+            @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE PendingSubscription p SET p.leaseUntil = :leaseUntil, p.attempts = p.attempts + 1 " +
+            "WHERE p.id IN :ids")
+    int lease(@Param("ids") Collection<Integer> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
 
     long countBySubscriptionId(String subscriptionId);
 }
\ No newline at end of file
@@ -2,10 +2,13 @@ package com.orbvpn.api.repository;
 
 import com.orbvpn.api.domain.entity.RadCheck;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface RadCheckRepository extends JpaRepository<RadCheck, Integer> {
   long deleteByUsername(String username);
@@ -16,6 +19,11 @@ public interface RadCheckRepository extends JpaRepository<RadCheck, Integer> {
 
   void deleteByUsernameAndAttributeAndValue(String username, String attribute, String value);
 
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM RadCheck rc WHERE rc.attribute = :attribute AND rc.username IN :usernames")
+  int deleteByAttributeAndUsernameIn(@Param("attribute") String attribute,
+      @Param("usernames") Collection<String> usernames);
+
   List<RadCheck> findByAttribute(String attribute);
 
   List<RadCheck> findByAttributeAndUsername(String attribute, String userName);
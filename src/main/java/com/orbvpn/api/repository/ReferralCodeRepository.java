@@ -3,8 +3,16 @@ package com.orbvpn.api.repository;
 import com.orbvpn.api.domain.entity.ReferralCode;
 import com.orbvpn.api.domain.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 public interface ReferralCodeRepository extends JpaRepository<ReferralCode, Integer> {
     ReferralCode findReferralCodeByCode(String code);
+
+    @Query("SELECT rc.user.id FROM ReferralCode rc WHERE rc.code = :code")
+    Optional<Integer> findUserIdByCode(@Param("code") String code);
+
     void deleteByUser(User user);
 }
@@ -0,0 +1,37 @@
+package com.orbvpn.api.repository;
+
+import com.orbvpn.api.domain.entity.StakingRewardRun;
+import com.orbvpn.api.domain.enums.StakingRewardRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface StakingRewardRunRepository extends JpaRepository<StakingRewardRun, Long> {
+
+    Optional<StakingRewardRun> findByRewardDate(LocalDate rewardDate);
+
+    List<StakingRewardRun> findByStatusAndRewardDateBeforeOrderByRewardDate(StakingRewardRunStatus status,
+                                                                            LocalDate rewardDate);
+
+    @Modifying
+    @Query("UPDATE StakingRewardRun r SET r.lastStakeId = :lastStakeId, " +
+            "r.stakesProcessed = r.stakesProcessed + :processed, r.rewardsCredited = r.rewardsCredited + :credited, " +
+            "r.tokensDistributed = r.tokensDistributed + :tokens WHERE r.id = :id")
+    int addProgress(@Param("id") Long id,
+                    @Param("lastStakeId") long lastStakeId,
+                    @Param("processed") int processed,
+                    @Param("credited") int credited,
+                    @Param("tokens") BigDecimal tokens);
+
+    @Modifying
+    @Query("UPDATE StakingRewardRun r SET r.status = com.orbvpn.api.domain.enums.StakingRewardRunStatus.COMPLETED, " +
+            "r.completedAt = :completedAt WHERE r.id = :id")
+    int complete(@Param("id") Long id, @Param("completedAt") LocalDateTime completedAt);
+}
@@ -41,6 +41,12 @@ public interface SubscriptionHistoryRepository extends JpaRepository<Subscriptio
 
         List<SubscriptionHistory> findByUserId(int userId);
 
+        // Bulk form of SubscriptionHistory.archiveForDeletedUser
+        @Modifying(flushAutomatically = true)
+        @Query("UPDATE SubscriptionHistory sh SET sh.userEmail = :email, sh.user = null, sh.archived = true " +
+                        "WHERE sh.user.id = :userId")
+        int archiveForDeletedUser(@Param("userId") int userId, @Param("email") String email);
+
         @Query("SELECT sh FROM SubscriptionHistory sh WHERE sh.subscription.id = :subscriptionId")
         List<SubscriptionHistory> findSubscriptionHistoriesBySubscriptionId(
                         @Param("subscriptionId") Integer subscriptionId);
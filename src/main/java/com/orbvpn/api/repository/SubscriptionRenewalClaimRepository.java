@@ -0,0 +1,77 @@
+package com.orbvpn.api.repository;
+
+import com.orbvpn.api.domain.entity.SubscriptionRenewalClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface SubscriptionRenewalClaimRepository extends JpaRepository<SubscriptionRenewalClaim, Integer> {
+
+    /**
+     * Atomically claim a payment for renewal. Succeeds (returns 1) when no claim
+     * exists yet, or when a previous CLAIMED/FAILED claim's lease has expired and
+     * it still has attempts left. RENEWED and CHARGED_UNRECORDED claims are never
+     * taken again.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO subscription_renewal_claim (payment_id, status, owner, lease_until, attempts, updated_at) " +
+            "VALUES (:paymentId, 'CLAIMED', :owner, :leaseUntil, 1, :now) " +
+            "ON CONFLICT (payment_id) DO UPDATE SET status = 'CLAIMED', owner = :owner, " +
+            "lease_until = :leaseUntil, attempts = subscription_renewal_claim.attempts + 1, updated_at = :now " +
+            "WHERE subscription_renewal_claim.status IN ('CLAIMED', 'FAILED') " +
+            "AND subscription_renewal_claim.lease_until < :now " +
+            "AND subscription_renewal_claim.attempts < :maxAttempts", nativeQuery = true)
+    int claim(@Param("paymentId") int paymentId,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil,
+              @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Query("UPDATE SubscriptionRenewalClaim c SET c.status = 'RENEWED', c.renewedPaymentId = :renewedPaymentId, " +
+            "c.errorMessage = null, c.updatedAt = :now WHERE c.paymentId = :paymentId AND c.owner = :owner")
+    int markRenewed(@Param("paymentId") int paymentId,
+                    @Param("owner") String owner,
+                    @Param("renewedPaymentId") Integer renewedPaymentId,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * Record a failed attempt. The lease is kept until {@code retryAfter} so the
+     * payment is retried by a later run rather than immediately.
+     */
+    @Modifying
+    @Query("UPDATE SubscriptionRenewalClaim c SET c.status = 'FAILED', c.errorMessage = :errorMessage, " +
+            "c.leaseUntil = :retryAfter, c.updatedAt = :now WHERE c.paymentId = :paymentId AND c.owner = :owner")
+    int markFailed(@Param("paymentId") int paymentId,
+                   @Param("owner") String owner,
+                   @Param("errorMessage") String errorMessage,
+                   @Param("retryAfter") LocalDateTime retryAfter,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Record a renewal the gateway charged but that could not be recorded. The
+     * claim becomes terminal so no later run charges the payment again; it
+     * keeps the gateway's payment id for reconciliation.
+     */
+    @Modifying
+    @Query("UPDATE SubscriptionRenewalClaim c SET c.status = 'CHARGED_UNRECORDED', " +
+            "c.gatewayPaymentId = :gatewayPaymentId, c.errorMessage = :errorMessage, c.updatedAt = :now " +
+            "WHERE c.paymentId = :paymentId AND c.owner = :owner")
+    int markChargedUnrecorded(@Param("paymentId") int paymentId,
+                              @Param("owner") String owner,
+                              @Param("gatewayPaymentId") String gatewayPaymentId,
+                              @Param("errorMessage") String errorMessage,
+                              @Param("now") LocalDateTime now);
+
+    /**
+     * Drop a claim that turned out not to need renewal, so the payment is
+     * evaluated again on the next run exactly as before claims existed.
+     */
+    @Modifying
+    @Query("DELETE FROM SubscriptionRenewalClaim c WHERE c.paymentId = :paymentId AND c.owner = :owner " +
+            "AND c.status = 'CLAIMED'")
+    int release(@Param("paymentId") int paymentId, @Param("owner") String owner);
+}
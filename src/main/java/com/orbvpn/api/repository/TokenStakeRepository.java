@@ -1,6 +1,8 @@
 package com.orbvpn.api.repository;
 
 import com.orbvpn.api.domain.entity.TokenStake;
+import com.orbvpn.api.repository.projections.StakeRewardProjection;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,6 +16,16 @@ public interface TokenStakeRepository extends JpaRepository<TokenStake, Long> {
 
     List<TokenStake> findByUserIdAndUnstakedAtIsNull(int userId);
 
+    /**
+     * Keyset page of stakes still active and staked before {@code stakedBefore},
+     * after {@code afterId}, with just what the daily reward needs.
+     */
+    @Query("SELECT ts.id AS id, ts.user.id AS userId, ts.amount AS amount, ts.rewardRate AS rewardRate " +
+            "FROM TokenStake ts WHERE ts.unstakedAt IS NULL AND ts.stakedAt < :stakedBefore AND ts.id > :afterId " +
+            "ORDER BY ts.id")
+    List<StakeRewardProjection> findRewardableAfter(@Param("stakedBefore") LocalDateTime stakedBefore,
+            @Param("afterId") long afterId, Pageable pageable);
+
     @Query("SELECT ts FROM TokenStake ts WHERE ts.user.id = :userId AND ts.unstakedAt IS NULL AND ts.stakedAt <= :beforeDate")
     List<TokenStake> findActiveStakesByUserAndDate(@Param("userId") Long userId,
             @Param("beforeDate") LocalDateTime beforeDate);
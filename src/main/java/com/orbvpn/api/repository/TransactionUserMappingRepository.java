@@ -4,6 +4,9 @@ import com.orbvpn.api.domain.entity.TransactionUserMapping;
 import com.orbvpn.api.domain.enums.GatewayName;
 import com.orbvpn.api.domain.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -24,4 +27,9 @@ public interface TransactionUserMappingRepository extends JpaRepository<Transact
 
     long countByEmail(String email);
 
+    // Detach a deleted user's mappings in one statement; the email stays on each row
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE TransactionUserMapping m SET m.user = null WHERE m.user.id = :userId")
+    int dissociateUser(@Param("userId") int userId);
+
 }
\ No newline at end of file
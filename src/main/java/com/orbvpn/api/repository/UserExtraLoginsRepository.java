@@ -4,11 +4,13 @@ import com.orbvpn.api.domain.entity.UserExtraLogins;
 import com.orbvpn.api.domain.entity.ExtraLoginsPlan;
 import com.orbvpn.api.domain.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,4 +45,55 @@ public interface UserExtraLoginsRepository extends JpaRepository<UserExtraLogins
             @Param("endDate") LocalDateTime endDate);
 
     void deleteByUser(User user);
+
+    /**
+     * Locks a batch of active, expired rows, skipping rows another run holds.
+     */
+    @Query(value = """
+            SELECT id FROM user_extra_logins
+            WHERE active = true AND expiry_date <= :now
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> lockExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Locks a batch of active rows expiring within {@code until} that have not
+     * yet had the reminder for {@code days} or a closer one.
+     */
+    @Query(value = """
+            SELECT id FROM user_extra_logins
+            WHERE active = true AND expiry_date > :now AND expiry_date <= :until
+              AND (reminder_days_sent IS NULL OR reminder_days_sent > :days)
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> lockReminderDue(@Param("now") LocalDateTime now, @Param("until") LocalDateTime until,
+            @Param("days") int days, @Param("limit") int limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserExtraLogins uel SET uel.active = false, uel.updatedAt = :now " +
+            "WHERE uel.id IN :ids AND uel.active = true")
+    int deactivate(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserExtraLogins uel SET uel.reminderDaysSent = :days " +
+            "WHERE uel.id IN :ids AND (uel.reminderDaysSent IS NULL OR uel.reminderDaysSent > :days)")
+    int markReminderSent(@Param("ids") Collection<Long> ids, @Param("days") int days);
+
+    @Query("SELECT uel FROM UserExtraLogins uel JOIN FETCH uel.user u LEFT JOIN FETCH u.profile " +
+            "JOIN FETCH uel.plan WHERE uel.id IN :ids")
+    List<UserExtraLogins> findWithUserAndPlanByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Active, unexpired extra login totals per user id; users without any are
+     * left out.
+     */
+    @Query("SELECT uel.user.id, SUM(uel.loginCount) FROM UserExtraLogins uel " +
+            "WHERE uel.user.id IN :userIds AND uel.active = true AND " +
+            "(uel.expiryDate IS NULL OR uel.expiryDate > :now) GROUP BY uel.user.id")
+    List<Object[]> sumActiveLoginCountByUserIdIn(@Param("userIds") Collection<Integer> userIds,
+            @Param("now") LocalDateTime now);
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.orbvpn.api.repository;
+
+import com.orbvpn.api.domain.entity.UserImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface UserImportJobRepository extends JpaRepository<UserImportJob, Long> {
+
+    Optional<UserImportJob> findByJobId(String jobId);
+
+    @Modifying
+    @Query("UPDATE UserImportJob j SET j.processedRows = j.processedRows + :processed, " +
+            "j.importedRows = j.importedRows + :imported, j.failedRows = j.failedRows + :failed " +
+            "WHERE j.jobId = :jobId")
+    int addProgress(@Param("jobId") String jobId,
+                    @Param("processed") int processed,
+                    @Param("imported") int imported,
+                    @Param("failed") int failed);
+}
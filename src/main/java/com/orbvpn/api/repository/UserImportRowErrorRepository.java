@@ -0,0 +1,14 @@
+package com.orbvpn.api.repository;
+
+import com.orbvpn.api.domain.entity.UserImportRowError;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface UserImportRowErrorRepository extends JpaRepository<UserImportRowError, Long> {
+
+    List<UserImportRowError> findByJobIdOrderByRowNumberAsc(String jobId, Pageable pageable);
+
+    long countByJobId(String jobId);
+}
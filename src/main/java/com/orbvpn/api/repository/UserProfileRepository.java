@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import jakarta.transaction.Transactional;
@@ -23,6 +24,12 @@ public interface UserProfileRepository extends JpaRepository<UserProfile, Intege
             "month(userProfile.birthDate)=month(current_date()) and day(userProfile.birthDate)=day(current_date())")
     List<UserProfile> findUsersBornToday();
 
+    // Keyset page of the same recipients as findUsersBornToday, by user id
+    @Query("select userProfile.user.id from UserProfile userProfile where " +
+            "month(userProfile.birthDate)=month(current_date()) and day(userProfile.birthDate)=day(current_date()) " +
+            "and userProfile.user.id > :afterUserId order by userProfile.user.id")
+    List<Integer> findUserIdsBornTodayAfter(@Param("afterUserId") int afterUserId, Pageable pageable);
+
     // Update Telegram Chat ID by userId
     @Modifying
     @Transactional
@@ -54,4 +61,13 @@ public interface UserProfileRepository extends JpaRepository<UserProfile, Intege
 
     @Query("SELECT up FROM UserProfile up WHERE up.user.id = :userId")
     Optional<UserProfile> findByUser_Id(@Param("userId") int userId);
+
+    // Creates empty profiles for the users in (afterId, lastId] that have none
+    @Modifying
+    @Query(value = "INSERT INTO user_profile (user_id, created_at, updated_at) "
+            + "SELECT u.id, :now, :now FROM \"user\" u WHERE u.id > :afterId AND u.id <= :lastId "
+            + "AND NOT EXISTS (SELECT 1 FROM user_profile p WHERE p.user_id = u.id)", nativeQuery = true)
+    int insertMissingProfiles(@Param("afterId") int afterId,
+                              @Param("lastId") int lastId,
+                              @Param("now") LocalDateTime now);
 }
@@ -2,14 +2,18 @@ package com.orbvpn.api.repository;
 
 import com.orbvpn.api.domain.entity.Reseller;
 import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.repository.projections.ReferralLevelCountProjection;
+import com.orbvpn.api.repository.projections.ReferralTreeNodeProjection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,13 +37,30 @@ public interface UserRepository extends JpaRepository<User, Integer> {
         // New query to fetch users in a specific ID range
         List<User> findByIdBetween(int fromUserId, int toUserId);
 
+        // Keyset page of an id range, for chunked maintenance jobs
+        List<User> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(int afterId, int toUserId, Pageable pageable);
+
+        @Query("SELECT COUNT(u) FROM User u WHERE NOT EXISTS (SELECT p.id FROM UserProfile p WHERE p.user = u)")
+        long countUsersWithoutProfile();
+
+        @Query(value = "SELECT u.id FROM \"user\" u WHERE u.id > :afterId "
+                        + "AND NOT EXISTS (SELECT 1 FROM user_profile p WHERE p.user_id = u.id) "
+                        + "ORDER BY u.id LIMIT :limit", nativeQuery = true)
+        List<Integer> findIdsWithoutProfileAfter(@Param("afterId") int afterId, @Param("limit") int limit);
+
         List<User> findAllByActiveTrue();
 
+        @EntityGraph(attributePaths = "profile")
         Page<User> findAllByReseller(Reseller reseller, Pageable pageable);
 
+        @Query("SELECT u FROM User u LEFT JOIN FETCH u.profile WHERE u.id IN :ids")
+        List<User> findAllWithProfileByIdIn(@Param("ids") Collection<Integer> ids);
+
+        @EntityGraph(attributePaths = "profile")
         @Query("SELECT user from User user where user.id not in (select sub.user.id from UserSubscription sub where sub.expiresAt > :dateTime)")
         Page<User> findAllExpiredUsers(LocalDateTime dateTime, Pageable pageable);
 
+        @EntityGraph(attributePaths = "profile")
         @Query("SELECT user from User user where user.reseller = :reseller and user.id not in (select sub.user.id from UserSubscription sub where sub.expiresAt > :dateTime)")
         Page<User> findAllResellerExpiredUsers(Reseller reseller, LocalDateTime dateTime, Pageable pageable);
 
@@ -59,8 +80,10 @@ public interface UserRepository extends JpaRepository<User, Integer> {
         // value = "select u from User u where u.role.id = 3 and ",
         // countQuery = "SELECT count(*) FROM User where role_id=3"
         // )
+        @EntityGraph(attributePaths = "profile")
         Page<User> findByRoleIdAndEmailContaining(int roleId, String email, Pageable pageable);
 
+        @EntityGraph(attributePaths = "profile")
         Page<User> findByRoleIdAndUsernameContaining(int roleId, String username, Pageable pageable);
 
         @Query("select u from User u where u.role.id = 3 and :param like '%:query%'")
@@ -210,4 +233,54 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
         List<User> findByReferredById(int referredById);
 
+        /**
+         * Walk the referral tree below {@code rootId} with a depth-limited recursive
+         * CTE. Every step is an index lookup on referred_by_id, so the whole downline
+         * comes back in a single round trip instead of one query per visited user.
+         */
+        @Query(value = "WITH RECURSIVE downline(id, depth) AS (" +
+                        "  SELECT u.id, 1 FROM \"user\" u WHERE u.referred_by_id = :rootId" +
+                        "  UNION ALL" +
+                        "  SELECT c.id, d.depth + 1 FROM \"user\" c JOIN downline d ON c.referred_by_id = d.id" +
+                        "  WHERE d.depth < :maxDepth" +
+                        ") SELECT id AS userId, depth FROM downline ORDER BY depth, id", nativeQuery = true)
+        List<ReferralTreeNodeProjection> findDownline(@Param("rootId") int rootId, @Param("maxDepth") int maxDepth);
+
+        @Query(value = "WITH RECURSIVE downline(id, depth) AS (" +
+                        "  SELECT u.id, 1 FROM \"user\" u WHERE u.referred_by_id = :rootId" +
+                        "  UNION ALL" +
+                        "  SELECT c.id, d.depth + 1 FROM \"user\" c JOIN downline d ON c.referred_by_id = d.id" +
+                        "  WHERE d.depth < :maxDepth" +
+                        ") SELECT id AS userId, depth FROM downline ORDER BY depth, id",
+                        countQuery = "WITH RECURSIVE downline(id, depth) AS (" +
+                                        "  SELECT u.id, 1 FROM \"user\" u WHERE u.referred_by_id = :rootId" +
+                                        "  UNION ALL" +
+                                        "  SELECT c.id, d.depth + 1 FROM \"user\" c JOIN downline d ON c.referred_by_id = d.id" +
+                                        "  WHERE d.depth < :maxDepth" +
+                                        ") SELECT COUNT(*) FROM downline", nativeQuery = true)
+        Page<ReferralTreeNodeProjection> findDownlinePage(@Param("rootId") int rootId,
+                        @Param("maxDepth") int maxDepth, Pageable pageable);
+
+        @Query(value = "WITH RECURSIVE downline(id, depth) AS (" +
+                        "  SELECT u.id, 1 FROM \"user\" u WHERE u.referred_by_id = :rootId" +
+                        "  UNION ALL" +
+                        "  SELECT c.id, d.depth + 1 FROM \"user\" c JOIN downline d ON c.referred_by_id = d.id" +
+                        "  WHERE d.depth < :maxDepth" +
+                        ") SELECT depth, COUNT(*) AS userCount FROM downline GROUP BY depth ORDER BY depth", nativeQuery = true)
+        List<ReferralLevelCountProjection> countDownlineByLevel(@Param("rootId") int rootId,
+                        @Param("maxDepth") int maxDepth);
+
+        /**
+         * Referrers of {@code userId}, immediate referrer first (depth 1). Bounded by
+         * {@code maxDepth} so a corrupted (cyclic) chain cannot recurse forever.
+         */
+        @Query(value = "WITH RECURSIVE upline(id, depth) AS (" +
+                        "  SELECT u.referred_by_id, 1 FROM \"user\" u" +
+                        "  WHERE u.id = :userId AND u.referred_by_id IS NOT NULL" +
+                        "  UNION ALL" +
+                        "  SELECT p.referred_by_id, up.depth + 1 FROM \"user\" p JOIN upline up ON p.id = up.id" +
+                        "  WHERE p.referred_by_id IS NOT NULL AND up.depth < :maxDepth" +
+                        ") SELECT id AS userId, depth FROM upline ORDER BY depth", nativeQuery = true)
+        List<ReferralTreeNodeProjection> findUpline(@Param("userId") int userId, @Param("maxDepth") int maxDepth);
+
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.orbvpn.api.domain.enums.SubscriptionStatus;
 import jakarta.persistence.LockModeType;
 import com.orbvpn.api.domain.entity.*;
 import com.orbvpn.api.domain.enums.GatewayName;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
@@ -13,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +22,19 @@ public interface UserSubscriptionRepository extends JpaRepository<UserSubscripti
         // Basic queries
         UserSubscription findFirstByUserOrderByCreatedAtDesc(User user);
 
+        // Batch loads for GraphQL field resolvers; group and user are fetched in the same query
+        @Query("SELECT us FROM UserSubscription us JOIN FETCH us.user u LEFT JOIN FETCH u.profile "
+                        + "LEFT JOIN FETCH us.group g LEFT JOIN FETCH g.serviceGroup "
+                        + "WHERE u.id IN :userIds ORDER BY us.createdAt DESC, us.id DESC")
+        List<UserSubscription> findAllWithGroupByUserIdIn(@Param("userIds") Collection<Integer> userIds);
+
+        @Query("SELECT us FROM UserSubscription us JOIN FETCH us.user u LEFT JOIN FETCH u.profile "
+                        + "LEFT JOIN FETCH us.group g LEFT JOIN FETCH g.serviceGroup "
+                        + "WHERE u.id IN :userIds "
+                        + "AND us.createdAt = (SELECT MAX(s.createdAt) FROM UserSubscription s WHERE s.user = u) "
+                        + "ORDER BY us.id DESC")
+        List<UserSubscription> findLatestWithGroupByUserIdIn(@Param("userIds") Collection<Integer> userIds);
+
         @Lock(LockModeType.PESSIMISTIC_WRITE)
         Optional<UserSubscription> findByUserId(long userId);
 
@@ -76,6 +91,36 @@ public interface UserSubscriptionRepository extends JpaRepository<UserSubscripti
         // Subscription status queries
         List<UserSubscription> findByIsTokenBasedTrue();
 
+        /**
+         * Count one watched ad against the user's latest subscription if it is
+         * token based, in the database so concurrent completions all count.
+         *
+         * @return 1 if a token-based subscription was updated, otherwise 0
+         */
+        @Modifying
+        @Query("""
+                        UPDATE UserSubscription us
+                        SET us.weeklyAdsWatched = COALESCE(us.weeklyAdsWatched, 0) + 1
+                        WHERE us.user.id = :userId AND us.isTokenBased = true
+                        AND us.createdAt = (SELECT MAX(latest.createdAt) FROM UserSubscription latest
+                                        WHERE latest.user.id = :userId)
+                        """)
+        int incrementWeeklyAdsWatched(@Param("userId") int userId);
+
+        /**
+         * Start a new week for every token-based subscription in one statement.
+         */
+        @Modifying
+        @Query("""
+                        UPDATE UserSubscription us
+                        SET us.weeklyAdsWatched = 0, us.lastWeeklyReset = :now, us.expiresAt = :expiresAt
+                        WHERE us.isTokenBased = true
+                        """)
+        int resetTokenBasedWeeklyStats(@Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+        @Query("SELECT DISTINCT us.user.username FROM UserSubscription us WHERE us.isTokenBased = true")
+        List<String> findTokenBasedUsernames();
+
         List<UserSubscription> findByGatewayAndStatus(GatewayName gateway, SubscriptionStatus status);
 
         @Query("SELECT u FROM UserSubscription u WHERE u.gateway = :gateway AND u.status = :status AND u.expiresAt < :date")
@@ -119,12 +164,31 @@ public interface UserSubscriptionRepository extends JpaRepository<UserSubscripti
                         LocalDateTime startTime,
                         LocalDateTime endTime);
 
+        // Keyset page of the users getUsersExpireBetween returns, each user once
+        @Query("select distinct sub.user.id from UserSubscription sub " +
+                        "where sub.expiresAt >= :startTime and sub.expiresAt <= :endTime " +
+                        "and sub.user.id > :afterUserId order by sub.user.id")
+        List<Integer> findUserIdsExpiringBetweenAfter(
+                        @Param("startTime") LocalDateTime startTime,
+                        @Param("endTime") LocalDateTime endTime,
+                        @Param("afterUserId") int afterUserId,
+                        Pageable pageable);
+
         @Query("SELECT us FROM UserSubscription us " +
                         "WHERE us.user.id = :userId " +
                         "AND (us.expiresAt IS NULL OR us.expiresAt > CURRENT_TIMESTAMP) " +
                         "ORDER BY us.createdAt DESC")
         Optional<UserSubscription> findCurrentSubscription(@Param("userId") int userId);
 
+        /**
+         * Multi-login count of each user's unexpired subscription; users without
+         * one are left out.
+         */
+        @Query("SELECT us.user.id, MAX(us.multiLoginCount) FROM UserSubscription us " +
+                        "WHERE us.user.id IN :userIds AND us.expiresAt > :now GROUP BY us.user.id")
+        List<Object[]> findCurrentMultiLoginCountByUserIdIn(@Param("userIds") Collection<Integer> userIds,
+                        @Param("now") LocalDateTime now);
+
         @Modifying
         @Query(value = """
                         DELETE FROM user_subscription
@@ -0,0 +1,7 @@
+package com.orbvpn.api.repository.projections;
+
+public interface ReferralLevelCountProjection {
+    Integer getDepth();
+
+    Long getUserCount();
+}
@@ -0,0 +1,11 @@
+package com.orbvpn.api.repository.projections;
+
+/**
+ * A node of the referral tree returned by the recursive downline/upline
+ * queries: the user id and its distance (in referral levels) from the root.
+ */
+public interface ReferralTreeNodeProjection {
+    Integer getUserId();
+
+    Integer getDepth();
+}
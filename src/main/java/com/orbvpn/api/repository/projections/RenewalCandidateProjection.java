@@ -0,0 +1,9 @@
+package com.orbvpn.api.repository.projections;
+
+import com.orbvpn.api.domain.enums.GatewayName;
+
+public interface RenewalCandidateProjection {
+    Integer getId();
+
+    GatewayName getGateway();
+}
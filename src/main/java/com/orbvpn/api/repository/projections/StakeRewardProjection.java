@@ -0,0 +1,13 @@
+package com.orbvpn.api.repository.projections;
+
+import java.math.BigDecimal;
+
+public interface StakeRewardProjection {
+    Long getId();
+
+    Integer getUserId();
+
+    BigDecimal getAmount();
+
+    BigDecimal getRewardRate();
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -74,6 +75,17 @@ public interface ReferralCommissionRepository extends JpaRepository<ReferralComm
            "WHERE rc.beneficiary = :user")
     long countTotalReferrals(@Param("user") User user);
 
+    /**
+     * Count direct and total referrals for several users at once.
+     * Returns [beneficiaryId, directReferrals, totalReferrals] per user with commissions.
+     */
+    @Query("SELECT rc.beneficiary.id, " +
+           "COUNT(DISTINCT CASE WHEN rc.level = 1 THEN rc.sourceUser.id END), " +
+           "COUNT(DISTINCT rc.sourceUser.id) " +
+           "FROM ReferralCommission rc WHERE rc.beneficiary.id IN :userIds " +
+           "GROUP BY rc.beneficiary.id")
+    List<Object[]> countReferralsByBeneficiaryIdIn(@Param("userIds") Collection<Integer> userIds);
+
     /**
      * Get earnings summary by level for a user.
      */
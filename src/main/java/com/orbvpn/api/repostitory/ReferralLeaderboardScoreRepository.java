@@ -0,0 +1,87 @@
+package com.orbvpn.api.repostitory;
+
+import com.orbvpn.api.domain.entity.ReferralLeaderboardScore;
+import com.orbvpn.api.domain.enums.ReferralLeaderboardPeriod;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the per-period referral leaderboard totals.
+ */
+@Repository
+public interface ReferralLeaderboardScoreRepository extends JpaRepository<ReferralLeaderboardScore, Long> {
+
+    List<ReferralLeaderboardScore> findByPeriodAndBucketStartAndUserIdIn(
+            ReferralLeaderboardPeriod period, LocalDate bucketStart, Collection<Integer> userIds);
+
+    boolean existsByPeriod(ReferralLeaderboardPeriod period);
+
+    /**
+     * Adds to a user's totals for one bucket, creating the row if needed.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO referral_leaderboard_score
+                (period, bucket_start, user_id, tokens_earned, clicks, conversions, updated_at)
+            VALUES (:period, :bucketStart, :userId, :tokens, :clicks, :conversions, :now)
+            ON CONFLICT (period, bucket_start, user_id) DO UPDATE SET
+                tokens_earned = referral_leaderboard_score.tokens_earned + EXCLUDED.tokens_earned,
+                clicks = referral_leaderboard_score.clicks + EXCLUDED.clicks,
+                conversions = referral_leaderboard_score.conversions + EXCLUDED.conversions,
+                updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    int increment(@Param("period") String period,
+                  @Param("bucketStart") LocalDate bucketStart,
+                  @Param("userId") int userId,
+                  @Param("tokens") BigDecimal tokens,
+                  @Param("clicks") long clicks,
+                  @Param("conversions") long conversions,
+                  @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM ReferralLeaderboardScore s WHERE s.period = :period AND s.bucketStart = :bucketStart")
+    int deleteBucket(@Param("period") ReferralLeaderboardPeriod period, @Param("bucketStart") LocalDate bucketStart);
+
+    /**
+     * Recomputes a bucket from credited commissions and link clicks; meant to
+     * run right after {@link #deleteBucket} in the same transaction.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO referral_leaderboard_score
+                (period, bucket_start, user_id, tokens_earned, clicks, conversions, updated_at)
+            SELECT :period, :bucketStart, s.user_id, SUM(s.tokens), SUM(s.clicks), SUM(s.conversions), :now
+            FROM (
+                SELECT beneficiary_id AS user_id, token_amount AS tokens, 0 AS clicks, 0 AS conversions
+                FROM referral_commission
+                WHERE status = 'CREDITED' AND credited_at >= :from AND credited_at < :to
+                UNION ALL
+                SELECT referrer_id, 0, 1, 0
+                FROM referral_link_click
+                WHERE created_at >= :from AND created_at < :to
+                UNION ALL
+                SELECT referrer_id, 0, 0, 1
+                FROM referral_link_click
+                WHERE converted = true AND converted_at >= :from AND converted_at < :to
+            ) s
+            GROUP BY s.user_id
+            """, nativeQuery = true)
+    int rebuildBucket(@Param("period") String period,
+                      @Param("bucketStart") LocalDate bucketStart,
+                      @Param("from") LocalDateTime from,
+                      @Param("to") LocalDateTime to,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM ReferralLeaderboardScore s WHERE s.period = :period AND s.bucketStart < :before")
+    int deleteBucketsBefore(@Param("period") ReferralLeaderboardPeriod period, @Param("before") LocalDate before);
+}
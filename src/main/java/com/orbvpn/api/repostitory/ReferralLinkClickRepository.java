@@ -2,12 +2,15 @@ package com.orbvpn.api.repostitory;
 
 import com.orbvpn.api.domain.entity.ReferralLinkClick;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for referral link click tracking.
@@ -41,6 +44,22 @@ public interface ReferralLinkClickRepository extends JpaRepository<ReferralLinkC
     List<ReferralLinkClick> findByReferrerIdAndCreatedAtBetween(
             int referrerId, LocalDateTime start, LocalDateTime end);
 
+    /**
+     * Most recent unconverted click from an IP on a referrer's link since a given time.
+     */
+    Optional<ReferralLinkClick> findFirstByReferrerIdAndIpHashAndConvertedFalseAndCreatedAtAfterOrderByCreatedAtDesc(
+            int referrerId, String ipHash, LocalDateTime since);
+
+    /**
+     * Mark a click as converted unless another registration already claimed it.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReferralLinkClick c SET c.converted = true, c.convertedUserId = :userId, " +
+           "c.convertedAt = :convertedAt WHERE c.id = :id AND c.converted = false")
+    int markConverted(@Param("id") Long id, @Param("userId") int userId,
+                      @Param("convertedAt") LocalDateTime convertedAt);
+
     /**
      * Check if an IP has clicked recently (for rate limiting / fraud prevention).
      */
@@ -0,0 +1,123 @@
+package com.orbvpn.api.resolver.field;
+
+import com.orbvpn.api.domain.dto.UserSubscriptionView;
+import com.orbvpn.api.domain.dto.UserView;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.domain.entity.UserSubscription;
+import com.orbvpn.api.mapper.UserSubscriptionViewMapper;
+import com.orbvpn.api.mapper.UserViewMapper;
+import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.repository.UserSubscriptionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batched resolvers for the {@code UserView} relationships that list queries
+ * traverse most. Each field is loaded with one query for all users in the
+ * response instead of one query per user.
+ *
+ * Views that already carry a value (e.g. a subscription set by the service
+ * that built the view) keep it and are not looked up again.
+ */
+@Controller
+@RequiredArgsConstructor
+public class UserViewFieldResolver {
+
+    private final UserRepository userRepository;
+    private final UserSubscriptionRepository userSubscriptionRepository;
+    private final UserViewMapper userViewMapper;
+    private final UserSubscriptionViewMapper userSubscriptionViewMapper;
+
+    @BatchMapping(typeName = "UserView")
+    public Map<UserView, UserSubscriptionView> subscription(List<UserView> users) {
+        Map<UserView, UserSubscriptionView> result = new LinkedHashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+        for (UserView user : users) {
+            if (user.getSubscription() != null) {
+                result.put(user, user.getSubscription());
+            } else {
+                missing.add(user.getId());
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        // Ordered by id desc, so the first row per user wins a createdAt tie
+        Map<Integer, UserSubscriptionView> latest = new HashMap<>();
+        for (UserSubscription subscription : userSubscriptionRepository.findLatestWithGroupByUserIdIn(missing)) {
+            latest.putIfAbsent(subscription.getUser().getId(), userSubscriptionViewMapper.toView(subscription));
+        }
+        for (UserView user : users) {
+            if (!result.containsKey(user)) {
+                result.put(user, latest.get(user.getId()));
+            }
+        }
+        return result;
+    }
+
+    @BatchMapping(typeName = "UserView")
+    public Map<UserView, List<UserSubscriptionView>> userSubscriptionList(List<UserView> users) {
+        Map<UserView, List<UserSubscriptionView>> result = new LinkedHashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+        for (UserView user : users) {
+            if (user.getUserSubscriptionList() != null) {
+                result.put(user, user.getUserSubscriptionList());
+            } else {
+                missing.add(user.getId());
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<Integer, List<UserSubscriptionView>> byUser = new HashMap<>();
+        for (UserSubscription subscription : userSubscriptionRepository.findAllWithGroupByUserIdIn(missing)) {
+            byUser.computeIfAbsent(subscription.getUser().getId(), id -> new ArrayList<>())
+                    .add(userSubscriptionViewMapper.toView(subscription));
+        }
+        for (UserView user : users) {
+            if (!result.containsKey(user)) {
+                result.put(user, byUser.getOrDefault(user.getId(), Collections.emptyList()));
+            }
+        }
+        return result;
+    }
+
+    @BatchMapping(typeName = "UserView")
+    public Map<UserView, UserView> managedBy(List<UserView> users) {
+        Map<UserView, UserView> result = new LinkedHashMap<>();
+        Set<Integer> managerIds = new LinkedHashSet<>();
+        for (UserView user : users) {
+            if (user.getManagedBy() != null) {
+                result.put(user, user.getManagedBy());
+            } else if (user.getManagedById() != null) {
+                managerIds.add(user.getManagedById());
+            }
+        }
+        if (managerIds.isEmpty()) {
+            return result;
+        }
+
+        Map<Integer, UserView> managers = new HashMap<>();
+        for (User manager : userRepository.findAllWithProfileByIdIn(managerIds)) {
+            managers.put(manager.getId(), userViewMapper.toView(manager));
+        }
+        for (UserView user : users) {
+            if (!result.containsKey(user) && user.getManagedById() != null) {
+                result.put(user, managers.get(user.getManagedById()));
+            }
+        }
+        return result;
+    }
+}
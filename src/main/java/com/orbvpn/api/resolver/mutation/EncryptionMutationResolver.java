@@ -20,6 +20,7 @@ import javax.crypto.NoSuchPaddingException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 
 import static com.orbvpn.api.domain.enums.RoleName.Constants.ADMIN;
 
@@ -38,7 +39,12 @@ public class EncryptionMutationResolver {
             @Argument boolean sendEmail) {
         log.info("Re-encrypting passwords for users from ID {} to {}, sendEmail: {}", fromUserId, toUserId, sendEmail);
         try {
-            userService.reEncryptPasswordsInRange(fromUserId, toUserId, sendEmail);
+            List<Integer> failed = userService.reEncryptPasswordsInRange(fromUserId, toUserId, sendEmail);
+            if (!failed.isEmpty()) {
+                log.warn("Re-encrypting passwords failed for {} users in range", failed.size());
+                return "Passwords re-encrypted for users in range [" + fromUserId + " to " + toUserId
+                        + "] except user IDs " + failed;
+            }
             log.info("Successfully re-encrypted passwords for user range");
             return "Passwords re-encrypted successfully for users in range [" + fromUserId + " to " + toUserId + "]";
         } catch (Exception e) {
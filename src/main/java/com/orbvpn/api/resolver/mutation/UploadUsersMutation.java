@@ -1,6 +1,8 @@
 package com.orbvpn.api.resolver.mutation;
 
+import com.orbvpn.api.domain.entity.UserImportJob;
 import com.orbvpn.api.service.UploadUserService;
+import com.orbvpn.api.service.UserService;
 
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -21,6 +23,7 @@ import static com.orbvpn.api.domain.enums.RoleName.Constants.ADMIN;
 @RequiredArgsConstructor
 public class UploadUsersMutation {
   private final UploadUserService uploadUserService;
+  private final UserService userService;
 
   @Secured(ADMIN)
   @MutationMapping
@@ -41,4 +44,19 @@ public class UploadUsersMutation {
       throw e;
     }
   }
-}
\ No newline at end of file
+
+  @Secured(ADMIN)
+  @MutationMapping
+  public UserImportJob startUserImport(
+      @Argument("file") @Valid @NotNull(message = "File is required") MultipartFile file) {
+    log.info("Starting background user import from file: {}", file.getOriginalFilename());
+    try {
+      return uploadUserService.startImport(file.getInputStream(), file.getOriginalFilename(),
+          userService.getUser().getId());
+    } catch (IOException e) {
+      log.error("Error accessing file stream for: {} - Error: {}",
+          file.getOriginalFilename(), e.getMessage(), e);
+      throw new RuntimeException("Cannot access file stream", e);
+    }
+  }
+}
@@ -397,8 +397,9 @@ public class UserMutation {
             @Argument int fromUserId,
             @Argument int toUserId,
             @Argument boolean sendEmail) {
-        userService.reEncryptPasswordsInRange(fromUserId, toUserId, sendEmail);
-        return "Password re-encryption completed for users between ID " + fromUserId + " and " + toUserId + ".";
+        List<Integer> failed = userService.reEncryptPasswordsInRange(fromUserId, toUserId, sendEmail);
+        String result = "Password re-encryption completed for users between ID " + fromUserId + " and " + toUserId + ".";
+        return failed.isEmpty() ? result : result + " Failed for user IDs: " + failed;
     }
 
     @Secured(USER)
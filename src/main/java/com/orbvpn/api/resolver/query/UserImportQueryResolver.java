@@ -0,0 +1,36 @@
+package com.orbvpn.api.resolver.query;
+
+import com.orbvpn.api.domain.entity.UserImportJob;
+import com.orbvpn.api.domain.entity.UserImportRowError;
+import com.orbvpn.api.service.UploadUserService;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.stereotype.Controller;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import java.util.List;
+
+import static com.orbvpn.api.domain.enums.RoleName.Constants.ADMIN;
+
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+public class UserImportQueryResolver {
+  private final UploadUserService uploadUserService;
+
+  @Secured(ADMIN)
+  @QueryMapping
+  public UserImportJob userImportJob(@Argument String jobId) {
+    return uploadUserService.getJob(jobId);
+  }
+
+  @Secured(ADMIN)
+  @QueryMapping
+  public List<UserImportRowError> userImportRowErrors(@Argument String jobId,
+      @Argument Integer page, @Argument Integer size) {
+    int pageNum = page != null ? page : 0;
+    int pageSize = size != null ? Math.min(size, 500) : 100;
+    return uploadUserService.getRowErrors(jobId, pageNum, pageSize);
+  }
+}
@@ -4,73 +4,140 @@ import com.orbvpn.api.domain.entity.PendingSubscription;
 import com.orbvpn.api.domain.dto.GoogleNotification;
 import com.orbvpn.api.domain.dto.AppleNotification;
 import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.event.TransactionMappingChangedEvent;
 import com.orbvpn.api.repository.PendingSubscriptionRepository;
 import com.orbvpn.api.service.subscription.notification.GooglePlayNotificationProcessor;
 import com.orbvpn.api.service.subscription.notification.AppleNotificationProcessor;
 import com.orbvpn.api.service.subscription.utils.TransactionMappingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Applies Google Play and App Store subscriptions that arrived before their
+ * purchase token was mapped to a user.
+ *
+ * A pending row is picked up as soon as a transaction mapping for its token is
+ * committed; the scheduled run only sweeps up what that missed (failures,
+ * mappings found through the email fallback). Rows are claimed in small
+ * batches with FOR UPDATE SKIP LOCKED and a lease, so instances never work on
+ * the same row, and each row is applied in its own transaction.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class PendingSubscriptionProcessor {
+    private static final int CLAIM_BATCH_SIZE = 20;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long LEASE_MINUTES = 15;
+
     private final PendingSubscriptionRepository pendingSubscriptionRepository;
     private final TransactionMappingService transactionMappingService;
     private final GooglePlayNotificationProcessor googlePlayNotificationProcessor;
     private final AppleNotificationProcessor appleNotificationProcessor;
+    private final TransactionTemplate writeTransactionTemplate;
 
     @Scheduled(fixedDelay = 300000) // Run every 5 minutes
-    @Transactional
     public void processPendingSubscriptions() {
         try {
-            List<PendingSubscription> pendingSubscriptions = pendingSubscriptionRepository.findAll()
-                    .stream()
-                    .filter(ps -> ps.getProcessedAt() == null)
-                    .toList();
+            int processed = processMatchable(null);
+            if (processed > 0) {
+                log.info("Processed {} pending subscriptions", processed);
+            }
+        } catch (Exception e) {
+            log.error("Error in pending subscription processor", e);
+        }
+    }
 
-            for (PendingSubscription pending : pendingSubscriptions) {
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionMappingChanged(TransactionMappingChangedEvent event) {
+        try {
+            processMatchable(event.getTransactionId());
+        } catch (Exception e) {
+            log.error("Error processing pending subscriptions for new {} mapping", event.getGateway(), e);
+        }
+    }
+
+    /**
+     * Claims and processes matchable rows until none are left.
+     *
+     * @param subscriptionId limit to one purchase token, or null for all
+     * @return number of rows processed
+     */
+    private int processMatchable(String subscriptionId) {
+        int processed = 0;
+        while (true) {
+            List<Integer> claimed = claimBatch(subscriptionId);
+            if (claimed == null || claimed.isEmpty()) {
+                return processed;
+            }
+            for (Integer id : claimed) {
                 try {
-                    processPendingSubscription(pending);
+                    Boolean done = writeTransactionTemplate.execute(status -> processClaimed(id));
+                    if (Boolean.TRUE.equals(done)) {
+                        processed++;
+                    }
                 } catch (Exception e) {
-                    log.error("Error processing pending subscription: {}", pending.getSubscriptionId(), e);
+                    // The lease keeps the row out of later batches of this run; it is retried once it expires
+                    log.error("Failed to process pending subscription {}", id, e);
                 }
             }
-        } catch (Exception e) {
-            log.error("Error in pending subscription processor", e);
         }
     }
 
-    private void processPendingSubscription(PendingSubscription pending) {
+    private List<Integer> claimBatch(String subscriptionId) {
+        return writeTransactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Integer> ids = pendingSubscriptionRepository.lockMatchable(
+                    subscriptionId, now, MAX_ATTEMPTS, CLAIM_BATCH_SIZE);
+            if (!ids.isEmpty()) {
+                pendingSubscriptionRepository.lease(ids, now.plusMinutes(LEASE_MINUTES));
+            }
+            return ids;
+        });
+    }
+
+    private boolean processClaimed(Integer id) {
+        PendingSubscription pending = pendingSubscriptionRepository.findByIdAndProcessedAtIsNull(id).orElse(null);
+        if (pending == null) {
+            return false;
+        }
+
         // Check if user mapping exists now
         User user = transactionMappingService.findUserByToken(
                 pending.getSubscriptionId(),
                 pending.getGateway());
+        if (user == null) {
+            return false;
+        }
 
-        if (user != null) {
-            try {
-                switch (pending.getGateway()) {
-                    case GOOGLE_PLAY -> processGooglePlaySubscription(pending);
-                    case APPLE_STORE -> processAppleSubscription(pending);
-                    default -> log.warn("Unsupported gateway: {}", pending.getGateway());
-                }
-
-                // Mark as processed
-                pending.setProcessedAt(LocalDateTime.now());
-                pendingSubscriptionRepository.save(pending);
-
-                log.info("Successfully processed pending subscription: {} for gateway: {}",
-                        pending.getSubscriptionId(), pending.getGateway());
-            } catch (Exception e) {
-                log.error("Failed to process pending subscription: {}", pending.getSubscriptionId(), e);
+        switch (pending.getGateway()) {
+            case GOOGLE_PLAY -> processGooglePlaySubscription(pending);
+            case APPLE_STORE -> processAppleSubscription(pending);
+            default -> {
+                log.warn("Unsupported gateway: {}", pending.getGateway());
+                return false;
             }
         }
+
+        // Mark as processed
+        pending.setProcessedAt(LocalDateTime.now());
+        pending.setLeaseUntil(null);
+        pendingSubscriptionRepository.save(pending);
+
+        log.info("Successfully processed pending subscription: {} for gateway: {}",
+                pending.getSubscriptionId(), pending.getGateway());
+        return true;
     }
 
     @Scheduled(fixedDelay = 300000) // Run every 5 minutes
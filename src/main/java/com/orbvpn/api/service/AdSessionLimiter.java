@@ -0,0 +1,213 @@
+package com.orbvpn.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.orbvpn.api.domain.entity.AdViewingSession.AdSessionStatus;
+import com.orbvpn.api.exception.AdLimitExceededException;
+import com.orbvpn.api.repository.AdViewingSessionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Abuse limits for ad sessions, kept in memory instead of counted with
+ * aggregate queries on every request: pending sessions per user, and
+ * sessions started per IP and per device over a sliding hour.
+ *
+ * Keys are held in bounded caches; a key evicted under pressure starts
+ * again from zero. Counts are rebuilt from the last hour of sessions on
+ * startup, and are per instance.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AdSessionLimiter {
+
+    private static final long WINDOW_MILLIS = Duration.ofHours(1).toMillis();
+    private static final int MAX_TRACKED_KEYS = 500_000;
+
+    private final AdViewingSessionRepository sessionRepository;
+
+    @Value("${ad.max.pending.sessions:3}")
+    private int maxPendingSessions = 3;
+
+    @Value("${ad.max.sessions.per.ip.per.hour:20}")
+    private int maxSessionsPerIpPerHour = 20;
+
+    @Value("${ad.max.sessions.per.device.per.hour:15}")
+    private int maxSessionsPerDevicePerHour = 15;
+
+    private final Cache<Integer, PendingSessions> pendingByUser = Caffeine.newBuilder()
+            .maximumSize(MAX_TRACKED_KEYS)
+            .expireAfterAccess(Duration.ofMillis(WINDOW_MILLIS))
+            .build();
+    private final Cache<String, SlidingWindow> sessionsByIp = Caffeine.newBuilder()
+            .maximumSize(MAX_TRACKED_KEYS)
+            .expireAfterAccess(Duration.ofMillis(WINDOW_MILLIS))
+            .build();
+    private final Cache<String, SlidingWindow> sessionsByDevice = Caffeine.newBuilder()
+            .maximumSize(MAX_TRACKED_KEYS)
+            .expireAfterAccess(Duration.ofMillis(WINDOW_MILLIS))
+            .build();
+
+    /**
+     * Count a new session against the user, IP and device limits. Either all
+     * three take the session or none does.
+     *
+     * @throws AdLimitExceededException if any limit is already reached
+     */
+    public void acquire(int userId, String sessionId, String ipAddress, String deviceId, LocalDateTime expiresAt) {
+        long now = System.currentTimeMillis();
+
+        PendingSessions pending = pendingByUser.get(userId, key -> new PendingSessions());
+        if (!pending.tryAdd(sessionId, toMillis(expiresAt), now, maxPendingSessions)) {
+            log.warn("Too many pending sessions for user: {}", userId);
+            throw new AdLimitExceededException(AdLimitExceededException.LimitType.UNKNOWN,
+                    pending.count(now), maxPendingSessions);
+        }
+
+        SlidingWindow ipWindow = null;
+        if (ipAddress != null) {
+            ipWindow = sessionsByIp.get(ipAddress, key -> new SlidingWindow());
+            if (!ipWindow.tryAdd(now, maxSessionsPerIpPerHour)) {
+                pending.remove(sessionId);
+                log.warn("IP rate limit exceeded: {}", ipAddress);
+                throw new AdLimitExceededException(AdLimitExceededException.LimitType.HOURLY,
+                        ipWindow.count(now), maxSessionsPerIpPerHour);
+            }
+        }
+
+        if (deviceId != null) {
+            SlidingWindow deviceWindow = sessionsByDevice.get(deviceId, key -> new SlidingWindow());
+            if (!deviceWindow.tryAdd(now, maxSessionsPerDevicePerHour)) {
+                pending.remove(sessionId);
+                if (ipWindow != null) {
+                    ipWindow.remove(now);
+                }
+                log.warn("Device rate limit exceeded: {}", deviceId);
+                throw new AdLimitExceededException(AdLimitExceededException.LimitType.HOURLY,
+                        deviceWindow.count(now), maxSessionsPerDevicePerHour);
+            }
+        }
+    }
+
+    /**
+     * The session is no longer pending: completed, rejected or expired.
+     */
+    public void release(int userId, String sessionId) {
+        PendingSessions pending = pendingByUser.getIfPresent(userId);
+        if (pending != null) {
+            pending.remove(sessionId);
+        }
+    }
+
+    /**
+     * Load the last hour of sessions so a restart does not reset the limits.
+     */
+    @PostConstruct
+    public void rebuild() {
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        for (Object[] row : sessionRepository.findRecentSessionsForLimits(LocalDateTime.now().minusHours(1))) {
+            Integer userId = (Integer) row[0];
+            String sessionId = (String) row[1];
+            String ipAddress = (String) row[2];
+            String deviceId = (String) row[3];
+            long createdAt = toMillis((LocalDateTime) row[4]);
+            long expiresAt = toMillis((LocalDateTime) row[5]);
+
+            if (row[6] == AdSessionStatus.PENDING && expiresAt > now) {
+                pendingByUser.get(userId, key -> new PendingSessions()).tryAdd(sessionId, expiresAt, now,
+                        Integer.MAX_VALUE);
+            }
+            if (ipAddress != null) {
+                sessionsByIp.get(ipAddress, key -> new SlidingWindow()).tryAdd(createdAt, Integer.MAX_VALUE);
+            }
+            if (deviceId != null) {
+                sessionsByDevice.get(deviceId, key -> new SlidingWindow()).tryAdd(createdAt, Integer.MAX_VALUE);
+            }
+            loaded++;
+        }
+        log.info("Rebuilt ad session limits from {} recent sessions", loaded);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Start times of sessions within the last hour, oldest first.
+     */
+    private static final class SlidingWindow {
+        private final Deque<Long> times = new ArrayDeque<>();
+
+        synchronized boolean tryAdd(long time, int limit) {
+            prune(time);
+            if (times.size() >= limit) {
+                return false;
+            }
+            times.addLast(time);
+            return true;
+        }
+
+        synchronized void remove(long time) {
+            times.removeLastOccurrence(time);
+        }
+
+        synchronized int count(long now) {
+            prune(now);
+            return times.size();
+        }
+
+        private void prune(long now) {
+            while (!times.isEmpty() && now - times.peekFirst() >= WINDOW_MILLIS) {
+                times.pollFirst();
+            }
+        }
+    }
+
+    /**
+     * Expiry times of one user's pending sessions by session id.
+     */
+    private static final class PendingSessions {
+        private final Map<String, Long> expiresAt = new LinkedHashMap<>();
+
+        synchronized boolean tryAdd(String sessionId, long expiry, long now, int limit) {
+            prune(now);
+            if (expiresAt.size() >= limit) {
+                return false;
+            }
+            expiresAt.put(sessionId, expiry);
+            return true;
+        }
+
+        synchronized void remove(String sessionId) {
+            expiresAt.remove(sessionId);
+        }
+
+        synchronized int count(long now) {
+            prune(now);
+            return expiresAt.size();
+        }
+
+        private void prune(long now) {
+            Iterator<Long> expiries = expiresAt.values().iterator();
+            while (expiries.hasNext()) {
+                if (expiries.next() <= now) {
+                    expiries.remove();
+                }
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import com.orbvpn.api.domain.dto.DailyStats;
 import com.orbvpn.api.domain.dto.GlobalTokenStats;
 import com.orbvpn.api.domain.dto.RemainingLimits;
 import com.orbvpn.api.domain.dto.UserTokenStats;
+import com.orbvpn.api.service.token.TokenLedgerService;
 import com.orbvpn.api.service.user.UserContextService;
 
 import lombok.RequiredArgsConstructor;
@@ -37,6 +38,7 @@ public class AdTokenServiceImpl implements TokenServiceInterface {
     private final TokenRateRepository tokenRateRepository;
     private final UserRepository userRepository;
     private final UserContextService userContextService;
+    private final TokenLedgerService tokenLedgerService;
 
     private User getUserById(Integer userId) {
         return userRepository.findById(userId)
@@ -46,49 +48,27 @@ public class AdTokenServiceImpl implements TokenServiceInterface {
     @Override
     @Transactional
     public TokenBalance earnTokens(Integer userId, String adVendor, String region) {
-        User user = getUserById(userId);
+        getUserById(userId);
         TokenRate rate = getTokenRate(region, adVendor);
 
         validateAdLimits(userId, rate);
 
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(rate.getTokenPerAd());
-        transaction.setType(TokenTransactionType.EARN);
-        transaction.setAdVendor(adVendor);
-        transaction.setRegion(region);
-        tokenTransactionRepository.save(transaction);
-
-        TokenBalance balance = getOrCreateBalance(user);
-        balance.setBalance(balance.getBalance().add(rate.getTokenPerAd()));
-        balance.setLastActivityDate(LocalDateTime.now());
-
-        return tokenBalanceRepository.save(balance);
+        return tokenLedgerService.credit(userId, rate.getTokenPerAd(), TokenTransactionType.EARN, adVendor, region);
     }
 
     @Override
     @Transactional
     public TokenBalance spendTokens(Integer userId, int minutes, int activeDevices) {
-        User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
+        getUserById(userId);
         TokenRate rate = getDefaultTokenRate();
 
         BigDecimal consumptionRate = calculateConsumptionRate(rate, minutes, activeDevices);
 
-        if (balance.getBalance().compareTo(consumptionRate) < 0) {
+        try {
+            return tokenLedgerService.debit(userId, consumptionRate, TokenTransactionType.SPEND);
+        } catch (InsufficientTokensException e) {
             throw new InsufficientTokensException("Insufficient tokens for VPN usage");
         }
-
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(consumptionRate.negate());
-        transaction.setType(TokenTransactionType.SPEND);
-        tokenTransactionRepository.save(transaction);
-
-        balance.setBalance(balance.getBalance().subtract(consumptionRate));
-        balance.setLastActivityDate(LocalDateTime.now());
-
-        return tokenBalanceRepository.save(balance);
     }
 
     private BigDecimal calculateConsumptionRate(TokenRate rate, int minutes, int activeDevices) {
@@ -172,41 +152,19 @@ public class AdTokenServiceImpl implements TokenServiceInterface {
     @Override
     @Transactional
     public TokenBalance addTokens(Integer userId, BigDecimal amount, TokenTransactionType type) {
-        User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
-
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(amount);
-        transaction.setType(type);
-        tokenTransactionRepository.save(transaction);
-
-        balance.setBalance(balance.getBalance().add(amount));
-        balance.setLastActivityDate(LocalDateTime.now());
-
-        return tokenBalanceRepository.save(balance);
+        getUserById(userId);
+        return tokenLedgerService.credit(userId, amount, type);
     }
 
     @Override
     @Transactional
     public TokenBalance deductTokens(Integer userId, BigDecimal amount, TokenTransactionType type) {
-        User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
-
-        if (balance.getBalance().compareTo(amount) < 0) {
+        getUserById(userId);
+        try {
+            return tokenLedgerService.debit(userId, amount, type);
+        } catch (InsufficientTokensException e) {
             throw new InsufficientTokensException("Insufficient tokens for deduction");
         }
-
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(amount.negate());
-        transaction.setType(type);
-        tokenTransactionRepository.save(transaction);
-
-        balance.setBalance(balance.getBalance().subtract(amount));
-        balance.setLastActivityDate(LocalDateTime.now());
-
-        return tokenBalanceRepository.save(balance);
     }
 
     @Override
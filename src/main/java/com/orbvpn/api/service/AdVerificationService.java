@@ -3,10 +3,7 @@ package com.orbvpn.api.service;
 import com.orbvpn.api.domain.entity.AdViewingSession;
 import com.orbvpn.api.domain.entity.AdViewingSession.AdSessionStatus;
 import com.orbvpn.api.domain.entity.TokenBalance;
-import com.orbvpn.api.domain.entity.User;
-import com.orbvpn.api.exception.AdLimitExceededException;
 import com.orbvpn.api.exception.BadRequestException;
-import com.orbvpn.api.exception.NotFoundException;
 import com.orbvpn.api.repository.AdViewingSessionRepository;
 import com.orbvpn.api.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +12,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -33,6 +32,10 @@ import java.util.Set;
  * 2. Client watches ad
  * 3. Client submits completion with session ID, signature, and duration
  * 4. Server verifies and grants tokens
+ *
+ * Request limits are checked in memory by {@link AdSessionLimiter}, and a
+ * session leaves PENDING through one conditional update, so only one
+ * completion of a session can grant tokens.
  */
 @Service
 @Slf4j
@@ -42,6 +45,7 @@ public class AdVerificationService {
     private final AdViewingSessionRepository sessionRepository;
     private final UserRepository userRepository;
     private final TokenServiceInterface tokenService;
+    private final AdSessionLimiter sessionLimiter;
 
     @Value("${ad.verification.secret:defaultAdVerificationSecretKey123!}")
     private String verificationSecret;
@@ -52,15 +56,6 @@ public class AdVerificationService {
     @Value("${ad.min.duration.seconds:15}")
     private int minAdDurationSeconds;
 
-    @Value("${ad.max.pending.sessions:3}")
-    private int maxPendingSessions;
-
-    @Value("${ad.max.sessions.per.ip.per.hour:20}")
-    private int maxSessionsPerIpPerHour;
-
-    @Value("${ad.max.sessions.per.device.per.hour:15}")
-    private int maxSessionsPerDevicePerHour;
-
     private static final Set<String> ALLOWED_AD_VENDORS = Set.of(
         "GOOGLE", "UNITY", "APPLOVIN", "FACEBOOK", "ADMOB", "IRONSOURCE", "DEFAULT"
     );
@@ -83,60 +78,21 @@ public class AdVerificationService {
             throw new BadRequestException("Invalid ad vendor: " + adVendor);
         }
 
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new NotFoundException("User not found: " + userId));
-
-        // Check for too many pending sessions (prevent abuse)
-        long pendingCount = sessionRepository.countPendingSessionsForUser(userId, LocalDateTime.now());
-        if (pendingCount >= maxPendingSessions) {
-            log.warn("Too many pending sessions for user: {}", userId);
-            throw new AdLimitExceededException(
-                AdLimitExceededException.LimitType.UNKNOWN,
-                (int) pendingCount,
-                maxPendingSessions
-            );
-        }
-
-        // IP rate limiting
-        if (ipAddress != null) {
-            long ipSessionCount = sessionRepository.countRecentSessionsFromIp(
-                ipAddress, LocalDateTime.now().minusHours(1));
-            if (ipSessionCount >= maxSessionsPerIpPerHour) {
-                log.warn("IP rate limit exceeded: {}", ipAddress);
-                throw new AdLimitExceededException(
-                    AdLimitExceededException.LimitType.HOURLY,
-                    (int) ipSessionCount,
-                    maxSessionsPerIpPerHour
-                );
-            }
-        }
-
-        // Device rate limiting
-        if (deviceId != null) {
-            long deviceSessionCount = sessionRepository.countRecentSessionsFromDevice(
-                deviceId, LocalDateTime.now().minusHours(1));
-            if (deviceSessionCount >= maxSessionsPerDevicePerHour) {
-                log.warn("Device rate limit exceeded: {}", deviceId);
-                throw new AdLimitExceededException(
-                    AdLimitExceededException.LimitType.HOURLY,
-                    (int) deviceSessionCount,
-                    maxSessionsPerDevicePerHour
-                );
-            }
-        }
-
         // Generate unique session ID
         String sessionId = generateSessionId();
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime expiresAt = now.plusMinutes(sessionExpiryMinutes);
 
+        // Pending, IP and device limits (prevent abuse)
+        sessionLimiter.acquire(userId, sessionId, ipAddress, deviceId, expiresAt);
+
         // Generate verification signature
         String signature = generateSignature(sessionId, userId, normalizedVendor, expiresAt);
 
         // Create session record
         AdViewingSession session = AdViewingSession.builder()
             .sessionId(sessionId)
-            .user(user)
+            .user(userRepository.getReferenceById(userId))
             .adVendor(normalizedVendor)
             .region(region != null ? region.toUpperCase() : "DEFAULT")
             .deviceId(deviceId)
@@ -148,7 +104,12 @@ public class AdVerificationService {
             .verificationSignature(signature)
             .build();
 
-        sessionRepository.save(session);
+        try {
+            sessionRepository.save(session);
+        } catch (RuntimeException e) {
+            sessionLimiter.release(userId, sessionId);
+            throw e;
+        }
 
         log.info("Ad session created: sessionId={}, userId={}, expiresAt={}", sessionId, userId, expiresAt);
 
@@ -157,8 +118,9 @@ public class AdVerificationService {
 
     /**
      * Complete an ad viewing session and earn tokens.
+     * Rejections are recorded even though the call fails.
      */
-    @Transactional
+    @Transactional(noRollbackFor = BadRequestException.class)
     public TokenBalance completeAdSession(Integer userId, String sessionId, String signature,
                                           int reportedDurationSeconds, String ipAddress) {
         log.info("Ad session completion: userId={}, sessionId={}, duration={}s",
@@ -170,13 +132,12 @@ public class AdVerificationService {
                 log.warn("Session not found: {}", sessionId);
                 return new BadRequestException("Invalid session ID");
             });
+        Integer ownerId = session.getUser().getId();
 
         // Verify session belongs to user
-        if (!userId.equals(session.getUser().getId())) {
+        if (!userId.equals(ownerId)) {
             log.warn("Session {} does not belong to user {}", sessionId, userId);
-            session.setStatus(AdSessionStatus.REJECTED);
-            session.setRejectionReason("User mismatch");
-            sessionRepository.save(session);
+            close(ownerId, sessionId, AdSessionStatus.REJECTED, "User mismatch");
             throw new BadRequestException("Session does not belong to this user");
         }
 
@@ -189,8 +150,7 @@ public class AdVerificationService {
         // Check expiration
         if (LocalDateTime.now().isAfter(session.getExpiresAt())) {
             log.warn("Session {} has expired", sessionId);
-            session.setStatus(AdSessionStatus.EXPIRED);
-            sessionRepository.save(session);
+            close(ownerId, sessionId, AdSessionStatus.EXPIRED, null);
             throw new BadRequestException("Session has expired");
         }
 
@@ -199,9 +159,7 @@ public class AdVerificationService {
             sessionId, userId, session.getAdVendor(), session.getExpiresAt());
         if (!expectedSignature.equals(signature)) {
             log.warn("Invalid signature for session {}", sessionId);
-            session.setStatus(AdSessionStatus.REJECTED);
-            session.setRejectionReason("Invalid signature");
-            sessionRepository.save(session);
+            close(ownerId, sessionId, AdSessionStatus.REJECTED, "Invalid signature");
             throw new BadRequestException("Invalid session signature");
         }
 
@@ -209,19 +167,20 @@ public class AdVerificationService {
         if (reportedDurationSeconds < session.getMinDurationSeconds()) {
             log.warn("Duration too short for session {}: {}s < {}s",
                      sessionId, reportedDurationSeconds, session.getMinDurationSeconds());
-            session.setStatus(AdSessionStatus.REJECTED);
-            session.setRejectionReason("Duration too short: " + reportedDurationSeconds + "s");
-            sessionRepository.save(session);
+            close(ownerId, sessionId, AdSessionStatus.REJECTED,
+                "Duration too short: " + reportedDurationSeconds + "s");
             throw new BadRequestException(
                 "Ad must be watched for at least " + session.getMinDurationSeconds() + " seconds");
         }
 
-        // All checks passed - complete session and grant tokens
-        session.setStatus(AdSessionStatus.COMPLETED);
-        session.setCompletedAt(LocalDateTime.now());
-        session.setReportedDurationSeconds(reportedDurationSeconds);
-        session.setTokensGranted(true);
-        sessionRepository.save(session);
+        // All checks passed - complete the session unless a concurrent call already did
+        int completed = sessionRepository.completePendingSession(
+            sessionId, reportedDurationSeconds, LocalDateTime.now());
+        releaseAfterCommit(ownerId, sessionId);
+        if (completed == 0) {
+            log.warn("Session {} was completed or expired concurrently", sessionId);
+            throw new BadRequestException("Session is no longer pending");
+        }
 
         // Grant tokens using the token service
         TokenBalance balance = tokenService.earnTokens(userId, session.getAdVendor(), session.getRegion());
@@ -231,6 +190,29 @@ public class AdVerificationService {
         return balance;
     }
 
+    private void close(Integer ownerId, String sessionId, AdSessionStatus status, String reason) {
+        sessionRepository.closePendingSession(sessionId, status, reason);
+        releaseAfterCommit(ownerId, sessionId);
+    }
+
+    /**
+     * Stop counting a session as pending once the transaction that closed it
+     * has committed. If granting tokens fails the session is PENDING again in
+     * the database, and stays counted in memory too.
+     */
+    private void releaseAfterCommit(Integer ownerId, String sessionId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            sessionLimiter.release(ownerId, sessionId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sessionLimiter.release(ownerId, sessionId);
+            }
+        });
+    }
+
     /**
      * Generate a unique session ID.
      */
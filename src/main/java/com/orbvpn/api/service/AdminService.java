@@ -6,11 +6,8 @@ import com.orbvpn.api.domain.dto.UserFilterInput;
 import com.orbvpn.api.domain.dto.UserFilterInput.SubscriptionStatusFilter;
 import com.orbvpn.api.domain.dto.UserView;
 import com.orbvpn.api.domain.entity.User;
-import com.orbvpn.api.domain.entity.UserSubscription;
 import com.orbvpn.api.mapper.UserViewMapper;
-import com.orbvpn.api.mapper.UserSubscriptionViewMapper;
 import com.orbvpn.api.repository.UserRepository;
-import com.orbvpn.api.service.subscription.UserSubscriptionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -40,8 +37,6 @@ public class AdminService {
 
     private final UserRepository userRepository;
     private final UserViewMapper userViewMapper;
-    private final UserSubscriptionViewMapper userSubscriptionViewMapper;
-    private final UserSubscriptionService userSubscriptionService;
     private final EntityManager entityManager;
 
     public int getTotalActiveUsers() {
@@ -53,14 +48,7 @@ public class AdminService {
         Pageable pageable = PageRequest.of(page, size, Sort.by(DEFAULT_SORT_NATIVE));
 
         return userRepository.findAllActiveUsers(pageable)
-                .map(user -> {
-                    UserView userView = userViewMapper.toView(user);
-                    UserSubscription currentSubscription = userSubscriptionService.getCurrentSubscription(user);
-                    if (currentSubscription != null) {
-                        userView.setSubscription(userSubscriptionViewMapper.toView(currentSubscription));
-                    }
-                    return userView;
-                });
+                .map(userViewMapper::toView);
     }
 
     @Transactional(readOnly = true)
@@ -68,14 +56,7 @@ public class AdminService {
         Pageable pageable = PageRequest.of(page, size, Sort.by(DEFAULT_SORT_NATIVE));
 
         return userRepository.findAllNotActiveUsers(pageable)
-                .map(user -> {
-                    UserView userView = userViewMapper.toView(user);
-                    UserSubscription currentSubscription = userSubscriptionService.getCurrentSubscription(user);
-                    if (currentSubscription != null) {
-                        userView.setSubscription(userSubscriptionViewMapper.toView(currentSubscription));
-                    }
-                    return userView;
-                });
+                .map(userViewMapper::toView);
     }
 
     @Transactional(readOnly = true)
@@ -91,14 +72,7 @@ public class AdminService {
             results = userRepository.findByRoleIdAndUsernameContaining(3, query, pageable);
         }
 
-        return results.map(user -> {
-            UserView userView = userViewMapper.toView(user);
-            UserSubscription currentSubscription = userSubscriptionService.getCurrentSubscription(user);
-            if (currentSubscription != null) {
-                userView.setSubscription(userSubscriptionViewMapper.toView(currentSubscription));
-            }
-            return userView;
-        });
+        return results.map(userViewMapper::toView);
     }
 
     @Transactional(readOnly = true)
@@ -147,15 +121,8 @@ public class AdminService {
         countQuery.where(countPredicates.toArray(new Predicate[0]));
         Long total = entityManager.createQuery(countQuery).getSingleResult();
 
-        // Map to UserView
-        List<UserView> userViews = users.stream().map(user -> {
-            UserView userView = userViewMapper.toView(user);
-            UserSubscription currentSubscription = userSubscriptionService.getCurrentSubscription(user);
-            if (currentSubscription != null) {
-                userView.setSubscription(userSubscriptionViewMapper.toView(currentSubscription));
-            }
-            return userView;
-        }).toList();
+        // Subscriptions are batch-loaded per page by UserViewFieldResolver
+        List<UserView> userViews = users.stream().map(userViewMapper::toView).toList();
 
         return new PageImpl<>(userViews, PageRequest.of(page, size), total);
     }
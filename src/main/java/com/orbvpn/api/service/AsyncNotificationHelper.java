@@ -14,6 +14,8 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -309,29 +311,45 @@ public class AsyncNotificationHelper {
     }
 
     /**
-     * Send extra logins expiration reminder asynchronously
+     * Send expiration reminders for a batch of extra logins in one async task
      */
     @Async
-    public void sendExtraLoginsExpirationReminderAsync(User user, UserExtraLogins extraLogins, int daysRemaining) {
-        try {
-            notificationService.sendExtraLoginsExpirationReminder(user, extraLogins, daysRemaining);
-            log.debug("Async extra logins expiration reminder sent to user {}", user.getId());
-        } catch (Exception e) {
-            log.error("Failed to send async extra logins expiration reminder to user {}: {}", user.getId(), e.getMessage());
+    public void sendExtraLoginsExpirationRemindersAsync(List<UserExtraLogins> extraLogins, int daysRemaining) {
+        for (UserExtraLogins extraLogin : extraLogins) {
+            try {
+                notificationService.sendExtraLoginsExpirationReminder(extraLogin.getUser(), extraLogin, daysRemaining);
+            } catch (Exception e) {
+                log.error("Failed to send extra logins expiration reminder to user {}: {}",
+                        extraLogin.getUser().getId(), e.getMessage());
+            }
         }
+        log.debug("Async extra logins expiration reminders ({} days) sent for {} records",
+                daysRemaining, extraLogins.size());
     }
 
     /**
-     * Send extra logins expired notification asynchronously
+     * Send expired notifications and EXTRA_LOGINS_EXPIRED webhooks for a batch
+     * of extra logins in one async task
      */
     @Async
-    public void sendExtraLoginsExpiredNotificationAsync(User user, UserExtraLogins extraLogins) {
-        try {
-            notificationService.sendExtraLoginsExpiredNotification(user, extraLogins);
-            log.debug("Async extra logins expired notification sent to user {}", user.getId());
-        } catch (Exception e) {
-            log.error("Failed to send async extra logins expired notification to user {}: {}", user.getId(), e.getMessage());
+    public void sendExtraLoginsExpiredNotificationsAsync(List<UserExtraLogins> extraLogins) {
+        for (UserExtraLogins extraLogin : extraLogins) {
+            User user = extraLogin.getUser();
+            try {
+                notificationService.sendExtraLoginsExpiredNotification(user, extraLogin);
+
+                Map<String, Object> extraData = new HashMap<>();
+                extraData.put("planName", extraLogin.getPlan().getName());
+                extraData.put("loginCount", extraLogin.getLoginCount());
+                extraData.put("expiryDate", extraLogin.getExpiryDate());
+                webhookService.processWebhook("EXTRA_LOGINS_EXPIRED",
+                        webhookEventCreator.createPayloadWithExtra(user, "EXTRA_LOGINS_EXPIRED", extraData));
+            } catch (Exception e) {
+                log.error("Failed to send extra logins expired notification to user {}: {}",
+                        user.getId(), e.getMessage());
+            }
         }
+        log.debug("Async extra logins expired notifications sent for {} records", extraLogins.size());
     }
 
     /**
@@ -177,6 +177,11 @@ public class ConnectionAlertService {
 
     private final Map<String, Consumer<AlertMessage>> subscribers = new ConcurrentHashMap<>();
 
+    /**
+     * Register a consumer for every alert raised. Consumers run on the thread
+     * that raised the alert, so they must hand off any slow work such as
+     * socket writes instead of doing it inline.
+     */
     public void subscribeToAlerts(String sessionId, Consumer<AlertMessage> alertConsumer) {
         subscribers.put(sessionId, alertConsumer);
         log.debug("Session {} subscribed to alerts", sessionId);
@@ -187,7 +192,6 @@ public class ConnectionAlertService {
         log.debug("Session {} unsubscribed from alerts", sessionId);
     }
 
-    // Modify your existing broadcastAlert method to also notify subscribers
     private void broadcastAlert(AlertMessage alert) {
         messagingTemplate.convertAndSend("/topic/alerts", alert);
 
@@ -11,6 +11,8 @@ import com.orbvpn.api.repository.RadAcctRepository;
 import com.orbvpn.api.repository.ServerRepository;
 import com.orbvpn.api.repository.UserRepository;
 import com.orbvpn.api.service.common.AesUtil;
+import com.orbvpn.api.service.common.DownstreamBulkhead;
+import com.orbvpn.api.service.common.DownstreamBulkhead.Downstream;
 import com.orbvpn.api.service.common.SshUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -52,6 +54,7 @@ public class ConnectionService {
     private final ServerRepository serverRepository;
     private final ConnectionMapper connectionMapper;
     private final UserViewMapper userViewMapper;
+    private final DownstreamBulkhead bulkhead;
     @Value("${application.secure-key}")
     private String secureKey;
 
@@ -172,7 +175,7 @@ public class ConnectionService {
                 log.error("error in decrypting server password at disconnect request.");
                 throw new RuntimeException("error in decrypting server password ");
             }
-            try {
+            try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.SSH)) {
                 if (server.getRootCommand() != null && !server.getRootCommand().equals("")) {
                     response = SshUtil.executeCommandUsingPss(server.getSshUsername(), server.getRootCommand(),
                             server.getPublicIp(), server.getPorts(), server.getRootCommand());
@@ -201,7 +204,7 @@ public class ConnectionService {
                 log.error("failed to create security file", e);
                 return false;
             }
-            try {
+            try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.SSH)) {
                 log.debug("Temp file : " + privateKeyFile + " is created.");
                 Files.write(privateKeyFile, server.getSshPrivateKey().getBytes());
 
@@ -1,30 +1,32 @@
 package com.orbvpn.api.service;
 
-import com.orbvpn.api.repository.ConnectionStatsRepository;
+import com.orbvpn.api.service.partition.ConnectionStatsPartitionManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.time.LocalDateTime;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ConnectionStatsCleanupService {
-    private final ConnectionStatsRepository connectionStatsRepository;
+    private final ConnectionStatsPartitionManager partitionManager;
 
+    // Not transactional: partitions are detached outside a transaction, and fallback deletes commit per batch
     @Scheduled(cron = "0 0 0 * * *") // Run at midnight every day
-    @Transactional
+    @SchedulerLock(name = "cleanupOldConnectionStats", lockAtLeastFor = "5m", lockAtMostFor = "2h")
     public void cleanupOldStats() {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusMonths(3); // Keep 3 months of data
-
         try {
-            int deletedCount = connectionStatsRepository.deleteByConnectionEndBefore(cutoffDate);
-            log.info("Cleaned up {} old connection stats records", deletedCount);
+            boolean partitioned = partitionManager.isPartitioned();
+            long removed = partitionManager.applyRetention();
+            if (partitioned) {
+                log.info("Removed {} expired connection stats partitions", removed);
+            } else {
+                log.info("Cleaned up {} old connection stats records", removed);
+            }
         } catch (Exception e) {
             log.error("Error cleaning up old connection stats: {}", e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,9 @@
 package com.orbvpn.api.service;
 
 import com.orbvpn.api.domain.entity.*;
+import com.orbvpn.api.domain.enums.TokenTransactionType;
 import com.orbvpn.api.repository.ConnectionStatsRepository;
-import com.orbvpn.api.repository.TokenBalanceRepository;
+import com.orbvpn.api.service.token.TokenLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -17,7 +18,7 @@ import java.time.Duration;
 @Slf4j
 public class ConnectionTokenService {
     private final ConnectionStatsRepository connectionStatsRepository;
-    private final TokenBalanceRepository tokenBalanceRepository;
+    private final TokenLedgerService tokenLedgerService;
 
     private static final BigDecimal TOKEN_COST_PER_GB = new BigDecimal("0.1");
     private static final BigDecimal BASE_REWARD_RATE = new BigDecimal("0.05");
@@ -36,9 +37,10 @@ public class ConnectionTokenService {
         BigDecimal tokensEarned = calculateTokensEarned(stats);
         stats.setTokensEarned(tokensEarned);
 
-        // Update token balances
-        updateUserTokenBalance(stats.getUser(), tokensCost.negate());
-        updateUserTokenBalance(stats.getServer().getOperator(), tokensEarned);
+        // Update token balances; a user short of tokens pays what they have rather than going negative
+        tokenLedgerService.debitUpTo(stats.getUser().getId(), tokensCost, TokenTransactionType.CONNECTION_FEE);
+        tokenLedgerService.credit(stats.getServer().getOperator().getId(), tokensEarned,
+                TokenTransactionType.CONNECTION_REWARD);
 
         connectionStatsRepository.save(stats);
     }
@@ -76,15 +78,4 @@ public class ConnectionTokenService {
                 .add(networkMultiplier)
                 .divide(BigDecimal.valueOf(3), 4, RoundingMode.HALF_UP);
     }
-
-    private void updateUserTokenBalance(User user, BigDecimal amount) {
-        TokenBalance balance = tokenBalanceRepository.findByUser(user)
-                .orElseGet(() -> TokenBalance.builder()
-                        .user(user)
-                        .balance(BigDecimal.ZERO)
-                        .build());
-
-        balance.setBalance(balance.getBalance().add(amount));
-        tokenBalanceRepository.save(balance);
-    }
-}
\ No newline at end of file
+}
@@ -7,13 +7,16 @@ import com.orbvpn.api.exception.NotFoundException;
 import com.orbvpn.api.repository.UserExtraLoginsRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,8 +27,10 @@ public class ExtraLoginsHelper {
     private final UserExtraLoginsRepository extraLoginsRepository;
     private final RadiusService radiusService;
     private final AsyncNotificationHelper asyncNotificationHelper;
+    private final TransactionTemplate writeTransactionTemplate;
 
-    private static final int[] EXPIRATION_REMINDER_DAYS = { 1, 3, 7 }; // Days before expiration to send reminders
+    private static final int[] EXPIRATION_REMINDER_DAYS = { 1, 3, 7 }; // Days before expiration to send reminders, ascending
+    private static final int BATCH_SIZE = 500;
 
     @Transactional
     public void addExtraLogins(User user, ExtraLoginsPlan plan, int quantity) {
@@ -135,63 +140,91 @@ public class ExtraLoginsHelper {
         log.info("Successfully removed extra logins for user: {}", user.getEmail());
     }
 
+    /**
+     * Sends each expiration reminder stage once per record. Rows are claimed
+     * in batches with FOR UPDATE SKIP LOCKED and marked with the stage in the
+     * same transaction, so an overlapping run cannot send the same reminder
+     * again; notifications are handed off per batch after commit.
+     */
     @Scheduled(cron = "0 0 * * * *") // Run every hour
-    @Transactional
+    @SchedulerLock(name = "checkExpiringExtraLogins", lockAtLeastFor = "1m", lockAtMostFor = "30m")
     public void checkExpiringExtraLogins() {
         log.info("Checking for expiring extra logins");
         LocalDateTime now = LocalDateTime.now();
 
-        // Check for logins that will expire in the specified days
+        // Closest stage first, so a record only gets the reminder for the stage it is in
         for (int days : EXPIRATION_REMINDER_DAYS) {
-            LocalDateTime futureDate = now.plusDays(days);
-            List<UserExtraLogins> expiringLogins = extraLoginsRepository
-                    .findExpiringBetween(now, futureDate);
-
-            for (UserExtraLogins extraLogin : expiringLogins) {
-                if (extraLogin.isActive()) {
-                    asyncNotificationHelper.sendExtraLoginsExpirationReminderAsync(
-                            extraLogin.getUser(),
-                            extraLogin,
-                            days);
+            LocalDateTime until = now.plusDays(days);
+            int reminded = 0;
+            List<UserExtraLogins> batch;
+            do {
+                batch = writeTransactionTemplate.execute(status -> claimReminders(now, until, days));
+                if (!batch.isEmpty()) {
+                    asyncNotificationHelper.sendExtraLoginsExpirationRemindersAsync(batch, days);
+                    reminded += batch.size();
                 }
+            } while (batch.size() >= BATCH_SIZE);
+
+            if (reminded > 0) {
+                log.info("Queued {} extra logins expiration reminders for {} days", reminded, days);
             }
         }
     }
 
+    /**
+     * Deactivates expired extra logins in batches: one bulk status update and
+     * one batched Simultaneous-Use write per batch, with notifications and
+     * webhooks handed off after the batch commits.
+     */
     @Scheduled(cron = "0 0 0 * * *") // Run daily at midnight
-    @Transactional
+    @SchedulerLock(name = "deactivateExpiredExtraLogins", lockAtLeastFor = "1m", lockAtMostFor = "1h")
     public void deactivateExpiredExtraLogins() {
         log.info("Processing expired extra logins");
         LocalDateTime now = LocalDateTime.now();
-        List<UserExtraLogins> expiredLogins = extraLoginsRepository.findExpiredLogins(now);
-
-        for (UserExtraLogins extraLogin : expiredLogins) {
+        int deactivated = 0;
+        List<UserExtraLogins> batch;
+        do {
             try {
-                User user = extraLogin.getUser();
-
-                extraLogin.setActive(false);
-                extraLoginsRepository.save(extraLogin);
-
-                updateUserTotalLoginCount(user);
-
-                // Send notification asynchronously
-                asyncNotificationHelper.sendExtraLoginsExpiredNotificationAsync(user, extraLogin);
+                batch = writeTransactionTemplate.execute(status -> expireBatch(now));
+            } catch (Exception e) {
+                // The batch rolled back and stays active; the next run picks it up again
+                log.error("Error deactivating expired extra logins: {}", e.getMessage(), e);
+                break;
+            }
+            if (!batch.isEmpty()) {
+                asyncNotificationHelper.sendExtraLoginsExpiredNotificationsAsync(batch);
+                deactivated += batch.size();
+            }
+        } while (batch.size() >= BATCH_SIZE);
 
-                // Trigger webhook event asynchronously
-                Map<String, Object> extraData = new HashMap<>();
-                extraData.put("planName", extraLogin.getPlan().getName());
-                extraData.put("loginCount", extraLogin.getLoginCount());
-                extraData.put("expiryDate", extraLogin.getExpiryDate());
+        log.info("Deactivated {} expired extra logins", deactivated);
+    }
 
-                asyncNotificationHelper.sendUserWebhookWithExtraAsync(user, "EXTRA_LOGINS_EXPIRED", extraData);
+    private List<UserExtraLogins> claimReminders(LocalDateTime now, LocalDateTime until, int days) {
+        List<Long> ids = extraLoginsRepository.lockReminderDue(now, until, days, BATCH_SIZE);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<UserExtraLogins> due = extraLoginsRepository.findWithUserAndPlanByIdIn(ids);
+        extraLoginsRepository.markReminderSent(ids, days);
+        return due;
+    }
 
-                log.info("Deactivated expired extra logins for user: {}", user.getEmail());
+    private List<UserExtraLogins> expireBatch(LocalDateTime now) {
+        List<Long> ids = extraLoginsRepository.lockExpired(now, BATCH_SIZE);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<UserExtraLogins> expired = extraLoginsRepository.findWithUserAndPlanByIdIn(ids);
+        extraLoginsRepository.deactivate(ids, now);
 
-            } catch (Exception e) {
-                log.error("Error processing expired extra logins for user {}: {}",
-                        extraLogin.getUser().getEmail(), e.getMessage(), e);
-            }
+        Map<Integer, User> users = new LinkedHashMap<>();
+        for (UserExtraLogins extraLogin : expired) {
+            extraLogin.setActive(false);
+            users.putIfAbsent(extraLogin.getUser().getId(), extraLogin.getUser());
         }
+        radiusService.updateUsersTotalLoginCount(users.values());
+        return expired;
     }
 
     private void updateUserTotalLoginCount(User user) {
@@ -2,9 +2,11 @@ package com.orbvpn.api.service;
 
 import com.orbvpn.api.domain.dto.*;
 import com.orbvpn.api.domain.entity.*;
+import com.orbvpn.api.domain.enums.TokenTransactionType;
 import com.orbvpn.api.exception.*;
 import com.orbvpn.api.repository.*;
 import com.orbvpn.api.service.blockchain.BlockchainService;
+import com.orbvpn.api.service.token.TokenLedgerService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,7 +22,7 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MiningRewardService {
     private final MiningServerRepository miningServerRepository;
-    private final TokenBalanceRepository tokenBalanceRepository;
+    private final TokenLedgerService tokenLedgerService;
     private final MiningRewardRepository miningRewardRepository;
     private final BlockchainService blockchainService;
     private final MiningActivityRepository miningActivityRepository;
@@ -60,14 +62,7 @@ public class MiningRewardService {
     }
 
     private TokenBalance updateBalance(User user, BigDecimal amount) {
-        TokenBalance balance = tokenBalanceRepository.findByUser(user)
-                .orElse(TokenBalance.builder()
-                        .user(user)
-                        .balance(BigDecimal.ZERO)
-                        .build());
-
-        balance.setBalance(balance.getBalance().add(amount));
-        return tokenBalanceRepository.save(balance);
+        return tokenLedgerService.credit(user.getId(), amount, TokenTransactionType.MINING_REWARD);
     }
 
     @Transactional
@@ -124,26 +119,24 @@ public class MiningRewardService {
 
     @Transactional
     public WithdrawResult withdrawTokens(BigDecimal amount, User user) {
-        TokenBalance balance = tokenBalanceRepository.findByUser(user)
-                .orElseThrow(() -> new NotFoundException("No token balance found"));
-
-        if (balance.getBalance().compareTo(amount) < 0) {
-            throw new InsufficientFundsException("Insufficient token balance");
-        }
-
         MiningSettingsView settings = getUserMiningSettings(user);
         if (amount.compareTo(settings.getMinWithdrawAmount()) < 0) {
             throw new BadRequestException("Amount below minimum withdrawal limit");
         }
 
+        // Debit before the transfer so concurrent withdrawals cannot both spend the same
+        // tokens; a failed transfer rolls the debit back with the transaction
+        try {
+            tokenLedgerService.debit(user.getId(), amount, TokenTransactionType.WITHDRAWAL);
+        } catch (InsufficientTokensException e) {
+            throw new InsufficientFundsException("Insufficient token balance");
+        }
+
         try {
             String txHash = blockchainService.transferTokens(
                     settings.getWithdrawAddress(),
                     amount);
 
-            balance.setBalance(balance.getBalance().subtract(amount));
-            tokenBalanceRepository.save(balance);
-
             return WithdrawResult.builder()
                     .success(true)
                     .transactionHash(txHash)
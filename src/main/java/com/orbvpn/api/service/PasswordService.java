@@ -18,20 +18,7 @@ public class PasswordService {
     // Method for setting the password for the User entity
     public void setPassword(User user, String password) {
         try {
-            // Generate key and IV for encryption
-            String aesKey = AesUtil.generateKey();
-            String aesIv = AesUtil.convertIvParameterSpecToString(AesUtil.generateIv());
-
-            // Encrypt the password
-            String encryptedPassword = AesUtil.encrypt(password, aesKey, aesIv);
-
-            // Set encrypted password, aesKey, and aesIv to the User entity
-            user.setPassword(encryptedPassword);
-            user.setAesKey(aesKey);
-            user.setAesIv(aesIv);
-
-            // Store additional details (e.g., radAccess)
-            user.setRadAccess(DigestUtils.sha1Hex(password));
+            encodePassword(user, password);
 
             // Save the updated password to the Radius service (if needed)
             radiusService.editUserPassword(user);
@@ -40,6 +27,27 @@ public class PasswordService {
         }
     }
 
+    /**
+     * Encrypt the password and compute radAccess on the entity without touching
+     * RADIUS. For bulk paths that write radcheck rows themselves.
+     */
+    public void encodePassword(User user, String password) throws Exception {
+        // Generate key and IV for encryption
+        String aesKey = AesUtil.generateKey();
+        String aesIv = AesUtil.convertIvParameterSpecToString(AesUtil.generateIv());
+
+        // Encrypt the password
+        String encryptedPassword = AesUtil.encrypt(password, aesKey, aesIv);
+
+        // Set encrypted password, aesKey, and aesIv to the User entity
+        user.setPassword(encryptedPassword);
+        user.setAesKey(aesKey);
+        user.setAesIv(aesIv);
+
+        // Store additional details (e.g., radAccess)
+        user.setRadAccess(DigestUtils.sha1Hex(password));
+    }
+
     // Method to decrypt the password for the User entity
     public String getPassword(User user) {
         try {
@@ -6,8 +6,10 @@ import com.orbvpn.api.repository.NasRepository;
 import com.orbvpn.api.repository.RadAcctRepository;
 import com.orbvpn.api.repository.RadCheckRepository;
 import com.orbvpn.api.repository.UserExtraLoginsRepository;
+import com.orbvpn.api.repository.UserSubscriptionRepository;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,8 +17,13 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Optional;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +36,8 @@ public class RadiusService {
   private final RadCheckRepository radCheckRepository;
   private final RadAcctRepository radAcctRepository;
   private final UserExtraLoginsRepository userExtraLoginsRepository;
+  private final UserSubscriptionRepository userSubscriptionRepository;
+  private final JdbcTemplate jdbcTemplate;
 
   public void createNas(Server server) {
     Nas nas = new Nas();
@@ -325,6 +334,65 @@ public class RadiusService {
         user.getId(), baseLoginCount, extraLoginCount, totalLoginCount);
   }
 
+  /**
+   * Recomputes Simultaneous-Use for many users at once: two grouped queries for
+   * the subscription and extra login counts, one delete and one batched insert.
+   */
+  @Transactional
+  public void updateUsersTotalLoginCount(Collection<User> users) {
+    Map<Integer, String> usernames = new LinkedHashMap<>();
+    for (User user : users) {
+      usernames.put(user.getId(), user.getUsername());
+    }
+    if (usernames.isEmpty()) {
+      return;
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    Map<Integer, Integer> totals = new HashMap<>();
+    for (Object[] row : userSubscriptionRepository.findCurrentMultiLoginCountByUserIdIn(usernames.keySet(), now)) {
+      totals.merge((Integer) row[0], ((Number) row[1]).intValue(), Integer::sum);
+    }
+    for (Object[] row : userExtraLoginsRepository.sumActiveLoginCountByUserIdIn(usernames.keySet(), now)) {
+      totals.merge((Integer) row[0], ((Number) row[1]).intValue(), Integer::sum);
+    }
+
+    List<String[]> radChecks = new ArrayList<>(usernames.size());
+    usernames.forEach((userId, username) -> radChecks.add(new String[] {
+        username, "Simultaneous-Use", ":=", String.valueOf(totals.getOrDefault(userId, 0)) }));
+
+    radCheckRepository.deleteByAttributeAndUsernameIn("Simultaneous-Use", usernames.values());
+    jdbcTemplate.batchUpdate("INSERT INTO radcheck (username, attribute, op, value) VALUES (?, ?, ?, ?)",
+        radChecks, radChecks.size(), (ps, check) -> {
+          for (int i = 0; i < check.length; i++) {
+            ps.setString(i + 1, check[i]);
+          }
+        });
+
+    log.info("Updated total login count for {} users", radChecks.size());
+  }
+
+  /**
+   * Sets the same Expiration for many users at once: one delete and one
+   * batched insert.
+   */
+  @Transactional
+  public void updateExpirationRadChecks(Collection<String> usernames, LocalDateTime expiresAt) {
+    if (usernames.isEmpty()) {
+      return;
+    }
+    String expiration = convertToExpirationString(expiresAt);
+
+    radCheckRepository.deleteByAttributeAndUsernameIn("Expiration", usernames);
+    jdbcTemplate.batchUpdate("INSERT INTO radcheck (username, attribute, op, value) VALUES (?, 'Expiration', '==', ?)",
+        usernames, usernames.size(), (ps, username) -> {
+          ps.setString(1, username);
+          ps.setString(2, expiration);
+        });
+
+    log.info("Updated expiration RadCheck for {} users to {}", usernames.size(), expiration);
+  }
+
   @Transactional
   public void handleExtraLoginsChange(User user, int changeAmount) {
     // Get current Simultaneous-Use value
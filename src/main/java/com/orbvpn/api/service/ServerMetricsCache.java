@@ -3,9 +3,13 @@ package com.orbvpn.api.service;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.orbvpn.api.domain.entity.Server;
+import com.orbvpn.api.event.ServerMetricsRefreshedEvent;
 import com.orbvpn.api.repository.ServerRepository;
+import com.orbvpn.api.service.common.DownstreamBulkhead;
+import com.orbvpn.api.service.common.DownstreamBulkhead.Downstream;
 import com.orbvpn.api.service.common.SshUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -32,18 +36,21 @@ public class ServerMetricsCache {
     // Track last successful update time per server
     private final Map<Integer, Long> lastUpdateTime = new ConcurrentHashMap<>();
 
-    // Executor for parallel SSH calls during refresh
-    private final ExecutorService executorService;
+    // Caps concurrent SSH sessions; the refresh itself fans out on virtual threads
+    private final DownstreamBulkhead bulkhead;
 
-    public ServerMetricsCache(ServerRepository serverRepository) {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ServerMetricsCache(ServerRepository serverRepository, DownstreamBulkhead bulkhead,
+            ApplicationEventPublisher eventPublisher) {
         this.serverRepository = serverRepository;
+        this.bulkhead = bulkhead;
+        this.eventPublisher = eventPublisher;
 
         this.connectedUsersCache = Caffeine.newBuilder()
                 .maximumSize(500)
                 .expireAfterWrite(Duration.ofMinutes(5))
                 .build();
-
-        this.executorService = Executors.newFixedThreadPool(10);
     }
 
     /**
@@ -85,7 +92,7 @@ public class ServerMetricsCache {
      */
     public void refreshServerMetrics(Server server) {
         try {
-            int count = SshUtil.getServerConnectedUsers(server);
+            int count = fetchConnectedUsers(server);
             connectedUsersCache.put(server.getId(), count);
             lastUpdateTime.put(server.getId(), System.currentTimeMillis());
             log.debug("Refreshed metrics for server {}: {} users", server.getId(), count);
@@ -102,7 +109,7 @@ public class ServerMetricsCache {
     public void refreshAllServerMetrics() {
         log.info("Starting scheduled server metrics refresh");
 
-        try {
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
             var servers = serverRepository.findAll().stream()
                     .filter(s -> s.getHide() == 0)
                     .toList();
@@ -111,7 +118,7 @@ public class ServerMetricsCache {
             var futures = servers.stream()
                     .map(server -> executorService.submit(() -> {
                         try {
-                            int count = SshUtil.getServerConnectedUsers(server);
+                            int count = fetchConnectedUsers(server);
                             connectedUsersCache.put(server.getId(), count);
                             lastUpdateTime.put(server.getId(), System.currentTimeMillis());
                             return count;
@@ -128,6 +135,8 @@ public class ServerMetricsCache {
                 try {
                     totalUsers += future.get(30, TimeUnit.SECONDS);
                 } catch (Exception e) {
+                    // Interrupt the straggler so closing the executor does not wait on it
+                    future.cancel(true);
                     log.debug("Timeout waiting for server metrics");
                 }
             }
@@ -135,11 +144,19 @@ public class ServerMetricsCache {
             log.info("Server metrics refresh completed: {} total users across {} servers",
                     totalUsers, servers.size());
 
+            eventPublisher.publishEvent(new ServerMetricsRefreshedEvent(this, servers.size()));
+
         } catch (Exception e) {
             log.error("Error during server metrics refresh", e);
         }
     }
 
+    private int fetchConnectedUsers(Server server) {
+        try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.SSH)) {
+            return SshUtil.getServerConnectedUsers(server);
+        }
+    }
+
     /**
      * Check if metrics for a server are stale (older than 5 minutes).
      */
@@ -0,0 +1,231 @@
+package com.orbvpn.api.service;
+
+import com.orbvpn.api.config.ServerRecommendationProperties;
+import com.orbvpn.api.domain.dto.ClientServerView;
+import com.orbvpn.api.domain.entity.CongestionLevel;
+import com.orbvpn.api.domain.entity.Server;
+import com.orbvpn.api.domain.entity.ServerMetrics;
+import com.orbvpn.api.event.ServerListChangedEvent;
+import com.orbvpn.api.event.ServerMetricsRefreshedEvent;
+import com.orbvpn.api.mapper.ServerViewMapper;
+import com.orbvpn.api.repository.CongestionLevelRepository;
+import com.orbvpn.api.repository.ServerMetricsRepository;
+import com.orbvpn.api.repository.ServerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ranks visible servers for the "congestion" sort of getClientSortedServers.
+ *
+ * Rankings are rebuilt whenever {@link ServerMetricsCache} finishes a refresh
+ * or the server list changes, once globally and once per client region (every
+ * country and continent that has a server). A request only looks up the
+ * ranking for its region in the current snapshot. Published lists and views
+ * are never modified afterwards.
+ *
+ * Each server gets a score from 0 (idle, close) upwards; lower ranks first:
+ * connected users over capacity, CPU usage, used bandwidth and distance from
+ * the client's region, weighted by {@link ServerRecommendationProperties}.
+ * CPU and bandwidth come from the latest mining metrics reported for the same
+ * public IP; servers without recent metrics score those terms as average.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ServerRecommendationService {
+
+    private static final double UNKNOWN_UTILIZATION = 0.5;
+    // Reported network speed (Mbps) treated as full headroom, as in the mining performance score
+    private static final double FULL_BANDWIDTH_MBPS = 1000.0;
+    private static final double SAME_CONTINENT_DISTANCE = 0.5;
+
+    private final ServerRepository serverRepository;
+    private final ServerMetricsRepository serverMetricsRepository;
+    private final CongestionLevelRepository congestionLevelRepository;
+    private final ServerViewMapper serverViewMapper;
+    private final ServerMetricsCache serverMetricsCache;
+    private final ServerRecommendationProperties properties;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Ranked servers for a client region (a country or continent as stored on
+     * the servers, case-insensitive). Unknown or blank regions get the global
+     * ranking. Returns null until the first ranking has been built.
+     */
+    public List<ClientServerView> recommend(String region) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        if (region == null || region.isBlank()) {
+            return current.global();
+        }
+        return current.byRegion().getOrDefault(normalize(region), current.global());
+    }
+
+    @EventListener
+    public void onMetricsRefreshed(ServerMetricsRefreshedEvent event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onServerListChanged(ServerListChangedEvent event) {
+        rebuild();
+    }
+
+    public void rebuild() {
+        try {
+            long startedAt = System.nanoTime();
+            Snapshot built = build(serverRepository.findAllVisible());
+            snapshot = built;
+            log.debug("Rebuilt server recommendations for {} servers and {} regions in {} ms",
+                    built.global().size(), built.byRegion().size(), (System.nanoTime() - startedAt) / 1_000_000);
+        } catch (Exception e) {
+            // Keep serving the previous snapshot
+            log.warn("Failed to rebuild server recommendations: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot build(List<Server> servers) {
+        List<CongestionLevel> congestionLevels = congestionLevelRepository.findAll();
+        Map<String, ServerMetrics> metricsByIp = latestMetricsByIp();
+
+        int totalUserCount = Math.max(1, serverMetricsCache.getTotalConnectedUsers());
+
+        List<Candidate> candidates = new ArrayList<>(servers.size());
+        // country -> continent, so a country's neighbours can be found
+        Map<String, String> continentOfCountry = new HashMap<>();
+        Set<String> continents = new HashSet<>();
+
+        for (Server server : servers) {
+            int connectedUserCount = serverMetricsCache.getConnectedUserCount(server.getId());
+
+            ClientServerView view = serverViewMapper.toClientView(server);
+            view.setConnectedUserCount(connectedUserCount);
+            view.setCongestionLevel(congestionLevel(congestionLevels, (connectedUserCount * 100) / totalUserCount));
+
+            ServerMetrics metrics = metricsByIp.get(server.getPublicIp());
+            String country = normalize(server.getCountry());
+            String continent = normalize(server.getContinent());
+            if (country != null && continent != null) {
+                continentOfCountry.putIfAbsent(country, continent);
+            }
+            if (continent != null) {
+                continents.add(continent);
+            }
+            candidates.add(new Candidate(view, country, continent, loadScore(connectedUserCount, metrics)));
+        }
+
+        List<ClientServerView> global = rank(candidates, null, null);
+
+        Map<String, List<ClientServerView>> byRegion = new HashMap<>();
+        for (String continent : continents) {
+            byRegion.put(continent, rank(candidates, null, continent));
+        }
+        for (Map.Entry<String, String> entry : continentOfCountry.entrySet()) {
+            byRegion.put(entry.getKey(), rank(candidates, entry.getKey(), entry.getValue()));
+        }
+        return new Snapshot(global, Map.copyOf(byRegion));
+    }
+
+    /**
+     * Load, CPU and bandwidth part of the score; the same for every client region.
+     */
+    private double loadScore(int connectedUserCount, ServerMetrics metrics) {
+        int capacity = properties.getDefaultCapacity();
+        double cpu = UNKNOWN_UTILIZATION;
+        double bandwidth = UNKNOWN_UTILIZATION;
+
+        if (metrics != null) {
+            if (metrics.getMaxConnections() != null && metrics.getMaxConnections() > 0) {
+                capacity = metrics.getMaxConnections();
+            }
+            if (metrics.getCpuUsage() != null) {
+                cpu = clamp(metrics.getCpuUsage().doubleValue() / 100.0);
+            }
+            if (metrics.getNetworkSpeed() != null) {
+                bandwidth = 1.0 - clamp(metrics.getNetworkSpeed().doubleValue() / FULL_BANDWIDTH_MBPS);
+            }
+        }
+        double load = clamp((double) connectedUserCount / Math.max(1, capacity));
+
+        return properties.getLoadWeight() * load
+                + properties.getCpuWeight() * cpu
+                + properties.getBandwidthWeight() * bandwidth;
+    }
+
+    private List<ClientServerView> rank(List<Candidate> candidates, String country, String continent) {
+        double distanceWeight = properties.getDistanceWeight();
+        return candidates.stream()
+                .sorted(Comparator
+                        .comparingDouble((Candidate c) -> c.loadScore() + distanceWeight * c.distance(country, continent))
+                        .thenComparingInt(c -> c.view().getId()))
+                .map(Candidate::view)
+                .toList();
+    }
+
+    private Map<String, ServerMetrics> latestMetricsByIp() {
+        LocalDateTime oldest = LocalDateTime.now().minus(properties.getMetricsMaxAge());
+        Map<String, ServerMetrics> byIp = new HashMap<>();
+        for (ServerMetrics metrics : serverMetricsRepository.findLatestMetrics()) {
+            if (metrics.getServer() == null || metrics.getServer().getPublicIp() == null
+                    || metrics.getLastCheck() == null || metrics.getLastCheck().isBefore(oldest)) {
+                continue;
+            }
+            byIp.merge(metrics.getServer().getPublicIp(), metrics,
+                    (a, b) -> a.getLastCheck().isAfter(b.getLastCheck()) ? a : b);
+        }
+        return byIp;
+    }
+
+    private static String congestionLevel(List<CongestionLevel> congestionLevels, int percent) {
+        String name = null;
+        for (CongestionLevel congestionLevel : congestionLevels) {
+            if ((percent >= congestionLevel.getMin()) && (percent <= congestionLevel.getMax())) {
+                name = congestionLevel.getName();
+            }
+        }
+        return name;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+
+    private static String normalize(String region) {
+        return region == null || region.isBlank() ? null : region.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Candidate(ClientServerView view, String country, String continent, double loadScore) {
+        double distance(String clientCountry, String clientContinent) {
+            if (clientCountry == null && clientContinent == null) {
+                return 0.0;
+            }
+            if (clientCountry != null && clientCountry.equals(country)) {
+                return 0.0;
+            }
+            if (clientContinent != null && clientContinent.equals(continent)) {
+                return clientCountry == null ? 0.0 : SAME_CONTINENT_DISTANCE;
+            }
+            return 1.0;
+        }
+    }
+
+    private record Snapshot(List<ClientServerView> global, Map<String, List<ClientServerView>> byRegion) {
+    }
+}
@@ -3,23 +3,21 @@ package com.orbvpn.api.service;
 import com.orbvpn.api.domain.dto.ClientServerView;
 import com.orbvpn.api.domain.dto.ServerEdit;
 import com.orbvpn.api.domain.dto.ServerView;
-import com.orbvpn.api.domain.entity.CongestionLevel;
 import com.orbvpn.api.domain.entity.Server;
-import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.event.ServerListChangedEvent;
 import com.orbvpn.api.exception.NotFoundException;
 import com.orbvpn.api.mapper.ServerEditMapper;
 import com.orbvpn.api.mapper.ServerViewMapper;
-import com.orbvpn.api.repository.CongestionLevelRepository;
 import com.orbvpn.api.repository.ServerRepository;
 import com.orbvpn.api.config.CacheConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,11 +27,11 @@ import java.util.stream.Collectors;
 @Transactional
 public class ServerService {
     private final ServerRepository serverRepository;
-    private final CongestionLevelRepository congestionLevelRepository;
     private final ServerEditMapper serverEditMapper;
     private final ServerViewMapper serverViewMapper;
     private final UserService userService;
-    private final ServerMetricsCache serverMetricsCache;
+    private final ServerRecommendationService serverRecommendationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     private final RadiusService radiusService;
 
@@ -44,6 +42,7 @@ public class ServerService {
 
         serverRepository.save(server);
         radiusService.createNas(server);
+        eventPublisher.publishEvent(new ServerListChangedEvent(this, server.getId()));
         ServerView serverView = serverViewMapper.toView(server);
         log.info("Created server {}", serverView);
         return serverView;
@@ -58,6 +57,7 @@ public class ServerService {
         server = serverEditMapper.edit(server, serverEdit);
         serverRepository.save(server);
         radiusService.editNas(publicIp, server);
+        eventPublisher.publishEvent(new ServerListChangedEvent(this, id));
 
         ServerView serverView = serverViewMapper.toView(server);
         log.info("Edited server {}", serverView);
@@ -71,6 +71,7 @@ public class ServerService {
         Server server = getServerById(id);
         serverRepository.delete(server);
         radiusService.deleteNas(server);
+        eventPublisher.publishEvent(new ServerListChangedEvent(this, id));
 
         ServerView serverView = serverViewMapper.toView(server);
         log.info("Deleted server {}", serverView);
@@ -100,48 +101,22 @@ public class ServerService {
     }
 
     public List<ClientServerView> getClientSortedServers(String sortBy, String parameter) {
-        User user = userService.getUser();
         String sortProperties;
 
         switch (sortBy) {
             case "recent-connection":
-                String email = user.getEmail();
+                String email = userService.getUser().getEmail();
                 return serverRepository.findServerByRecentConnection(email)
                         .stream()
                         .map(serverViewMapper::toClientView).collect(Collectors.toList());
             case "congestion":
-                List<ClientServerView> ClientServerViewList = getClientServers();
-
-                List<CongestionLevel> CongestionLevelList = new ArrayList<>(congestionLevelRepository.findAll());
-
-                // Use cached metrics instead of SSH calls - instant response
-                int totalUserCount = serverMetricsCache.getTotalConnectedUsers();
-                if (totalUserCount == 0) {
-                    totalUserCount = 1; // Avoid division by zero
+                // Precomputed on each metrics refresh; parameter is the client's country or continent
+                List<ClientServerView> recommended = serverRecommendationService.recommend(parameter);
+                if (recommended != null) {
+                    return recommended;
                 }
-
-                for (ClientServerView clientServerView : ClientServerViewList) {
-                    int connectedUserCount = serverMetricsCache.getConnectedUserCount(clientServerView.getId());
-                    clientServerView.setConnectedUserCount(connectedUserCount);
-
-                    var percent = (connectedUserCount * 100) / totalUserCount;
-
-                    for (CongestionLevel congestionLevel : CongestionLevelList) {
-                        if ((percent >= congestionLevel.getMin()) && (percent <= congestionLevel.getMax())) {
-                            clientServerView.setCongestionLevel(congestionLevel.getName());
-                        }
-                    }
-                }
-
-                ClientServerViewList.sort((o1, o2) -> {
-                    if (o1.getConnectedUserCount() == o2.getConnectedUserCount()) {
-                        return 0;
-                    } else if (o1.getConnectedUserCount() < o2.getConnectedUserCount()) {
-                        return 1;
-                    }
-                    return -1;
-                });
-                return ClientServerViewList;
+                // No ranking built yet right after startup
+                return getClientServers();
             case "alphabetic":
                 return serverRepository.findAllVisibleOrderByHostName()
                         .stream()
@@ -178,8 +153,7 @@ public class ServerService {
                         .map(serverViewMapper::toClientView)
                         .collect(Collectors.toList());
             default:
-                ClientServerViewList = getClientServers();
-                return ClientServerViewList;
+                return getClientServers();
         }
     }
 
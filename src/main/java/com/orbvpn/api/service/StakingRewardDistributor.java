@@ -0,0 +1,144 @@
+package com.orbvpn.api.service;
+
+import com.orbvpn.api.domain.entity.StakingRewardRun;
+import com.orbvpn.api.domain.enums.StakingRewardRunStatus;
+import com.orbvpn.api.domain.enums.TokenTransactionType;
+import com.orbvpn.api.repository.StakingRewardRunRepository;
+import com.orbvpn.api.repository.TokenStakeRepository;
+import com.orbvpn.api.repository.projections.StakeRewardProjection;
+import com.orbvpn.api.service.token.TokenLedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pays the daily staking rewards. Active stakes are read in keyset pages and
+ * each page is credited through {@link TokenLedgerService#creditAll} in its
+ * own transaction, together with the {@link StakingRewardRun} cursor, so a
+ * crash loses at most the page in flight and the next run resumes after it.
+ *
+ * Every credit carries a reference of stake id and reward date, so a stake is
+ * paid at most once per day even if a run is repeated. ShedLock keeps the
+ * scheduled run on one instance.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StakingRewardDistributor {
+
+    static final int PAGE_SIZE = 500;
+
+    private final TokenStakeRepository stakeRepository;
+    private final StakingRewardRunRepository runRepository;
+    private final TokenLedgerService tokenLedgerService;
+    private final TransactionTemplate writeTransactionTemplate;
+
+    // Runs at midnight and pays for the day that just ended, after finishing any earlier run that stopped
+    @Scheduled(cron = "0 0 0 * * *")
+    @SchedulerLock(name = "distributeStakingRewards", lockAtLeastFor = "5m", lockAtMostFor = "3h")
+    public void distributeStakingRewards() {
+        LocalDate rewardDate = LocalDate.now().minusDays(1);
+        List<LocalDate> dates = new ArrayList<>();
+        runRepository.findByStatusAndRewardDateBeforeOrderByRewardDate(StakingRewardRunStatus.RUNNING, rewardDate)
+                .forEach(unfinished -> dates.add(unfinished.getRewardDate()));
+        dates.add(rewardDate);
+
+        for (LocalDate date : dates) {
+            try {
+                distribute(date);
+            } catch (Exception e) {
+                log.error("Staking reward distribution for {} failed; the next run resumes it", date, e);
+            }
+        }
+    }
+
+    /**
+     * Rewards every stake that was active before the end of {@code rewardDate}
+     * and has not been paid for that day yet.
+     *
+     * @return the run record, or null if another instance created it first
+     */
+    public StakingRewardRun distribute(LocalDate rewardDate) {
+        StakingRewardRun run = startRun(rewardDate);
+        if (run == null || run.getStatus() == StakingRewardRunStatus.COMPLETED) {
+            log.info("Staking rewards for {} already distributed or in progress elsewhere", rewardDate);
+            return run;
+        }
+
+        LocalDateTime stakedBefore = rewardDate.plusDays(1).atStartOfDay();
+        long afterId = run.getLastStakeId();
+        int pages = 0;
+        while (true) {
+            List<StakeRewardProjection> page = stakeRepository.findRewardableAfter(
+                    stakedBefore, afterId, PageRequest.of(0, PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+            creditPage(run.getId(), rewardDate, page, afterId);
+            pages++;
+        }
+
+        writeTransactionTemplate.executeWithoutResult(status -> runRepository.complete(run.getId(), LocalDateTime.now()));
+        StakingRewardRun completed = runRepository.findById(run.getId()).orElse(run);
+        log.info("Distributed {} staking rewards ({} tokens) for {} in {} pages",
+                completed.getRewardsCredited(), completed.getTokensDistributed(), rewardDate, pages);
+        return completed;
+    }
+
+    private void creditPage(Long runId, LocalDate rewardDate, List<StakeRewardProjection> page, long lastStakeId) {
+        List<TokenLedgerService.Credit> credits = new ArrayList<>(page.size());
+        for (StakeRewardProjection stake : page) {
+            if (stake.getAmount() == null || stake.getRewardRate() == null) {
+                continue;
+            }
+            BigDecimal reward = calculateDailyReward(stake.getAmount(), stake.getRewardRate());
+            if (reward.signum() <= 0) {
+                continue;
+            }
+            credits.add(new TokenLedgerService.Credit(stake.getUserId(), reward,
+                    "stake-reward:" + stake.getId() + ":" + rewardDate));
+        }
+
+        writeTransactionTemplate.executeWithoutResult(status -> {
+            // Stakes already paid for this day are skipped by the ledger and not counted again
+            List<TokenLedgerService.Credit> credited = tokenLedgerService.creditAll(credits,
+                    TokenTransactionType.STAKE_REWARD);
+            BigDecimal tokens = credited.stream()
+                    .map(TokenLedgerService.Credit::amount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            runRepository.addProgress(runId, lastStakeId, page.size(), credited.size(), tokens);
+        });
+    }
+
+    private StakingRewardRun startRun(LocalDate rewardDate) {
+        try {
+            return writeTransactionTemplate.execute(status -> runRepository.findByRewardDate(rewardDate)
+                    .orElseGet(() -> runRepository.saveAndFlush(StakingRewardRun.builder()
+                            .rewardDate(rewardDate)
+                            .status(StakingRewardRunStatus.RUNNING)
+                            .startedAt(LocalDateTime.now())
+                            .build())));
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    static BigDecimal calculateDailyReward(BigDecimal amount, BigDecimal rewardRate) {
+        return amount
+                .multiply(rewardRate)
+                .divide(BigDecimal.valueOf(365), 6, RoundingMode.HALF_DOWN);
+    }
+}
@@ -12,7 +12,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -191,29 +190,6 @@ public class TokenStakingService {
         return stake;
     }
 
-    // Reward Distribution
-    @Scheduled(cron = "0 0 0 * * *") // Run daily at midnight
-    @Transactional
-    public void distributeStakingRewards() {
-        log.info("Starting daily staking rewards distribution");
-        List<TokenStake> activeStakes = stakeRepository.findByUnstakedAtIsNull();
-
-        for (TokenStake stake : activeStakes) {
-            try {
-                BigDecimal dailyReward = calculateDailyReward(stake);
-                AdTokenService.addTokens(
-                        stake.getUser().getId(),
-                        dailyReward,
-                        TokenTransactionType.STAKE_REWARD);
-
-                log.info("Distributed {} tokens as staking reward to user {}",
-                        dailyReward, stake.getUser().getId());
-            } catch (Exception e) {
-                log.error("Failed to distribute staking reward for stake {}", stake.getId(), e);
-            }
-        }
-    }
-
     // Helper Methods
     private TokenStakingConfig getApplicableStakingConfig(User user, BigDecimal amount, Integer lockPeriodDays) {
         return stakingConfigRepository.findByIsActiveTrue().stream()
@@ -262,12 +238,6 @@ public class TokenStakingService {
         // Implement based on your user level system
     }
 
-    private BigDecimal calculateDailyReward(TokenStake stake) {
-        return stake.getAmount()
-                .multiply(stake.getRewardRate())
-                .divide(BigDecimal.valueOf(365), 6, RoundingMode.HALF_DOWN);
-    }
-
     private BigDecimal calculateRewards(TokenStake stake) {
         long daysStaked = ChronoUnit.DAYS.between(stake.getStakedAt(), LocalDateTime.now());
         return stake.getAmount()
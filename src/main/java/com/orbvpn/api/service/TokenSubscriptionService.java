@@ -10,6 +10,8 @@ import com.orbvpn.api.repository.GroupRepository;
 import com.orbvpn.api.repository.TokenRateRepository;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,7 +21,11 @@ import java.util.List;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class TokenSubscriptionService {
+    // Usernames per RADIUS Expiration delete and insert
+    private static final int RADIUS_BATCH_SIZE = 1_000;
+
     private final UserSubscriptionRepository subscriptionRepository;
     private final RadiusService radiusService;
     private final TokenRateRepository tokenRateRepository;
@@ -54,27 +60,32 @@ public class TokenSubscriptionService {
                 .orElseThrow(() -> new RuntimeException("Token-based group not found"));
     }
 
+    /**
+     * Start a new week for every token-based subscription: one bulk update,
+     * then the RADIUS expirations in batches.
+     */
     @Scheduled(cron = "0 0 0 * * MON") // Run every Monday at midnight
+    @SchedulerLock(name = "resetTokenWeeklyStats", lockAtLeastFor = "5m", lockAtMostFor = "30m")
+    @Transactional
     public void resetWeeklyStats() {
-        List<UserSubscription> tokenSubscriptions = subscriptionRepository
-                .findByIsTokenBasedTrue();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusWeeks(1);
+        int reset = subscriptionRepository.resetTokenBasedWeeklyStats(now, expiresAt);
 
-        for (UserSubscription sub : tokenSubscriptions) {
-            sub.setWeeklyAdsWatched(0);
-            sub.setLastWeeklyReset(LocalDateTime.now());
-            sub.setExpiresAt(LocalDateTime.now().plusWeeks(1));
-            subscriptionRepository.save(sub);
-            radiusService.updateUserExpirationRadCheck(sub);
+        List<String> usernames = subscriptionRepository.findTokenBasedUsernames();
+        for (int from = 0; from < usernames.size(); from += RADIUS_BATCH_SIZE) {
+            radiusService.updateExpirationRadChecks(
+                    usernames.subList(from, Math.min(from + RADIUS_BATCH_SIZE, usernames.size())), expiresAt);
         }
+        log.info("Reset weekly ad stats for {} token-based subscriptions", reset);
     }
 
+    /**
+     * Count a watched ad with an atomic increment, so concurrent completions
+     * are all counted without loading the subscription.
+     */
+    @Transactional
     public void incrementAdsWatched(User user) {
-        UserSubscription subscription = subscriptionRepository
-                .findFirstByUserOrderByCreatedAtDesc(user);
-
-        if (subscription != null && Boolean.TRUE.equals(subscription.getIsTokenBased())) {
-            subscription.setWeeklyAdsWatched(subscription.getWeeklyAdsWatched() + 1);
-            subscriptionRepository.save(subscription);
-        }
+        subscriptionRepository.incrementWeeklyAdsWatched(user.getId());
     }
-}
\ No newline at end of file
+}
@@ -1,192 +1,466 @@
 package com.orbvpn.api.service;
 
-import com.orbvpn.api.domain.entity.Reseller;
-import com.orbvpn.api.domain.entity.Role;
+import com.orbvpn.api.domain.entity.Group;
 import com.orbvpn.api.domain.entity.User;
-import com.orbvpn.api.domain.entity.UserProfile;
+import com.orbvpn.api.domain.entity.UserImportJob;
+import com.orbvpn.api.domain.entity.UserImportRowError;
+import com.orbvpn.api.domain.enums.GatewayName;
 import com.orbvpn.api.domain.enums.RoleName;
+import com.orbvpn.api.domain.enums.SubscriptionStatus;
+import com.orbvpn.api.domain.enums.UserImportStatus;
+import com.orbvpn.api.exception.InternalException;
+import com.orbvpn.api.exception.NotFoundException;
 import com.orbvpn.api.repository.GroupRepository;
-import com.orbvpn.api.repository.ResellerRepository;
-import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.repository.UserImportJobRepository;
+import com.orbvpn.api.repository.UserImportRowErrorRepository;
+import com.orbvpn.api.utils.Utilities;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
-import java.util.Date;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.util.NumberToTextConverter;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk user import from the legacy reseller workbook.
+ *
+ * The sheet is streamed with {@link UserImportSheetReader}, rows are validated
+ * in chunks, and each chunk's users, profiles, subscriptions and radcheck rows
+ * are written with JDBC batches in one short transaction. Progress and per-row
+ * errors are recorded on a {@link UserImportJob} so large imports can run in
+ * the background and be polled.
+ */
 @Service
 @RequiredArgsConstructor
-@Transactional
 @Slf4j
 public class UploadUserService {
 
   private static final Map<String, Integer> resellerMap = Map.of("OrbVPN", 1,
       "Hosseing Aghanassir", 2, "Ali Sadeghi", 3);
 
-  private final UserRepository userRepository;
-  private final ResellerRepository resellerRepository;
+  static final int CHUNK_SIZE = 500;
+  private static final int SHEET_COLUMNS = 18;
+  private static final int MAX_ROW_ERRORS_PER_JOB = 10_000;
+
   private final GroupRepository groupRepository;
   private final RoleService roleService;
   private final PasswordService passwordService;
-
+  private final RadiusService radiusService;
+  private final UserImportSheetReader sheetReader;
+  private final UserImportJobRepository importJobRepository;
+  private final UserImportRowErrorRepository rowErrorRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate writeTransactionTemplate;
+  private final Executor taskExecutor;
+
+  /**
+   * Import users synchronously in the calling thread. Rows rejected one by one
+   * are recorded on the job; an import that fails as a whole is thrown.
+   */
   public boolean uploadUsers(InputStream inputStream) {
+    File file = spool(inputStream);
+    UserImportJob job = createJob(null, null);
+    runImport(job.getJobId(), file);
 
-    try {
-      try (Workbook workbook = new XSSFWorkbook(inputStream)) {
-        Sheet datatypeSheet = workbook.getSheetAt(0);
-        Iterator<Row> iterator = datatypeSheet.iterator();
+    job = getJob(job.getJobId());
+    if (job.getStatus() == UserImportStatus.FAILED) {
+      throw new InternalException("Can not upload users: " + job.getErrorMessage());
+    }
+    return true;
+  }
 
-        log.info("Number of rows: {}", datatypeSheet.getPhysicalNumberOfRows());
+  /**
+   * Store the upload and import it in the background.
+   *
+   * @return the queued job; poll it with {@link #getJob(String)}
+   */
+  public UserImportJob startImport(InputStream inputStream, String fileName, Integer requestedBy) {
+    File file = spool(inputStream);
+    UserImportJob job = createJob(fileName, requestedBy);
+    taskExecutor.execute(() -> runImport(job.getJobId(), file));
+    log.info("Queued user import job {} for file {}", job.getJobId(), fileName);
+    return job;
+  }
+
+  public UserImportJob getJob(String jobId) {
+    return importJobRepository.findByJobId(jobId)
+        .orElseThrow(() -> new NotFoundException(UserImportJob.class, jobId));
+  }
 
+  public List<UserImportRowError> getRowErrors(String jobId, int page, int size) {
+    return rowErrorRepository.findByJobIdOrderByRowNumberAsc(jobId, PageRequest.of(page, size));
+  }
+
+  void runImport(String jobId, File file) {
+    UserImportJob job = getJob(jobId);
+    job.setStatus(UserImportStatus.RUNNING);
+    job.setStartedAt(LocalDateTime.now());
+    importJobRepository.save(job);
+
+    ImportRun run = new ImportRun(jobId, roleService.getByName(RoleName.USER).getId());
+    try {
+      sheetReader.read(file, SHEET_COLUMNS, row -> {
         // Ignore column names
-        iterator.next();
-        while (iterator.hasNext()) {
+        if (row.rowNumber() == 1) {
+          return;
+        }
+        run.buffer.add(row);
+        if (run.buffer.size() >= CHUNK_SIZE) {
+          flushChunk(run);
+        }
+      });
+      flushChunk(run);
+
+      job = getJob(jobId);
+      job.setStatus(UserImportStatus.COMPLETED);
+      log.info("User import {} finished: {} rows, {} imported, {} failed",
+          jobId, job.getProcessedRows(), job.getImportedRows(), job.getFailedRows());
+    } catch (Exception e) {
+      log.error("User import {} failed: {}", jobId, e.getMessage(), e);
+      job = getJob(jobId);
+      job.setStatus(UserImportStatus.FAILED);
+      job.setErrorMessage(StringUtils.abbreviate(e.getMessage(), 1000));
+    } finally {
+      try {
+        Files.deleteIfExists(file.toPath());
+      } catch (IOException e) {
+        log.warn("Could not delete import file {}", file, e);
+      }
+    }
+    job.setCompletedAt(LocalDateTime.now());
+    importJobRepository.save(job);
+  }
 
-          Row currentRow = iterator.next();
+  private void flushChunk(ImportRun run) {
+    if (run.buffer.isEmpty()) {
+      return;
+    }
+    List<UserImportSheetReader.SheetRow> rows = new ArrayList<>(run.buffer);
+    run.buffer.clear();
 
-          Cell usernameCell = currentRow.getCell(1, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String username = usernameCell.getStringCellValue();
+    List<ImportRow> valid = new ArrayList<>();
+    List<UserImportRowError> errors = new ArrayList<>();
+    int processed = 0;
 
-          if (StringUtils.isBlank(username)) {
-            continue;
-          }
+    for (UserImportSheetReader.SheetRow sheetRow : rows) {
+      String username = sheetRow.cell(1).trim();
+      if (StringUtils.isBlank(username)) {
+        continue;
+      }
+      processed++;
+      try {
+        valid.add(parseRow(sheetRow, username, run));
+      } catch (Exception e) {
+        errors.add(rowError(run.jobId, sheetRow.rowNumber(), username, e.getMessage()));
+      }
+    }
 
-          Cell emailCell = currentRow.getCell(14, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String email = emailCell.getStringCellValue();
-          if (!isValidEmail(email)) {
-            email = "invalid@mail.com";
-          }
+    rejectDuplicates(valid, errors, run.jobId);
 
-          Cell passwordCell = currentRow.getCell(2, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String password;
-          if (passwordCell.getCellType() == CellType.NUMERIC) {
-            password = NumberToTextConverter.toText(passwordCell.getNumericCellValue());
-          } else {
-            password = passwordCell.getStringCellValue();
-          }
+    int total = processed;
+    int imported = valid.size();
+    try {
+      writeTransactionTemplate.executeWithoutResult(status -> {
+        insertChunk(valid);
+        saveErrors(run, errors);
+        importJobRepository.addProgress(run.jobId, total, imported, errors.size());
+      });
+    } catch (Exception e) {
+      // The chunk rolled back as a whole; record every row of it as failed
+      log.error("User import {} chunk starting at row {} failed: {}", run.jobId,
+          rows.get(0).rowNumber(), e.getMessage());
+      for (ImportRow row : valid) {
+        errors.add(rowError(run.jobId, row.rowNumber, row.username, "Chunk write failed: " + e.getMessage()));
+      }
+      int failed = errors.size();
+      writeTransactionTemplate.executeWithoutResult(status -> {
+        saveErrors(run, errors);
+        importJobRepository.addProgress(run.jobId, total, 0, failed);
+      });
+    }
+  }
 
-          if (StringUtils.isBlank(password)) {
-            password = "123456";
-          }
+  private ImportRow parseRow(UserImportSheetReader.SheetRow sheetRow, String username, ImportRun run)
+      throws Exception {
+    ImportRow row = new ImportRow();
+    row.rowNumber = sheetRow.rowNumber();
+    row.username = username;
+    row.roleId = run.roleId;
 
-          Cell resellerCell = currentRow.getCell(4, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String reseller = resellerCell.getStringCellValue();
+    row.email = sheetRow.cell(14).trim();
+    if (!isValidEmail(row.email)) {
+      throw new IllegalArgumentException("Invalid email: " + row.email);
+    }
 
-          Cell servicePackageCell = currentRow.getCell(5, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String servicePackage = servicePackageCell.getStringCellValue();
+    String password = sheetRow.cell(2);
+    if (StringUtils.isBlank(password)) {
+      password = "123456";
+    }
+    User credentials = new User();
+    passwordService.encodePassword(credentials, password);
+    row.password = credentials.getPassword();
+    row.aesKey = credentials.getAesKey();
+    row.aesIv = credentials.getAesIv();
+    row.radAccess = credentials.getRadAccess();
 
-          Cell groupNameCell = currentRow.getCell(3, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String groupName = groupNameCell.getStringCellValue();
+    row.resellerId = resellerMap.getOrDefault(sheetRow.cell(4), 1);
 
-          Cell multiLoginCountCell = currentRow.getCell(11, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          double multiLoginCount = multiLoginCountCell.getNumericCellValue();
-          if (multiLoginCount == 0) {
-            multiLoginCount = 2.0;
-          }
+    Group group = run.groupFor(getGroupId(sheetRow.cell(3), sheetRow.cell(5)), groupRepository);
+    row.group = group;
 
-          Cell creationDateCell = currentRow.getCell(10, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          Date creationDate = new Date();
-          try {
-            creationDate = creationDateCell.getDateCellValue();
-          } catch (Exception ex) {
-            log.info("Exception:{}", ex.getMessage());
-          }
-          LocalDateTime creationDateTime = getCreationDate(creationDate);
-
-          Cell expirationDateCell = currentRow.getCell(7, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          Date expirationDate = expirationDateCell.getDateCellValue();
-          getCreationDate(expirationDate); // Validate date but value not used
-
-          Cell fullNameCell = currentRow.getCell(12, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String fullName = fullNameCell.getStringCellValue();
-          String[] names = fullName.split(" ");
-
-          Cell cellPhoneCell = currentRow.getCell(13, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String cellPhone;
-          if (cellPhoneCell.getCellType() == CellType.NUMERIC) {
-            cellPhone = NumberToTextConverter.toText(cellPhoneCell.getNumericCellValue());
-          } else {
-            cellPhone = cellPhoneCell.getStringCellValue();
-          }
+    double multiLoginCount = parseNumber(sheetRow.cell(11));
+    row.multiLoginCount = multiLoginCount == 0 ? 2 : (int) multiLoginCount;
 
-          Cell postalCodeCell = currentRow.getCell(15, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String postalCode;
-          if (postalCodeCell.getCellType() == CellType.NUMERIC) {
-            postalCode = NumberToTextConverter.toText(postalCodeCell.getNumericCellValue());
-          } else {
-            postalCode = postalCodeCell.getStringCellValue();
-          }
+    row.createdAt = parseDate(sheetRow.cell(10));
+    if (row.createdAt == null) {
+      row.createdAt = LocalDateTime.now();
+    }
+    row.expiresAt = parseDate(sheetRow.cell(7));
 
-          Cell cityCell = currentRow.getCell(16, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String city = cityCell.getStringCellValue();
+    String[] names = sheetRow.cell(12).split(" ");
+    if (names.length > 0) {
+      row.firstName = Utilities.toTitleCase(names[0]);
+    }
+    if (names.length > 1) {
+      row.lastName = Utilities.toTitleCase(names[1]);
+    }
+    row.phone = sheetRow.cell(13);
+    row.postalCode = sheetRow.cell(15);
+    row.city = sheetRow.cell(16);
+    row.country = sheetRow.cell(17);
+    return row;
+  }
 
-          Cell countryCell = currentRow.getCell(17, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-          String country = countryCell.getStringCellValue();
+  /**
+   * Drop rows whose username or email repeats within the chunk or already
+   * exists, using one lookup query per chunk.
+   */
+  private void rejectDuplicates(List<ImportRow> rows, List<UserImportRowError> errors, String jobId) {
+    if (rows.isEmpty()) {
+      return;
+    }
+    Set<String> usernames = new HashSet<>();
+    Set<String> emails = new HashSet<>();
+    for (ImportRow row : rows) {
+      usernames.add(row.username);
+      emails.add(row.email);
+    }
 
-          User user = new User();
+    Set<String> existingUsernames = new HashSet<>();
+    Set<String> existingEmails = new HashSet<>();
+    new NamedParameterJdbcTemplate(jdbcTemplate).query(
+        "SELECT username, email FROM \"user\" WHERE username IN (:usernames) OR email IN (:emails)",
+        new MapSqlParameterSource().addValue("usernames", usernames).addValue("emails", emails),
+        rs -> {
+          existingUsernames.add(rs.getString("username"));
+          existingEmails.add(rs.getString("email"));
+        });
+
+    Set<String> seenUsernames = new HashSet<>();
+    Set<String> seenEmails = new HashSet<>();
+    rows.removeIf(row -> {
+      String reason = null;
+      if (existingUsernames.contains(row.username) || !seenUsernames.add(row.username)) {
+        reason = "Username already exists: " + row.username;
+      } else if (existingEmails.contains(row.email) || !seenEmails.add(row.email)) {
+        reason = "Email already exists: " + row.email;
+      }
+      if (reason != null) {
+        errors.add(rowError(jobId, row.rowNumber, row.username, reason));
+        return true;
+      }
+      return false;
+    });
+  }
 
-          user.setUsername(username);
-          user.setEmail(email);
-          passwordService.setPassword(user, password);
-          Role role = roleService.getByName(RoleName.USER);
-          user.setRole(role);
+  private void insertChunk(List<ImportRow> rows) {
+    if (rows.isEmpty()) {
+      return;
+    }
+    insertUsers(rows);
+
+    LocalDateTime now = LocalDateTime.now();
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO user_profile (user_id, first_name, last_name, phone, postal_code, city, country, "
+            + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+        rows, rows.size(), (ps, row) -> {
+          ps.setInt(1, row.userId);
+          ps.setString(2, row.firstName);
+          ps.setString(3, row.lastName);
+          ps.setString(4, row.phone);
+          ps.setString(5, row.postalCode);
+          ps.setString(6, row.city);
+          ps.setString(7, row.country);
+          ps.setTimestamp(8, Timestamp.valueOf(now));
+          ps.setTimestamp(9, Timestamp.valueOf(now));
+        });
+
+    List<ImportRow> withSubscription = rows.stream().filter(row -> row.expiresAt != null).toList();
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO user_subscription (user_id, group_id, duration, multi_login_count, daily_bandwidth, "
+            + "download_upload, expires_at, canceled, auto_renew, status, gateway, is_token_based, "
+            + "weekly_ads_watched, failed_payment_attempts, acknowledged, bandwidth_used_bytes, "
+            + "bandwidth_addon_bytes, price_increase_status, version, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, false, false, ?, ?, false, 0, 0, false, 0, 0, 'NONE', 0, ?, ?)",
+        withSubscription, withSubscription.size(), (ps, row) -> {
+          ps.setInt(1, row.userId);
+          ps.setInt(2, row.group.getId());
+          ps.setInt(3, row.group.getDuration());
+          ps.setInt(4, row.multiLoginCount);
+          ps.setObject(5, row.group.getDailyBandwidth(), Types.NUMERIC);
+          ps.setObject(6, row.group.getDownloadUpload(), Types.NUMERIC);
+          ps.setTimestamp(7, Timestamp.valueOf(row.expiresAt));
+          ps.setString(8, SubscriptionStatus.ACTIVE.name());
+          ps.setString(9, GatewayName.RESELLER_CREDIT.name());
+          ps.setTimestamp(10, Timestamp.valueOf(now));
+          ps.setTimestamp(11, Timestamp.valueOf(now));
+        });
+
+    List<String[]> radChecks = new ArrayList<>(rows.size() * 3);
+    for (ImportRow row : rows) {
+      radChecks.add(new String[] { row.username, "SHA-Password", ":=", row.radAccess });
+      if (row.expiresAt != null) {
+        radChecks.add(new String[] { row.username, "Simultaneous-Use", ":=", String.valueOf(row.multiLoginCount) });
+        radChecks.add(new String[] { row.username, "Expiration", "==",
+            radiusService.convertToExpirationString(row.expiresAt) });
+      }
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO radcheck (username, attribute, op, value) VALUES (?, ?, ?, ?)",
+        radChecks, radChecks.size(), (ps, check) -> {
+          for (int i = 0; i < check.length; i++) {
+            ps.setString(i + 1, check[i]);
+          }
+        });
+  }
 
-          UserProfile userProfile = new UserProfile();
-          if (names.length > 0) {
-            userProfile.setFirstName(names[0]);
+  private void insertUsers(List<ImportRow> rows) {
+    String sql = "INSERT INTO \"user\" (uuid, username, email, password, aes_key, aes_iv, rad_access, role_id, "
+        + "reseller_id, active, enabled, auto_renew, created_at, updated_at) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, true, true, false, ?, ?)";
+    int roleId = rows.get(0).roleId;
+    jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+      try (PreparedStatement ps = connection.prepareStatement(sql, new String[] { "id" })) {
+        for (ImportRow row : rows) {
+          ps.setString(1, UUID.randomUUID().toString());
+          ps.setString(2, row.username);
+          ps.setString(3, row.email);
+          ps.setString(4, row.password);
+          ps.setString(5, row.aesKey);
+          ps.setString(6, row.aesIv);
+          ps.setString(7, row.radAccess);
+          ps.setInt(8, roleId);
+          ps.setInt(9, row.resellerId);
+          ps.setTimestamp(10, Timestamp.valueOf(row.createdAt));
+          ps.setTimestamp(11, Timestamp.valueOf(LocalDateTime.now()));
+          ps.addBatch();
+        }
+        ps.executeBatch();
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+          int i = 0;
+          while (keys.next()) {
+            rows.get(i++).userId = keys.getInt(1);
           }
-          if (names.length > 1) {
-            userProfile.setLastName(names[1]);
+          if (i != rows.size()) {
+            throw new IllegalStateException("Expected " + rows.size() + " generated user ids, got " + i);
           }
-          userProfile.setPhone(cellPhone);
-          userProfile.setPostalCode(postalCode);
-          userProfile.setCity(city);
-          userProfile.setCountry(country);
-          userProfile.setUser(user);
-          user.setProfile(userProfile);
-
-          // Set resellers
-          Integer resellerId = resellerMap.getOrDefault(reseller, 1);
-          Reseller resellerEnt = resellerRepository.getReferenceById(resellerId);
-          user.setReseller(resellerEnt);
-
-          userRepository.save(user);
-          user.setCreatedAt(creationDateTime);
-          userRepository.save(user);
-          // Create subscription
-          Integer groupId = getGroupId(groupName, servicePackage);
-          groupRepository.getReferenceById(groupId); // Verify group exists
-          // UserSubscription userSubscription = userSubscriptionService
-          // .createUserSubscription(user, group, PaymentType.RESELLER_CREDIT,
-          // PaymentStatus.PENDING,
-          // paymentId);
-          //
-          // userSubscription.setMultiLoginCount((int) multiLoginCount);
-          // userSubscription.setExpiresAt(expirationDateTime);
-          // userSubscriptionService.fullFillSubscription(userSubscription);
         }
       }
+      return null;
+    });
+  }
+
+  private void saveErrors(ImportRun run, List<UserImportRowError> errors) {
+    int room = MAX_ROW_ERRORS_PER_JOB - run.storedErrors;
+    if (errors.isEmpty() || room <= 0) {
+      return;
+    }
+    List<UserImportRowError> toStore = errors.size() > room ? errors.subList(0, room) : errors;
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO user_import_row_error (job_id, sheet_row, username, message) VALUES (?, ?, ?, ?)",
+        toStore, toStore.size(), (ps, error) -> {
+          ps.setString(1, error.getJobId());
+          ps.setInt(2, error.getRowNumber());
+          ps.setString(3, error.getUsername());
+          ps.setString(4, error.getMessage());
+        });
+    run.storedErrors += toStore.size();
+  }
+
+  private UserImportJob createJob(String fileName, Integer requestedBy) {
+    return importJobRepository.save(UserImportJob.builder()
+        .jobId(UUID.randomUUID().toString())
+        .fileName(fileName)
+        .requestedBy(requestedBy)
+        .status(UserImportStatus.PENDING)
+        .createdAt(LocalDateTime.now())
+        .build());
+  }
+
+  private File spool(InputStream inputStream) {
+    try {
+      File file = Files.createTempFile("user-import-", ".xlsx").toFile();
+      Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return file;
     } catch (IOException ioException) {
-      throw new RuntimeException("Can not upload users");
+      throw new RuntimeException("Can not upload users", ioException);
     }
+  }
 
-    return true;
+  private static UserImportRowError rowError(String jobId, int rowNumber, String username, String message) {
+    UserImportRowError error = new UserImportRowError();
+    error.setJobId(jobId);
+    error.setRowNumber(rowNumber);
+    error.setUsername(username);
+    error.setMessage(StringUtils.abbreviate(message, 500));
+    return error;
+  }
+
+  private static double parseNumber(String value) {
+    if (StringUtils.isBlank(value)) {
+      return 0;
+    }
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static LocalDateTime parseDate(String value) {
+    if (StringUtils.isBlank(value)) {
+      return null;
+    }
+    try {
+      return DateUtil.getLocalDateTime(Double.parseDouble(value.trim()));
+    } catch (NumberFormatException e) {
+      log.info("Exception:{}", e.getMessage());
+      return null;
+    }
   }
 
   private static final Pattern EMAIL_PATTERN = Pattern.compile(
@@ -216,13 +490,47 @@ public class UploadUserService {
     return 1;
   }
 
-  private LocalDateTime getCreationDate(Date date) {
-    if (date == null) {
-      return LocalDateTime.now();
+  /**
+   * State of one import run: the pending chunk and lookups reused across chunks.
+   */
+  private static class ImportRun {
+    private final String jobId;
+    private final int roleId;
+    private final List<UserImportSheetReader.SheetRow> buffer = new ArrayList<>(CHUNK_SIZE);
+    private final Map<Integer, Group> groups = new HashMap<>();
+    private int storedErrors;
+
+    ImportRun(String jobId, int roleId) {
+      this.jobId = jobId;
+      this.roleId = roleId;
     }
 
-    return new java.sql.Timestamp(
-        date.getTime()).toLocalDateTime();
+    Group groupFor(int groupId, GroupRepository groupRepository) {
+      return groups.computeIfAbsent(groupId, id -> groupRepository.findById(id)
+          .orElseThrow(() -> new IllegalArgumentException("Unknown group: " + id)));
+    }
   }
 
+  private static class ImportRow {
+    int rowNumber;
+    int roleId;
+    int userId;
+    String username;
+    String email;
+    String password;
+    String aesKey;
+    String aesIv;
+    String radAccess;
+    int resellerId;
+    Group group;
+    int multiLoginCount;
+    LocalDateTime createdAt;
+    LocalDateTime expiresAt;
+    String firstName;
+    String lastName;
+    String phone;
+    String postalCode;
+    String city;
+    String country;
+  }
 }
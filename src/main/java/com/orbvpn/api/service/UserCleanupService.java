@@ -1,7 +1,5 @@
 package com.orbvpn.api.service;
 
-import com.orbvpn.api.domain.entity.SubscriptionHistory;
-import com.orbvpn.api.domain.entity.TransactionUserMapping;
 import com.orbvpn.api.domain.entity.User;
 import com.orbvpn.api.repository.NotificationPreferencesRepository;
 import com.orbvpn.api.repository.OauthTokenRepository;
@@ -19,7 +17,6 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.NoSuchElementException;
 import jakarta.persistence.EntityManager;
 
@@ -131,13 +128,9 @@ public class UserCleanupService {
     private void archiveSubscriptionHistory(User user) {
         try {
             log.debug("Archiving subscription history for user ID: {}", user.getId());
-            List<SubscriptionHistory> histories = subscriptionHistoryRepository.findByUserId(user.getId());
-            for (SubscriptionHistory history : histories) {
-                history.archiveForDeletedUser();
-                subscriptionHistoryRepository.save(history);
-            }
+            int archived = subscriptionHistoryRepository.archiveForDeletedUser(user.getId(), user.getEmail());
             log.debug("Successfully archived {} subscription history records for user ID: {}",
-                    histories.size(), user.getId());
+                    archived, user.getId());
         } catch (Exception e) {
             log.error("Error archiving subscription history for user ID: {}", user.getId(), e);
             throw e;
@@ -147,13 +140,9 @@ public class UserCleanupService {
     private void dissociateTransactionMappings(User user) {
         try {
             log.debug("Dissociating transaction mappings for user ID: {}", user.getId());
-            List<TransactionUserMapping> mappings = transactionUserMappingRepository.findByUser(user);
-            for (TransactionUserMapping mapping : mappings) {
-                mapping.setUser(null);
-                transactionUserMappingRepository.save(mapping);
-            }
+            int dissociated = transactionUserMappingRepository.dissociateUser(user.getId());
             log.debug("Successfully dissociated {} transaction mappings for user ID: {}",
-                    mappings.size(), user.getId());
+                    dissociated, user.getId());
         } catch (Exception e) {
             log.error("Error dissociating transaction mappings for user ID: {}", user.getId(), e);
             throw e;
@@ -0,0 +1,113 @@
+package com.orbvpn.api.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Reads the first sheet of an .xlsx file with POI's SAX event API, one row at
+ * a time, so memory does not grow with the number of rows.
+ *
+ * Numeric cells (including dates) are delivered as their raw numeric text, not
+ * in the cell's display format; callers convert date columns themselves with
+ * {@link org.apache.poi.ss.usermodel.DateUtil}.
+ */
+@Component
+@Slf4j
+public class UserImportSheetReader {
+
+  /**
+   * One spreadsheet row. {@code rowNumber} is 1-based, as shown in Excel.
+   */
+  public record SheetRow(int rowNumber, String[] cells) {
+
+    public String cell(int column) {
+      if (column >= cells.length || cells[column] == null) {
+        return "";
+      }
+      return cells[column];
+    }
+  }
+
+  public void read(File file, int columns, Consumer<SheetRow> consumer) throws Exception {
+    try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+      ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+      XSSFReader reader = new XSSFReader(pkg);
+      StylesTable styles = reader.getStylesTable();
+
+      Iterator<InputStream> sheets = reader.getSheetsData();
+      if (!sheets.hasNext()) {
+        log.warn("Workbook {} has no sheets", file.getName());
+        return;
+      }
+
+      try (InputStream sheet = sheets.next()) {
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings,
+            new RowCollector(columns, consumer), new RawNumberFormatter(), false));
+        parser.parse(new InputSource(sheet));
+      }
+    }
+  }
+
+  private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+    private final int columns;
+    private final Consumer<SheetRow> consumer;
+    private String[] cells;
+    private int nextColumn;
+
+    RowCollector(int columns, Consumer<SheetRow> consumer) {
+      this.columns = columns;
+      this.consumer = consumer;
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+      cells = new String[columns];
+      nextColumn = 0;
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+      consumer.accept(new SheetRow(rowNum + 1, cells));
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+      int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+      nextColumn = column + 1;
+      if (column < columns) {
+        cells[column] = formattedValue;
+      }
+    }
+  }
+
+  /**
+   * Keeps numbers unformatted so dates and long numeric ids (phones, postal
+   * codes) come through without locale or display-format loss.
+   */
+  private static class RawNumberFormatter extends DataFormatter {
+    @Override
+    public String formatRawCellContents(double value, int formatIndex, String formatString,
+        boolean use1904Windowing) {
+      return NumberToTextConverter.toText(value);
+    }
+  }
+}
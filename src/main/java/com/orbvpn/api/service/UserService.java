@@ -15,6 +15,8 @@ import com.orbvpn.api.event.UserDeletedEvent;
 import com.orbvpn.api.exception.BadCredentialsException;
 import com.orbvpn.api.exception.BadRequestException;
 import com.orbvpn.api.exception.NotFoundException;
+import com.orbvpn.api.service.maintenance.MaintenanceCheckpointService;
+import com.orbvpn.api.service.maintenance.PasswordReEncryptionJob;
 import com.orbvpn.api.service.notification.NotificationService;
 import com.orbvpn.api.service.payment.PaymentUserService;
 import com.orbvpn.api.service.reseller.ResellerService;
@@ -26,7 +28,9 @@ import com.orbvpn.api.properties.JWTProperties;
 
 import graphql.GraphQLException;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -34,7 +38,6 @@ import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
-import org.apache.commons.lang3.StringUtils;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.time.LocalDateTime;
@@ -44,6 +47,9 @@ import java.time.LocalDateTime;
 @Slf4j
 @Transactional
 public class UserService {
+    private static final int MAINTENANCE_CHUNK_SIZE = 1000;
+    private static final String FIX_PROFILES_JOB = "fix-users-without-profiles";
+
 
     private final UserRepository userRepository;
     private final UserCreateMapper userCreateMapper;
@@ -79,6 +85,9 @@ public class UserService {
     private final MagicLoginCodeRepository magicLoginCodeRepository;
     private final AsyncNotificationHelper asyncNotificationHelper;
     private final BandwidthAddonRepository bandwidthAddonRepository;
+    private final MaintenanceCheckpointService maintenanceCheckpointService;
+    private final TransactionTemplate writeTransactionTemplate;
+    private final PasswordReEncryptionJob passwordReEncryptionJob;
 
     public AuthenticatedUser register(UserCreate userCreate) {
         return register(userCreate.getEmail(), userCreate.getPassword(), null);
@@ -547,97 +556,16 @@ public AuthenticatedUser loginInfo(User user) {
         return true;
     }
 
-    // Replace the existing reEncryptPasswordsInRange method in UserService
-    public void reEncryptPasswordsInRange(int fromUserId, int toUserId, boolean sendEmail) {
-        List<User> usersInRange = userRepository.findByIdBetween(fromUserId, toUserId);
-
-        log.info("Starting password re-encryption for {} users in range {} to {}",
-                usersInRange.size(), fromUserId, toUserId);
-
-        for (User user : usersInRange) {
-            try {
-                if (StringUtils.isEmpty(user.getPassword())) {
-                    log.info("Skipping user without password: {}", user.getEmail());
-                    continue;
-                }
-
-                // Check if user needs password re-encryption or RadCheck synchronization
-                boolean needsReEncryption = StringUtils.isEmpty(user.getAesKey())
-                        || StringUtils.isEmpty(user.getAesIv());
-                boolean needsRadCheckSync = !radiusService.hasValidRadCheckPassword(user);
-
-                if (needsReEncryption) {
-                    log.info("Re-encrypting password for user with missing or empty encryption keys: {}",
-                            user.getEmail());
-
-                    String newPassword = generateRandomPassword();
-
-                    // Set the new password (this will update user.password, user.radAccess)
-                    passwordService.setPassword(user, newPassword);
-
-                    // Save user to the database
-                    userRepository.save(user);
-
-                    // Ensure full password synchronization across all systems
-                    try {
-                        radiusService.synchronizeUserPassword(user);
-                        log.info("Password re-encryption and synchronization completed for user: {}", user.getEmail());
-                    } catch (Exception e) {
-                        log.error("Password synchronization failed for user: {} - Error: {}",
-                                user.getEmail(), e.getMessage(), e);
-                        // Continue with other users even if sync fails for this one
-                    }
-
-                    // Publish events
-                    eventPublisher.publishEvent(new UserActionEvent(this, user, "PASSWORD_REENCRYPTED"));
-                    asyncNotificationHelper.sendUserWebhookAsync(user, "PASSWORD_REENCRYPTED");
-
-                    if (sendEmail) {
-                        sendEmailNotification(user, newPassword);
-                    }
-                } else if (needsRadCheckSync) {
-                    log.info(
-                            "Synchronizing RadCheck password for user with valid encryption but missing/invalid RadCheck: {}",
-                            user.getEmail());
-
-                    try {
-                        // Just synchronize the existing password without generating a new one
-                        radiusService.synchronizeUserPassword(user);
-                        log.info("RadCheck synchronization completed for user: {}", user.getEmail());
-                    } catch (Exception e) {
-                        log.error("RadCheck synchronization failed for user: {} - Error: {}",
-                                user.getEmail(), e.getMessage(), e);
-                    }
-
-                    // Publish event for sync
-                    eventPublisher.publishEvent(new UserActionEvent(this, user, "PASSWORD_SYNCHRONIZED"));
-                    asyncNotificationHelper.sendUserWebhookAsync(user, "PASSWORD_SYNCHRONIZED");
-                } else {
-                    log.info("Skipping user with valid encryption keys and valid RadCheck: {}", user.getEmail());
-                }
-            } catch (Exception e) {
-                log.error("Error processing password for user: {}", user.getEmail(), e);
-                throw e; // Ensure the exception marks the transaction for rollback
-            }
-        }
-
-        log.info("Completed password re-encryption for users in range {} to {}", fromUserId, toUserId);
-    }
-
-    private void sendEmailNotification(User user, String newPassword) {
-        try {
-            notificationService.notifyUserPasswordReEncryption(user, newPassword);
-            log.info("Successfully notified user: {}", user.getEmail());
-
-            Thread.sleep(4000); // Add delay to avoid hitting rate limits
-        } catch (Exception e) {
-            log.error("Error sending email for user: {}", user.getEmail(), e);
-        }
-    }
-
-    private String generateRandomPassword() {
-        int length = 12; // Choose your desired password length
-        return RandomStringUtils.insecure().nextAlphanumeric(length); // Generates an alphanumeric password
+    /**
+     * Re-encrypts passwords for users in [fromUserId, toUserId]; see
+     * {@link PasswordReEncryptionJob}. Re-running an interrupted range resumes
+     * where it stopped.
+     *
+     * @return ids of the users whose password could not be re-encrypted
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Integer> reEncryptPasswordsInRange(int fromUserId, int toUserId, boolean sendEmail) {
+        return passwordReEncryptionJob.run(fromUserId, toUserId, sendEmail);
     }
 
     /**
@@ -1109,26 +1037,37 @@ public AuthenticatedUser loginInfo(User user) {
 
     /**
      * Migration method to fix users without profiles.
-     * Creates a UserProfile for each user that doesn't have one.
-     * @return the number of profiles created
+     * Creates an empty UserProfile for each user that doesn't have one, one
+     * keyset-paged chunk per transaction; an interrupted run resumes from its
+     * checkpoint.
+     * @return the number of profiles created by this call
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public int fixUsersWithoutProfiles() {
-        List<User> allUsers = userRepository.findAll();
+        int cursor = maintenanceCheckpointService.resume(FIX_PROFILES_JOB);
         int profilesCreated = 0;
 
-        for (User user : allUsers) {
-            Optional<UserProfile> existingProfile = userProfileRepository.findByUser(user);
-            if (!existingProfile.isPresent()) {
-                UserProfile profile = new UserProfile();
-                profile.setUser(user);
-                user.setProfile(profile);
-                userProfileRepository.save(profile);
-                profilesCreated++;
-                log.info("Created profile for user ID: {}, email: {}", user.getId(), user.getEmail());
+        while (true) {
+            int afterId = cursor;
+            int[] chunk = writeTransactionTemplate.execute(status -> {
+                List<Integer> ids = userRepository.findIdsWithoutProfileAfter(afterId, MAINTENANCE_CHUNK_SIZE);
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                int lastId = ids.get(ids.size() - 1);
+                int created = userProfileRepository.insertMissingProfiles(afterId, lastId, LocalDateTime.now());
+                maintenanceCheckpointService.advance(FIX_PROFILES_JOB, lastId, created);
+                return new int[] { lastId, created };
+            });
+            if (chunk == null) {
+                break;
             }
+            cursor = chunk[0];
+            profilesCreated += chunk[1];
+            log.info("Created {} profiles for users up to ID: {}", chunk[1], cursor);
         }
 
+        maintenanceCheckpointService.complete(FIX_PROFILES_JOB);
         log.info("Migration complete. Created {} profiles for users without profiles.", profilesCreated);
         return profilesCreated;
     }
@@ -1139,16 +1078,6 @@ public AuthenticatedUser loginInfo(User user) {
      */
     @Transactional(readOnly = true)
     public int countUsersWithoutProfiles() {
-        List<User> allUsers = userRepository.findAll();
-        int count = 0;
-
-        for (User user : allUsers) {
-            Optional<UserProfile> existingProfile = userProfileRepository.findByUser(user);
-            if (!existingProfile.isPresent()) {
-                count++;
-            }
-        }
-
-        return count;
+        return Math.toIntExact(userRepository.countUsersWithoutProfile());
     }
 }
\ No newline at end of file
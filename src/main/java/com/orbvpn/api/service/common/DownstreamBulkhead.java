@@ -0,0 +1,86 @@
+package com.orbvpn.api.service.common;
+
+import com.orbvpn.api.config.ConcurrencyProperties;
+import com.orbvpn.api.exception.DownstreamSaturatedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps concurrent calls to each blocking downstream (SMTP, FCM, SSH, outbound
+ * HTTP, store receipt verification). Async work runs on virtual threads, so thread pool size no longer
+ * limits how hard a downstream is hit; these permits do.
+ *
+ * <pre>
+ * try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.SMTP)) {
+ *     mailSender.send(message);
+ * }
+ * </pre>
+ */
+@Component
+@Slf4j
+public class DownstreamBulkhead {
+
+    public enum Downstream {
+        SMTP, FCM, SSH, HTTP, APP_STORE, GOOGLE_PLAY
+    }
+
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Map<Downstream, Semaphore> permits = new EnumMap<>(Downstream.class);
+    private final long timeoutNanos;
+    private final MeterRegistry meterRegistry;
+
+    public DownstreamBulkhead(ConcurrencyProperties properties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.timeoutNanos = properties.getPermitTimeout().toNanos();
+        register(Downstream.SMTP, properties.getSmtpPermits());
+        register(Downstream.FCM, properties.getFcmPermits());
+        register(Downstream.SSH, properties.getSshPermits());
+        register(Downstream.HTTP, properties.getHttpPermits());
+        register(Downstream.APP_STORE, properties.getAppStorePermits());
+        register(Downstream.GOOGLE_PLAY, properties.getGooglePlayPermits());
+    }
+
+    /**
+     * Blocks until a permit for the downstream is free. Waiting is cheap on a
+     * virtual thread; a caller that cannot get a permit within the configured
+     * timeout fails loudly instead of dropping the call.
+     */
+    public Permit acquire(Downstream downstream) {
+        Semaphore semaphore = permits.get(downstream);
+        try {
+            if (!semaphore.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                meterRegistry.counter("downstream.permit.timeouts", "downstream", tag(downstream)).increment();
+                log.warn("No {} permit available after {} ms", downstream, TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+                throw new DownstreamSaturatedException(downstream + " is saturated, call not attempted");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownstreamSaturatedException("Interrupted while waiting for a " + downstream + " permit");
+        }
+        return semaphore::release;
+    }
+
+    private void register(Downstream downstream, int size) {
+        Semaphore semaphore = new Semaphore(size, true);
+        permits.put(downstream, semaphore);
+        Gauge.builder("downstream.permits.in_use", semaphore, s -> size - s.availablePermits())
+                .tag("downstream", tag(downstream))
+                .register(meterRegistry);
+    }
+
+    private static String tag(Downstream downstream) {
+        return downstream.name().toLowerCase();
+    }
+}
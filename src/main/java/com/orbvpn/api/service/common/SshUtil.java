@@ -2,12 +2,17 @@ package com.orbvpn.api.service.common;
 
 import com.jcraft.jsch.*;
 import com.orbvpn.api.domain.entity.Server;
+import io.micrometer.core.instrument.Metrics;
 
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.FileWriter;
+import java.util.concurrent.TimeUnit;
 
 public class SshUtil {
+    // Recorded on the global registry, which Spring Boot links to the application registry
+    private static final String COMMAND_TIMER = "ssh.command";
+
     public static String executeCommandUsingPss(String username, String sshPassword, String host, int port,
             String command) throws JSchException, InterruptedException {
         return executeCommand(username, sshPassword, null, host, port,
@@ -42,6 +47,8 @@ public class SshUtil {
 
         Session session = null;
         ChannelExec channel = null;
+        long startedAt = System.nanoTime();
+        boolean success = false;
 
         try {
             JSch jSch = new JSch();
@@ -75,10 +82,12 @@ public class SshUtil {
             while (channel.isConnected()) {
                 Thread.sleep(100);
             }
+            success = true;
             return responseStream.toString();
         } catch (Exception e) {
             return e.toString();
         } finally {
+            recordCommand("exec", startedAt, success);
             if (session != null) {
                 session.disconnect();
             }
@@ -92,6 +101,8 @@ public class SshUtil {
             String host, int port, String srcFileName, String desFileName) throws Exception {
         Session session = null;
         Channel channel = null;
+        long startedAt = System.nanoTime();
+        boolean success = false;
         try {
             JSch jSch = new JSch();
             jSch.addIdentity(prvKeyFileName);
@@ -108,8 +119,10 @@ public class SshUtil {
             ChannelSftp c = (ChannelSftp) channel;
             c.put(srcFileName, desFileName);// "./in/"
             c.exit();
+            success = true;
 
         } finally {
+            recordCommand("sftp", startedAt, success);
             if (session != null) {
                 session.disconnect();
             }
@@ -122,6 +135,8 @@ public class SshUtil {
     public static int getServerConnectedUsers(Server server) {
         Session session = null;
         ChannelExec channel = null;
+        long startedAt = System.nanoTime();
+        boolean success = false;
 
         try {
             String defaultBaseDir = System.getProperty("java.io.tmpdir");
@@ -160,10 +175,12 @@ public class SshUtil {
             }
             String result = responseStream.toString();
             int usersCount = result.split("\n").length - 1;
+            success = true;
             return usersCount;
         } catch (Exception e) {
             return 0;
         } finally {
+            recordCommand("connected_users", startedAt, success);
             if (session != null) {
                 session.disconnect();
             }
@@ -172,4 +189,9 @@ public class SshUtil {
             }
         }
     }
+
+    private static void recordCommand(String operation, long startedAt, boolean success) {
+        Metrics.timer(COMMAND_TIMER, "operation", operation, "outcome", success ? "success" : "error")
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
 }
@@ -5,22 +5,21 @@ import com.orbvpn.api.domain.enums.TokenTransactionType;
 import com.orbvpn.api.exception.InsufficientTokensException;
 import com.orbvpn.api.exception.NotFoundException;
 import com.orbvpn.api.repository.TokenBalanceRepository;
-import com.orbvpn.api.repository.TokenTransactionRepository;
 import com.orbvpn.api.repository.UserRepository;
 import com.orbvpn.api.service.audit.AdminAuditService;
+import com.orbvpn.api.service.token.TokenLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Service for managing user credit/wallet operations.
- * Uses the existing TokenBalance and TokenTransaction infrastructure.
+ * Balances are TokenBalance rows, changed only through TokenLedgerService.
  * Credit is stored as tokens and can be used for purchases.
  */
 @Service
@@ -29,7 +28,7 @@ import java.util.Map;
 public class UserCreditService {
 
     private final TokenBalanceRepository tokenBalanceRepository;
-    private final TokenTransactionRepository tokenTransactionRepository;
+    private final TokenLedgerService tokenLedgerService;
     private final UserRepository userRepository;
     private final AdminAuditService adminAuditService;
 
@@ -64,22 +63,11 @@ public class UserCreditService {
             throw new IllegalArgumentException("Deposit amount must be positive");
         }
 
-        User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
-
-        // Create transaction record
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(amount);
-        transaction.setType(TokenTransactionType.CREDIT_DEPOSIT);
-        transaction.setAdVendor(paymentGateway); // Reuse field for payment source
-        transaction.setRegion(transactionId); // Reuse field for transaction reference
-        tokenTransactionRepository.save(transaction);
-
-        // Update balance
-        balance.setBalance(balance.getBalance().add(amount));
-        balance.setLastActivityDate(LocalDateTime.now());
-        TokenBalance savedBalance = tokenBalanceRepository.save(balance);
+        getUserById(userId);
+
+        // adVendor holds the payment source and region the gateway's transaction reference
+        TokenBalance savedBalance = tokenLedgerService.credit(userId, amount, TokenTransactionType.CREDIT_DEPOSIT,
+                paymentGateway, transactionId);
 
         log.info("Deposited {} credit to user {} via {}. New balance: {}",
                 amount, userId, paymentGateway, savedBalance.getBalance());
@@ -97,21 +85,11 @@ public class UserCreditService {
         }
 
         User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
-        BigDecimal beforeBalance = balance.getBalance();
-
-        // Create transaction record
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(amount);
-        transaction.setType(TokenTransactionType.ADMIN_CREDIT);
-        transaction.setRegion(reason); // Store reason
-        tokenTransactionRepository.save(transaction);
-
-        // Update balance
-        balance.setBalance(balance.getBalance().add(amount));
-        balance.setLastActivityDate(LocalDateTime.now());
-        TokenBalance savedBalance = tokenBalanceRepository.save(balance);
+
+        // Store reason in region
+        TokenBalance savedBalance = tokenLedgerService.credit(userId, amount, TokenTransactionType.ADMIN_CREDIT,
+                null, reason);
+        BigDecimal beforeBalance = savedBalance.getBalance().subtract(amount);
 
         // Create audit log
         Map<String, Object> before = new HashMap<>();
@@ -142,25 +120,14 @@ public class UserCreditService {
         }
 
         User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
-        BigDecimal beforeBalance = balance.getBalance();
 
-        if (balance.getBalance().compareTo(amount) < 0) {
+        TokenBalance savedBalance;
+        try {
+            savedBalance = tokenLedgerService.debit(userId, amount, TokenTransactionType.ADMIN_DEBIT, null, reason);
+        } catch (InsufficientTokensException e) {
             throw new InsufficientTokensException("Insufficient credit balance");
         }
-
-        // Create transaction record
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(amount.negate());
-        transaction.setType(TokenTransactionType.ADMIN_DEBIT);
-        transaction.setRegion(reason);
-        tokenTransactionRepository.save(transaction);
-
-        // Update balance
-        balance.setBalance(balance.getBalance().subtract(amount));
-        balance.setLastActivityDate(LocalDateTime.now());
-        TokenBalance savedBalance = tokenBalanceRepository.save(balance);
+        BigDecimal beforeBalance = savedBalance.getBalance().add(amount);
 
         // Create audit log
         Map<String, Object> before = new HashMap<>();
@@ -190,28 +157,11 @@ public class UserCreditService {
             throw new IllegalArgumentException("Purchase amount must be positive");
         }
 
-        User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
+        getUserById(userId);
 
-        if (balance.getBalance().compareTo(amount) < 0) {
-            throw new InsufficientTokensException(
-                    String.format("Insufficient credit. Required: %s, Available: %s",
-                            amount, balance.getBalance()));
-        }
-
-        // Create transaction record
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(amount.negate());
-        transaction.setType(TokenTransactionType.SUBSCRIPTION_PURCHASE);
-        transaction.setAdVendor(String.valueOf(groupId)); // Store group ID
-        transaction.setRegion(groupName); // Store group name
-        tokenTransactionRepository.save(transaction);
-
-        // Update balance
-        balance.setBalance(balance.getBalance().subtract(amount));
-        balance.setLastActivityDate(LocalDateTime.now());
-        TokenBalance savedBalance = tokenBalanceRepository.save(balance);
+        // Store group ID in adVendor and group name in region
+        TokenBalance savedBalance = debit(userId, amount, TokenTransactionType.SUBSCRIPTION_PURCHASE,
+                String.valueOf(groupId), groupName);
 
         log.info("User {} spent {} credit for subscription {}. New balance: {}",
                 userId, amount, groupName, savedBalance.getBalance());
@@ -228,27 +178,11 @@ public class UserCreditService {
             throw new IllegalArgumentException("Purchase amount must be positive");
         }
 
-        User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
-
-        if (balance.getBalance().compareTo(amount) < 0) {
-            throw new InsufficientTokensException(
-                    String.format("Insufficient credit. Required: %s, Available: %s",
-                            amount, balance.getBalance()));
-        }
-
-        // Create transaction record
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(amount.negate());
-        transaction.setType(TokenTransactionType.DEVICE_PURCHASE);
-        transaction.setAdVendor(String.valueOf(deviceCount)); // Store device count
-        tokenTransactionRepository.save(transaction);
+        getUserById(userId);
 
-        // Update balance
-        balance.setBalance(balance.getBalance().subtract(amount));
-        balance.setLastActivityDate(LocalDateTime.now());
-        TokenBalance savedBalance = tokenBalanceRepository.save(balance);
+        // Store device count in adVendor
+        TokenBalance savedBalance = debit(userId, amount, TokenTransactionType.DEVICE_PURCHASE,
+                String.valueOf(deviceCount), null);
 
         log.info("User {} spent {} credit for {} devices. New balance: {}",
                 userId, amount, deviceCount, savedBalance.getBalance());
@@ -261,21 +195,11 @@ public class UserCreditService {
      */
     @Transactional
     public TokenBalance redeemGiftCard(Integer userId, BigDecimal amount, String giftCardCode) {
-        User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
-
-        // Create transaction record
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(amount);
-        transaction.setType(TokenTransactionType.GIFT_CARD_REDEEM);
-        transaction.setRegion(giftCardCode); // Store gift card code
-        tokenTransactionRepository.save(transaction);
+        getUserById(userId);
 
-        // Update balance
-        balance.setBalance(balance.getBalance().add(amount));
-        balance.setLastActivityDate(LocalDateTime.now());
-        TokenBalance savedBalance = tokenBalanceRepository.save(balance);
+        // Store gift card code in region
+        TokenBalance savedBalance = tokenLedgerService.credit(userId, amount, TokenTransactionType.GIFT_CARD_REDEEM,
+                null, giftCardCode);
 
         log.info("User {} redeemed gift card {} for {} credit. New balance: {}",
                 userId, giftCardCode, amount, savedBalance.getBalance());
@@ -288,21 +212,10 @@ public class UserCreditService {
      */
     @Transactional
     public TokenBalance refundCredit(Integer userId, BigDecimal amount, String reason) {
-        User user = getUserById(userId);
-        TokenBalance balance = getOrCreateBalance(user);
+        getUserById(userId);
 
-        // Create transaction record
-        TokenTransaction transaction = new TokenTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(amount);
-        transaction.setType(TokenTransactionType.REFUND);
-        transaction.setRegion(reason);
-        tokenTransactionRepository.save(transaction);
-
-        // Update balance
-        balance.setBalance(balance.getBalance().add(amount));
-        balance.setLastActivityDate(LocalDateTime.now());
-        TokenBalance savedBalance = tokenBalanceRepository.save(balance);
+        TokenBalance savedBalance = tokenLedgerService.credit(userId, amount, TokenTransactionType.REFUND,
+                null, reason);
 
         log.info("Refunded {} credit to user {}. Reason: {}. New balance: {}",
                 amount, userId, reason, savedBalance.getBalance());
@@ -325,6 +238,17 @@ public class UserCreditService {
                 .orElseThrow(() -> new NotFoundException("User not found with id: " + userId));
     }
 
+    private TokenBalance debit(Integer userId, BigDecimal amount, TokenTransactionType type,
+            String adVendor, String region) {
+        try {
+            return tokenLedgerService.debit(userId, amount, type, adVendor, region);
+        } catch (InsufficientTokensException e) {
+            throw new InsufficientTokensException(
+                    String.format("Insufficient credit. Required: %s, Available: %s",
+                            amount, getBalance(userId)));
+        }
+    }
+
     private TokenBalance getOrCreateBalance(User user) {
         return tokenBalanceRepository.findByUser_Id(user.getId())
                 .orElseGet(() -> {
@@ -1,97 +1,60 @@
 package com.orbvpn.api.service.giftcard;
 
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import com.orbvpn.api.repository.GiftCardRepository;
-import com.orbvpn.api.exception.GiftCardException;
 
 import java.security.SecureRandom;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.HashSet;
-import java.util.Set;
-
-@Slf4j
+import java.util.regex.Pattern;
+
+/**
+ * Generates gift card codes of the form ORB-XXXX-XXXX-XXXX.
+ *
+ * Codes carry 12 random base-36 characters (about 62 bits), so duplicates are
+ * rare enough that callers insert optimistically and rely on the unique index
+ * on gift_cards.code, regenerating only the codes that conflict. The generator
+ * keeps no state and takes no lock; SecureRandom is thread-safe.
+ */
 @Component
-@RequiredArgsConstructor
 public class GiftCardCodeGenerator {
     private static final int CODE_LENGTH = 12; // Length of random part
     private static final String PREFIX = "ORB";
     private static final String SEPARATOR = "-";
-    private static final int MAX_ATTEMPTS = 10;
+    private static final char[] CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+    // Largest multiple of CHARS.length that fits in a byte; higher values are redrawn to avoid modulo bias
+    private static final int UNBIASED_LIMIT = 256 - 256 % CHARS.length;
+    private static final Pattern CODE_PATTERN = Pattern.compile(
+            "^" + PREFIX + "\\" + SEPARATOR + "[A-Z0-9]{4}\\" + SEPARATOR + "[A-Z0-9]{4}\\" + SEPARATOR
+                    + "[A-Z0-9]{4}$");
     private static final SecureRandom secureRandom = new SecureRandom();
 
-    private final GiftCardRepository giftCardRepository;
-    private final ReentrantLock lock = new ReentrantLock();
-    private final Set<String> generatedCodes = new HashSet<>();
-
-    /**
-     * Generates a guaranteed unique gift card code
-     * Thread-safe and uses multiple layers of uniqueness checking
-     */
-    public String generateUniqueCode() {
-        lock.lock();
-        try {
-            String code;
-            int attempts = 0;
-
-            while (attempts < MAX_ATTEMPTS) {
-                code = generateCode();
-
-                // Check in-memory cache
-                if (generatedCodes.contains(code)) {
-                    attempts++;
-                    continue;
-                }
-
-                // Check database
-                if (giftCardRepository.findByCode(code).isPresent()) {
-                    attempts++;
-                    continue;
-                }
-
-                // If we get here, the code is unique
-                generatedCodes.add(code);
-                log.debug("Generated unique gift card code: {} (attempt {})", code, attempts + 1);
-                return code;
-            }
-
-            log.error("Failed to generate unique code after {} attempts", MAX_ATTEMPTS);
-            throw new GiftCardException("Unable to generate unique gift card code after " + MAX_ATTEMPTS + " attempts");
-        } finally {
-            lock.unlock();
-        }
-    }
-
     /**
      * Generates a single gift card code with enhanced randomness
      */
-    public String generateCode() { // Changed from private to public
-        // Use SecureRandom for better randomness
-        StringBuilder randomPart = new StringBuilder();
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-
-        for (int i = 0; i < CODE_LENGTH; i++) {
-            int randomIndex = secureRandom.nextInt(chars.length());
-            randomPart.append(chars.charAt(randomIndex));
-        }
-
-        String formattedCode = formatCode(randomPart.toString());
-        return PREFIX + SEPARATOR + formattedCode;
-    }
-
-    /**
-     * Format the random string into sections of 4 characters
-     */
-    private String formatCode(String code) {
-        StringBuilder formatted = new StringBuilder();
-        for (int i = 0; i < code.length(); i += 4) {
-            if (i > 0) {
-                formatted.append(SEPARATOR);
+    public String generateCode() {
+        // One draw covers the whole code unless a byte is rejected, which happens for ~1.6% of bytes
+        byte[] randomBytes = new byte[CODE_LENGTH + 4];
+        secureRandom.nextBytes(randomBytes);
+
+        StringBuilder code = new StringBuilder(PREFIX.length() + CODE_LENGTH + CODE_LENGTH / 4);
+        code.append(PREFIX);
+        int produced = 0;
+        int next = 0;
+        while (produced < CODE_LENGTH) {
+            if (next == randomBytes.length) {
+                secureRandom.nextBytes(randomBytes);
+                next = 0;
+            }
+            int value = randomBytes[next++] & 0xFF;
+            if (value >= UNBIASED_LIMIT) {
+                continue;
             }
-            formatted.append(code.substring(i, Math.min(i + 4, code.length())));
+            // Sections of 4 characters
+            if (produced % 4 == 0) {
+                code.append(SEPARATOR);
+            }
+            code.append(CHARS[value % CHARS.length]);
+            produced++;
         }
-        return formatted.toString();
+        return code.toString();
     }
 
     /**
@@ -101,11 +64,7 @@ public class GiftCardCodeGenerator {
         if (code == null || code.isEmpty()) {
             return false;
         }
-
-        code = code.trim();
-        String pattern = "^" + PREFIX + "\\" + SEPARATOR + "[A-Z0-9]{4}\\" +
-                SEPARATOR + "[A-Z0-9]{4}\\" + SEPARATOR + "[A-Z0-9]{4}$";
-        return code.matches(pattern);
+        return CODE_PATTERN.matcher(code.trim()).matches();
     }
 
     /**
@@ -117,29 +76,4 @@ public class GiftCardCodeGenerator {
         }
         return code.replaceAll("\\s+", "").toUpperCase();
     }
-
-    /**
-     * Remove a code from the in-memory cache
-     */
-    public void releaseCode(String code) {
-        lock.lock();
-        try {
-            generatedCodes.remove(code);
-        } finally {
-            lock.unlock();
-        }
-    }
-
-    /**
-     * Clear the in-memory cache
-     */
-    public void clearCodeCache() {
-        lock.lock();
-        try {
-            generatedCodes.clear();
-            log.info("Cleared gift card code cache");
-        } finally {
-            lock.unlock();
-        }
-    }
-}
\ No newline at end of file
+}
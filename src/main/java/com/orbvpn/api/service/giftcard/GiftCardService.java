@@ -8,8 +8,8 @@ import com.orbvpn.api.domain.entity.User;
 import com.orbvpn.api.domain.entity.UserSubscription;
 import com.orbvpn.api.domain.enums.GatewayName;
 import com.orbvpn.api.exception.BadRequestException;
+import com.orbvpn.api.exception.GiftCardException;
 import com.orbvpn.api.exception.NotFoundException;
-import com.orbvpn.api.mapper.GiftCardCreateMapper;
 import com.orbvpn.api.mapper.GiftCardViewMapper;
 import com.orbvpn.api.repository.GiftCardRepository;
 import com.orbvpn.api.service.GroupService;
@@ -21,13 +21,23 @@ import com.orbvpn.api.service.AsyncNotificationHelper;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,16 +45,22 @@ import java.util.stream.Collectors;
 @Slf4j
 @Transactional
 public class GiftCardService {
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int MAX_CODE_ATTEMPTS = 5;
+    private static final String INSERT_GIFT_CARD_SQL = "INSERT INTO gift_cards (code, group_id, amount, used, cancelled, "
+            + "expiration_date, created_at, updated_at) VALUES (?, ?, ?, false, false, ?, ?, ?) "
+            + "ON CONFLICT (code) DO NOTHING";
+
     private final GiftCardRepository giftCardRepository;
     private final GiftCardCodeGenerator codeGenerator;
     private final GroupService groupService;
     private final UserService userService;
     private final RenewUserSubscriptionService renewUserSubscriptionService;
-    private final GiftCardCreateMapper giftCardCreateMapper;
     private final GiftCardViewMapper giftCardViewMapper;
     private final AsyncNotificationHelper asyncNotificationHelper;
     private final UserSubscriptionService userSubscriptionService;
     private final RadiusService radiusService;
+    private final JdbcTemplate jdbcTemplate;
 
     /**
      * Creates a single gift card
@@ -52,38 +68,113 @@ public class GiftCardService {
     public GiftCardView createGiftCard(GiftCardCreate giftCardCreate) {
         Group group = groupService.getById(giftCardCreate.getGroupId());
 
-        // Create gift card and set its properties
-        GiftCard giftCard = giftCardCreateMapper.create(giftCardCreate);
-        giftCard.setGroup(group);
-        giftCard.setAmount(group.getPrice()); // Get price from the group
-        giftCard.setCode(generateUniqueCode());
-        giftCard.setExpirationDate(LocalDateTime.now().plusDays(giftCardCreate.getValidityDays()));
-
-        GiftCard savedGiftCard = giftCardRepository.save(giftCard);
+        List<GiftCardView> created = new ArrayList<>(1);
+        insertGiftCards(group, giftCardCreate.getValidityDays(), 1, created::add);
+        GiftCardView giftCard = created.get(0);
         log.info("Created new gift card with code: {} for group: {}, amount: {}",
-                savedGiftCard.getCode(),
+                giftCard.getCode(),
                 group.getName(),
-                savedGiftCard.getAmount());
+                giftCard.getAmount());
 
-        return giftCardViewMapper.toView(savedGiftCard);
+        return giftCard;
     }
 
     /**
      * Creates multiple gift cards
      */
     public List<GiftCardView> createBulkGiftCards(GiftCardCreate giftCardCreate, int count) {
-        List<GiftCard> giftCards = new ArrayList<>();
-        for (int i = 0; i < count; i++) {
-            GiftCardView giftCardView = createGiftCard(giftCardCreate);
-            giftCards.add(giftCardRepository.findById(giftCardView.getId())
-                    .orElseThrow(() -> new RuntimeException("Failed to retrieve created gift card")));
-        }
+        List<GiftCardView> giftCards = new ArrayList<>(count);
+        createBulkGiftCards(giftCardCreate, count, giftCards::add);
+        return giftCards;
+    }
 
+    /**
+     * Creates multiple gift cards, handing each one to the consumer as its batch
+     * is inserted instead of collecting them all first.
+     */
+    public void createBulkGiftCards(GiftCardCreate giftCardCreate, int count, Consumer<GiftCardView> consumer) {
+        Group group = groupService.getById(giftCardCreate.getGroupId());
+        insertGiftCards(group, giftCardCreate.getValidityDays(), count, consumer);
         log.info("Created {} gift cards for group ID: {}", count, giftCardCreate.getGroupId());
+    }
 
-        return giftCards.stream()
-                .map(giftCardViewMapper::toView)
-                .collect(Collectors.toList());
+    /**
+     * Inserts gift cards in JDBC batches. Codes are not checked up front: a
+     * code that hits the unique index is skipped by ON CONFLICT and only those
+     * rows are regenerated and retried.
+     */
+    private void insertGiftCards(Group group, int validityDays, int count, Consumer<GiftCardView> consumer) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expirationDate = now.plusDays(validityDays);
+
+        int remaining = count;
+        while (remaining > 0) {
+            int batchSize = Math.min(INSERT_BATCH_SIZE, remaining);
+            List<String> pending = newCodes(batchSize);
+            for (int attempt = 1; !pending.isEmpty(); attempt++) {
+                if (attempt > MAX_CODE_ATTEMPTS) {
+                    log.error("Failed to generate unique gift card codes after {} attempts", MAX_CODE_ATTEMPTS);
+                    throw new GiftCardException("Unable to generate unique gift card code");
+                }
+                Map<String, Long> inserted = insertBatch(pending, group, expirationDate, now);
+                inserted.forEach((code, id) -> consumer.accept(toView(id, code, group, expirationDate, now)));
+
+                int conflicts = pending.size() - inserted.size();
+                if (conflicts > 0) {
+                    log.debug("Regenerating {} gift card codes that collided with existing ones", conflicts);
+                }
+                pending = conflicts > 0 ? newCodes(conflicts) : List.of();
+            }
+            remaining -= batchSize;
+        }
+    }
+
+    private Map<String, Long> insertBatch(List<String> codes, Group group, LocalDateTime expirationDate,
+            LocalDateTime now) {
+        Map<String, Long> inserted = new LinkedHashMap<>();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_GIFT_CARD_SQL, new String[] { "id", "code" })) {
+                for (String code : codes) {
+                    ps.setString(1, code);
+                    ps.setInt(2, group.getId());
+                    ps.setBigDecimal(3, group.getPrice());
+                    ps.setTimestamp(4, Timestamp.valueOf(expirationDate));
+                    ps.setTimestamp(5, Timestamp.valueOf(now));
+                    ps.setTimestamp(6, Timestamp.valueOf(now));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                // Conflicting rows return no key, so only inserted codes come back
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        inserted.put(keys.getString(2), keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+        return inserted;
+    }
+
+    private List<String> newCodes(int count) {
+        Set<String> codes = new LinkedHashSet<>(count * 2);
+        while (codes.size() < count) {
+            codes.add(codeGenerator.generateCode());
+        }
+        return new ArrayList<>(codes);
+    }
+
+    private GiftCardView toView(Long id, String code, Group group, LocalDateTime expirationDate, LocalDateTime now) {
+        GiftCardView view = new GiftCardView();
+        view.setId(id);
+        view.setCode(code);
+        view.setGroupId(group.getId());
+        view.setGroupName(group.getName());
+        view.setAmount(group.getPrice());
+        view.setExpirationDate(expirationDate);
+        view.setCreatedAt(now);
+        view.setUpdatedAt(now);
+        return view;
     }
 
     /**
@@ -239,28 +330,6 @@ public class GiftCardService {
         }
     }
 
-    /**
-     * Generates a unique gift card code
-     */
-    private String generateUniqueCode() {
-        String code;
-        int maxAttempts = 5;
-        int attempts = 0;
-
-        do {
-            code = codeGenerator.generateCode();
-            attempts++;
-
-            if (attempts >= maxAttempts) {
-                log.error("Failed to generate unique gift card code after {} attempts", maxAttempts);
-                throw new RuntimeException("Unable to generate unique gift card code");
-            }
-        } while (giftCardRepository.findByCode(code).isPresent());
-
-        log.debug("Generated unique gift card code: {}", code);
-        return code;
-    }
-
     /**
      * Gets all valid (unused and not expired) gift cards
      */
@@ -3,6 +3,11 @@ package com.orbvpn.api.service.iap;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.orbvpn.api.service.common.DownstreamBulkhead;
+import com.orbvpn.api.service.common.DownstreamBulkhead.Downstream;
+import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +16,7 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -28,6 +34,13 @@ import java.util.Map;
  * 3. Parse response to get transaction details
  * 4. Return validated purchase info
  *
+ * Clients retry restores and re-send the same receipt, so results are cached
+ * and concurrent validations of one receipt share a single call to Apple (see
+ * {@link ReceiptVerificationCache}). The environment a receipt belongs to is
+ * remembered, so a sandbox receipt goes straight to the sandbox endpoint
+ * instead of being rejected by production first. Calls to Apple are capped by
+ * {@link DownstreamBulkhead}.
+ *
  * Documentation: https://developer.apple.com/documentation/storekit/in-app_purchase/validating_receipts_with_the_app_store
  */
 @Service
@@ -38,6 +51,7 @@ public class AppleReceiptValidationService {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final DownstreamBulkhead bulkhead;
 
     @Value("${apple.iap.shared-secret:}")
     private String sharedSecret;
@@ -51,6 +65,29 @@ public class AppleReceiptValidationService {
     @Value("${apple.iap.sandbox-url:https://sandbox.itunes.apple.com/verifyReceipt}")
     private String sandboxUrl;
 
+    @Value("${iap.verification.cache-ttl:PT5M}")
+    private Duration cacheTtl = Duration.ofMinutes(5);
+
+    @Value("${iap.verification.max-entries:10000}")
+    private long maxCacheEntries = 10000;
+
+    private static final String SANDBOX = "Sandbox";
+
+    private ReceiptVerificationCache<AppleReceiptValidationResult> results;
+
+    // receipt or transaction key -> environment Apple reported for it
+    private Cache<String, String> environments;
+
+    @PostConstruct
+    void initCaches() {
+        results = new ReceiptVerificationCache<>(cacheTtl, maxCacheEntries,
+                AppleReceiptValidationResult::isValid, AppleReceiptValidationResult::getExpiresDate);
+        environments = Caffeine.newBuilder()
+                .maximumSize(maxCacheEntries * 10)
+                .expireAfterAccess(Duration.ofDays(1))
+                .build();
+    }
+
     /**
      * Validate an Apple receipt and return the purchase information.
      *
@@ -60,22 +97,36 @@ public class AppleReceiptValidationService {
      * @return Validated receipt result
      */
     public AppleReceiptValidationResult validateReceipt(String receiptData, String expectedProductId, String transactionId) {
-        log.info("Validating Apple receipt for product: {}, transaction: {}", expectedProductId, transactionId);
-
         if (sharedSecret == null || sharedSecret.isEmpty()) {
             log.error("Apple shared secret not configured");
             return AppleReceiptValidationResult.failure("Apple IAP not configured");
         }
 
-        try {
-            // First try production endpoint
-            AppleVerifyReceiptResponse response = sendVerifyRequest(receiptData, productionUrl);
+        return results.get(ReceiptVerificationCache.key(receiptData, expectedProductId, transactionId),
+                () -> verifyReceipt(receiptData, expectedProductId, transactionId));
+    }
 
-            // If status is 21007, receipt is from sandbox - retry with sandbox URL
-            if (response.getStatus() == 21007) {
-                log.info("Receipt is from sandbox, retrying with sandbox URL");
+    private AppleReceiptValidationResult verifyReceipt(String receiptData, String expectedProductId, String transactionId) {
+        log.info("Validating Apple receipt for product: {}, transaction: {}", expectedProductId, transactionId);
+
+        String receiptKey = ReceiptVerificationCache.key(receiptData);
+        String transactionKey = transactionId != null ? ReceiptVerificationCache.key("transaction", transactionId) : null;
+
+        try {
+            AppleVerifyReceiptResponse response;
+            if (isKnownSandbox(receiptKey, transactionKey)) {
                 response = sendVerifyRequest(receiptData, sandboxUrl);
+            } else {
+                // First try production endpoint
+                response = sendVerifyRequest(receiptData, productionUrl);
+
+                // If status is 21007, receipt is from sandbox - retry with sandbox URL
+                if (response.getStatus() == 21007) {
+                    log.info("Receipt is from sandbox, retrying with sandbox URL");
+                    response = sendVerifyRequest(receiptData, sandboxUrl);
+                }
             }
+            rememberEnvironment(response, receiptKey, transactionKey);
 
             // Check for errors
             if (response.getStatus() != 0) {
@@ -146,6 +197,21 @@ public class AppleReceiptValidationService {
         }
     }
 
+    private boolean isKnownSandbox(String receiptKey, String transactionKey) {
+        return SANDBOX.equals(environments.getIfPresent(receiptKey))
+                || (transactionKey != null && SANDBOX.equals(environments.getIfPresent(transactionKey)));
+    }
+
+    private void rememberEnvironment(AppleVerifyReceiptResponse response, String receiptKey, String transactionKey) {
+        if (response.getStatus() != 0 || response.getEnvironment() == null) {
+            return;
+        }
+        environments.put(receiptKey, response.getEnvironment());
+        if (transactionKey != null) {
+            environments.put(transactionKey, response.getEnvironment());
+        }
+    }
+
     /**
      * Send verification request to Apple.
      */
@@ -160,8 +226,10 @@ public class AppleReceiptValidationService {
 
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
 
-        ResponseEntity<AppleVerifyReceiptResponse> response = restTemplate.postForEntity(
-                url, request, AppleVerifyReceiptResponse.class);
+        ResponseEntity<AppleVerifyReceiptResponse> response;
+        try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.APP_STORE)) {
+            response = restTemplate.postForEntity(url, request, AppleVerifyReceiptResponse.class);
+        }
 
         return response.getBody();
     }
@@ -14,6 +14,8 @@ import com.google.api.services.androidpublisher.model.SubscriptionPurchase;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.ServiceAccountCredentials;
+import com.orbvpn.api.service.common.DownstreamBulkhead;
+import com.orbvpn.api.service.common.DownstreamBulkhead.Downstream;
 import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +26,7 @@ import org.springframework.stereotype.Service;
 import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -38,6 +41,10 @@ import java.util.Collections;
  * 2. Call Google Play Developer API to verify purchase
  * 3. Return validated purchase info
  *
+ * Validation results are cached per purchase token and concurrent checks of
+ * the same token share one API call (see {@link ReceiptVerificationCache});
+ * calls to the API are capped by {@link DownstreamBulkhead}.
+ *
  * Documentation: https://developers.google.com/android-publisher/api-ref/rest
  *
  * Prerequisites:
@@ -52,6 +59,7 @@ import java.util.Collections;
 public class GooglePlayValidationService {
 
     private final ObjectMapper objectMapper;
+    private final DownstreamBulkhead bulkhead;
 
     @Value("${google.play.package-name:com.orbvpn.app}")
     private String packageName;
@@ -62,11 +70,26 @@ public class GooglePlayValidationService {
     @Value("${google.play.service-account-base64:}")
     private String serviceAccountBase64;
 
+    // Override the API endpoint, e.g. with a local stub in tests
+    @Value("${google.play.root-url:}")
+    private String rootUrl;
+
+    @Value("${iap.verification.cache-ttl:PT5M}")
+    private Duration cacheTtl = Duration.ofMinutes(5);
+
+    @Value("${iap.verification.max-entries:10000}")
+    private long maxCacheEntries = 10000;
+
+    private ReceiptVerificationCache<GooglePlayValidationResult> results;
+
     private AndroidPublisher androidPublisher;
     private boolean initialized = false;
 
     @PostConstruct
     public void init() {
+        results = new ReceiptVerificationCache<>(cacheTtl, maxCacheEntries,
+                GooglePlayValidationResult::isValid, GooglePlayValidationResult::getExpiryTime);
+
         try {
             GoogleCredentials credentials = getCredentials();
             if (credentials == null) {
@@ -79,13 +102,16 @@ public class GooglePlayValidationService {
                     credentials.createScoped(Collections.singleton(AndroidPublisherScopes.ANDROIDPUBLISHER))
             );
 
-            androidPublisher = new AndroidPublisher.Builder(
+            AndroidPublisher.Builder builder = new AndroidPublisher.Builder(
                     httpTransport,
                     GsonFactory.getDefaultInstance(),
                     requestInitializer
             )
-                    .setApplicationName("OrbVPN")
-                    .build();
+                    .setApplicationName("OrbVPN");
+            if (rootUrl != null && !rootUrl.isEmpty()) {
+                builder.setRootUrl(rootUrl);
+            }
+            androidPublisher = builder.build();
 
             initialized = true;
             log.info("Google Play validation service initialized successfully");
@@ -110,18 +136,26 @@ public class GooglePlayValidationService {
      * @return Validation result
      */
     public GooglePlayValidationResult validateSubscription(String productId, String purchaseToken) {
-        log.info("Validating Google Play subscription: product={}", productId);
-
         if (!isAvailable()) {
             log.error("Google Play validation service not available");
             return GooglePlayValidationResult.failure("Google Play validation not configured");
         }
 
+        return results.get(subscriptionKey(productId, purchaseToken),
+                () -> verifySubscription(productId, purchaseToken));
+    }
+
+    private GooglePlayValidationResult verifySubscription(String productId, String purchaseToken) {
+        log.info("Validating Google Play subscription: product={}", productId);
+
         try {
-            SubscriptionPurchase subscription = androidPublisher.purchases()
-                    .subscriptions()
-                    .get(packageName, productId, purchaseToken)
-                    .execute();
+            SubscriptionPurchase subscription;
+            try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.GOOGLE_PLAY)) {
+                subscription = androidPublisher.purchases()
+                        .subscriptions()
+                        .get(packageName, productId, purchaseToken)
+                        .execute();
+            }
 
             // Check payment state
             // 0 = Pending, 1 = Received, 2 = Free trial, 3 = Pending deferred upgrade/downgrade
@@ -201,18 +235,26 @@ public class GooglePlayValidationService {
      * @return Validation result
      */
     public GooglePlayValidationResult validateProduct(String productId, String purchaseToken) {
-        log.info("Validating Google Play product purchase: product={}", productId);
-
         if (!isAvailable()) {
             log.error("Google Play validation service not available");
             return GooglePlayValidationResult.failure("Google Play validation not configured");
         }
 
+        return results.get(productKey(productId, purchaseToken),
+                () -> verifyProduct(productId, purchaseToken));
+    }
+
+    private GooglePlayValidationResult verifyProduct(String productId, String purchaseToken) {
+        log.info("Validating Google Play product purchase: product={}", productId);
+
         try {
-            ProductPurchase product = androidPublisher.purchases()
-                    .products()
-                    .get(packageName, productId, purchaseToken)
-                    .execute();
+            ProductPurchase product;
+            try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.GOOGLE_PLAY)) {
+                product = androidPublisher.purchases()
+                        .products()
+                        .get(packageName, productId, purchaseToken)
+                        .execute();
+            }
 
             // Check purchase state
             // 0 = Purchased, 1 = Canceled, 2 = Pending
@@ -276,11 +318,13 @@ public class GooglePlayValidationService {
             return false;
         }
 
-        try {
+        try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.GOOGLE_PLAY)) {
             androidPublisher.purchases()
                     .subscriptions()
                     .acknowledge(packageName, productId, purchaseToken, null)
                     .execute();
+            // A cached result would still report the purchase as unacknowledged
+            results.invalidate(subscriptionKey(productId, purchaseToken));
 
             log.info("Subscription acknowledged: product={}", productId);
             return true;
@@ -299,11 +343,12 @@ public class GooglePlayValidationService {
             return false;
         }
 
-        try {
+        try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.GOOGLE_PLAY)) {
             androidPublisher.purchases()
                     .products()
                     .acknowledge(packageName, productId, purchaseToken, null)
                     .execute();
+            results.invalidate(productKey(productId, purchaseToken));
 
             log.info("Product acknowledged: product={}", productId);
             return true;
@@ -313,6 +358,14 @@ public class GooglePlayValidationService {
         }
     }
 
+    private static String subscriptionKey(String productId, String purchaseToken) {
+        return ReceiptVerificationCache.key("subscription", productId, purchaseToken);
+    }
+
+    private static String productKey(String productId, String purchaseToken) {
+        return ReceiptVerificationCache.key("product", productId, purchaseToken);
+    }
+
     /**
      * Get credentials from file or base64 encoded string.
      */
@@ -0,0 +1,92 @@
+package com.orbvpn.api.service.iap;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Store verification results keyed by receipt or purchase token.
+ *
+ * Concurrent lookups of the same key share one in-flight verification. A result
+ * the store accepted is kept for the configured TTL, or until the purchase
+ * expires if that is sooner; any other result is handed to the callers that
+ * were waiting for it and then dropped, so failures are never served from
+ * cache.
+ */
+class ReceiptVerificationCache<R> {
+
+    private final AsyncCache<String, R> results;
+    // Verifications run off the caller's thread so every waiter can share them
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    ReceiptVerificationCache(Duration ttl, long maxEntries, Predicate<R> cacheable,
+            Function<R, LocalDateTime> expiresAt) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .executor(executor)
+                .expireAfter(new Expiry<String, R>() {
+                    @Override
+                    public long expireAfterCreate(String key, R result, long currentTime) {
+                        if (!cacheable.test(result)) {
+                            return 0;
+                        }
+                        long ttlNanos = ttl.toNanos();
+                        LocalDateTime expiry = expiresAt.apply(result);
+                        if (expiry == null) {
+                            return ttlNanos;
+                        }
+                        long untilExpiry = Duration.between(LocalDateTime.now(), expiry).toNanos();
+                        // An already expired purchase is a stable answer too; keep it for the full TTL
+                        return untilExpiry > 0 ? Math.min(ttlNanos, untilExpiry) : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, R result, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, result, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, R result, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync();
+    }
+
+    R get(String key, Supplier<R> verification) {
+        return results.get(key, (k, ignored) -> CompletableFuture.supplyAsync(verification, executor)).join();
+    }
+
+    void invalidate(String key) {
+        results.synchronous().invalidate(key);
+    }
+
+    /**
+     * SHA-256 of the parts, so multi-kilobyte receipts are not kept as keys.
+     */
+    static String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update((part != null ? part : "").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
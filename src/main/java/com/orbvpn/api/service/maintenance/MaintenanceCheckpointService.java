@@ -0,0 +1,76 @@
+package com.orbvpn.api.service.maintenance;
+
+import com.orbvpn.api.domain.entity.MaintenanceCheckpoint;
+import com.orbvpn.api.repository.MaintenanceCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoints for maintenance jobs that walk the user table in id order.
+ *
+ * A job calls {@link #resume} once, then {@link #advance} inside each chunk's
+ * transaction and {@link #complete} at the end. Re-running an unfinished job
+ * continues after the last committed chunk; re-running a finished one starts
+ * over.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MaintenanceCheckpointService {
+
+    private final MaintenanceCheckpointRepository checkpointRepository;
+
+    /**
+     * @return the last id already processed, or 0 for a fresh run
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int resume(String jobName) {
+        MaintenanceCheckpoint checkpoint = checkpointRepository.findByJobName(jobName).orElse(null);
+        LocalDateTime now = LocalDateTime.now();
+
+        if (checkpoint == null) {
+            checkpointRepository.save(MaintenanceCheckpoint.builder()
+                    .jobName(jobName)
+                    .startedAt(now)
+                    .updatedAt(now)
+                    .build());
+            return 0;
+        }
+
+        if (checkpoint.isCompleted()) {
+            checkpoint.setCompleted(false);
+            checkpoint.setLastId(0);
+            checkpoint.setProcessed(0);
+            checkpoint.setStartedAt(now);
+            checkpoint.setUpdatedAt(now);
+            checkpoint.setCompletedAt(null);
+            return 0;
+        }
+
+        log.info("Resuming maintenance job {} after id {} ({} already processed)",
+                jobName, checkpoint.getLastId(), checkpoint.getProcessed());
+        return checkpoint.getLastId();
+    }
+
+    /**
+     * Records a committed chunk. Must run in the chunk's own transaction so the
+     * checkpoint and the chunk's changes commit or roll back together.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void advance(String jobName, int lastId, int processed) {
+        checkpointRepository.advance(jobName, lastId, processed, LocalDateTime.now());
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void complete(String jobName) {
+        checkpointRepository.findByJobName(jobName).ifPresent(checkpoint -> {
+            checkpoint.setCompleted(true);
+            checkpoint.setCompletedAt(LocalDateTime.now());
+        });
+    }
+}
@@ -0,0 +1,276 @@
+package com.orbvpn.api.service.maintenance;
+
+import com.orbvpn.api.domain.entity.PasswordReEncryptionNotice;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.event.UserActionEvent;
+import com.orbvpn.api.repository.PasswordReEncryptionNoticeRepository;
+import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.service.AsyncNotificationHelper;
+import com.orbvpn.api.service.PasswordService;
+import com.orbvpn.api.service.RadiusService;
+import com.orbvpn.api.service.notification.NotificationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Re-encrypts passwords for a range of user ids, walking the range in
+ * keyset-paged chunks with a checkpoint per chunk, so an interrupted run
+ * resumes after the last finished chunk when called again with the same range.
+ *
+ * Each user is handled in a transaction of their own. A user that fails is
+ * logged and reported at the end without holding up the rest of the range.
+ * When a new password is set and emails are on, a
+ * {@link PasswordReEncryptionNotice} is written in the same transaction and
+ * removed once the email has gone out; a re-run first gives every user still
+ * holding a notice a fresh password and emails it, so nobody is left with a
+ * password they were never sent.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordReEncryptionJob {
+
+    private static final int CHUNK_SIZE = 100;
+
+    private final UserRepository userRepository;
+    private final PasswordReEncryptionNoticeRepository noticeRepository;
+    private final PasswordService passwordService;
+    private final RadiusService radiusService;
+    private final NotificationService notificationService;
+    private final AsyncNotificationHelper asyncNotificationHelper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MaintenanceCheckpointService maintenanceCheckpointService;
+    private final TransactionTemplate writeTransactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    // Keeps the mail provider's rate limits
+    @Value("${user.password-reencryption.email-pause-ms:4000}")
+    private long emailPauseMillis = 4000;
+
+    /**
+     * @return ids of the users whose password could not be re-encrypted
+     */
+    public List<Integer> run(int fromUserId, int toUserId, boolean sendEmail) {
+        String jobName = "reencrypt-passwords:" + fromUserId + "-" + toUserId;
+        int cursor = Math.max(maintenanceCheckpointService.resume(jobName), fromUserId - 1);
+
+        log.info("Starting password re-encryption for users in range {} to {} after id {}",
+                fromUserId, toUserId, cursor);
+        if (sendEmail) {
+            resendPendingNotices(jobName);
+        }
+
+        List<Integer> failed = new ArrayList<>();
+        while (cursor < toUserId) {
+            int afterId = cursor;
+            List<Integer> userIds = readOnlyTransactionTemplate.execute(status -> userRepository
+                    .findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(afterId, toUserId, PageRequest.of(0, CHUNK_SIZE))
+                    .stream().map(User::getId).toList());
+            if (userIds == null || userIds.isEmpty()) {
+                break;
+            }
+
+            Map<Integer, String> newPasswords = new LinkedHashMap<>();
+            for (int userId : userIds) {
+                try {
+                    String newPassword = writeTransactionTemplate.execute(
+                            status -> reEncryptUser(jobName, userId, sendEmail));
+                    if (newPassword != null) {
+                        newPasswords.put(userId, newPassword);
+                    }
+                } catch (Exception e) {
+                    log.error("Error processing password for user id {}", userId, e);
+                    failed.add(userId);
+                }
+            }
+
+            int lastId = userIds.get(userIds.size() - 1);
+            writeTransactionTemplate.executeWithoutResult(
+                    status -> maintenanceCheckpointService.advance(jobName, lastId, userIds.size()));
+            log.info("Password re-encryption processed {} users up to id {}", userIds.size(), lastId);
+            cursor = lastId;
+
+            if (sendEmail) {
+                newPasswords.forEach((userId, newPassword) -> {
+                    sendNotice(jobName, userId, newPassword);
+                    pauseBetweenEmails();
+                });
+            }
+        }
+
+        maintenanceCheckpointService.complete(jobName);
+        if (failed.isEmpty()) {
+            log.info("Completed password re-encryption for users in range {} to {}", fromUserId, toUserId);
+        } else {
+            log.error("Completed password re-encryption for users in range {} to {} with {} failures: {}; "
+                    + "running the same range again retries them", fromUserId, toUserId, failed.size(), failed);
+        }
+        return failed;
+    }
+
+    /**
+     * @return the generated password if one was set, otherwise null
+     */
+    private String reEncryptUser(String jobName, int userId, boolean sendEmail) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            return null;
+        }
+        String newPassword = reEncryptPassword(user);
+        if (newPassword != null && sendEmail) {
+            noticeRepository.save(PasswordReEncryptionNotice.builder()
+                    .jobName(jobName)
+                    .userId(userId)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
+        return newPassword;
+    }
+
+    private String reEncryptPassword(User user) {
+        if (StringUtils.isEmpty(user.getPassword())) {
+            log.info("Skipping user without password: {}", user.getEmail());
+            return null;
+        }
+
+        // Check if user needs password re-encryption or RadCheck synchronization
+        boolean needsReEncryption = StringUtils.isEmpty(user.getAesKey())
+                || StringUtils.isEmpty(user.getAesIv());
+        boolean needsRadCheckSync = !radiusService.hasValidRadCheckPassword(user);
+
+        if (needsReEncryption) {
+            log.info("Re-encrypting password for user with missing or empty encryption keys: {}",
+                    user.getEmail());
+            String newPassword = replacePassword(user);
+
+            // Publish events
+            eventPublisher.publishEvent(new UserActionEvent(this, user, "PASSWORD_REENCRYPTED"));
+            asyncNotificationHelper.sendUserWebhookAsync(user, "PASSWORD_REENCRYPTED");
+
+            return newPassword;
+        } else if (needsRadCheckSync) {
+            log.info(
+                    "Synchronizing RadCheck password for user with valid encryption but missing/invalid RadCheck: {}",
+                    user.getEmail());
+
+            try {
+                // Just synchronize the existing password without generating a new one
+                radiusService.synchronizeUserPassword(user);
+                log.info("RadCheck synchronization completed for user: {}", user.getEmail());
+            } catch (Exception e) {
+                log.error("RadCheck synchronization failed for user: {} - Error: {}",
+                        user.getEmail(), e.getMessage(), e);
+            }
+
+            // Publish event for sync
+            eventPublisher.publishEvent(new UserActionEvent(this, user, "PASSWORD_SYNCHRONIZED"));
+            asyncNotificationHelper.sendUserWebhookAsync(user, "PASSWORD_SYNCHRONIZED");
+        } else {
+            log.info("Skipping user with valid encryption keys and valid RadCheck: {}", user.getEmail());
+        }
+        return null;
+    }
+
+    private String replacePassword(User user) {
+        String newPassword = generateRandomPassword();
+
+        // Set the new password (this will update user.password, user.radAccess)
+        passwordService.setPassword(user, newPassword);
+        userRepository.save(user);
+
+        // Ensure full password synchronization across all systems
+        try {
+            radiusService.synchronizeUserPassword(user);
+            log.info("Password re-encryption and synchronization completed for user: {}", user.getEmail());
+        } catch (Exception e) {
+            log.error("Password synchronization failed for user: {} - Error: {}",
+                    user.getEmail(), e.getMessage(), e);
+            // Continue with other users even if sync fails for this one
+        }
+        return newPassword;
+    }
+
+    /**
+     * Users left with a notice by an earlier run got a password nobody was
+     * told; give them another one and send it.
+     */
+    private void resendPendingNotices(String jobName) {
+        List<PasswordReEncryptionNotice> pending = noticeRepository.findByJobNameOrderByUserIdAsc(jobName);
+        if (pending.isEmpty()) {
+            return;
+        }
+        log.warn("Resending {} password notifications left unsent by an earlier run of {}", pending.size(), jobName);
+        for (PasswordReEncryptionNotice notice : pending) {
+            int userId = notice.getUserId();
+            try {
+                String newPassword = writeTransactionTemplate.execute(status -> userRepository.findById(userId)
+                        .map(this::replacePassword)
+                        .orElseGet(() -> {
+                            noticeRepository.deleteByJobNameAndUserId(jobName, userId);
+                            return null;
+                        }));
+                if (newPassword != null) {
+                    sendNotice(jobName, userId, newPassword);
+                    pauseBetweenEmails();
+                }
+            } catch (Exception e) {
+                log.error("Error resetting the password of user id {} to resend it", userId, e);
+            }
+        }
+    }
+
+    /**
+     * Email a new password and drop the user's notice. If sending fails the
+     * notice stays, so the next run tries again.
+     */
+    private void sendNotice(String jobName, int userId, String newPassword) {
+        // A user deleted in the meantime has nobody left to tell
+        Boolean done = readOnlyTransactionTemplate.execute(status -> userRepository.findById(userId)
+                .map(user -> sendEmailNotification(user, newPassword))
+                .orElse(true));
+        if (Boolean.TRUE.equals(done)) {
+            writeTransactionTemplate.executeWithoutResult(
+                    status -> noticeRepository.deleteByJobNameAndUserId(jobName, userId));
+        }
+    }
+
+    private boolean sendEmailNotification(User user, String newPassword) {
+        try {
+            notificationService.notifyUserPasswordReEncryption(user, newPassword);
+            log.info("Successfully notified user: {}", user.getEmail());
+            return true;
+        } catch (Exception e) {
+            log.error("Error sending email for user: {}", user.getEmail(), e);
+            return false;
+        }
+    }
+
+    private void pauseBetweenEmails() {
+        if (emailPauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(emailPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String generateRandomPassword() {
+        int length = 12; // Choose your desired password length
+        return RandomStringUtils.insecure().nextAlphanumeric(length); // Generates an alphanumeric password
+    }
+}
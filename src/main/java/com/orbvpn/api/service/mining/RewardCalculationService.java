@@ -1,7 +1,9 @@
 package com.orbvpn.api.service.mining;
 
 import com.orbvpn.api.domain.entity.*;
+import com.orbvpn.api.domain.enums.TokenTransactionType;
 import com.orbvpn.api.repository.*;
+import com.orbvpn.api.service.token.TokenLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,7 +21,7 @@ public class RewardCalculationService {
         private final ServerMetricsRepository serverMetricsRepository;
         private final MiningActivityRepository miningActivityRepository;
         private final MiningRewardRepository miningRewardRepository;
-        private final TokenBalanceRepository tokenBalanceRepository;
+        private final TokenLedgerService tokenLedgerService;
 
         // Base reward rates
         private static final BigDecimal BASE_RATE_PER_HOUR = new BigDecimal("0.1");
@@ -141,15 +143,7 @@ public class RewardCalculationService {
         @Transactional
         private void distributeReward(User user, MiningServer server, BigDecimal amount) {
                 // Update token balance
-                TokenBalance balance = tokenBalanceRepository.findByUser(user)
-                                .orElseGet(() -> TokenBalance.builder()
-                                                .user(user)
-                                                .balance(BigDecimal.ZERO)
-                                                .build());
-
-                balance.setBalance(balance.getBalance().add(amount));
-                balance.setLastActivityDate(LocalDateTime.now());
-                tokenBalanceRepository.save(balance);
+                tokenLedgerService.credit(user.getId(), amount, TokenTransactionType.MINING_REWARD);
 
                 // Record reward
                 MiningReward reward = MiningReward.builder()
@@ -0,0 +1,54 @@
+package com.orbvpn.api.service.notification;
+
+import org.springframework.context.MessageSource;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Message lookups for one campaign. Each code is resolved and compiled once
+ * per locale and reused for every recipient, instead of going through the
+ * {@link MessageSource} lookup and pattern parsing per message.
+ *
+ * Output matches {@link MessageSource#getMessage(String, Object[], Locale)}:
+ * messages without arguments are returned as written, others are formatted
+ * with {@link MessageFormat} for the locale.
+ */
+public class CampaignMessages {
+
+    private record Key(String code, Locale locale) {
+    }
+
+    private final MessageSource messageSource;
+    private final Map<Key, String> patterns = new ConcurrentHashMap<>();
+    private final Map<Key, MessageFormat> formats = new ConcurrentHashMap<>();
+
+    public CampaignMessages(MessageSource messageSource) {
+        this.messageSource = messageSource;
+    }
+
+    public String get(String code, Locale locale, Object... args) {
+        Key key = new Key(code, locale);
+        if (args == null || args.length == 0) {
+            return pattern(key);
+        }
+        MessageFormat format = formats.computeIfAbsent(key, k -> new MessageFormat(pattern(k), k.locale()));
+        // MessageFormat is not thread-safe
+        synchronized (format) {
+            return format.format(args);
+        }
+    }
+
+    /**
+     * Number of distinct code and locale pairs resolved so far.
+     */
+    public int size() {
+        return patterns.size();
+    }
+
+    private String pattern(Key key) {
+        return patterns.computeIfAbsent(key, k -> messageSource.getMessage(k.code(), null, k.locale()));
+    }
+}
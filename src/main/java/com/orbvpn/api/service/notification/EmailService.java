@@ -2,6 +2,8 @@ package com.orbvpn.api.service.notification;
 
 import com.orbvpn.api.domain.entity.User;
 import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.service.common.DownstreamBulkhead;
+import com.orbvpn.api.service.common.DownstreamBulkhead.Downstream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,12 +13,17 @@ import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 import org.springframework.context.MessageSource;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.mail.MailSendException;
 
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
@@ -30,10 +37,14 @@ public class EmailService {
     private final MessageSource messageSource;
     private final UserRepository userRepository;
     private final EmailUnsubscribeService unsubscribeService;
+    private final DownstreamBulkhead bulkhead;
+    private final SmtpConnectionPool smtpConnectionPool;
 
     @Value("${application.website-url:https://orbnet.xyz}")
     private String baseUrl;
 
+    private volatile byte[] logo;
+
     /**
      * Send a templated email without unsubscribe functionality.
      * Use this for transactional emails that must always be sent (password reset, etc.)
@@ -110,6 +121,64 @@ public class EmailService {
 
     private void sendTemplatedEmailBasic(String toEmail, String templateName,
                                           Map<String, Object> variables, Locale locale) throws Exception {
+        send(createMessage(toEmail, templateName, variables, locale, null));
+        log.info("Successfully sent templated email '{}' to: {} with locale: {}",
+                templateName, toEmail, locale);
+    }
+
+    private void sendTemplatedEmailWithHeaders(String toEmail, String templateName,
+                                                Map<String, Object> variables, Locale locale,
+                                                String unsubscribeUrl) {
+        log.debug("Sending templated email '{}' to: {} with locale: {} (with unsubscribe)",
+                templateName, toEmail, locale);
+
+        try {
+            send(createMessage(toEmail, templateName, variables, locale, unsubscribeUrl));
+            log.info("Successfully sent templated email '{}' to: {} with locale: {} (with unsubscribe headers)",
+                    templateName, toEmail, locale);
+        } catch (Exception e) {
+            log.error("Failed to send templated email with headers to: {} with locale: {}",
+                    toEmail, locale, e);
+            throw new RuntimeException("Failed to send email", e);
+        }
+    }
+
+    /**
+     * Renders one template for many recipients and sends the messages over a
+     * single pooled SMTP connection instead of one connection each. Emails
+     * that fail to render or send are logged and skipped.
+     *
+     * @return the number of emails sent
+     */
+    public int sendTemplatedEmails(String templateName, List<TemplatedEmail> emails) {
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        for (TemplatedEmail email : emails) {
+            try {
+                messages.add(createMessage(email.toEmail(), templateName, email.variables(), email.locale(), null));
+            } catch (Exception e) {
+                log.error("Failed to render templated email '{}' to: {}", templateName, email.toEmail(), e);
+            }
+        }
+
+        int failed = 0;
+        try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.SMTP)) {
+            smtpConnectionPool.sendAll(messages);
+        } catch (MailSendException e) {
+            failed = e.getFailedMessages().size();
+            log.error("Failed to send {} of {} templated emails '{}'", failed, messages.size(), templateName, e);
+        }
+        log.info("Sent {} templated emails '{}' in one batch", messages.size() - failed, templateName);
+        return messages.size() - failed;
+    }
+
+    /**
+     * One recipient of {@link #sendTemplatedEmails}.
+     */
+    public record TemplatedEmail(String toEmail, Map<String, Object> variables, Locale locale) {
+    }
+
+    private MimeMessage createMessage(String toEmail, String templateName, Map<String, Object> variables,
+                                      Locale locale, String unsubscribeUrl) throws Exception {
         MimeMessage message = mailSender.createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(message, true,
                 StandardCharsets.UTF_8.toString());
@@ -130,66 +199,38 @@ public class EmailService {
         helper.setText(htmlContent, true);
         helper.setTo(toEmail);
         helper.setFrom(new InternetAddress("info@orbvpn.com", "OrbVPN"));
-        helper.addInline("logo", new ClassPathResource("/image/logo.png"));
-
-        mailSender.send(message);
-        log.info("Successfully sent templated email '{}' to: {} with locale: {}",
-                templateName, toEmail, locale);
-    }
-
-    private void sendTemplatedEmailWithHeaders(String toEmail, String templateName,
-                                                Map<String, Object> variables, Locale locale,
-                                                String unsubscribeUrl) {
-        log.debug("Sending templated email '{}' to: {} with locale: {} (with unsubscribe)",
-                templateName, toEmail, locale);
-
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true,
-                    StandardCharsets.UTF_8.toString());
-
-            Context context = new Context(locale);
-            variables.forEach((key, value) -> {
-                log.debug("Setting template variable: {} = {}", key, value);
-                context.setVariable(key, value);
-            });
-
-            String htmlContent = templateEngine.process("email/" + templateName, context);
-            String subject = messageSource.getMessage(
-                    "email." + templateName + ".title", null, locale);
-
-            log.debug("Resolved subject for locale {}: {}", locale, subject);
-
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true);
-            helper.setTo(toEmail);
-            helper.setFrom(new InternetAddress("info@orbvpn.com", "OrbVPN"));
-            helper.addInline("logo", new ClassPathResource("/image/logo.png"));
+        helper.addInline("logo", new ByteArrayResource(logo()), "image/png");
 
+        if (unsubscribeUrl != null) {
             // Add RFC 8058 List-Unsubscribe headers for one-click unsubscribe support
             // This is used by email clients like Gmail, Apple Mail to show unsubscribe buttons
             message.addHeader("List-Unsubscribe", "<" + unsubscribeUrl + ">");
             message.addHeader("List-Unsubscribe-Post", "List-Unsubscribe=One-Click");
+        }
+        return message;
+    }
 
-            mailSender.send(message);
-            log.info("Successfully sent templated email '{}' to: {} with locale: {} (with unsubscribe headers)",
-                    templateName, toEmail, locale);
-        } catch (Exception e) {
-            log.error("Failed to send templated email with headers to: {} with locale: {}",
-                    toEmail, locale, e);
-            throw new RuntimeException("Failed to send email", e);
+    // Read once instead of from the classpath for every message
+    private byte[] logo() throws IOException {
+        byte[] bytes = logo;
+        if (bytes == null) {
+            bytes = new ClassPathResource("/image/logo.png").getContentAsByteArray();
+            logo = bytes;
         }
+        return bytes;
     }
 
     /**
      * Check if a user can receive emails (not unsubscribed).
+     * Always true for now; unsubscribes are checked at notification level.
      */
     public boolean canSendEmailTo(String email) {
-        return userRepository.findByEmail(email)
-                .map(user -> {
-                    // For now, always allow - the unsubscribe check should be done at notification level
-                    return true;
-                })
-                .orElse(true);
+        return true;
+    }
+
+    private void send(MimeMessage message) {
+        try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.SMTP)) {
+            smtpConnectionPool.send(message);
+        }
     }
 }
@@ -3,6 +3,8 @@ package com.orbvpn.api.service.notification;
 import com.google.firebase.messaging.*;
 import com.orbvpn.api.domain.dto.FcmNotificationDto;
 import com.orbvpn.api.domain.dto.NotificationDto;
+import com.orbvpn.api.service.common.DownstreamBulkhead;
+import com.orbvpn.api.service.common.DownstreamBulkhead.Downstream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -23,6 +25,7 @@ public class FCMService {
     private static final long RETRY_DELAY_MS = 1000;
 
     private final FirebaseMessaging firebaseMessaging;
+    private final DownstreamBulkhead bulkhead;
 
     public FcmNotificationDto sendNotification(NotificationDto notificationDto, String token) {
         if (token == null || token.trim().isEmpty()) {
@@ -47,7 +50,11 @@ public class FCMService {
             throws InterruptedException {
         try {
             Message message = buildMessage(notificationDto, token);
-            String response = firebaseMessaging.sendAsync(message).get();
+            String response;
+            // Held only for the send; retry back-off below runs without a permit
+            try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.FCM)) {
+                response = firebaseMessaging.sendAsync(message).get();
+            }
             log.info("Successfully sent message: {}", response);
             return new FcmNotificationDto();
 
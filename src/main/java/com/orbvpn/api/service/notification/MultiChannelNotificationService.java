@@ -17,6 +17,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.data.domain.Page;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -90,7 +91,7 @@ public class MultiChannelNotificationService {
         }
     }
 
-    private void sendToChannel(
+    void sendToChannel(
             NotificationChannel channel,
             User user,
             UserProfile profile,
@@ -134,6 +135,31 @@ public class MultiChannelNotificationService {
                 });
     }
 
+    /**
+     * Preferences for many users in one query, keyed by user id. Users without
+     * preferences get the defaults, saved together.
+     */
+    public Map<Integer, NotificationPreferences> getPreferences(Collection<User> users) {
+        Map<Integer, NotificationPreferences> byUser = new HashMap<>();
+        if (users.isEmpty()) {
+            return byUser;
+        }
+        List<Integer> userIds = users.stream().map(User::getId).toList();
+        for (NotificationPreferences prefs : preferencesRepository.findAllByUserIdIn(userIds)) {
+            byUser.putIfAbsent(prefs.getUser().getId(), prefs);
+        }
+
+        List<NotificationPreferences> defaults = users.stream()
+                .filter(user -> !byUser.containsKey(user.getId()))
+                .map(NotificationPreferences::createDefault)
+                .toList();
+        if (!defaults.isEmpty()) {
+            preferencesRepository.saveAll(defaults)
+                    .forEach(prefs -> byUser.put(prefs.getUser().getId(), prefs));
+        }
+        return byUser;
+    }
+
     // Helper class for message formatting
     public static class NotificationMessage {
         private final NotificationChannel channel;
@@ -0,0 +1,69 @@
+package com.orbvpn.api.service.notification;
+
+import com.orbvpn.api.domain.enums.NotificationCategory;
+import com.orbvpn.api.domain.enums.NotificationChannel;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * One bulk notification, as run by {@link NotificationCampaignService}: who
+ * receives it, the email template and how each other channel's content is
+ * rendered for a recipient.
+ */
+@Getter
+@Builder
+public class NotificationCampaign {
+
+    /**
+     * Name used in logs, e.g. "birthday-wish".
+     */
+    private final String name;
+
+    /**
+     * Email template, also the FCM title when the variables carry none.
+     */
+    private final String messageKey;
+
+    private final NotificationCategory category;
+
+    private final RecipientSource recipients;
+
+    /**
+     * Template variables for a recipient, shared by the email and FCM data.
+     */
+    private final Function<Recipient, Map<String, Object>> variables;
+
+    private final ContentRenderer content;
+
+    @FunctionalInterface
+    public interface RecipientSource {
+        /**
+         * @return up to {@code limit} user ids greater than {@code afterUserId},
+         *         in ascending order
+         */
+        List<Integer> nextPage(int afterUserId, int limit);
+    }
+
+    @FunctionalInterface
+    public interface ContentRenderer {
+        /**
+         * Content for a non-email channel, or null to skip that channel.
+         * Message lookups should go through {@code messages}, which formats
+         * each template once per locale for the whole campaign.
+         */
+        String render(NotificationChannel channel, Recipient recipient, Map<String, Object> variables,
+                CampaignMessages messages);
+    }
+
+    /**
+     * What a renderer may use about a recipient. Resolved while the page is
+     * loaded, so rendering and dispatch never touch lazy entity state.
+     */
+    public record Recipient(int userId, String email, String displayName, Locale locale) {
+    }
+}
@@ -0,0 +1,318 @@
+package com.orbvpn.api.service.notification;
+
+import com.orbvpn.api.domain.entity.NotificationPreferences;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.domain.entity.UserProfile;
+import com.orbvpn.api.domain.entity.UserSubscription;
+import com.orbvpn.api.domain.enums.NotificationChannel;
+import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.repository.UserSubscriptionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a {@link NotificationCampaign}: recipients are read in keyset pages of
+ * user ids, and for each page the users with their profiles, notification
+ * preferences and subscriptions are loaded with one query each. Content is
+ * rendered on the paging thread through a per-campaign {@link CampaignMessages}
+ * cache, then handed to virtual threads for delivery.
+ *
+ * Deliveries are capped per channel so a slow provider only holds back its
+ * own channel, and the total in flight is capped so paging cannot run far
+ * ahead of delivery. Emails are sent in batches through
+ * {@link EmailService#sendTemplatedEmails}, one SMTP connection per batch.
+ * The next page is loaded while the previous one is still being sent.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationCampaignService {
+
+    private final UserRepository userRepository;
+    private final UserSubscriptionRepository userSubscriptionRepository;
+    private final MultiChannelNotificationService multiChannelService;
+    private final LocaleResolverService localeResolverService;
+    private final EmailService emailService;
+    private final MessageSource messageSource;
+    private final TransactionTemplate writeTransactionTemplate;
+
+    @Value("${notification.campaign.page-size:500}")
+    private int pageSize = 500;
+
+    @Value("${notification.campaign.max-in-flight:256}")
+    private int maxInFlight = 256;
+
+    @Value("${notification.campaign.email-concurrency:16}")
+    private int emailConcurrency = 16;
+
+    @Value("${notification.campaign.email-batch-size:50}")
+    private int emailBatchSize = 50;
+
+    @Value("${notification.campaign.fcm-concurrency:32}")
+    private int fcmConcurrency = 32;
+
+    @Value("${notification.campaign.telegram-concurrency:8}")
+    private int telegramConcurrency = 8;
+
+    @Value("${notification.campaign.whatsapp-concurrency:4}")
+    private int whatsappConcurrency = 4;
+
+    @Value("${notification.campaign.sms-concurrency:4}")
+    private int smsConcurrency = 4;
+
+    private record Delivery(NotificationChannel channel, User user, UserProfile profile,
+            NotificationCampaign.Recipient recipient, Map<String, Object> variables, String content) {
+    }
+
+    /**
+     * Send the campaign to every recipient it yields. Failures are counted and
+     * logged per delivery and do not stop the run.
+     *
+     * @return counters for the run, also logged with the achieved throughput
+     */
+    public CampaignRunStats run(NotificationCampaign campaign) {
+        CampaignRunStats stats = new CampaignRunStats();
+        CampaignMessages messages = new CampaignMessages(messageSource);
+        Map<NotificationChannel, Semaphore> channelPermits = channelPermits();
+        long startedAt = System.nanoTime();
+        int afterUserId = 0;
+        int pages = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Semaphore inFlight = new Semaphore(maxInFlight);
+
+            while (true) {
+                List<Integer> userIds = campaign.getRecipients().nextPage(afterUserId, pageSize);
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                afterUserId = userIds.get(userIds.size() - 1);
+                pages++;
+
+                List<Delivery> deliveries = writeTransactionTemplate.execute(
+                        status -> loadPage(campaign, userIds, messages, stats));
+                List<Delivery> emails = new ArrayList<>();
+                for (Delivery delivery : deliveries) {
+                    if (delivery.channel() == NotificationChannel.EMAIL) {
+                        emails.add(delivery);
+                        continue;
+                    }
+                    dispatch(executor, inFlight, channelPermits.get(delivery.channel()), () -> {
+                        try {
+                            deliver(campaign, delivery);
+                            stats.sent(delivery.channel(), 1);
+                        } catch (Exception e) {
+                            stats.failed.incrementAndGet();
+                            log.error("Campaign {} failed to send through {} to user {}",
+                                    campaign.getName(), delivery.channel(), delivery.recipient().userId(), e);
+                        }
+                    });
+                }
+                // Emails go out in batches, each over one pooled SMTP connection
+                for (int from = 0; from < emails.size(); from += emailBatchSize) {
+                    List<Delivery> batch = emails.subList(from, Math.min(from + emailBatchSize, emails.size()));
+                    dispatch(executor, inFlight, channelPermits.get(NotificationChannel.EMAIL),
+                            () -> sendEmails(campaign, batch, stats));
+                }
+            }
+        }
+
+        stats.elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        log.info("Campaign {} finished: {} recipients in {} pages, {} skipped, {} deliveries {} with {} failed, "
+                + "{} localized messages, in {} ms ({} recipients/s)",
+                campaign.getName(), stats.getRecipients(), pages, stats.getSkipped(), stats.getSent(),
+                stats.getSentByChannel(), stats.getFailed(), messages.size(), stats.getElapsedMillis(),
+                String.format("%.1f", stats.getThroughputPerSecond()));
+        return stats;
+    }
+
+    /**
+     * Load one page of recipients and render their content. Runs in a
+     * transaction because users seen for the first time get default
+     * preferences saved.
+     */
+    private List<Delivery> loadPage(NotificationCampaign campaign, List<Integer> userIds,
+            CampaignMessages messages, CampaignRunStats stats) {
+        List<User> users = userRepository.findAllWithProfileByIdIn(userIds);
+        primeCurrentSubscriptions(users);
+        Map<Integer, NotificationPreferences> preferences = multiChannelService.getPreferences(users);
+
+        List<Delivery> deliveries = new ArrayList<>();
+        for (User user : users) {
+            stats.recipients.incrementAndGet();
+            UserProfile profile = user.getProfile();
+            NotificationPreferences prefs = preferences.get(user.getId());
+            if (profile == null || prefs == null
+                    || !prefs.isCategoryEnabled(campaign.getCategory()) || prefs.isDndActive()) {
+                stats.skipped.incrementAndGet();
+                continue;
+            }
+
+            try {
+                NotificationCampaign.Recipient recipient = new NotificationCampaign.Recipient(
+                        user.getId(), user.getEmail(), displayName(user, profile),
+                        localeResolverService.resolveUserLocale(user));
+                Map<String, Object> variables = campaign.getVariables().apply(recipient);
+                for (NotificationChannel channel : prefs.getEnabledChannels()) {
+                    String content = channel == NotificationChannel.EMAIL ? null
+                            : campaign.getContent().render(channel, recipient, variables, messages);
+                    if (content == null && channel != NotificationChannel.EMAIL) {
+                        continue;
+                    }
+                    deliveries.add(new Delivery(channel, user, profile, recipient, variables, content));
+                }
+            } catch (Exception e) {
+                stats.failed.incrementAndGet();
+                log.error("Campaign {} failed to prepare notification for user {}",
+                        campaign.getName(), user.getId(), e);
+            }
+        }
+        return deliveries;
+    }
+
+    private static void dispatch(ExecutorService executor, Semaphore inFlight, Semaphore channelPermit,
+            Runnable task) {
+        inFlight.acquireUninterruptibly();
+        executor.submit(() -> {
+            channelPermit.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                channelPermit.release();
+                inFlight.release();
+            }
+        });
+    }
+
+    private void sendEmails(NotificationCampaign campaign, List<Delivery> batch, CampaignRunStats stats) {
+        List<EmailService.TemplatedEmail> emails = batch.stream()
+                .map(delivery -> new EmailService.TemplatedEmail(delivery.recipient().email(),
+                        delivery.variables(), delivery.recipient().locale()))
+                .toList();
+        int sent = 0;
+        try {
+            sent = emailService.sendTemplatedEmails(campaign.getMessageKey(), emails);
+        } catch (Exception e) {
+            log.error("Campaign {} failed to send a batch of {} emails", campaign.getName(), emails.size(), e);
+        }
+        stats.sent(NotificationChannel.EMAIL, sent);
+        stats.failed.addAndGet(emails.size() - sent);
+    }
+
+    private void deliver(NotificationCampaign campaign, Delivery delivery) {
+        multiChannelService.sendToChannel(delivery.channel(), delivery.user(), delivery.profile(),
+                delivery.content(), campaign.getMessageKey(), delivery.variables());
+    }
+
+    // Users without a profile language fall back to their service group's, which needs the current subscription
+    private void primeCurrentSubscriptions(List<User> users) {
+        List<Integer> missing = users.stream()
+                .filter(user -> user.getProfile() != null && user.getProfile().getLanguage() == null)
+                .map(User::getId)
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, UserSubscription> current = new HashMap<>();
+        // Newest first, so the first unexpired subscription seen per user is the current one
+        for (UserSubscription subscription : userSubscriptionRepository.findAllWithGroupByUserIdIn(missing)) {
+            if (subscription.getExpiresAt() != null && subscription.getExpiresAt().isAfter(now)) {
+                current.putIfAbsent(subscription.getUser().getId(), subscription);
+            }
+        }
+        for (User user : users) {
+            UserSubscription subscription = current.get(user.getId());
+            if (subscription != null) {
+                user.setSubscription(subscription);
+            }
+        }
+    }
+
+    private static String displayName(User user, UserProfile profile) {
+        String firstName = profile.getFirstName();
+        return (firstName != null && !firstName.trim().isEmpty()) ? firstName : user.getEmail();
+    }
+
+    private Map<NotificationChannel, Semaphore> channelPermits() {
+        Map<NotificationChannel, Semaphore> permits = new EnumMap<>(NotificationChannel.class);
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            int size = switch (channel) {
+                case EMAIL -> emailConcurrency;
+                case FCM -> fcmConcurrency;
+                case TELEGRAM -> telegramConcurrency;
+                case WHATSAPP -> whatsappConcurrency;
+                case SMS -> smsConcurrency;
+            };
+            permits.put(channel, new Semaphore(size));
+        }
+        return permits;
+    }
+
+    /**
+     * Counters for one campaign run.
+     */
+    public static class CampaignRunStats {
+        private final AtomicInteger recipients = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final Map<NotificationChannel, AtomicInteger> sentByChannel = new EnumMap<>(NotificationChannel.class);
+        private long elapsedMillis;
+
+        CampaignRunStats() {
+            for (NotificationChannel channel : NotificationChannel.values()) {
+                sentByChannel.put(channel, new AtomicInteger());
+            }
+        }
+
+        void sent(NotificationChannel channel, int count) {
+            sentByChannel.get(channel).addAndGet(count);
+        }
+
+        public int getRecipients() {
+            return recipients.get();
+        }
+
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public int getSent() {
+            return sentByChannel.values().stream().mapToInt(AtomicInteger::get).sum();
+        }
+
+        public Map<NotificationChannel, Integer> getSentByChannel() {
+            Map<NotificationChannel, Integer> counts = new EnumMap<>(NotificationChannel.class);
+            sentByChannel.forEach((channel, count) -> counts.put(channel, count.get()));
+            return counts;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getThroughputPerSecond() {
+            return elapsedMillis > 0 ? recipients.get() * 1000.0 / elapsedMillis : recipients.get();
+        }
+    }
+}
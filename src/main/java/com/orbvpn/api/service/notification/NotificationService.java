@@ -1,17 +1,17 @@
 package com.orbvpn.api.service.notification;
 
-import com.orbvpn.api.domain.entity.UserProfile;
 import com.orbvpn.api.domain.entity.User;
 import com.orbvpn.api.domain.entity.UserSubscription;
 import com.orbvpn.api.domain.enums.NotificationCategory;
+import com.orbvpn.api.domain.enums.NotificationChannel;
 import com.orbvpn.api.repository.UserProfileRepository;
 import com.orbvpn.api.repository.UserRepository;
 import com.orbvpn.api.service.subscription.SubscriptionQueryService;
 import com.orbvpn.api.domain.entity.GiftCard;
 import com.orbvpn.api.domain.entity.UserExtraLogins;
-import com.orbvpn.api.service.subscription.UserSubscriptionService;
 import com.orbvpn.api.domain.dto.NotificationDto;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.context.MessageSource;
@@ -25,6 +25,7 @@ import org.springframework.beans.factory.annotation.Value;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -33,8 +34,6 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import java.time.temporal.ChronoUnit;
-
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -51,11 +50,11 @@ public class NotificationService implements NotificationOperations {
         private final SubscriptionQueryService subscriptionQueryService;
         private final LocaleResolverService localeResolverService;
         private final ObjectMapper objectMapper;
-        private final UserSubscriptionService userSubscriptionService;
         private final SmsService smsService;
         private final WhatsAppService whatsAppService;
         private final TelegramService telegramService;
         private final FCMService fcmService;
+        private final NotificationCampaignService campaignService;
 
         @Value("${app.api.base-url:https://api.orbvpn.com}")
         private String apiBaseUrl;
@@ -149,92 +148,48 @@ public class NotificationService implements NotificationOperations {
         @SchedulerLock(name = "sendBirthdayWish", lockAtLeastFor = "5m", lockAtMostFor = "30m")
         public void sendBirthdayWish() {
                 log.info("Sending birthday notifications...");
-                List<UserProfile> userProfiles = userProfileRepository.findUsersBornToday();
-
-                for (UserProfile userProfile : userProfiles) {
-                        try {
-                                User user = userProfile.getUser();
-                                Locale locale = localeResolverService.resolveUserLocale(user);
-                                String userName = getUserDisplayName(user);
-
-                                // Prepare common variables
-                                Map<String, Object> variables = new HashMap<>();
-                                variables.put("userName", userName);
-
-                                // Send through multi-channel service
-                                multiChannelService.sendNotification(
-                                                user,
-                                                "birthday-wish",
-                                                NotificationCategory.PROMOTIONAL,
-                                                variables,
-                                                message -> {
-                                                        switch (message.getChannel()) {
-                                                                case WHATSAPP:
-                                                                        return messageSource.getMessage(
-                                                                                        "whatsapp.birthday.message",
-                                                                                        new Object[] { userName },
-                                                                                        locale);
-                                                                case TELEGRAM:
-                                                                        return messageSource.getMessage(
-                                                                                        "telegram.birthday.message",
-                                                                                        new Object[] { userName },
-                                                                                        locale);
-                                                                case SMS:
-                                                                        return messageSource.getMessage(
-                                                                                        "sms.birthday.wish",
-                                                                                        new Object[] { userName },
-                                                                                        locale);
-                                                                case FCM:
-                                                                        Map<String, Object> fcmNotification = new HashMap<>();
-                                                                        fcmNotification.put("title",
-                                                                                        messageSource.getMessage(
-                                                                                                        "fcm.birthday.title",
-                                                                                                        null,
-                                                                                                        locale));
-                                                                        fcmNotification.put("body",
-                                                                                        messageSource.getMessage(
-                                                                                                        "fcm.birthday.body",
-                                                                                                        new Object[] { userName },
-                                                                                                        locale));
-                                                                        fcmNotification.put("type",
-                                                                                        "birthday_notification");
-                                                                        fcmNotification.put("click_action",
-                                                                                        "FLUTTER_NOTIFICATION_CLICK"); // Required
-                                                                                                                       // for
-                                                                                                                       // Flutter
-                                                                        fcmNotification.put("custom_action",
-                                                                                        "OPEN_DASHBOARD"); // Added
-                                                                                                           // custom
-                                                                                                           // action
-                                                                        fcmNotification.put("data", Map.of( // Added
-                                                                                                            // data map
-                                                                                        "userName", userName));
-                                                                        try {
-                                                                                return new ObjectMapper()
-                                                                                                .writeValueAsString(
-                                                                                                                fcmNotification);
-                                                                        } catch (JsonProcessingException e) {
-                                                                                log.error("Error serializing FCM birthday notification message",
-                                                                                                e);
-                                                                                return null;
-                                                                        }
-                                                                case EMAIL:
-                                                                default:
-                                                                        // Use existing email template
-                                                                        emailService.sendTemplatedEmail(
-                                                                                        user.getEmail(),
-                                                                                        "birthday-wish",
-                                                                                        variables,
-                                                                                        locale);
-                                                                        return null;
-                                                        }
-                                                });
+                campaignService.run(NotificationCampaign.builder()
+                                .name("birthday-wish")
+                                .messageKey("birthday-wish")
+                                .category(NotificationCategory.PROMOTIONAL)
+                                .recipients((afterUserId, limit) -> userProfileRepository
+                                                .findUserIdsBornTodayAfter(afterUserId, PageRequest.of(0, limit)))
+                                .variables(recipient -> {
+                                        Map<String, Object> variables = new HashMap<>();
+                                        variables.put("userName", recipient.displayName());
+                                        return variables;
+                                })
+                                .content(this::renderBirthdayWish)
+                                .build());
+        }
 
-                                log.debug("Sent birthday notifications to user: {}", user.getEmail());
-                        } catch (Exception e) {
-                                log.error("Failed to send birthday notifications to user: {}",
-                                                userProfile.getUser().getEmail(), e);
-                        }
+        private String renderBirthdayWish(NotificationChannel channel, NotificationCampaign.Recipient recipient,
+                        Map<String, Object> variables, CampaignMessages messages) {
+                Locale locale = recipient.locale();
+                String userName = recipient.displayName();
+                switch (channel) {
+                        case WHATSAPP:
+                                return messages.get("whatsapp.birthday.message", locale, userName);
+                        case TELEGRAM:
+                                return messages.get("telegram.birthday.message", locale, userName);
+                        case SMS:
+                                return messages.get("sms.birthday.wish", locale, userName);
+                        case FCM:
+                                Map<String, Object> fcmNotification = new HashMap<>();
+                                fcmNotification.put("title", messages.get("fcm.birthday.title", locale));
+                                fcmNotification.put("body", messages.get("fcm.birthday.body", locale, userName));
+                                fcmNotification.put("type", "birthday_notification");
+                                fcmNotification.put("click_action", "FLUTTER_NOTIFICATION_CLICK"); // Required for Flutter
+                                fcmNotification.put("custom_action", "OPEN_DASHBOARD");
+                                fcmNotification.put("data", Map.of("userName", userName));
+                                try {
+                                        return objectMapper.writeValueAsString(fcmNotification);
+                                } catch (JsonProcessingException e) {
+                                        log.error("Error serializing FCM birthday notification message", e);
+                                        return null;
+                                }
+                        default:
+                                return null;
                 }
         }
 
@@ -244,114 +199,59 @@ public class NotificationService implements NotificationOperations {
         public void afterSubscriptionExpiredNotification() {
                 log.info("Sending after subscription expiration notifications...");
                 for (Integer dayCount : DAYS_AFTER_EXPIRATION) {
-                        List<UserProfile> userProfiles = subscriptionQueryService
-                                        .getUsersExpireInPreviousDays(dayCount);
-                        for (UserProfile userProfile : userProfiles) {
-                                try {
-                                        User user = userProfile.getUser();
-                                        Locale locale = localeResolverService.resolveUserLocale(user);
-                                        String userName = getUserDisplayName(user);
-
-                                        UserSubscription userSubscription = userSubscriptionService
-                                                        .getCurrentSubscription(user);
-                                        if (userSubscription == null) {
-                                                log.warn("No subscription found for user: {}", user.getEmail());
-                                                continue;
-                                        }
-
-                                        long actualDays = ChronoUnit.DAYS.between(userSubscription.getExpiresAt(),
-                                                        LocalDateTime.now());
-                                        log.debug("Processing expired notification - User: {}, Days since expiration: {}, Locale: {}",
-                                                        user.getEmail(), actualDays, locale);
-
-                                        Map<String, Object> variables = new HashMap<>();
-                                        variables.put("userName", userName);
-                                        variables.put("daysAgo", actualDays);
-                                        variables.put("mailtoLink", createMailtoLink(
-                                                        "Expired Subscription Renewal",
-                                                        String.format("My subscription expired %d day(s) ago. I would like to renew it.",
-                                                                        actualDays)));
-
-                                        multiChannelService.sendNotification(
-                                                        user,
-                                                        "subscription-expired",
-                                                        NotificationCategory.BILLING,
-                                                        variables,
-                                                        message -> {
-                                                                switch (message.getChannel()) {
-                                                                        case SMS:
-                                                                                return messageSource.getMessage(
-                                                                                                "sms.subscription.expired",
-                                                                                                new Object[] {
-                                                                                                                actualDays,
-                                                                                                                actualDays == 1 ? messageSource
-                                                                                                                                .getMessage("common.day",
-                                                                                                                                                null,
-                                                                                                                                                locale)
-                                                                                                                                : messageSource.getMessage(
-                                                                                                                                                "common.days",
-                                                                                                                                                null,
-                                                                                                                                                locale)
-                                                                                                },
-                                                                                                locale);
-                                                                        case WHATSAPP:
-                                                                                return messageSource.getMessage(
-                                                                                                "whatsapp.subscription.expired",
-                                                                                                new Object[] { userName,
-                                                                                                                actualDays },
-                                                                                                locale);
-                                                                        case TELEGRAM:
-                                                                                return messageSource.getMessage(
-                                                                                                "telegram.subscription.expired",
-                                                                                                new Object[] { userName,
-                                                                                                                actualDays },
-                                                                                                locale);
-                                                                        case FCM:
-                                                                                Map<String, Object> fcmData = new HashMap<>();
-                                                                                fcmData.put("title", messageSource
-                                                                                                .getMessage(
-                                                                                                                "fcm.subscription.expired.title",
-                                                                                                                null,
-                                                                                                                locale));
-                                                                                fcmData.put("body", messageSource
-                                                                                                .getMessage(
-                                                                                                                "fcm.subscription.expired.body",
-                                                                                                                new Object[] { actualDays },
-                                                                                                                locale));
-                                                                                fcmData.put("type",
-                                                                                                "subscription_expired");
-                                                                                fcmData.put("click_action",
-                                                                                                "FLUTTER_NOTIFICATION_CLICK");
-                                                                                fcmData.put("custom_action",
-                                                                                                "RENEW_SUBSCRIPTION");
-                                                                                fcmData.put("data", Map.of("daysAgo",
-                                                                                                actualDays));
-                                                                                try {
-                                                                                        return objectMapper
-                                                                                                        .writeValueAsString(
-                                                                                                                        fcmData);
-                                                                                } catch (JsonProcessingException e) {
-                                                                                        log.error("Error serializing FCM notification for expired subscription",
-                                                                                                        e);
-                                                                                        return null;
-                                                                                }
-                                                                        case EMAIL:
-                                                                        default:
-                                                                                emailService.sendTemplatedEmail(
-                                                                                                user.getEmail(),
-                                                                                                "subscription-expired",
-                                                                                                variables,
-                                                                                                locale);
-                                                                                return null;
-                                                                }
-                                                        });
+                        LocalDate expiredOn = LocalDate.now().minusDays(dayCount);
+                        String mailtoLink = createMailtoLink(
+                                        "Expired Subscription Renewal",
+                                        String.format("My subscription expired %d day(s) ago. I would like to renew it.",
+                                                        dayCount));
+
+                        campaignService.run(NotificationCampaign.builder()
+                                        .name("subscription-expired-" + dayCount + "d")
+                                        .messageKey("subscription-expired")
+                                        .category(NotificationCategory.BILLING)
+                                        .recipients((afterUserId, limit) -> subscriptionQueryService
+                                                        .getUserIdsExpireAt(expiredOn, afterUserId, limit))
+                                        .variables(recipient -> {
+                                                Map<String, Object> variables = new HashMap<>();
+                                                variables.put("userName", recipient.displayName());
+                                                variables.put("daysAgo", dayCount);
+                                                variables.put("mailtoLink", mailtoLink);
+                                                return variables;
+                                        })
+                                        .content((channel, recipient, variables, messages) -> renderSubscriptionExpired(
+                                                        channel, recipient, dayCount, messages))
+                                        .build());
+                }
+        }
 
-                                        log.debug("Sent expired notification to user: {}", user.getEmail());
-                                } catch (Exception e) {
-                                        log.error("Failed to send expired notification to user: {}",
-                                                        userProfile.getUser().getEmail(), e);
+        private String renderSubscriptionExpired(NotificationChannel channel, NotificationCampaign.Recipient recipient,
+                        int daysAgo, CampaignMessages messages) {
+                Locale locale = recipient.locale();
+                String userName = recipient.displayName();
+                switch (channel) {
+                        case SMS:
+                                return messages.get("sms.subscription.expired", locale, daysAgo,
+                                                messages.get(daysAgo == 1 ? "common.day" : "common.days", locale));
+                        case WHATSAPP:
+                                return messages.get("whatsapp.subscription.expired", locale, userName, daysAgo);
+                        case TELEGRAM:
+                                return messages.get("telegram.subscription.expired", locale, userName, daysAgo);
+                        case FCM:
+                                Map<String, Object> fcmData = new HashMap<>();
+                                fcmData.put("title", messages.get("fcm.subscription.expired.title", locale));
+                                fcmData.put("body", messages.get("fcm.subscription.expired.body", locale, daysAgo));
+                                fcmData.put("type", "subscription_expired");
+                                fcmData.put("click_action", "FLUTTER_NOTIFICATION_CLICK");
+                                fcmData.put("custom_action", "RENEW_SUBSCRIPTION");
+                                fcmData.put("data", Map.of("daysAgo", daysAgo));
+                                try {
+                                        return objectMapper.writeValueAsString(fcmData);
+                                } catch (JsonProcessingException e) {
+                                        log.error("Error serializing FCM notification for expired subscription", e);
+                                        return null;
                                 }
-                        }
+                        default:
+                                return null;
                 }
         }
 
@@ -361,105 +261,59 @@ public class NotificationService implements NotificationOperations {
         public void subscriptionExpirationReminder() {
                 log.info("Sending subscription expiration reminders...");
                 for (Integer dayCount : DAYS_BEFORE_EXPIRATION) {
-                        List<UserProfile> userProfiles = subscriptionQueryService.getUsersExpireInNextDays(dayCount);
-                        for (UserProfile userProfile : userProfiles) {
-                                try {
-                                        User user = userProfile.getUser();
-                                        Locale locale = localeResolverService.resolveUserLocale(user);
-                                        String userName = getUserDisplayName(user);
-
-                                        log.debug("Processing expiration reminder - User: {}, Days remaining: {}, Locale: {}",
-                                                        user.getEmail(), dayCount, locale);
-
-                                        Map<String, Object> variables = new HashMap<>();
-                                        variables.put("userName", userName);
-                                        variables.put("daysRemaining", dayCount);
-                                        variables.put("mailtoLink", createMailtoLink(
-                                                        "Subscription Renewal Request",
-                                                        String.format("My subscription is expiring in %d day(s). I would like to renew it.",
-                                                                        dayCount)));
-
-                                        multiChannelService.sendNotification(
-                                                        user,
-                                                        "subscription-expiry-reminder",
-                                                        NotificationCategory.BILLING,
-                                                        variables,
-                                                        message -> {
-                                                                switch (message.getChannel()) {
-                                                                        case SMS:
-                                                                                return messageSource.getMessage(
-                                                                                                "sms.subscription.expiry",
-                                                                                                new Object[] {
-                                                                                                                dayCount,
-                                                                                                                dayCount == 1 ? messageSource
-                                                                                                                                .getMessage("common.day",
-                                                                                                                                                null,
-                                                                                                                                                locale)
-                                                                                                                                : messageSource.getMessage(
-                                                                                                                                                "common.days",
-                                                                                                                                                null,
-                                                                                                                                                locale)
-                                                                                                },
-                                                                                                locale);
-                                                                        case WHATSAPP:
-                                                                                return messageSource.getMessage(
-                                                                                                "whatsapp.subscription.expiry",
-                                                                                                new Object[] { userName,
-                                                                                                                dayCount },
-                                                                                                locale);
-                                                                        case TELEGRAM:
-                                                                                return messageSource.getMessage(
-                                                                                                "telegram.subscription.expiry",
-                                                                                                new Object[] { userName,
-                                                                                                                dayCount },
-                                                                                                locale);
-                                                                        case FCM:
-                                                                                Map<String, Object> fcmData = new HashMap<>();
-                                                                                fcmData.put("title", messageSource
-                                                                                                .getMessage(
-                                                                                                                "fcm.subscription.expiry.title",
-                                                                                                                null,
-                                                                                                                locale));
-                                                                                fcmData.put("body", messageSource
-                                                                                                .getMessage(
-                                                                                                                "fcm.subscription.expiry.body",
-                                                                                                                new Object[] { dayCount },
-                                                                                                                locale));
-                                                                                fcmData.put("type",
-                                                                                                "subscription_expiry");
-                                                                                fcmData.put("click_action",
-                                                                                                "FLUTTER_NOTIFICATION_CLICK");
-                                                                                fcmData.put("custom_action",
-                                                                                                "RENEW_SUBSCRIPTION");
-                                                                                fcmData.put("data", Map.of(
-                                                                                                "daysRemaining",
-                                                                                                dayCount));
-                                                                                try {
-                                                                                        return objectMapper
-                                                                                                        .writeValueAsString(
-                                                                                                                        fcmData);
-                                                                                } catch (JsonProcessingException e) {
-                                                                                        log.error("Error serializing FCM notification for expiry subscription",
-                                                                                                        e);
-                                                                                        return null;
-                                                                                }
-                                                                        case EMAIL:
-                                                                        default:
-                                                                                emailService.sendTemplatedEmail(
-                                                                                                user.getEmail(),
-                                                                                                "subscription-expiry-reminder",
-                                                                                                variables,
-                                                                                                locale);
-                                                                                return null;
-                                                                }
-                                                        });
+                        LocalDate expiresOn = LocalDate.now().plusDays(dayCount);
+                        String mailtoLink = createMailtoLink(
+                                        "Subscription Renewal Request",
+                                        String.format("My subscription is expiring in %d day(s). I would like to renew it.",
+                                                        dayCount));
+
+                        campaignService.run(NotificationCampaign.builder()
+                                        .name("subscription-expiry-reminder-" + dayCount + "d")
+                                        .messageKey("subscription-expiry-reminder")
+                                        .category(NotificationCategory.BILLING)
+                                        .recipients((afterUserId, limit) -> subscriptionQueryService
+                                                        .getUserIdsExpireAt(expiresOn, afterUserId, limit))
+                                        .variables(recipient -> {
+                                                Map<String, Object> variables = new HashMap<>();
+                                                variables.put("userName", recipient.displayName());
+                                                variables.put("daysRemaining", dayCount);
+                                                variables.put("mailtoLink", mailtoLink);
+                                                return variables;
+                                        })
+                                        .content((channel, recipient, variables, messages) -> renderExpirationReminder(
+                                                        channel, recipient, dayCount, messages))
+                                        .build());
+                }
+        }
 
-                                        log.debug("Sent expiration reminder to user: {}", user.getEmail());
-                                } catch (Exception e) {
-                                        log.error("Failed to send expiration reminder to user: {}",
-                                                        userProfile.getUser().getEmail(), e);
+        private String renderExpirationReminder(NotificationChannel channel, NotificationCampaign.Recipient recipient,
+                        int daysRemaining, CampaignMessages messages) {
+                Locale locale = recipient.locale();
+                String userName = recipient.displayName();
+                switch (channel) {
+                        case SMS:
+                                return messages.get("sms.subscription.expiry", locale, daysRemaining,
+                                                messages.get(daysRemaining == 1 ? "common.day" : "common.days", locale));
+                        case WHATSAPP:
+                                return messages.get("whatsapp.subscription.expiry", locale, userName, daysRemaining);
+                        case TELEGRAM:
+                                return messages.get("telegram.subscription.expiry", locale, userName, daysRemaining);
+                        case FCM:
+                                Map<String, Object> fcmData = new HashMap<>();
+                                fcmData.put("title", messages.get("fcm.subscription.expiry.title", locale));
+                                fcmData.put("body", messages.get("fcm.subscription.expiry.body", locale, daysRemaining));
+                                fcmData.put("type", "subscription_expiry");
+                                fcmData.put("click_action", "FLUTTER_NOTIFICATION_CLICK");
+                                fcmData.put("custom_action", "RENEW_SUBSCRIPTION");
+                                fcmData.put("data", Map.of("daysRemaining", daysRemaining));
+                                try {
+                                        return objectMapper.writeValueAsString(fcmData);
+                                } catch (JsonProcessingException e) {
+                                        log.error("Error serializing FCM notification for expiry subscription", e);
+                                        return null;
                                 }
-                        }
+                        default:
+                                return null;
                 }
         }
 
@@ -692,7 +546,7 @@ public class NotificationService implements NotificationOperations {
                                                                                                                      // custom
                                                                                                                      // action
                                                                 try {
-                                                                        return new ObjectMapper().writeValueAsString(
+                                                                        return objectMapper.writeValueAsString(
                                                                                         fcmPasswordReset);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM password reset message",
@@ -769,7 +623,7 @@ public class NotificationService implements NotificationOperations {
                                                                                 "userName", userName,
                                                                                 "newPassword", newPassword));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM admin password reset message",
@@ -872,7 +726,7 @@ public class NotificationService implements NotificationOperations {
                                                                                 giftCard.getExpirationDate().format(
                                                                                                 DateTimeFormatter.ISO_DATE_TIME)));
                                                                 try {
-                                                                        return new ObjectMapper().writeValueAsString(
+                                                                        return objectMapper.writeValueAsString(
                                                                                         fcmGiftCard);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM gift card redemption message",
@@ -972,7 +826,7 @@ public class NotificationService implements NotificationOperations {
                                                                                                                 .format(DateTimeFormatter.ISO_DATE_TIME)
                                                                                                 : "permanent"));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(
                                                                                                         fcmExtraLogins);
                                                                 } catch (JsonProcessingException e) {
@@ -1076,7 +930,7 @@ public class NotificationService implements NotificationOperations {
                                                                                 extraLogins.getExpiryDate().format(
                                                                                                 DateTimeFormatter.ISO_DATE_TIME)));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM extra logins expiration message",
@@ -1163,7 +1017,7 @@ public class NotificationService implements NotificationOperations {
                                                                                 "planName", planName,
                                                                                 "loginCount", loginCount));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM extra logins expired message",
@@ -1260,7 +1114,7 @@ public class NotificationService implements NotificationOperations {
                                                                                 "loginCount", gift.getLoginCount(),
                                                                                 "expiry", expiry));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM extra logins gift received message",
@@ -1339,7 +1193,7 @@ public class NotificationService implements NotificationOperations {
                                                                                 "recipientEmail", recipient.getEmail(),
                                                                                 "loginCount", gift.getLoginCount()));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM extra logins gift sent message",
@@ -1428,7 +1282,7 @@ public class NotificationService implements NotificationOperations {
                                                                 fcmData.put("data", Map.of( // Group additional data
                                                                                 "giftCardCode", giftCard.getCode()));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM gift card cancellation message",
@@ -1510,7 +1364,7 @@ public class NotificationService implements NotificationOperations {
                                                                                 "userName", userName,
                                                                                 "newPassword", newPassword));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM password reencryption message",
@@ -1597,7 +1451,7 @@ public class NotificationService implements NotificationOperations {
                                                                                 "password", password,
                                                                                 "userName", userName));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM welcome new user message",
@@ -1707,7 +1561,7 @@ public class NotificationService implements NotificationOperations {
                                                                                                                          // custom
                                                                                                                          // action
                                                         try {
-                                                                return new ObjectMapper()
+                                                                return objectMapper
                                                                                 .writeValueAsString(fcmData);
                                                         } catch (JsonProcessingException e) {
                                                                 log.error("Error serializing FCM email verification success message",
@@ -1774,7 +1628,7 @@ public class NotificationService implements NotificationOperations {
                                                         fcmData.put("data", Map.of( // Group additional data
                                                                         "message", notificationMessage));
                                                         try {
-                                                                return new ObjectMapper()
+                                                                return objectMapper
                                                                                 .writeValueAsString(fcmData);
                                                         } catch (JsonProcessingException e) {
                                                                 log.error("Error serializing FCM system notification message",
@@ -1947,7 +1801,7 @@ public class NotificationService implements NotificationOperations {
                                                                         "invoiceNumber",
                                                                         variables.get("invoiceNumber")));
                                                         try {
-                                                                return new ObjectMapper()
+                                                                return objectMapper
                                                                                 .writeValueAsString(fcmData);
                                                         } catch (JsonProcessingException e) {
                                                                 log.error("Error serializing FCM invoice notification message",
@@ -2022,7 +1876,7 @@ public class NotificationService implements NotificationOperations {
                                                                 fcmData.put("data", Map.of( // Group additional data
                                                                                 "token", token));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM token code message",
@@ -2097,7 +1951,7 @@ public class NotificationService implements NotificationOperations {
                                                                 fcmData.put("data", Map.of(
                                                                                 "code", code));
                                                                 try {
-                                                                        return new ObjectMapper()
+                                                                        return objectMapper
                                                                                         .writeValueAsString(fcmData);
                                                                 } catch (JsonProcessingException e) {
                                                                         log.error("Error serializing FCM magic login message",
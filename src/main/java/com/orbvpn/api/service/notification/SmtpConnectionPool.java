@@ -0,0 +1,255 @@
+package com.orbvpn.api.service.notification;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps SMTP connections open between sends. {@link JavaMailSenderImpl}
+ * connects, runs the TLS handshake, authenticates and disconnects for every
+ * send; here a connection is reused until it has been idle for
+ * {@code mail.pool.max-idle} or has carried
+ * {@code mail.pool.max-messages-per-connection} messages.
+ *
+ * At most {@code mail.pool.size} connections are open at once, which by
+ * default matches the SMTP permits of the downstream bulkhead. A connection
+ * the server dropped is replaced and the message retried once; messages or
+ * recipients the server rejected are reported without a retry.
+ */
+@Slf4j
+@Component
+public class SmtpConnectionPool {
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private long lastUsedNanos = System.nanoTime();
+        private int messagesSent;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    // The connection a sendAll call is using; replaced when it goes stale or breaks
+    private static final class Lease {
+        private PooledTransport connection;
+
+        private Lease(PooledTransport connection) {
+            this.connection = connection;
+        }
+    }
+
+    private final JavaMailSender mailSender;
+    private final long maxIdleNanos;
+    private final int maxMessagesPerConnection;
+    private final Semaphore permits;
+    // Most recently used first, so a quiet period lets the others age out
+    private final Deque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+
+    public SmtpConnectionPool(JavaMailSender mailSender,
+            @Value("${mail.pool.size:${concurrency.smtp-permits:10}}") int size,
+            @Value("${mail.pool.max-idle:30s}") Duration maxIdle,
+            @Value("${mail.pool.max-messages-per-connection:100}") int maxMessagesPerConnection) {
+        this.mailSender = mailSender;
+        this.maxIdleNanos = maxIdle.toNanos();
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.permits = new Semaphore(size, true);
+    }
+
+    public void send(MimeMessage message) {
+        sendAll(List.of(message));
+    }
+
+    /**
+     * Sends the messages in order over one connection. A failed message does
+     * not stop the rest.
+     *
+     * @throws MailSendException listing every message that failed
+     */
+    public void sendAll(List<MimeMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+            mailSender.send(messages.toArray(MimeMessage[]::new));
+            return;
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for an SMTP connection", e);
+        }
+
+        Map<Object, Exception> failures = new LinkedHashMap<>();
+        Lease lease = new Lease(idle.pollFirst());
+        try {
+            for (MimeMessage message : messages) {
+                try {
+                    sendOne(sender, lease, message);
+                } catch (MailAuthenticationException e) {
+                    throw e;
+                } catch (Exception e) {
+                    failures.put(message, e);
+                }
+            }
+        } finally {
+            if (lease.connection != null) {
+                idle.offerFirst(lease.connection);
+            }
+            permits.release();
+        }
+
+        if (!failures.isEmpty()) {
+            throw new MailSendException(failures);
+        }
+    }
+
+    private void sendOne(JavaMailSenderImpl sender, Lease lease, MimeMessage message) throws MessagingException {
+        prepare(message);
+        if (lease.connection != null && isStale(lease.connection)) {
+            discard(lease);
+        }
+        if (lease.connection == null) {
+            lease.connection = open(sender);
+        }
+
+        try {
+            deliver(lease.connection, message);
+        } catch (MessagingException e) {
+            // A refused message or recipient leaves the connection usable; a dropped one is retried once
+            if (isRecipientFailure(e) || lease.connection.transport.isConnected()) {
+                throw e;
+            }
+            log.debug("SMTP connection was dropped ({}), reconnecting once", e.getMessage());
+            discard(lease);
+            lease.connection = open(sender);
+            try {
+                deliver(lease.connection, message);
+            } catch (MessagingException retryFailure) {
+                if (!lease.connection.transport.isConnected()) {
+                    discard(lease);
+                }
+                throw retryFailure;
+            }
+        }
+    }
+
+    private static boolean isRecipientFailure(MessagingException e) {
+        return e instanceof SendFailedException failed
+                && failed.getInvalidAddresses() != null && failed.getInvalidAddresses().length > 0;
+    }
+
+    private static void discard(Lease lease) {
+        close(lease.connection);
+        lease.connection = null;
+    }
+
+    private void deliver(PooledTransport connection, MimeMessage message) throws MessagingException {
+        connection.transport.sendMessage(message, message.getAllRecipients());
+        connection.lastUsedNanos = System.nanoTime();
+        connection.messagesSent++;
+        messagesSent.incrementAndGet();
+    }
+
+    private PooledTransport open(JavaMailSenderImpl sender) {
+        try {
+            String protocol = sender.getProtocol() != null ? sender.getProtocol() : "smtp";
+            Transport transport = sender.getSession().getTransport(protocol);
+            transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+            connectionsOpened.incrementAndGet();
+            return new PooledTransport(transport);
+        } catch (AuthenticationFailedException e) {
+            throw new MailAuthenticationException(e);
+        } catch (MessagingException e) {
+            throw new MailSendException("Could not connect to SMTP server", e);
+        }
+    }
+
+    // Same preparation JavaMailSenderImpl applies before sending
+    private static void prepare(MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        String messageId = message.getMessageID();
+        message.saveChanges();
+        if (messageId != null) {
+            message.setHeader("Message-ID", messageId);
+        }
+    }
+
+    private boolean isStale(PooledTransport connection) {
+        return connection.messagesSent >= maxMessagesPerConnection
+                || System.nanoTime() - connection.lastUsedNanos > maxIdleNanos;
+    }
+
+    /**
+     * Closes connections that sat idle longer than the server is likely to
+     * keep them open.
+     */
+    @Scheduled(fixedDelayString = "${mail.pool.evict-interval-ms:30000}")
+    public void evictIdle() {
+        int evicted = 0;
+        for (PooledTransport connection : idle) {
+            if (isStale(connection) && idle.remove(connection)) {
+                close(connection);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Closed {} idle SMTP connections", evicted);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        PooledTransport connection;
+        while ((connection = idle.pollFirst()) != null) {
+            close(connection);
+        }
+    }
+
+    private static void close(PooledTransport connection) {
+        try {
+            connection.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    int idleConnections() {
+        return idle.size();
+    }
+}
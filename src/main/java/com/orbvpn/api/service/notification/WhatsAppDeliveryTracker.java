@@ -0,0 +1,205 @@
+package com.orbvpn.api.service.notification;
+
+import com.orbvpn.api.domain.entity.WhatsAppMessage.MessageStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks outbound WhatsApp messages in memory while they are sent and writes
+ * each one to {@code whatsapp_message} once, in JDBC batches, when it reaches
+ * a final state. This replaces saving the tracking row up to three times per
+ * message on the sending thread.
+ *
+ * A message moves PENDING → SENDING → SENT or FAILED, or from PENDING
+ * straight to RATE_LIMITED or FAILED. Transitions out of order, such as a
+ * late success after a timeout already failed the message, are ignored.
+ *
+ * The buffer of finished messages is bounded; when a flush falls that far
+ * behind, further rows are dropped and counted rather than slowing down sends.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WhatsAppDeliveryTracker {
+
+    static final int BUFFER_CAPACITY = 50_000;
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO whatsapp_message "
+            + "(phone_number, message, status, message_id, error_message, retry_count, message_type, "
+            + "created_at, sent_at, failed_at) VALUES (?, ?, ?, ?, ?, 0, 'TEXT', ?, ?, ?)";
+
+    record TrackedMessage(String phoneNumber, String message, MessageStatus status, String whatsappMessageId,
+                          String errorMessage, LocalDateTime createdAt, LocalDateTime sentAt,
+                          LocalDateTime failedAt) {
+
+        TrackedMessage withStatus(MessageStatus status) {
+            return new TrackedMessage(phoneNumber, message, status, whatsappMessageId, errorMessage, createdAt,
+                    sentAt, failedAt);
+        }
+
+        TrackedMessage sent(String whatsappMessageId) {
+            return new TrackedMessage(phoneNumber, message, MessageStatus.SENT, whatsappMessageId, null, createdAt,
+                    LocalDateTime.now(), null);
+        }
+
+        TrackedMessage failed(MessageStatus status, String error) {
+            return new TrackedMessage(phoneNumber, message, status, null, error, createdAt, null,
+                    LocalDateTime.now());
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, TrackedMessage> inFlight = new ConcurrentHashMap<>();
+    private final BlockingQueue<TrackedMessage> finished = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Start tracking a message about to be sent.
+     *
+     * @return the tracking id to report its progress with
+     */
+    public long start(String phoneNumber, String message) {
+        long id = ids.incrementAndGet();
+        String text = message.length() > MAX_MESSAGE_LENGTH
+                ? message.substring(0, MAX_MESSAGE_LENGTH) + "..."
+                : message;
+        inFlight.put(id, new TrackedMessage(phoneNumber, text, MessageStatus.PENDING, null, null,
+                LocalDateTime.now(), null, null));
+        return id;
+    }
+
+    public void sending(long id) {
+        inFlight.computeIfPresent(id, (key, message) -> message.status() == MessageStatus.PENDING
+                ? message.withStatus(MessageStatus.SENDING)
+                : message);
+    }
+
+    public void sent(long id, String whatsappMessageId) {
+        TrackedMessage message = take(id, MessageStatus.SENT);
+        if (message != null) {
+            complete(message.sent(whatsappMessageId));
+        }
+    }
+
+    public void failed(long id, String error) {
+        TrackedMessage message = take(id, MessageStatus.FAILED);
+        if (message != null) {
+            String truncated = error != null && error.length() > MAX_ERROR_LENGTH
+                    ? error.substring(0, MAX_ERROR_LENGTH)
+                    : error;
+            complete(message.failed(MessageStatus.FAILED, truncated));
+        }
+    }
+
+    public void rateLimited(long id) {
+        TrackedMessage message = take(id, MessageStatus.RATE_LIMITED);
+        if (message != null) {
+            complete(message.failed(MessageStatus.RATE_LIMITED, "Rate limit exceeded"));
+        }
+    }
+
+    // Removes the message if it may move to the final status; only one final transition wins
+    private TrackedMessage take(long id, MessageStatus target) {
+        TrackedMessage[] taken = new TrackedMessage[1];
+        inFlight.computeIfPresent(id, (key, message) -> {
+            if (!canMove(message.status(), target)) {
+                log.debug("Ignoring WhatsApp message {} moving from {} to {}", id, message.status(), target);
+                return message;
+            }
+            taken[0] = message;
+            return null;
+        });
+        return taken[0];
+    }
+
+    private static boolean canMove(MessageStatus from, MessageStatus to) {
+        return switch (from) {
+            case PENDING -> to == MessageStatus.SENDING || to == MessageStatus.RATE_LIMITED
+                    || to == MessageStatus.FAILED;
+            case SENDING -> to == MessageStatus.SENT || to == MessageStatus.FAILED;
+            default -> false;
+        };
+    }
+
+    private void complete(TrackedMessage message) {
+        if (finished.offer(message)) {
+            return;
+        }
+        long total = dropped.incrementAndGet();
+        if (total == 1 || total % 10_000 == 0) {
+            log.warn("WhatsApp delivery tracking buffer full, {} records dropped so far", total);
+        }
+    }
+
+    /**
+     * Writes every message that reached a final state since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${whatsapp.tracking.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<TrackedMessage> batch = new ArrayList<>(Math.min(finished.size(), BATCH_SIZE));
+        while (finished.drainTo(batch, BATCH_SIZE) > 0) {
+            try {
+                write(batch);
+            } catch (Exception e) {
+                // Audit trail only; a failed batch is logged and not retried
+                log.error("Failed to write {} WhatsApp message records: {}", batch.size(), e.getMessage(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<TrackedMessage> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, message) -> {
+            ps.setString(1, message.phoneNumber());
+            ps.setString(2, message.message());
+            ps.setString(3, message.status().name());
+            ps.setString(4, message.whatsappMessageId());
+            ps.setString(5, message.errorMessage());
+            ps.setTimestamp(6, Timestamp.valueOf(message.createdAt()));
+            ps.setTimestamp(7, message.sentAt() != null ? Timestamp.valueOf(message.sentAt()) : null);
+            ps.setTimestamp(8, message.failedAt() != null ? Timestamp.valueOf(message.failedAt()) : null);
+        });
+        log.debug("Wrote {} WhatsApp message records", batch.size());
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Records messages still being sent with the status they reached, then
+     * writes everything buffered.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        for (Long id : List.copyOf(inFlight.keySet())) {
+            TrackedMessage message = inFlight.remove(id);
+            if (message != null) {
+                complete(message);
+            }
+        }
+        flush();
+    }
+}
@@ -6,11 +6,11 @@ import com.google.zxing.common.BitMatrix;
 import com.orbvpn.api.exception.ChatException;
 import com.orbvpn.api.config.messaging.CobaltConfig;
 import com.orbvpn.api.config.scheduler.SchedulerManager;
-import com.orbvpn.api.domain.entity.WhatsAppMessage;
 import com.orbvpn.api.event.MessageQueueEvent;
 import com.orbvpn.api.event.WhatsAppQRCodeEvent;
-import com.orbvpn.api.repository.WhatsAppMessageRepository;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import it.auties.whatsapp.api.Whatsapp;
 import it.auties.whatsapp.api.DisconnectReason;
 import it.auties.whatsapp.model.jid.Jid;
@@ -26,6 +26,7 @@ import org.springframework.context.SmartLifecycle;
 import org.springframework.context.event.EventListener;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Duration;
 import java.util.Base64;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -43,7 +44,13 @@ public class WhatsAppService implements SmartLifecycle {
     private final Whatsapp whatsapp;
     private final SchedulerManager schedulerManager;
     private final MessageRateLimiter rateLimiter;
-    private final WhatsAppMessageRepository messageRepository;
+    private final WhatsAppDeliveryTracker deliveryTracker;
+
+    // Formatted phone number -> existing chat, so a send does not probe the store up to three ways
+    private final Cache<String, Optional<Chat>> chatCache = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .build();
 
     @Autowired
     private CobaltConfig cobaltConfig;
@@ -111,6 +118,12 @@ public class WhatsAppService implements SmartLifecycle {
             // Add listeners to the existing Whatsapp instance
             whatsapp.addLoggedInListener(this::onLoginSuccess);
             whatsapp.addDisconnectedListener(this::onDisconnect);
+            // A new chat or contact only makes a cached miss stale, which is harmless: sending
+            // by JID reaches the same chat. Full syncs may drop chats, so they clear everything.
+            whatsapp.addNewChatListener(chat -> chatCache.invalidate(chat.jid().user()));
+            whatsapp.addNewContactListener(contact -> chatCache.invalidate(contact.jid().user()));
+            whatsapp.addChatsListener(chats -> chatCache.invalidateAll());
+            whatsapp.addContactsListener(contacts -> chatCache.invalidateAll());
 
             debugWhatsAppState();
         } catch (Exception e) {
@@ -213,6 +226,7 @@ public class WhatsAppService implements SmartLifecycle {
         reconnectAttempts = 0;
         qrGenerationInProgress.set(false);
         lastSuccessfulConnection = System.currentTimeMillis();
+        chatCache.invalidateAll();
         log.info("WhatsApp login successful - now authenticated");
 
         // Clear QR code after successful login
@@ -235,6 +249,7 @@ public class WhatsAppService implements SmartLifecycle {
 
     public void onDisconnect(DisconnectReason reason) {
         log.info("WhatsApp disconnected. Reason: {}", reason);
+        chatCache.invalidateAll();
 
         // Update connection state based on reason
         if (reason == DisconnectReason.LOGGED_OUT) {
@@ -774,38 +789,19 @@ public class WhatsAppService implements SmartLifecycle {
      * @return CompletableFuture that completes when the message is sent
      */
     public CompletableFuture<Void> sendMessage(String phoneNumber, String message) {
-        // Create tracking record
-        WhatsAppMessage trackingRecord = WhatsAppMessage.builder()
-                .phoneNumber(phoneNumber)
-                .message(message.length() > 1000 ? message.substring(0, 1000) + "..." : message)
-                .build();
-
-        try {
-            trackingRecord = messageRepository.save(trackingRecord);
-        } catch (Exception e) {
-            log.warn("Failed to save message tracking record: {}", e.getMessage());
-            // Continue even if tracking fails
-        }
-
-        final WhatsAppMessage finalRecord = trackingRecord;
+        // Tracked in memory and written once it is sent or has failed
+        long trackingId = deliveryTracker.start(phoneNumber, message);
         CompletableFuture<Void> future = new CompletableFuture<>();
 
         if (!isAuthenticated()) {
-            updateMessageStatus(finalRecord, null, "WhatsApp not authenticated");
+            deliveryTracker.failed(trackingId, "WhatsApp not authenticated");
             future.completeExceptionally(new ChatException("WhatsApp not authenticated"));
             return future;
         }
 
         // Check rate limit first
         if (!rateLimiter.tryConsumeWhatsApp(phoneNumber)) {
-            if (finalRecord != null && finalRecord.getId() != null) {
-                finalRecord.markAsRateLimited();
-                try {
-                    messageRepository.save(finalRecord);
-                } catch (Exception e) {
-                    log.warn("Failed to update rate-limited message status: {}", e.getMessage());
-                }
-            }
+            deliveryTracker.rateLimited(trackingId);
             future.completeExceptionally(new ChatException("Rate limit exceeded for phone number: " + maskPhoneForLog(phoneNumber)));
             return future;
         }
@@ -814,20 +810,12 @@ public class WhatsAppService implements SmartLifecycle {
         try {
             formattedNumber = formatPhoneNumber(phoneNumber);
         } catch (IllegalArgumentException e) {
-            updateMessageStatus(finalRecord, null, e.getMessage());
+            deliveryTracker.failed(trackingId, e.getMessage());
             future.completeExceptionally(new ChatException("Invalid phone number: " + e.getMessage()));
             return future;
         }
 
-        // Mark as sending
-        if (finalRecord != null && finalRecord.getId() != null) {
-            finalRecord.markAsSending();
-            try {
-                messageRepository.save(finalRecord);
-            } catch (Exception e) {
-                log.warn("Failed to update sending status: {}", e.getMessage());
-            }
-        }
+        deliveryTracker.sending(trackingId);
 
         try {
             Optional<Chat> existingChat = findExistingChat(formattedNumber);
@@ -838,12 +826,12 @@ public class WhatsAppService implements SmartLifecycle {
                         .thenAccept(messageInfo -> {
                             String msgId = messageInfo != null ? messageInfo.id().toString() : null;
                             log.info("Message sent to existing chat {}", maskPhoneForLog(phoneNumber));
-                            updateMessageStatus(finalRecord, msgId, null);
+                            deliveryTracker.sent(trackingId, msgId);
                             future.complete(null);
                         })
                         .exceptionally(throwable -> {
                             log.error("Failed to send message to existing chat {}", maskPhoneForLog(phoneNumber), throwable);
-                            updateMessageStatus(finalRecord, null, throwable.getMessage());
+                            deliveryTracker.failed(trackingId, throwable.getMessage());
                             future.completeExceptionally(
                                     new ChatException("Failed to send message: " + throwable.getMessage()));
                             return null;
@@ -855,12 +843,12 @@ public class WhatsAppService implements SmartLifecycle {
                         .thenAccept(messageInfo -> {
                             String msgId = messageInfo != null ? messageInfo.id().toString() : null;
                             log.info("Message sent to new contact {}", maskPhoneForLog(phoneNumber));
-                            updateMessageStatus(finalRecord, msgId, null);
+                            deliveryTracker.sent(trackingId, msgId);
                             future.complete(null);
                         })
                         .exceptionally(throwable -> {
                             log.error("Failed to send message to new contact {}", maskPhoneForLog(phoneNumber), throwable);
-                            updateMessageStatus(finalRecord, null, throwable.getMessage());
+                            deliveryTracker.failed(trackingId, throwable.getMessage());
                             future.completeExceptionally(
                                     new ChatException("Failed to send message: " + throwable.getMessage()));
                             return null;
@@ -870,56 +858,46 @@ public class WhatsAppService implements SmartLifecycle {
             return future;
         } catch (Exception e) {
             log.error("Error creating message for {}: {}", maskPhoneForLog(phoneNumber), e.getMessage());
-            updateMessageStatus(finalRecord, null, e.getMessage());
+            deliveryTracker.failed(trackingId, e.getMessage());
             future.completeExceptionally(new ChatException("Failed to create message: " + e.getMessage()));
             return future;
         }
     }
 
-    /**
-     * Update message tracking record status.
-     */
-    private void updateMessageStatus(WhatsAppMessage record, String messageId, String error) {
-        if (record == null || record.getId() == null) {
-            return;
+    private Optional<Chat> findExistingChat(String formattedNumber) {
+        Optional<Chat> cached = chatCache.getIfPresent(formattedNumber);
+        if (cached != null) {
+            return cached;
         }
-
         try {
-            if (error != null) {
-                record.markAsFailed(error.length() > 500 ? error.substring(0, 500) : error);
-            } else {
-                record.markAsSent(messageId);
-            }
-            messageRepository.save(record);
+            Optional<Chat> chat = lookupChat(formattedNumber);
+            chatCache.put(formattedNumber, chat);
+            return chat;
         } catch (Exception e) {
-            log.warn("Failed to update message status: {}", e.getMessage());
+            log.debug("Error finding existing chat for {}: {}", formattedNumber, e.getMessage());
+            return Optional.empty();
         }
     }
 
-    private Optional<Chat> findExistingChat(String formattedNumber) {
-        try {
-            String whatsappJid = formattedNumber + "@s.whatsapp.net";
-
-            Optional<Chat> chatByJid = whatsapp.store().findChatByJid(Jid.of(whatsappJid));
-            if (chatByJid.isPresent()) {
-                return chatByJid;
-            }
+    private Optional<Chat> lookupChat(String formattedNumber) {
+        Jid whatsappJid = Jid.of(formattedNumber + "@s.whatsapp.net");
 
-            Optional<Contact> contact = whatsapp.store().findContactByJid(Jid.of(whatsappJid));
-            if (contact.isPresent()) {
-                return whatsapp.store().findChatByJid(contact.get().jid());
-            }
+        Optional<Chat> chatByJid = whatsapp.store().findChatByJid(whatsappJid);
+        if (chatByJid.isPresent()) {
+            return chatByJid;
+        }
 
-            Optional<Contact> contactByName = whatsapp.store().findContactByName(formattedNumber);
-            if (contactByName.isPresent()) {
-                return whatsapp.store().findChatByJid(contactByName.get().jid());
-            }
+        Optional<Contact> contact = whatsapp.store().findContactByJid(whatsappJid);
+        if (contact.isPresent()) {
+            return whatsapp.store().findChatByJid(contact.get().jid());
+        }
 
-            return Optional.empty();
-        } catch (Exception e) {
-            log.debug("Error finding existing chat for {}: {}", formattedNumber, e.getMessage());
-            return Optional.empty();
+        Optional<Contact> contactByName = whatsapp.store().findContactByName(formattedNumber);
+        if (contactByName.isPresent()) {
+            return whatsapp.store().findChatByJid(contactByName.get().jid());
         }
+
+        return Optional.empty();
     }
 
     /**
@@ -0,0 +1,233 @@
+package com.orbvpn.api.service.partition;
+
+import com.orbvpn.api.config.ConnectionStatsPartitionProperties;
+import com.orbvpn.api.config.ConnectionStatsPartitionProperties.Interval;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Keeps connection_stats in time-range partitions by connection_start.
+ *
+ * Future partitions are created ahead of time, and retention removes whole
+ * partitions instead of deleting rows, so the nightly cleanup no longer
+ * rewrites indexes or holds locks while the trackers write and the analytics
+ * queries (which filter on connection_start and so only touch the partitions
+ * they need) read. Until the table has been converted (see
+ * {@code ConnectionStatsPartitionMigrationRunner}) retention falls back to
+ * deleting rows in small batches.
+ */
+@Service
+@Slf4j
+public class ConnectionStatsPartitionManager {
+
+    static final PartitionedTable CONNECTION_STATS = new PartitionedTable(
+            "connection_stats", "connection_start", "connection_end", "updated_at",
+            indexes());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConnectionStatsPartitionProperties properties;
+
+    private volatile PartitionDialect dialect;
+    private volatile boolean dialectResolved;
+
+    public ConnectionStatsPartitionManager(JdbcTemplate jdbcTemplate, ConnectionStatsPartitionProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            ensurePartitions();
+        } catch (Exception e) {
+            log.error("Could not create upcoming connection_stats partitions: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates partitions up to {@code precreatePeriods} intervals ahead, and
+     * the catch-all partition for rows beyond them.
+     */
+    @Scheduled(cron = "0 30 0 * * *")
+    @SchedulerLock(name = "ensureConnectionStatsPartitions", lockAtLeastFor = "1m", lockAtMostFor = "10m")
+    public void ensurePartitions() {
+        PartitionDialect current = dialect();
+        if (current == null || !current.isPartitioned(CONNECTION_STATS)) {
+            return;
+        }
+
+        current.createDefaultPartition(CONNECTION_STATS);
+        List<PartitionRange> existing = existingRanges(current);
+        LocalDate from = existing.isEmpty()
+                ? truncate(LocalDate.now())
+                : existing.get(existing.size() - 1).to();
+        for (PartitionRange range : plan(from, horizon(LocalDate.now()))) {
+            current.createPartition(CONNECTION_STATS, range);
+            log.info("Created connection_stats partition {} - {}", range.from(), range.to());
+        }
+    }
+
+    /**
+     * Removes connection statistics older than the retention period: whole
+     * partitions once partitioned, otherwise batched row deletes.
+     *
+     * @return number of partitions removed, or rows deleted when unpartitioned
+     */
+    public long applyRetention() {
+        PartitionDialect current = dialect();
+        if (current == null) {
+            log.warn("Unsupported database for connection_stats retention; nothing removed");
+            return 0;
+        }
+
+        if (!current.isPartitioned(CONNECTION_STATS)) {
+            return deleteInBatches(current, LocalDateTime.now().minusMonths(properties.getRetentionMonths()));
+        }
+
+        LocalDate cutoff = LocalDate.now().minusMonths(properties.getRetentionMonths());
+        long removed = 0;
+        for (PartitionRange range : existingRanges(current)) {
+            if (range.to().isAfter(cutoff)) {
+                break;
+            }
+            // Rows are kept by when the connection started; a session still open this long is stale anyway
+            current.removePartition(CONNECTION_STATS, range, properties.isDropExpired());
+            log.info("{} connection_stats partition {} - {}",
+                    properties.isDropExpired() ? "Dropped" : "Detached", range.from(), range.to());
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Converts an unpartitioned connection_stats table, keeping its rows.
+     *
+     * @return false when there was nothing to convert
+     */
+    public boolean migrate() {
+        PartitionDialect current = dialect();
+        if (current == null) {
+            log.warn("Unsupported database; connection_stats stays unpartitioned");
+            return false;
+        }
+        if (current.isPartitioned(CONNECTION_STATS)) {
+            log.info("connection_stats is already partitioned");
+            return false;
+        }
+
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(connection_start) FROM connection_stats", Timestamp.class);
+        Timestamp newest = jdbcTemplate.queryForObject(
+                "SELECT MAX(connection_start) FROM connection_stats", Timestamp.class);
+        LocalDate today = LocalDate.now();
+        LocalDate from = truncate(oldest != null ? oldest.toLocalDateTime().toLocalDate() : today);
+        LocalDate lastRow = newest != null ? newest.toLocalDateTime().toLocalDate() : today;
+        LocalDate to = horizon(lastRow.isAfter(today) ? lastRow : today);
+
+        List<PartitionRange> ranges = plan(from, to);
+        log.info("Converting connection_stats into {} {} partitions from {} to {}",
+                ranges.size(), properties.getInterval().name().toLowerCase(Locale.ROOT), from, to);
+        current.convert(CONNECTION_STATS, ranges);
+        log.info("connection_stats is now partitioned");
+        return true;
+    }
+
+    public boolean isPartitioned() {
+        PartitionDialect current = dialect();
+        return current != null && current.isPartitioned(CONNECTION_STATS);
+    }
+
+    private long deleteInBatches(PartitionDialect current, LocalDateTime cutoff) {
+        long deleted = 0;
+        int batch;
+        do {
+            // Each batch commits on its own, so locks and dead tuples stay small
+            batch = current.deleteBefore(CONNECTION_STATS, cutoff, properties.getDeleteBatchSize());
+            deleted += batch;
+        } while (batch >= properties.getDeleteBatchSize());
+        return deleted;
+    }
+
+    private List<PartitionRange> existingRanges(PartitionDialect current) {
+        List<PartitionRange> ranges = new ArrayList<>();
+        for (String name : current.partitionNames(CONNECTION_STATS)) {
+            PartitionRange.parse(CONNECTION_STATS.name(), name).ifPresent(ranges::add);
+        }
+        ranges.sort(Comparator.comparing(PartitionRange::from));
+        return ranges;
+    }
+
+    /**
+     * Consecutive ranges from {@code from} (which may be off the interval grid,
+     * e.g. after switching intervals) until at least {@code until}.
+     */
+    List<PartitionRange> plan(LocalDate from, LocalDate until) {
+        List<PartitionRange> ranges = new ArrayList<>();
+        LocalDate start = from;
+        while (start.isBefore(until)) {
+            LocalDate end = next(truncate(start));
+            ranges.add(new PartitionRange(start, end));
+            start = end;
+        }
+        return ranges;
+    }
+
+    private LocalDate horizon(LocalDate day) {
+        LocalDate end = next(truncate(day));
+        for (int i = 0; i < properties.getPrecreatePeriods(); i++) {
+            end = next(end);
+        }
+        return end;
+    }
+
+    private LocalDate truncate(LocalDate day) {
+        return properties.getInterval() == Interval.WEEKLY
+                ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                : day.withDayOfMonth(1);
+    }
+
+    private LocalDate next(LocalDate boundary) {
+        return properties.getInterval() == Interval.WEEKLY ? boundary.plusWeeks(1) : boundary.plusMonths(1);
+    }
+
+    private PartitionDialect dialect() {
+        if (!dialectResolved) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            String normalized = product != null ? product.toLowerCase(Locale.ROOT) : "";
+            if (normalized.contains("postgres")) {
+                dialect = new PostgresPartitionDialect(jdbcTemplate);
+            } else if (normalized.contains("mysql") || normalized.contains("mariadb")) {
+                dialect = new MySqlPartitionDialect(jdbcTemplate);
+            }
+            dialectResolved = true;
+        }
+        return dialect;
+    }
+
+    private static Map<String, String> indexes() {
+        Map<String, String> indexes = new LinkedHashMap<>();
+        indexes.put("idx_connection_stats_user_start", "user_id, connection_start");
+        indexes.put("idx_connection_stats_server_start", "server_id, connection_start");
+        indexes.put("idx_connection_stats_end", "connection_end");
+        return indexes;
+    }
+}
@@ -0,0 +1,119 @@
+package com.orbvpn.api.service.partition;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * MySQL / MariaDB RANGE partitioning on TO_DAYS(column).
+ *
+ * A catch-all {@code pmax} partition sits after the named ranges and new
+ * ranges are split off it. MySQL does not allow foreign keys on partitioned
+ * tables and needs the partition column in the primary key, so conversion
+ * drops the table's foreign keys and widens the primary key to (id, column).
+ * Conversion is an in-place ALTER that copies the table and blocks writes
+ * while it runs; plan it for a maintenance window.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class MySqlPartitionDialect implements PartitionDialect {
+
+    private static final String OVERFLOW_PARTITION = "pmax";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean isPartitioned(PartitionedTable table) {
+        Integer partitions = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.partitions "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL",
+                Integer.class, table.name());
+        return partitions != null && partitions > 0;
+    }
+
+    @Override
+    public List<String> partitionNames(PartitionedTable table) {
+        return jdbcTemplate.queryForList(
+                "SELECT partition_name FROM information_schema.partitions "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL "
+                        + "AND partition_name <> ?",
+                String.class, table.name(), OVERFLOW_PARTITION);
+    }
+
+    @Override
+    public void createDefaultPartition(PartitionedTable table) {
+        // pmax is created by the conversion and kept by every reorganization
+    }
+
+    @Override
+    public void createPartition(PartitionedTable table, PartitionRange range) {
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " REORGANIZE PARTITION " + OVERFLOW_PARTITION
+                + " INTO (" + partitionSql(table, range) + ", " + overflowSql() + ")");
+    }
+
+    @Override
+    public void removePartition(PartitionedTable table, PartitionRange range, boolean drop) {
+        String partition = range.name(table.name());
+        if (!drop) {
+            // Swap the partition's rows into an empty standalone table before dropping the partition
+            jdbcTemplate.execute("CREATE TABLE " + partition + " LIKE " + table.name());
+            jdbcTemplate.execute("ALTER TABLE " + partition + " REMOVE PARTITIONING");
+            jdbcTemplate.execute("ALTER TABLE " + table.name() + " EXCHANGE PARTITION " + partition
+                    + " WITH TABLE " + partition);
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " DROP PARTITION " + partition);
+    }
+
+    @Override
+    public void convert(PartitionedTable table, List<PartitionRange> ranges) {
+        String name = table.name();
+
+        for (String foreignKey : jdbcTemplate.queryForList(
+                "SELECT constraint_name FROM information_schema.referential_constraints "
+                        + "WHERE constraint_schema = DATABASE() AND table_name = ?",
+                String.class, name)) {
+            log.info("Dropping foreign key {} on {}; partitioned tables cannot have foreign keys", foreignKey, name);
+            jdbcTemplate.execute("ALTER TABLE " + name + " DROP FOREIGN KEY " + foreignKey);
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + name + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, "
+                + table.partitionColumn() + ")");
+
+        List<String> existing = jdbcTemplate.queryForList(
+                "SELECT DISTINCT index_name FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = ?",
+                String.class, name);
+        for (Map.Entry<String, String> index : table.indexes().entrySet()) {
+            if (!existing.contains(index.getKey())) {
+                jdbcTemplate.execute("CREATE INDEX " + index.getKey() + " ON " + name + " (" + index.getValue() + ")");
+            }
+        }
+
+        String partitions = ranges.stream()
+                .map(range -> partitionSql(table, range))
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.execute("ALTER TABLE " + name + " PARTITION BY RANGE (TO_DAYS(" + table.partitionColumn()
+                + ")) (" + partitions + ", " + overflowSql() + ")");
+    }
+
+    @Override
+    public int deleteBefore(PartitionedTable table, LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update("DELETE FROM " + table.name() + " WHERE " + table.retentionColumn()
+                + " < ? LIMIT ?", Timestamp.valueOf(cutoff), limit);
+    }
+
+    private static String partitionSql(PartitionedTable table, PartitionRange range) {
+        // The lower bound is implied by the previous partition
+        return "PARTITION " + range.name(table.name()) + " VALUES LESS THAN (TO_DAYS('" + range.to() + "'))";
+    }
+
+    private static String overflowSql() {
+        return "PARTITION " + OVERFLOW_PARTITION + " VALUES LESS THAN MAXVALUE";
+    }
+}
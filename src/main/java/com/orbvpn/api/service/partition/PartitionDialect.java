@@ -0,0 +1,44 @@
+package com.orbvpn.api.service.partition;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Database-specific DDL for tables range-partitioned by a timestamp column.
+ */
+interface PartitionDialect {
+
+    boolean isPartitioned(PartitionedTable table);
+
+    /**
+     * Names of the table's range partitions, in no particular order.
+     */
+    List<String> partitionNames(PartitionedTable table);
+
+    /**
+     * Creates the catch-all partition for rows outside every range, if the
+     * table does not have one yet.
+     */
+    void createDefaultPartition(PartitionedTable table);
+
+    void createPartition(PartitionedTable table, PartitionRange range);
+
+    /**
+     * Takes the partition out of the table; drops it, or keeps it as a
+     * standalone table named like the partition.
+     */
+    void removePartition(PartitionedTable table, PartitionRange range, boolean drop);
+
+    /**
+     * Converts the unpartitioned table into one partitioned over
+     * {@code ranges}, keeping its rows and secondary indexes. The ranges must
+     * cover every existing row.
+     */
+    void convert(PartitionedTable table, List<PartitionRange> ranges);
+
+    /**
+     * Deletes at most {@code limit} rows whose retention column is before the
+     * cutoff; used while the table is not partitioned.
+     */
+    int deleteBefore(PartitionedTable table, LocalDateTime cutoff, int limit);
+}
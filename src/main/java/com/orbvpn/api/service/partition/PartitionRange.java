@@ -0,0 +1,36 @@
+package com.orbvpn.api.service.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * A half-open [from, to) day range backing one partition. The partition name
+ * carries both bounds, e.g. connection_stats_p20260101_20260201, so ranges can
+ * be read back from the catalog on any database.
+ */
+record PartitionRange(LocalDate from, LocalDate to) {
+
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.BASIC_ISO_DATE;
+
+    String name(String table) {
+        return table + "_p" + BOUND.format(from) + "_" + BOUND.format(to);
+    }
+
+    static Optional<PartitionRange> parse(String table, String name) {
+        String prefix = table + "_p";
+        if (name == null || !name.startsWith(prefix)) {
+            return Optional.empty();
+        }
+        String[] bounds = name.substring(prefix.length()).split("_");
+        if (bounds.length != 2) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new PartitionRange(LocalDate.parse(bounds[0], BOUND), LocalDate.parse(bounds[1], BOUND)));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
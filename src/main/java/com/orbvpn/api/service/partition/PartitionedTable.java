@@ -0,0 +1,17 @@
+package com.orbvpn.api.service.partition;
+
+import java.util.Map;
+
+/**
+ * A table kept in time-range partitions.
+ *
+ * @param name            table name
+ * @param partitionColumn timestamp column the ranges are over
+ * @param retentionColumn timestamp column the row-by-row fallback deletes by
+ * @param updatedColumn   timestamp column set on every write, used to catch
+ *                        rows changed while a conversion copies the table
+ * @param indexes         secondary indexes, name to column list
+ */
+record PartitionedTable(String name, String partitionColumn, String retentionColumn, String updatedColumn,
+        Map<String, String> indexes) {
+}
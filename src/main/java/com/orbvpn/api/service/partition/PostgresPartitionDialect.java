@@ -0,0 +1,283 @@
+package com.orbvpn.api.service.partition;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PostgreSQL declarative range partitioning.
+ *
+ * Conversion builds a partitioned copy next to the live table, copies rows one
+ * range at a time without blocking writers, then briefly locks the live table
+ * against writes to copy what changed meanwhile and swap the names. The old
+ * table is kept as {@code <table>_legacy} to be dropped by hand once checked.
+ *
+ * A {@code <table>_default} partition takes rows outside every range, so an
+ * insert past the last precreated partition is kept instead of failing. Rows
+ * that reach it are moved into their range's partition when that is created.
+ * PostgreSQL does not detach concurrently while a default partition exists, so
+ * expired partitions are detached with a brief lock on the parent.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class PostgresPartitionDialect implements PartitionDialect {
+
+    // Rows changed this long before the copy started are copied again at the swap, to cover clock skew
+    private static final long COPY_SAFETY_MARGIN_MINUTES = 5;
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean isPartitioned(PartitionedTable table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid "
+                        + "WHERE c.relname = ? AND pg_table_is_visible(c.oid))",
+                Boolean.class, table.name()));
+    }
+
+    @Override
+    public List<String> partitionNames(PartitionedTable table) {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent "
+                        + "WHERE p.relname = ? AND pg_table_is_visible(p.oid)",
+                String.class, table.name());
+    }
+
+    @Override
+    public void createDefaultPartition(PartitionedTable table) {
+        jdbcTemplate.execute(createDefaultPartitionSql(table.name(), defaultPartition(table.name())));
+    }
+
+    @Override
+    public void createPartition(PartitionedTable table, PartitionRange range) {
+        String partition = range.name(table.name());
+        String fallback = defaultPartition(table.name());
+        boolean strayRows = hasTable(fallback) && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + fallback + " WHERE " + inRange(table.partitionColumn()) + ")",
+                Boolean.class, Timestamp.valueOf(range.from().atStartOfDay()),
+                Timestamp.valueOf(range.to().atStartOfDay())));
+        if (!strayRows) {
+            jdbcTemplate.execute(createPartitionSql(table.name(), partition, range));
+            return;
+        }
+        // PostgreSQL refuses a new range while the default partition holds rows for it
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            moveFromDefault(connection, table, fallback, partition, range);
+            return null;
+        });
+    }
+
+    private void moveFromDefault(Connection connection, PartitionedTable table, String fallback, String partition,
+            PartitionRange range) throws SQLException {
+        String column = table.partitionColumn();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + partition + " (LIKE " + table.name() + " INCLUDING DEFAULTS)");
+            try (PreparedStatement copy = connection.prepareStatement("INSERT INTO " + partition
+                    + " SELECT * FROM " + fallback + " WHERE " + inRange(column));
+                 PreparedStatement delete = connection.prepareStatement("DELETE FROM " + fallback
+                         + " WHERE " + inRange(column))) {
+                for (PreparedStatement moved : List.of(copy, delete)) {
+                    moved.setTimestamp(1, Timestamp.valueOf(range.from().atStartOfDay()));
+                    moved.setTimestamp(2, Timestamp.valueOf(range.to().atStartOfDay()));
+                    moved.executeUpdate();
+                }
+            }
+            // Attaching adds the parent's indexes and foreign keys to the new partition
+            statement.execute("ALTER TABLE " + table.name() + " ATTACH PARTITION " + partition
+                    + " FOR VALUES FROM ('" + range.from() + "') TO ('" + range.to() + "')");
+            connection.commit();
+            log.info("Moved {} rows for {} - {} out of {}", table.name(), range.from(), range.to(), fallback);
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    @Override
+    public void removePartition(PartitionedTable table, PartitionRange range, boolean drop) {
+        String partition = range.name(table.name());
+        String detach = "ALTER TABLE " + table.name() + " DETACH PARTITION " + partition;
+        if (hasTable(defaultPartition(table.name()))) {
+            jdbcTemplate.execute(detach);
+        } else {
+            try {
+                // Does not block queries on the parent; PostgreSQL 14+, outside a transaction
+                jdbcTemplate.execute(detach + " CONCURRENTLY");
+            } catch (Exception e) {
+                if (detachPending(partition)) {
+                    // An interrupted concurrent detach leaves the partition half detached until finalized
+                    log.warn("Concurrent detach of {} did not complete ({}), finalizing it", partition, e.getMessage());
+                    jdbcTemplate.execute(detach + " FINALIZE");
+                } else {
+                    log.debug("Concurrent detach of {} not possible ({}), detaching normally", partition, e.getMessage());
+                    jdbcTemplate.execute(detach);
+                }
+            }
+        }
+        if (drop) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+    }
+
+    private boolean detachPending(String partition) {
+        try {
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT inhdetachpending FROM pg_inherits WHERE inhrelid = to_regclass(?)",
+                    Boolean.class, partition));
+        } catch (Exception e) {
+            // Not a partition any more, or a server before PostgreSQL 14 that has no pending state
+            return false;
+        }
+    }
+
+    private boolean hasTable(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    @Override
+    public void convert(PartitionedTable table, List<PartitionRange> ranges) {
+        String live = table.name();
+        String staging = live + "_partitioned";
+        String sequence = staging + "_id_seq";
+        String column = table.partitionColumn();
+
+        // Leftovers of an interrupted conversion; the live table is untouched until the swap
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + staging + " CASCADE");
+        jdbcTemplate.execute("CREATE TABLE " + staging + " (LIKE " + live + " INCLUDING DEFAULTS) "
+                + "PARTITION BY RANGE (" + column + ")");
+        jdbcTemplate.execute("CREATE SEQUENCE " + sequence + " OWNED BY " + staging + ".id");
+        jdbcTemplate.execute("ALTER TABLE " + staging + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        // Unique constraints on a partitioned table must include the partition column
+        jdbcTemplate.execute("ALTER TABLE " + staging + " ADD PRIMARY KEY (id, " + column + ")");
+        for (PartitionRange range : ranges) {
+            jdbcTemplate.execute(createPartitionSql(staging, range.name(live), range));
+        }
+        jdbcTemplate.execute(createDefaultPartitionSql(staging, defaultPartition(live)));
+
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + live, Long.class);
+        Timestamp copyStartedAt = Timestamp.valueOf(LocalDateTime.now().minusMinutes(COPY_SAFETY_MARGIN_MINUTES));
+
+        for (PartitionRange range : ranges) {
+            int copied = jdbcTemplate.update("INSERT INTO " + staging + " SELECT * FROM " + live
+                            + " WHERE " + column + " >= ? AND " + column + " < ? AND id <= ?",
+                    Timestamp.valueOf(range.from().atStartOfDay()), Timestamp.valueOf(range.to().atStartOfDay()), maxId);
+            log.info("Copied {} {} rows for {} - {}", copied, live, range.from(), range.to());
+        }
+        if (!ranges.isEmpty()) {
+            int copied = jdbcTemplate.update("INSERT INTO " + staging + " SELECT * FROM " + live
+                            + " WHERE (" + column + " IS NULL OR NOT (" + inRange(column) + ")) AND id <= ?",
+                    Timestamp.valueOf(ranges.get(0).from().atStartOfDay()),
+                    Timestamp.valueOf(ranges.get(ranges.size() - 1).to().atStartOfDay()), maxId);
+            log.info("Copied {} {} rows outside the partition ranges", copied, live);
+        }
+
+        renameCollidingIndexes(table);
+        for (Map.Entry<String, String> index : table.indexes().entrySet()) {
+            jdbcTemplate.execute("CREATE INDEX " + index.getKey() + " ON " + staging + " (" + index.getValue() + ")");
+        }
+        for (String foreignKey : jdbcTemplate.queryForList(
+                "SELECT pg_get_constraintdef(oid) FROM pg_constraint WHERE conrelid = ?::regclass AND contype = 'f'",
+                String.class, live)) {
+            jdbcTemplate.execute("ALTER TABLE " + staging + " ADD " + foreignKey);
+        }
+        jdbcTemplate.execute("ANALYZE " + staging);
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            swap(connection, table, staging, sequence, maxId, copyStartedAt);
+            return null;
+        });
+    }
+
+    private void swap(Connection connection, PartitionedTable table, String staging, String sequence,
+            long maxId, Timestamp copyStartedAt) throws SQLException {
+        String live = table.name();
+        String updated = table.updatedColumn();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            // Readers keep going; writers wait until the swap commits
+            statement.execute("LOCK TABLE " + live + " IN EXCLUSIVE MODE");
+
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + staging
+                    + " WHERE id IN (SELECT id FROM " + live + " WHERE id > ? OR " + updated + " >= ?)");
+                 PreparedStatement insert = connection.prepareStatement("INSERT INTO " + staging
+                         + " SELECT * FROM " + live + " WHERE id > ? OR " + updated + " >= ?")) {
+                for (PreparedStatement changed : List.of(delete, insert)) {
+                    changed.setLong(1, maxId);
+                    changed.setTimestamp(2, copyStartedAt);
+                    changed.executeUpdate();
+                }
+            }
+
+            statement.execute("SELECT setval('" + sequence + "', (SELECT COALESCE(MAX(id), 0) + 1 FROM "
+                    + staging + "), false)");
+            statement.execute("ALTER TABLE " + live + " RENAME TO " + live + "_legacy");
+            statement.execute("ALTER TABLE " + staging + " RENAME TO " + live);
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Index names are unique per schema, so the live table's copies of the
+     * indexes about to be created on the partitioned table move aside.
+     */
+    private void renameCollidingIndexes(PartitionedTable table) {
+        List<String> existing = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid "
+                        + "WHERE i.indrelid = ?::regclass AND NOT i.indisprimary",
+                String.class, table.name());
+        for (String index : table.indexes().keySet()) {
+            if (existing.contains(index)) {
+                String legacy = index.substring(0, Math.min(index.length(), MAX_IDENTIFIER_LENGTH - 7)) + "_legacy";
+                jdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO " + legacy);
+            }
+        }
+    }
+
+    @Override
+    public int deleteBefore(PartitionedTable table, LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update("DELETE FROM " + table.name() + " WHERE id IN (SELECT id FROM " + table.name()
+                        + " WHERE " + table.retentionColumn() + " < ? LIMIT ?)",
+                Timestamp.valueOf(cutoff), limit);
+    }
+
+    private static String createPartitionSql(String parent, String partition, PartitionRange range) {
+        return "CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + parent
+                + " FOR VALUES FROM ('" + range.from() + "') TO ('" + range.to() + "')";
+    }
+
+    private static String createDefaultPartitionSql(String parent, String partition) {
+        return "CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + parent + " DEFAULT";
+    }
+
+    private static String defaultPartition(String table) {
+        return table + "_default";
+    }
+
+    private static String inRange(String column) {
+        return column + " >= ? AND " + column + " < ?";
+    }
+}
@@ -0,0 +1,75 @@
+package com.orbvpn.api.service.partner;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects partner API key usage in memory and writes apiKeyLastUsedAt for
+ * all partners seen since the last flush in one JDBC batch, instead of saving
+ * the partner on every authenticated request.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PartnerApiKeyUsageRecorder {
+
+    private static final String UPDATE_LAST_USED_SQL = "UPDATE orbmesh_partner SET api_key_last_used_at = ? "
+            + "WHERE id = ? AND (api_key_last_used_at IS NULL OR api_key_last_used_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // partnerId -> latest use not yet written
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public void recordUse(Long partnerId) {
+        LocalDateTime now = LocalDateTime.now();
+        pending.merge(partnerId, now, (previous, current) -> current.isAfter(previous) ? current : previous);
+    }
+
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> updates = new ArrayList<>(pending.size());
+        for (Map.Entry<Long, LocalDateTime> entry : pending.entrySet()) {
+            // Only drop the entry if no newer use arrived meanwhile; a newer one waits for the next flush
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                Timestamp usedAt = Timestamp.valueOf(entry.getValue());
+                updates.add(new Object[] { usedAt, entry.getKey(), usedAt });
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_USED_SQL, updates);
+            log.debug("Flushed API key last-used times for {} partners", updates.size());
+        } catch (Exception e) {
+            // Put the values back so the next flush retries them
+            for (Object[] update : updates) {
+                LocalDateTime usedAt = ((Timestamp) update[0]).toLocalDateTime();
+                pending.merge((Long) update[1], usedAt, (previous, current) -> current.isAfter(previous) ? current : previous);
+            }
+            log.warn("Failed to flush API key last-used times for {} partners: {}", updates.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
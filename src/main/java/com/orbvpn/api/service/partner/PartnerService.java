@@ -1,5 +1,7 @@
 package com.orbvpn.api.service.partner;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.orbvpn.api.domain.dto.partner.*;
 import com.orbvpn.api.domain.entity.OrbMeshNode;
 import com.orbvpn.api.domain.entity.OrbMeshPartner;
@@ -18,9 +20,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Base64;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -33,8 +40,18 @@ public class PartnerService {
     private final OrbMeshPartnerRepository partnerRepository;
     private final OrbMeshNodeRepository nodeRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PartnerApiKeyUsageRecorder usageRecorder;
 
     private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private static final String API_KEY_PREFIX = "orb_";
+    private static final int API_KEY_ID_LENGTH = 16;
+    private static final int LEGACY_KEY_ID_LENGTH = 8;
+
+    // BCrypt hash -> SHA-256 of the key that was verified against it
+    private final Cache<String, byte[]> verifiedKeyDigests = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
 
     // ========================== PARTNER CRUD ==========================
 
@@ -126,11 +143,16 @@ public class PartnerService {
         OrbMeshPartner partner = partnerRepository.findById(partnerId)
                 .orElseThrow(() -> new RuntimeException("Partner not found: " + partnerId));
 
+        byte[] keyIdBytes = new byte[API_KEY_ID_LENGTH / 2];
+        SECURE_RANDOM.nextBytes(keyIdBytes);
+        String keyId = HexFormat.of().formatHex(keyIdBytes);
+
         byte[] bytes = new byte[32];
         SECURE_RANDOM.nextBytes(bytes);
         String apiKey = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
-        String fullApiKey = "orb_" + partner.getPartnerUuid().substring(0, 8) + "_" + apiKey;
+        String fullApiKey = API_KEY_PREFIX + keyId + "_" + apiKey;
 
+        partner.setApiKeyId(keyId);
         partner.setApiKeyHash(passwordEncoder.encode(fullApiKey));
         partnerRepository.save(partner);
 
@@ -138,18 +160,40 @@ public class PartnerService {
         return fullApiKey;
     }
 
+    /**
+     * Keys look like orb_{keyId}_{secret}. Current keys carry a 16-character
+     * key id that is looked up by exact match; keys issued before key ids
+     * carry the first 8 characters of the partner UUID and still go through
+     * the prefix lookup.
+     *
+     * BCrypt runs once per key: afterwards a SHA-256 digest of the key is
+     * cached against the stored hash, so a rotated key (new hash) is never
+     * served from the cache.
+     */
     public OrbMeshPartner validateApiKey(String apiKey) {
-        if (apiKey == null || !apiKey.startsWith("orb_")) {
+        if (apiKey == null || !apiKey.startsWith(API_KEY_PREFIX)) {
+            return null;
+        }
+
+        int separator = apiKey.indexOf('_', API_KEY_PREFIX.length());
+        if (separator < 0) {
             return null;
         }
+        String keyId = apiKey.substring(API_KEY_PREFIX.length(), separator);
 
-        String partnerUuidPrefix = apiKey.substring(4, 12);
-        List<OrbMeshPartner> potentialPartners = partnerRepository.findByPartnerUuidStartingWith(partnerUuidPrefix);
+        List<OrbMeshPartner> candidates;
+        if (keyId.length() == API_KEY_ID_LENGTH) {
+            candidates = partnerRepository.findByApiKeyIdAndIsActiveTrue(keyId).map(List::of).orElse(List.of());
+        } else if (keyId.length() == LEGACY_KEY_ID_LENGTH) {
+            candidates = partnerRepository.findByPartnerUuidStartingWith(keyId);
+        } else {
+            return null;
+        }
 
-        for (OrbMeshPartner partner : potentialPartners) {
-            if (partner.getApiKeyHash() != null && passwordEncoder.matches(apiKey, partner.getApiKeyHash())) {
-                partner.setApiKeyLastUsedAt(LocalDateTime.now());
-                partnerRepository.save(partner);
+        byte[] digest = sha256(apiKey);
+        for (OrbMeshPartner partner : candidates) {
+            if (partner.getApiKeyHash() != null && matches(apiKey, digest, partner.getApiKeyHash())) {
+                usageRecorder.recordUse(partner.getId());
                 return partner;
             }
         }
@@ -157,6 +201,26 @@ public class PartnerService {
         return null;
     }
 
+    private boolean matches(String apiKey, byte[] digest, String apiKeyHash) {
+        byte[] verified = verifiedKeyDigests.getIfPresent(apiKeyHash);
+        if (verified != null) {
+            return MessageDigest.isEqual(verified, digest);
+        }
+        if (!passwordEncoder.matches(apiKey, apiKeyHash)) {
+            return false;
+        }
+        verifiedKeyDigests.put(apiKeyHash, digest);
+        return true;
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     // ========================== NODE MANAGEMENT ==========================
 
     @Transactional
@@ -29,6 +29,7 @@ import com.stripe.model.PaymentIntent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
@@ -125,6 +126,17 @@ public class PaymentService {
 
   @Transactional
   public Payment renewPayment(Payment payment) throws Exception {
+    return completeRenewal(chargeRenewal(payment));
+  }
+
+  /**
+   * Gateway half of {@link #renewPayment}, for callers that must not hold a
+   * database connection during the remote call: charges Stripe or reads the
+   * Apple subscription and returns the unsaved renewal payment. Reseller
+   * credit renewals have no remote call and are only built here.
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public Payment chargeRenewal(Payment payment) throws Exception {
     Payment newPayment = Payment.builder()
         .user(payment.getUser())
         .status(PaymentStatus.PENDING)
@@ -141,8 +153,6 @@ public class PaymentService {
         case STRIPE:
           PaymentIntent paymentIntent = stripeService.renewStripePayment(newPayment);
           newPayment.setPaymentId(paymentIntent.getId());
-          paymentRepository.save(newPayment);
-          fullFillPayment(newPayment);
           break;
 
         case APPLE_STORE:
@@ -151,13 +161,40 @@ public class PaymentService {
           newPayment.setPaymentId(subscriptionData.getOriginalTransactionId());
           newPayment.setExpiresAt(subscriptionData.getExpiresAt());
           newPayment.setMetaData(payment.getMetaData());
+          break;
+
+        case RESELLER_CREDIT:
+          break;
+
+        default:
+          throw new PaymentException("Unsupported gateway for renewal: " + payment.getGateway());
+      }
+
+      return newPayment;
+    } catch (Exception e) {
+      failRenewal(newPayment, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Database half of {@link #renewPayment}: saves a renewal returned by
+   * {@link #chargeRenewal} and fulfils it, or for reseller credit deducts the
+   * price, all in the caller's transaction.
+   */
+  @Transactional
+  public Payment completeRenewal(Payment newPayment) throws Exception {
+    try {
+      switch (newPayment.getGateway()) {
+        case STRIPE:
+        case APPLE_STORE:
           paymentRepository.save(newPayment);
           fullFillPayment(newPayment);
           break;
 
         case RESELLER_CREDIT:
-          Group group = groupService.getById(payment.getGroupId());
-          User user = payment.getUser();
+          Group group = groupService.getById(newPayment.getGroupId());
+          User user = newPayment.getUser();
 
           // Lock reseller to prevent race condition on credit deduction
           Reseller reseller = resellerRepository.findByIdWithLock(user.getReseller().getId())
@@ -192,19 +229,23 @@ public class PaymentService {
           break;
 
         default:
-          throw new PaymentException("Unsupported gateway for renewal: " + payment.getGateway());
+          throw new PaymentException("Unsupported gateway for renewal: " + newPayment.getGateway());
       }
 
       return newPayment;
     } catch (Exception e) {
-      log.error("Error renewing payment", e);
-      newPayment.setStatus(PaymentStatus.FAILED);
-      newPayment.setErrorMessage(e.getMessage());
-      paymentRepository.save(newPayment);
+      failRenewal(newPayment, e);
       throw e;
     }
   }
 
+  private void failRenewal(Payment newPayment, Exception e) {
+    log.error("Error renewing payment", e);
+    newPayment.setStatus(PaymentStatus.FAILED);
+    newPayment.setErrorMessage(e.getMessage());
+    paymentRepository.save(newPayment);
+  }
+
   private BigDecimal calculatePrice(Reseller reseller, Group group, int days) {
     ResellerLevel level = reseller.getLevel();
     if (level.getName().equals(ResellerLevelName.OWNER)) {
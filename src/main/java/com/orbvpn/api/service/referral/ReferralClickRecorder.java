@@ -0,0 +1,162 @@
+package com.orbvpn.api.service.referral;
+
+import com.orbvpn.api.event.ReferralActivityEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers accepted referral link clicks in memory and writes them in JDBC
+ * batches, publishing one leaderboard update per referrer and flush instead
+ * of one insert and one update per click.
+ *
+ * The buffer is bounded; when a flush falls that far behind, further clicks
+ * are dropped and counted rather than slowing down the redirect. Each batch is
+ * taken and written under one lock, so a click is either still buffered or
+ * already on disk whenever a caller holds it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferralClickRecorder {
+
+    static final int BUFFER_CAPACITY = 100_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    // Referrers deleted since their code was cached are skipped instead of failing the batch
+    private static final String INSERT_SQL = "INSERT INTO referral_link_click "
+            + "(referral_code, referrer_id, ip_hash, user_agent, referer_url, country, converted, created_at) "
+            + "SELECT ?, ?, ?, ?, ?, ?, false, ? WHERE EXISTS (SELECT 1 FROM \"user\" WHERE id = ?)";
+
+    record PendingClick(String referralCode, int referrerId, String ipHash, String userAgent,
+                        String refererUrl, String country, LocalDateTime createdAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlockingQueue<PendingClick> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * @return false if the click was dropped because the buffer is full
+     */
+    boolean record(PendingClick click) {
+        if (buffer.offer(click)) {
+            return true;
+        }
+        long total = dropped.incrementAndGet();
+        if (total == 1 || total % 10_000 == 0) {
+            log.warn("Referral click buffer full, {} clicks dropped so far", total);
+        }
+        return false;
+    }
+
+    /**
+     * Writes everything buffered so far, one batch at a time.
+     */
+    @Scheduled(fixedDelayString = "${referral.clicks.flush-interval-ms:1000}")
+    public void flush() {
+        List<PendingClick> batch = new ArrayList<>(Math.min(buffer.size(), BATCH_SIZE));
+        boolean drained;
+        do {
+            writeLock.lock();
+            try {
+                drained = buffer.drainTo(batch, BATCH_SIZE) > 0;
+                if (drained) {
+                    writeQuietly(batch);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            batch.clear();
+        } while (drained);
+    }
+
+    /**
+     * Writes only the buffered clicks of one IP on one referrer's link, for
+     * conversion matching on the registration path. Waits for at most the
+     * batch being written; the rest of the buffer is left to the scheduler.
+     */
+    void flush(int referrerId, String ipHash) {
+        List<PendingClick> matching = new ArrayList<>();
+        writeLock.lock();
+        try {
+            buffer.removeIf(click -> click.referrerId() == referrerId && click.ipHash().equals(ipHash)
+                    && matching.add(click));
+            if (!matching.isEmpty()) {
+                writeQuietly(matching);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    int buffered() {
+        return buffer.size();
+    }
+
+    private void writeQuietly(List<PendingClick> batch) {
+        try {
+            write(batch);
+        } catch (Exception e) {
+            // Click analytics only; a failed batch is logged and not retried
+            log.error("Failed to write {} referral clicks: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    private void write(List<PendingClick> batch) {
+        int[][] results = jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, click) -> {
+            ps.setString(1, click.referralCode());
+            ps.setInt(2, click.referrerId());
+            ps.setString(3, click.ipHash());
+            ps.setString(4, click.userAgent());
+            ps.setString(5, click.refererUrl());
+            ps.setString(6, click.country());
+            ps.setTimestamp(7, Timestamp.valueOf(click.createdAt()));
+            ps.setInt(8, click.referrerId());
+        });
+
+        Map<Integer, Long> clicksByReferrer = new HashMap<>();
+        int row = 0;
+        for (int[] chunk : results) {
+            for (int inserted : chunk) {
+                // SUCCESS_NO_INFO (-2) counts as written
+                if (inserted != 0) {
+                    clicksByReferrer.merge(batch.get(row).referrerId(), 1L, Long::sum);
+                }
+                row++;
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        clicksByReferrer.forEach((referrerId, clicks) -> eventPublisher.publishEvent(new ReferralActivityEvent(
+                this, referrerId, ReferralActivityEvent.Type.CLICK, BigDecimal.ZERO, now, clicks)));
+        log.debug("Wrote {} referral clicks for {} referrers", batch.size(), clicksByReferrer.size());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -1,23 +1,27 @@
 package com.orbvpn.api.service.referral;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.orbvpn.api.domain.dto.ReferralClickStatsView;
 import com.orbvpn.api.domain.dto.ReferralClickStatsView.CountryStats;
 import com.orbvpn.api.domain.dto.ReferralClickStatsView.DailyStats;
 import com.orbvpn.api.domain.entity.ReferralConfig;
 import com.orbvpn.api.domain.entity.ReferralLinkClick;
 import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.event.ReferralActivityEvent;
 import com.orbvpn.api.repository.ReferralCodeRepository;
 import com.orbvpn.api.repostitory.ReferralConfigRepository;
 import com.orbvpn.api.repostitory.ReferralLinkClickRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -25,15 +29,39 @@ import java.util.List;
 
 /**
  * Service for tracking referral link clicks.
+ *
+ * Clicks are throttled per IP in memory against a cached config and code
+ * index, then handed to {@link ReferralClickRecorder} for batched inserts, so
+ * the click path does no database work. The IP limit is per instance.
  */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ReferralClickTrackingService {
 
+    private static final int MAX_CLICKS_PER_IP = 10;
+    private static final long CLICK_WINDOW_MILLIS = Duration.ofHours(1).toMillis();
+    private static final int CONVERSION_WINDOW_DAYS = 7;
+    // Cached for codes that do not exist or have no owner
+    private static final int NO_REFERRER = 0;
+
     private final ReferralLinkClickRepository clickRepository;
     private final ReferralConfigRepository configRepository;
     private final ReferralCodeRepository referralCodeRepository;
+    private final ReferralClickRecorder clickRecorder;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Cache<Boolean, ReferralConfig> configCache = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(30))
+            .build();
+    private final Cache<String, Integer> referrerIdByCode = Caffeine.newBuilder()
+            .maximumSize(200_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+    private final Cache<String, ClickWindow> clickWindows = Caffeine.newBuilder()
+            .maximumSize(1_000_000)
+            .expireAfterAccess(Duration.ofMillis(CLICK_WINDOW_MILLIS))
+            .build();
 
     /**
      * Track a click on a referral link.
@@ -43,56 +71,40 @@ public class ReferralClickTrackingService {
      * @param userAgent User agent string
      * @param refererUrl Where the click came from
      * @param country Country code from geolocation
-     * @return The created click record, or null if tracking disabled/rate limited
+     * @return true if the click was accepted for recording, false if tracking is
+     *         disabled, the code is unknown or the IP is rate limited
      */
-    @Transactional
-    public ReferralLinkClick trackClick(String referralCode, String ipAddress,
-                                         String userAgent, String refererUrl, String country) {
-        ReferralConfig config = configRepository.getConfig();
+    public boolean trackClick(String referralCode, String ipAddress,
+                              String userAgent, String refererUrl, String country) {
+        ReferralConfig config = configCache.get(Boolean.TRUE, key -> configRepository.getConfig());
 
         if (!config.isClickTrackingEnabled()) {
             log.debug("Click tracking is disabled");
-            return null;
+            return false;
         }
 
         // Find the referral code owner
-        var referralCodeEntity = referralCodeRepository.findReferralCodeByCode(referralCode);
-        if (referralCodeEntity == null) {
+        int referrerId = referralCode == null ? NO_REFERRER
+                : referrerIdByCode.get(referralCode, this::lookupReferrerId);
+        if (referrerId == NO_REFERRER) {
             log.warn("Click on invalid referral code: {}", referralCode);
-            return null;
-        }
-
-        User referrer = referralCodeEntity.getUser();
-        if (referrer == null) {
-            log.warn("Referral code {} has no owner", referralCode);
-            return null;
+            return false;
         }
 
         // Hash IP for privacy
         String ipHash = hashIp(ipAddress);
 
-        // Rate limit: Check if this IP clicked recently (within 1 hour)
-        long recentClicks = clickRepository.countRecentClicksByIp(ipHash, LocalDateTime.now().minusHours(1));
-        if (recentClicks >= 10) {
-            log.info("Rate limiting clicks from IP hash {} (10+ clicks in last hour)", ipHash);
-            return null;
+        // Rate limit: at most MAX_CLICKS_PER_IP recorded clicks per IP within the last hour
+        if (!clickWindows.get(ipHash, key -> new ClickWindow()).tryAcquire(System.currentTimeMillis())) {
+            log.info("Rate limiting clicks from IP hash {} ({}+ clicks in last hour)", ipHash, MAX_CLICKS_PER_IP);
+            return false;
         }
 
-        // Create click record
-        ReferralLinkClick click = ReferralLinkClick.builder()
-                .referralCode(referralCode)
-                .referrer(referrer)
-                .ipHash(ipHash)
-                .userAgent(truncate(userAgent, 500))
-                .refererUrl(truncate(refererUrl, 1000))
-                .country(country)
-                .converted(false)
-                .build();
-
-        click = clickRepository.save(click);
-        log.debug("Tracked click {} on referral code {} from {}", click.getId(), referralCode, country);
-
-        return click;
+        boolean accepted = clickRecorder.record(new ReferralClickRecorder.PendingClick(
+                referralCode, referrerId, ipHash, truncate(userAgent, 500), truncate(refererUrl, 1000),
+                country, LocalDateTime.now()));
+        log.debug("Tracked click on referral code {} from {}", referralCode, country);
+        return accepted;
     }
 
     /**
@@ -102,28 +114,33 @@ public class ReferralClickTrackingService {
      * @param ipAddress IP of the registered user
      * @param newUser The newly registered user
      */
-    @Transactional
     public void markConversion(String referralCode, String ipAddress, User newUser) {
+        if (newUser.getReferredBy() == null) {
+            log.debug("User {} was not referred, no conversion to record", newUser.getId());
+            return;
+        }
+        int referrerId = newUser.getReferredBy().getId();
         String ipHash = hashIp(ipAddress);
 
-        // Find the most recent unconverted click from this IP with this code
-        List<ReferralLinkClick> recentClicks = clickRepository
-                .findByReferrerIdAndCreatedAtBetween(
-                        newUser.getReferredBy() != null ? newUser.getReferredBy().getId() : 0,
-                        LocalDateTime.now().minusDays(7),
-                        LocalDateTime.now()
-                );
-
-        for (ReferralLinkClick click : recentClicks) {
-            if (!click.isConverted() && click.getIpHash().equals(ipHash)) {
-                click.markConverted(newUser);
-                clickRepository.save(click);
-                log.info("Marked click {} as converted for user {}", click.getId(), newUser.getId());
-                return;
-            }
+        // The click may still be buffered; write only this visitor's clicks
+        clickRecorder.flush(referrerId, ipHash);
+
+        // Most recent unconverted click from this IP on the referrer's link
+        ReferralLinkClick click = clickRepository
+                .findFirstByReferrerIdAndIpHashAndConvertedFalseAndCreatedAtAfterOrderByCreatedAtDesc(
+                        referrerId, ipHash, LocalDateTime.now().minusDays(CONVERSION_WINDOW_DAYS))
+                .orElse(null);
+        if (click == null) {
+            log.debug("No matching click found for conversion (code: {}, user: {})", referralCode, newUser.getId());
+            return;
         }
 
-        log.debug("No matching click found for conversion (code: {}, user: {})", referralCode, newUser.getId());
+        LocalDateTime convertedAt = LocalDateTime.now();
+        if (clickRepository.markConverted(click.getId(), newUser.getId(), convertedAt) > 0) {
+            eventPublisher.publishEvent(new ReferralActivityEvent(this, referrerId,
+                    ReferralActivityEvent.Type.CONVERSION, BigDecimal.ZERO, convertedAt));
+            log.info("Marked click {} as converted for user {}", click.getId(), newUser.getId());
+        }
     }
 
     /**
@@ -207,8 +224,34 @@ public class ReferralClickTrackingService {
         }
     }
 
+    private Integer lookupReferrerId(String referralCode) {
+        return referralCodeRepository.findUserIdByCode(referralCode).orElse(NO_REFERRER);
+    }
+
     private String truncate(String str, int maxLen) {
         if (str == null) return null;
         return str.length() > maxLen ? str.substring(0, maxLen) : str;
     }
+
+    /**
+     * Times of the last {@link #MAX_CLICKS_PER_IP} recorded clicks from one IP,
+     * oldest first from {@code next} once full: an exact sliding window.
+     */
+    private static final class ClickWindow {
+        private final long[] times = new long[MAX_CLICKS_PER_IP];
+        private int next;
+        private int count;
+
+        synchronized boolean tryAcquire(long now) {
+            if (count == times.length && now - times[next] < CLICK_WINDOW_MILLIS) {
+                return false;
+            }
+            times[next] = now;
+            next = (next + 1) % times.length;
+            if (count < times.length) {
+                count++;
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,115 @@
+package com.orbvpn.api.service.referral;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Immutable ranking of one leaderboard bucket, built from rows already sorted
+ * by tokens earned (descending) and user id.
+ *
+ * Entries are kept in primitive arrays (about 20 bytes per user) so a bucket
+ * with a million participants stays small. The top N is a slice of the rank
+ * order; a user's rank is a binary search over a second, user-id-ordered
+ * index, so both are O(log n) at most and need no database round trip.
+ */
+public final class ReferralLeaderboardRanking {
+
+    // Token amounts are stored as long multiples of 10^-8, matching the column scale
+    private static final int SCALE = 8;
+
+    public static final ReferralLeaderboardRanking EMPTY = builder().build();
+
+    private final int[] userIds;
+    private final long[] scores;
+    // (userId << 32 | position), sorted, for rank lookups by user id
+    private final long[] positionsByUser;
+
+    private ReferralLeaderboardRanking(int[] userIds, long[] scores) {
+        this.userIds = userIds;
+        this.scores = scores;
+        this.positionsByUser = new long[userIds.length];
+        for (int i = 0; i < userIds.length; i++) {
+            positionsByUser[i] = ((long) userIds[i] << 32) | i;
+        }
+        Arrays.sort(positionsByUser);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return userIds.length;
+    }
+
+    /**
+     * @param position zero-based position in rank order
+     */
+    public int userIdAt(int position) {
+        return userIds[position];
+    }
+
+    /**
+     * @param position zero-based position in rank order
+     */
+    public BigDecimal tokensAt(int position) {
+        return BigDecimal.valueOf(scores[position], SCALE);
+    }
+
+    /**
+     * @return the user's 1-based rank, or 0 when the user is not ranked
+     */
+    public int rankOf(int userId) {
+        int position = positionOf(userId);
+        return position < 0 ? 0 : position + 1;
+    }
+
+    /**
+     * @return the user's zero-based position in rank order, or -1
+     */
+    public int positionOf(int userId) {
+        long key = (long) userId << 32;
+        int low = 0;
+        int high = positionsByUser.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entryUser = positionsByUser[mid] >> 32;
+            if (entryUser < userId) {
+                low = mid + 1;
+            } else if (entryUser > userId) {
+                high = mid - 1;
+            } else {
+                return (int) (positionsByUser[mid] - key);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Collects entries in rank order.
+     */
+    public static final class Builder {
+        private int[] userIds = new int[1024];
+        private long[] scores = new long[1024];
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder add(int userId, BigDecimal tokensEarned) {
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            userIds[size] = userId;
+            scores[size] = tokensEarned.setScale(SCALE, RoundingMode.DOWN).unscaledValue().longValue();
+            size++;
+            return this;
+        }
+
+        public ReferralLeaderboardRanking build() {
+            return new ReferralLeaderboardRanking(Arrays.copyOf(userIds, size), Arrays.copyOf(scores, size));
+        }
+    }
+}
@@ -2,32 +2,74 @@ package com.orbvpn.api.service.referral;
 
 import com.orbvpn.api.domain.dto.ReferralLeaderboardView;
 import com.orbvpn.api.domain.dto.ReferralLeaderboardView.LeaderboardEntry;
+import com.orbvpn.api.domain.entity.ReferralLeaderboardScore;
 import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.domain.enums.ReferralLeaderboardPeriod;
+import com.orbvpn.api.event.ReferralActivityEvent;
 import com.orbvpn.api.repostitory.ReferralCommissionRepository;
-import com.orbvpn.api.repostitory.ReferralLinkClickRepository;
+import com.orbvpn.api.repostitory.ReferralLeaderboardScoreRepository;
 import com.orbvpn.api.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Service for referral leaderboard functionality.
+ *
+ * Totals per user and period bucket live in referral_leaderboard_score, kept
+ * up to date from {@link ReferralActivityEvent}s and rebuilt from the source
+ * tables every night. Each instance holds an in-memory
+ * {@link ReferralLeaderboardRanking} of the current buckets, reloaded from
+ * that table periodically, so a page view is a slice of the ranking plus a
+ * few batched lookups for the entries shown.
  */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ReferralLeaderboardService {
 
+    private static final String RANKING_SQL = "SELECT user_id, tokens_earned FROM referral_leaderboard_score "
+            + "WHERE period = ? AND bucket_start = ? AND tokens_earned > 0 "
+            + "ORDER BY tokens_earned DESC, user_id";
+    private static final int FETCH_SIZE = 10_000;
+    // Weekly and monthly buckets kept after they close
+    private static final int HISTORY_BUCKETS = 12;
+
+    private final ReferralLeaderboardScoreRepository scoreRepository;
     private final ReferralCommissionRepository commissionRepository;
-    private final ReferralLinkClickRepository clickRepository;
     private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private record BucketRanking(LocalDate bucketStart, ReferralLeaderboardRanking ranking) {
+    }
+
+    private final Map<ReferralLeaderboardPeriod, BucketRanking> rankings = new EnumMap<>(ReferralLeaderboardPeriod.class);
 
     /**
      * Get the referral leaderboard.
@@ -38,94 +80,210 @@ public class ReferralLeaderboardService {
      * @return Leaderboard view
      */
     public ReferralLeaderboardView getLeaderboard(String period, int limit, User currentUser) {
-        log.info("Getting {} referral leaderboard (limit: {})", period, limit);
-
-        LocalDateTime startDate = getStartDateForPeriod(period);
-
-        // Get all users who have earned commissions
-        List<User> usersWithCommissions = getUsersWithCommissions(startDate);
-        long totalParticipants = usersWithCommissions.size();
-
-        // Build entries and sort by earnings
-        List<LeaderboardEntry> entries = usersWithCommissions.stream()
-                .map(user -> buildLeaderboardEntry(user, startDate))
-                .sorted(Comparator.comparing(LeaderboardEntry::getTotalTokensEarned).reversed())
-                .collect(Collectors.toList());
+        ReferralLeaderboardPeriod leaderboardPeriod = ReferralLeaderboardPeriod.fromName(period);
+        LocalDate bucketStart = leaderboardPeriod.bucketStart(LocalDate.now());
+        ReferralLeaderboardRanking ranking = ranking(leaderboardPeriod, bucketStart);
 
-        // Assign ranks
-        for (int i = 0; i < entries.size(); i++) {
-            entries.get(i).setRank(i + 1);
+        int shown = Math.max(0, Math.min(limit, ranking.size()));
+        Set<Integer> userIds = new LinkedHashSet<>();
+        for (int i = 0; i < shown; i++) {
+            userIds.add(ranking.userIdAt(i));
+        }
+        int currentUserPosition = currentUser != null ? ranking.positionOf(currentUser.getId()) : -1;
+        if (currentUserPosition >= 0) {
+            userIds.add(currentUser.getId());
         }
 
-        // Find current user's rank and entry
-        Integer currentUserRank = null;
-        LeaderboardEntry currentUserEntry = null;
-        if (currentUser != null) {
-            for (LeaderboardEntry entry : entries) {
-                if (entry.getUserId() == currentUser.getId()) {
-                    currentUserRank = entry.getRank();
-                    currentUserEntry = entry;
-                    break;
-                }
+        Map<Integer, LeaderboardEntry> entries = buildEntries(leaderboardPeriod, bucketStart, ranking, userIds);
+
+        List<LeaderboardEntry> topReferrers = new ArrayList<>(shown);
+        for (int i = 0; i < shown; i++) {
+            LeaderboardEntry entry = entries.get(ranking.userIdAt(i));
+            if (entry != null) {
+                topReferrers.add(entry);
             }
         }
-
-        // Limit results
-        List<LeaderboardEntry> topReferrers = entries.stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        LeaderboardEntry currentUserEntry = currentUserPosition >= 0 ? entries.get(currentUser.getId()) : null;
 
         return ReferralLeaderboardView.builder()
                 .period(period)
-                .totalParticipants(totalParticipants)
-                .currentUserRank(currentUserRank)
+                .totalParticipants(ranking.size())
+                .currentUserRank(currentUserEntry != null ? currentUserEntry.getRank() : null)
                 .currentUserEntry(currentUserEntry)
                 .topReferrers(topReferrers)
                 .build();
     }
 
-    private LocalDateTime getStartDateForPeriod(String period) {
-        return switch (period.toLowerCase()) {
-            case "weekly" -> LocalDateTime.now().minusWeeks(1);
-            case "monthly" -> LocalDateTime.now().minusMonths(1);
-            default -> LocalDateTime.of(2000, 1, 1, 0, 0); // all_time
-        };
+    /**
+     * Applies one commission, click or conversion to the buckets it falls in.
+     * Failures only delay the change until the next reconciliation.
+     */
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReferralActivity(ReferralActivityEvent event) {
+        BigDecimal tokens = event.getType() == ReferralActivityEvent.Type.COMMISSION_CREDITED
+                ? event.getTokens() : BigDecimal.ZERO;
+        long clicks = event.getType() == ReferralActivityEvent.Type.CLICK ? event.getCount() : 0;
+        long conversions = event.getType() == ReferralActivityEvent.Type.CONVERSION ? event.getCount() : 0;
+        LocalDate day = event.getOccurredAt().toLocalDate();
+        LocalDateTime now = LocalDateTime.now();
+
+        try {
+            writeTransactionTemplate.executeWithoutResult(status -> {
+                for (ReferralLeaderboardPeriod period : ReferralLeaderboardPeriod.values()) {
+                    scoreRepository.increment(period.name(), period.bucketStart(day), event.getReferrerId(),
+                            tokens, clicks, conversions, now);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Could not update referral leaderboard for user {} ({}): {}",
+                    event.getReferrerId(), event.getType(), e.getMessage());
+        }
     }
 
-    private List<User> getUsersWithCommissions(LocalDateTime startDate) {
-        // This is a simplified implementation
-        // In production, use a custom query for better performance
-        return userRepository.findAll().stream()
-                .filter(u -> commissionRepository.getTotalTokensEarnedByUser(u)
-                        .compareTo(BigDecimal.ZERO) > 0)
-                .collect(Collectors.toList());
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            if (!scoreRepository.existsByPeriod(ReferralLeaderboardPeriod.ALL_TIME)) {
+                log.info("Referral leaderboard is empty, building it from commission and click history");
+                reconcile();
+            } else {
+                refreshRankings();
+            }
+        } catch (Exception e) {
+            log.error("Could not load referral leaderboard: {}", e.getMessage(), e);
+        }
     }
 
-    private LeaderboardEntry buildLeaderboardEntry(User user, LocalDateTime startDate) {
-        BigDecimal totalEarned = commissionRepository.getTotalTokensEarnedByUser(user);
-        long directReferrals = commissionRepository.countDirectReferrals(user);
-        long totalNetworkSize = commissionRepository.countTotalReferrals(user);
-
-        // Click stats
-        long totalClicks = clickRepository.countByReferrerId(user.getId());
-        long conversions = clickRepository.countByReferrerIdAndConvertedTrue(user.getId());
-        BigDecimal conversionRate = totalClicks > 0
-                ? BigDecimal.valueOf(conversions * 100.0 / totalClicks).setScale(2, RoundingMode.HALF_UP)
-                : BigDecimal.ZERO;
-
-        // Mask username for privacy
-        String displayName = maskUsername(user.getUsername());
-
-        return LeaderboardEntry.builder()
-                .userId(user.getId())
-                .username(user.getUsername())
-                .displayName(displayName)
-                .totalTokensEarned(totalEarned)
-                .directReferrals(directReferrals)
-                .totalNetworkSize(totalNetworkSize)
-                .totalConversions(conversions)
-                .conversionRate(conversionRate)
-                .build();
+    /**
+     * Reloads the rankings of the current buckets from the score table.
+     */
+    @Scheduled(fixedDelayString = "${referral.leaderboard.refresh-interval-ms:60000}",
+            initialDelayString = "${referral.leaderboard.refresh-interval-ms:60000}")
+    public void refreshRankings() {
+        LocalDate today = LocalDate.now();
+        for (ReferralLeaderboardPeriod period : ReferralLeaderboardPeriod.values()) {
+            LocalDate bucketStart = period.bucketStart(today);
+            ReferralLeaderboardRanking ranking = loadRanking(period, bucketStart);
+            synchronized (rankings) {
+                rankings.put(period, new BucketRanking(bucketStart, ranking));
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the current and previous buckets from credited commissions and
+     * link clicks, correcting any increments that were lost or applied twice,
+     * and drops closed buckets past the retained history.
+     */
+    @Scheduled(cron = "0 15 3 * * *")
+    @SchedulerLock(name = "reconcileReferralLeaderboard", lockAtLeastFor = "1m", lockAtMostFor = "1h")
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        for (ReferralLeaderboardPeriod period : ReferralLeaderboardPeriod.values()) {
+            LocalDate current = period.bucketStart(today);
+            rebuildBucket(period, current);
+            if (period != ReferralLeaderboardPeriod.ALL_TIME) {
+                // Late events near the boundary land in the bucket that just closed
+                rebuildBucket(period, period.bucketStart(current.minusDays(1)));
+
+                LocalDate oldest = current;
+                for (int i = 0; i < HISTORY_BUCKETS; i++) {
+                    oldest = period.bucketStart(oldest.minusDays(1));
+                }
+                LocalDate cutoff = oldest;
+                writeTransactionTemplate.executeWithoutResult(
+                        status -> scoreRepository.deleteBucketsBefore(period, cutoff));
+            }
+        }
+        refreshRankings();
+    }
+
+    private void rebuildBucket(ReferralLeaderboardPeriod period, LocalDate bucketStart) {
+        Integer users = writeTransactionTemplate.execute(status -> {
+            scoreRepository.deleteBucket(period, bucketStart);
+            return scoreRepository.rebuildBucket(period.name(), bucketStart, bucketStart.atStartOfDay(),
+                    period.bucketEnd(bucketStart).atStartOfDay(), LocalDateTime.now());
+        });
+        log.info("Rebuilt {} referral leaderboard bucket {} ({} users)", period, bucketStart, users);
+    }
+
+    private ReferralLeaderboardRanking ranking(ReferralLeaderboardPeriod period, LocalDate bucketStart) {
+        synchronized (rankings) {
+            BucketRanking loaded = rankings.get(period);
+            if (loaded != null && loaded.bucketStart().equals(bucketStart)) {
+                return loaded.ranking();
+            }
+        }
+        // Not loaded yet, or a new week or month started since the last refresh
+        ReferralLeaderboardRanking ranking = loadRanking(period, bucketStart);
+        synchronized (rankings) {
+            rankings.put(period, new BucketRanking(bucketStart, ranking));
+        }
+        return ranking;
+    }
+
+    private ReferralLeaderboardRanking loadRanking(ReferralLeaderboardPeriod period, LocalDate bucketStart) {
+        // Inside a transaction so the driver streams rows by fetch size instead of buffering the bucket
+        return readOnlyTransactionTemplate.execute(status -> {
+            ReferralLeaderboardRanking.Builder builder = ReferralLeaderboardRanking.builder();
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(RANKING_SQL);
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setString(1, period.name());
+                statement.setDate(2, Date.valueOf(bucketStart));
+                return statement;
+            }, resultSet -> {
+                builder.add(resultSet.getInt(1), resultSet.getBigDecimal(2));
+            });
+            return builder.build();
+        });
+    }
+
+    private Map<Integer, LeaderboardEntry> buildEntries(ReferralLeaderboardPeriod period, LocalDate bucketStart,
+                                                       ReferralLeaderboardRanking ranking, Set<Integer> userIds) {
+        Map<Integer, LeaderboardEntry> entries = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return entries;
+        }
+
+        Map<Integer, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Integer, ReferralLeaderboardScore> scores = scoreRepository
+                .findByPeriodAndBucketStartAndUserIdIn(period, bucketStart, userIds).stream()
+                .collect(Collectors.toMap(ReferralLeaderboardScore::getUserId, Function.identity()));
+        Map<Integer, long[]> referrals = new HashMap<>();
+        for (Object[] row : commissionRepository.countReferralsByBeneficiaryIdIn(userIds)) {
+            referrals.put((Integer) row[0], new long[] { ((Number) row[1]).longValue(), ((Number) row[2]).longValue() });
+        }
+
+        for (Integer userId : userIds) {
+            User user = users.get(userId);
+            if (user == null) {
+                continue;
+            }
+            int position = ranking.positionOf(userId);
+            ReferralLeaderboardScore score = scores.get(userId);
+            long clicks = score != null ? score.getClicks() : 0;
+            long conversions = score != null ? score.getConversions() : 0;
+            BigDecimal conversionRate = clicks > 0
+                    ? BigDecimal.valueOf(conversions * 100.0 / clicks).setScale(2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+            long[] referralCounts = referrals.getOrDefault(userId, new long[2]);
+
+            entries.put(userId, LeaderboardEntry.builder()
+                    .rank(position + 1)
+                    .userId(userId)
+                    .username(user.getUsername())
+                    .displayName(maskUsername(user.getUsername()))
+                    .totalTokensEarned(ranking.tokensAt(position))
+                    .directReferrals(referralCounts[0])
+                    .totalNetworkSize(referralCounts[1])
+                    .totalConversions(conversions)
+                    .conversionRate(conversionRate)
+                    .build());
+        }
+        return entries;
     }
 
     private String maskUsername(String username) {
@@ -3,12 +3,18 @@ package com.orbvpn.api.service.referral;
 import com.orbvpn.api.domain.entity.*;
 import com.orbvpn.api.domain.enums.ReferralCommissionStatus;
 import com.orbvpn.api.domain.enums.TokenTransactionType;
+import com.orbvpn.api.event.ReferralActivityEvent;
 import com.orbvpn.api.repostitory.ReferralCommissionRepository;
 import com.orbvpn.api.repostitory.ReferralConfigRepository;
 import com.orbvpn.api.repostitory.ReferralLevelRepository;
+import com.orbvpn.api.repository.projections.ReferralLevelCountProjection;
+import com.orbvpn.api.repository.projections.ReferralTreeNodeProjection;
 import com.orbvpn.api.service.AdTokenServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,8 +22,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 /**
  * Multi-Level Marketing (MLM) Referral Service.
@@ -39,10 +47,13 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class ReferralMLMService {
 
+    private static final int USER_LOAD_CHUNK_SIZE = 1000;
+
     private final ReferralLevelRepository referralLevelRepository;
     private final ReferralCommissionRepository referralCommissionRepository;
     private final ReferralConfigRepository configRepository;
     private final AdTokenServiceImpl tokenService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Process referral commissions for a successful payment.
@@ -101,11 +112,18 @@ public class ReferralMLMService {
         log.info("Processing referral commissions for payment {} (amount: {}) from user {} with token rate {}",
                 payment.getId(), paymentAmount, payingUser.getId(), tokenRate);
 
-        // Traverse the referral chain
-        User currentReferrer = payingUser.getReferredBy();
-        int currentLevel = 1;
+        // Resolve the whole upline and the level table up front instead of
+        // lazily walking referredBy and querying each level on the way up
+        List<User> chain = getReferralChain(payingUser, maxLevel);
+        Map<Integer, ReferralLevel> levelsByNumber = new HashMap<>();
+        for (ReferralLevel level : referralLevelRepository.findByActiveTrueOrderByLevelAsc()) {
+            levelsByNumber.put(level.getLevel(), level);
+        }
+
+        for (int i = 0; i < chain.size(); i++) {
+            User currentReferrer = chain.get(i);
+            int currentLevel = i + 1;
 
-        while (currentReferrer != null && currentLevel <= maxLevel) {
             // Check for self-referral loop (shouldn't happen but safety check)
             if (currentReferrer.getId() == payingUser.getId()) {
                 log.warn("Self-referral loop detected for user {}", payingUser.getId());
@@ -117,8 +135,6 @@ public class ReferralMLMService {
                     (long) payment.getId(), currentReferrer.getId())) {
                 log.debug("Commission already exists for payment {} and beneficiary {}",
                         payment.getId(), currentReferrer.getId());
-                currentReferrer = currentReferrer.getReferredBy();
-                currentLevel++;
                 continue;
             }
 
@@ -127,22 +143,16 @@ public class ReferralMLMService {
             if (disqualifyReason != null) {
                 log.info("Beneficiary {} disqualified for level {}: {}",
                         currentReferrer.getId(), currentLevel, disqualifyReason);
-                currentReferrer = currentReferrer.getReferredBy();
-                currentLevel++;
                 continue;
             }
 
             // Get the level configuration
-            Optional<ReferralLevel> levelConfig = referralLevelRepository.findByLevelAndActiveTrue(currentLevel);
-            if (levelConfig.isEmpty()) {
+            ReferralLevel level = levelsByNumber.get(currentLevel);
+            if (level == null) {
                 log.debug("No active configuration for level {}", currentLevel);
-                currentReferrer = currentReferrer.getReferredBy();
-                currentLevel++;
                 continue;
             }
 
-            ReferralLevel level = levelConfig.get();
-
             // Calculate token reward
             BigDecimal tokenAmount = level.calculateTokenReward(paymentAmount, tokenRate);
 
@@ -181,10 +191,6 @@ public class ReferralMLMService {
             } else {
                 log.debug("Token amount {} below threshold for level {}", tokenAmount, currentLevel);
             }
-
-            // Move up the chain
-            currentReferrer = currentReferrer.getReferredBy();
-            currentLevel++;
         }
 
         log.info("Processed {} commissions for payment {}", commissions.size(), payment.getId());
@@ -316,6 +322,8 @@ public class ReferralMLMService {
         // Note: We don't have the transaction ID directly, but we can mark it as credited
         commission.markCredited(null);
         referralCommissionRepository.save(commission);
+        eventPublisher.publishEvent(new ReferralActivityEvent(this, beneficiary.getId(),
+                ReferralActivityEvent.Type.COMMISSION_CREDITED, tokenAmount, commission.getCreditedAt()));
 
         log.info("Credited {} tokens to user {} for commission {} (new balance: {})",
                 tokenAmount, beneficiary.getId(), commission.getId(), newBalance.getBalance());
@@ -323,23 +331,20 @@ public class ReferralMLMService {
 
     /**
      * Get the referral chain for a user (upward - who referred them).
+     * Resolved with one recursive query plus one batched user load.
      *
      * @param user The user to get the chain for
      * @param maxDepth Maximum depth to traverse
      * @return List of referrers in chain order (immediate referrer first)
      */
     public List<User> getReferralChain(User user, int maxDepth) {
-        List<User> chain = new ArrayList<>();
-        User current = user.getReferredBy();
-        int depth = 0;
-
-        while (current != null && depth < maxDepth) {
-            chain.add(current);
-            current = current.getReferredBy();
-            depth++;
+        if (maxDepth <= 0) {
+            return new ArrayList<>();
         }
-
-        return chain;
+        List<Integer> uplineIds = userRepository.findUpline(user.getId(), maxDepth).stream()
+                .map(ReferralTreeNodeProjection::getUserId)
+                .toList();
+        return loadUsersInOrder(uplineIds);
     }
 
     /**
@@ -349,31 +354,80 @@ public class ReferralMLMService {
      * @param maxLevels Maximum levels to traverse
      * @return Map of level -> list of users at that level
      */
-    public java.util.Map<Integer, List<User>> getDownlineNetwork(User user, int maxLevels) {
-        java.util.Map<Integer, List<User>> network = new java.util.LinkedHashMap<>();
+    public Map<Integer, List<User>> getDownlineNetwork(User user, int maxLevels) {
+        Map<Integer, List<User>> network = new LinkedHashMap<>();
+        if (maxLevels <= 0) {
+            return network;
+        }
 
-        // Level 1: Direct referrals
-        List<User> directReferrals = userRepository.findByReferredById(user.getId());
-        if (!directReferrals.isEmpty()) {
-            network.put(1, directReferrals);
+        List<ReferralTreeNodeProjection> nodes = userRepository.findDownline(user.getId(), maxLevels);
+        List<User> users = loadUsersInOrder(nodes.stream().map(ReferralTreeNodeProjection::getUserId).toList());
+        Map<Integer, User> usersById = new HashMap<>();
+        for (User u : users) {
+            usersById.put(u.getId(), u);
         }
 
-        // Level 2+: Indirect referrals
-        List<User> currentLevel = directReferrals;
-        for (int level = 2; level <= maxLevels && !currentLevel.isEmpty(); level++) {
-            List<User> nextLevel = new ArrayList<>();
-            for (User referred : currentLevel) {
-                nextLevel.addAll(userRepository.findByReferredById(referred.getId()));
+        for (ReferralTreeNodeProjection node : nodes) {
+            User referred = usersById.get(node.getUserId());
+            if (referred != null) {
+                network.computeIfAbsent(node.getDepth(), k -> new ArrayList<>()).add(referred);
             }
-            if (!nextLevel.isEmpty()) {
-                network.put(level, nextLevel);
-            }
-            currentLevel = nextLevel;
         }
 
         return network;
     }
 
+    /**
+     * Get one page of a user's downline, ordered by level then user id.
+     *
+     * @param user The user whose network to page through
+     * @param maxLevels Maximum levels to include
+     * @param pageable Page request
+     * @return Page of (userId, level) nodes
+     */
+    public Page<ReferralTreeNodeProjection> getDownlinePage(User user, int maxLevels, Pageable pageable) {
+        return userRepository.findDownlinePage(user.getId(), maxLevels, pageable);
+    }
+
+    /**
+     * Count the users at each level of a user's downline without loading them.
+     *
+     * @param user The user whose network to count
+     * @param maxLevels Maximum levels to include
+     * @return Map of level -> number of users at that level
+     */
+    public Map<Integer, Long> getDownlineLevelCounts(User user, int maxLevels) {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        if (maxLevels <= 0) {
+            return counts;
+        }
+        for (ReferralLevelCountProjection row : userRepository.countDownlineByLevel(user.getId(), maxLevels)) {
+            counts.put(row.getDepth(), row.getUserCount());
+        }
+        return counts;
+    }
+
+    /**
+     * Load users by id in bounded IN-list chunks, preserving the order of {@code ids}.
+     */
+    private List<User> loadUsersInOrder(List<Integer> ids) {
+        Map<Integer, User> usersById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += USER_LOAD_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + USER_LOAD_CHUNK_SIZE, ids.size()));
+            for (User u : userRepository.findAllById(chunk)) {
+                usersById.put(u.getId(), u);
+            }
+        }
+        List<User> ordered = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            User u = usersById.get(id);
+            if (u != null) {
+                ordered.add(u);
+            }
+        }
+        return ordered;
+    }
+
     /**
      * Get total commission earned from a specific user.
      *
@@ -7,10 +7,8 @@ import com.orbvpn.api.domain.dto.StripeWebhookEvent;
 import com.orbvpn.api.domain.entity.User;
 import com.orbvpn.api.domain.entity.UserSubscription;
 import com.orbvpn.api.domain.entity.Group;
-import com.orbvpn.api.domain.entity.Payment;
 import com.orbvpn.api.domain.entity.TrialHistory;
 import com.orbvpn.api.domain.enums.GatewayName;
-import com.orbvpn.api.service.payment.PaymentService;
 import com.orbvpn.api.service.subscription.handlers.SubscriptionHandlerFactory;
 import com.orbvpn.api.service.subscription.notification.StripeNotificationProcessor;
 import com.orbvpn.api.service.subscription.notification.AppleNotificationProcessor;
@@ -27,7 +25,6 @@ import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -41,46 +38,18 @@ public class RenewUserSubscriptionService {
     private final StripeNotificationProcessor stripeNotificationProcessor;
     private final SubscriptionStateManager subscriptionStateManager;
     private final AsyncNotificationHelper asyncNotificationHelper;
-    private final PaymentService paymentService;
     private final TrialHistoryRepository trialHistoryRepository;
+    private final SubscriptionRenewalProcessor subscriptionRenewalProcessor;
 
-    @Transactional
+    /**
+     * Renew all due subscription payments. Work is claimed per payment and spread
+     * over virtual threads by {@link SubscriptionRenewalProcessor}, so this is
+     * deliberately not one big transaction.
+     */
     public void renewSubscriptions() {
         log.info("Starting subscription renewal process");
         try {
-            List<Payment> paymentsToRenew = paymentService.findAllSubscriptionPaymentsToRenew();
-
-            for (Payment payment : paymentsToRenew) {
-                try {
-                    log.debug("Attempting to renew payment ID: {}", payment.getId());
-                    Payment renewedPayment = paymentService.renewPayment(payment);
-
-                    if (renewedPayment != null) {
-                        log.info("Successfully renewed payment ID: {}", payment.getId());
-
-                        // Get the user and their current subscription
-                        User user = renewedPayment.getUser();
-                        UserSubscription currentSubscription = subscriptionStateManager.getCurrentSubscription(user);
-
-                        // Send renewal notification
-                        try {
-                            if (currentSubscription != null) {
-                                asyncNotificationHelper.sendSubscriptionRenewalNotificationAsync(user, currentSubscription);
-                                log.debug("Sent renewal notification to user: {}", user.getEmail());
-                            }
-                        } catch (Exception e) {
-                            log.error("Failed to send renewal notification to user: {} - Error: {}",
-                                    user.getEmail(), e.getMessage(), e);
-                            // Don't throw the exception here to allow the renewal process to continue
-                        }
-                    } else {
-                        log.warn("Failed to renew payment ID: {}", payment.getId());
-                    }
-                } catch (Exception e) {
-                    log.error("Error renewing payment ID: {}", payment.getId(), e);
-                }
-            }
-
+            subscriptionRenewalProcessor.processDueRenewals();
             log.info("Completed subscription renewal process");
         } catch (Exception e) {
             log.error("Error during subscription renewal process", e);
@@ -13,4 +13,10 @@ public interface SubscriptionQueryService {
     List<UserProfile> getUsersExpireInNextDays(Integer dayCount);
 
     List<UserProfile> getUsersExpireInPreviousDays(Integer dayCount);
+
+    /**
+     * Keyset page of the ids of users with a subscription expiring on the
+     * given day, in ascending order after {@code afterUserId}.
+     */
+    List<Integer> getUserIdsExpireAt(LocalDate localDate, int afterUserId, int limit);
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.orbvpn.api.service.subscription;
 import com.orbvpn.api.domain.entity.UserProfile;
 import com.orbvpn.api.repository.UserSubscriptionRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,4 +40,10 @@ public class SubscriptionQueryServiceImpl implements SubscriptionQueryService {
         LocalDate localDate = LocalDate.now().minusDays(dayCount);
         return getUsersExpireAt(localDate);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<Integer> getUserIdsExpireAt(LocalDate localDate, int afterUserId, int limit) {
+        return userSubscriptionRepository.findUserIdsExpiringBetweenAfter(localDate.atStartOfDay(),
+                localDate.plusDays(1).atStartOfDay(), afterUserId, PageRequest.of(0, limit));
+    }
+}
@@ -0,0 +1,299 @@
+package com.orbvpn.api.service.subscription;
+
+import com.orbvpn.api.domain.entity.Payment;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.domain.entity.UserSubscription;
+import com.orbvpn.api.domain.enums.GatewayName;
+import com.orbvpn.api.domain.enums.PaymentStatus;
+import com.orbvpn.api.repository.PaymentRepository;
+import com.orbvpn.api.repository.SubscriptionRenewalClaimRepository;
+import com.orbvpn.api.repository.projections.RenewalCandidateProjection;
+import com.orbvpn.api.service.AsyncNotificationHelper;
+import com.orbvpn.api.service.payment.PaymentService;
+import com.orbvpn.api.service.subscription.utils.SubscriptionStateManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs automatic subscription renewals in keyset-paged chunks on virtual threads.
+ *
+ * Every payment is claimed through {@link SubscriptionRenewalClaimRepository}
+ * before its gateway is called, so several replicas can share one renewal run
+ * and a payment is renewed at most once. The gateway is called outside any
+ * transaction, between a short one that loads the payment and a short one that
+ * records the renewal, and gateway calls are capped per provider so one slow
+ * gateway cannot take every slot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SubscriptionRenewalProcessor {
+
+    private final PaymentRepository paymentRepository;
+    private final SubscriptionRenewalClaimRepository claimRepository;
+    private final PaymentService paymentService;
+    private final SubscriptionStateManager subscriptionStateManager;
+    private final AsyncNotificationHelper asyncNotificationHelper;
+    private final TransactionTemplate writeTransactionTemplate;
+
+    @Value("${subscription.renewal.chunk-size:100}")
+    private int chunkSize = 100;
+
+    @Value("${subscription.renewal.max-concurrency:32}")
+    private int maxConcurrency = 32;
+
+    @Value("${subscription.renewal.gateway-concurrency:8}")
+    private int gatewayConcurrency = 8;
+
+    @Value("${subscription.renewal.lease-minutes:15}")
+    private int leaseMinutes = 15;
+
+    @Value("${subscription.renewal.retry-delay-minutes:60}")
+    private int retryDelayMinutes = 60;
+
+    @Value("${subscription.renewal.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    private final String instanceId = resolveInstanceId();
+    private final Map<GatewayName, Semaphore> gatewayPermits = new EnumMap<>(GatewayName.class);
+
+    /**
+     * Renew every due subscription payment visible to this instance.
+     *
+     * @return counters for the run, also logged with the achieved throughput
+     */
+    public RenewalRunStats processDueRenewals() {
+        RenewalRunStats stats = new RenewalRunStats();
+        LocalDateTime now = LocalDateTime.now();
+        long startedAt = System.nanoTime();
+        int afterId = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Semaphore inFlight = new Semaphore(maxConcurrency);
+
+            while (true) {
+                List<RenewalCandidateProjection> chunk = paymentRepository.findRenewalCandidatesAfter(
+                        now, afterId, PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
+
+                List<Future<?>> futures = new ArrayList<>(chunk.size());
+                for (RenewalCandidateProjection candidate : chunk) {
+                    inFlight.acquireUninterruptibly();
+                    futures.add(executor.submit(() -> {
+                        try {
+                            renewOne(candidate, stats);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                }
+                awaitChunk(futures);
+            }
+        }
+
+        stats.elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        log.info("Subscription renewal run on {} finished: {} candidates, {} renewed, {} failed, {} skipped in {} ms ({} renewals/s)",
+                instanceId, stats.getCandidates(), stats.getRenewed(), stats.getFailed(), stats.getSkipped(),
+                stats.getElapsedMillis(), String.format("%.1f", stats.getThroughputPerSecond()));
+        return stats;
+    }
+
+    private void renewOne(RenewalCandidateProjection candidate, RenewalRunStats stats) {
+        int paymentId = candidate.getId();
+        stats.candidates.incrementAndGet();
+
+        Integer claimed = writeTransactionTemplate.execute(status -> claimRepository.claim(
+                paymentId, instanceId, LocalDateTime.now(), LocalDateTime.now().plusMinutes(leaseMinutes), maxAttempts));
+        if (claimed == null || claimed == 0) {
+            log.debug("Payment {} is claimed elsewhere or exhausted its attempts, skipping", paymentId);
+            stats.skipped.incrementAndGet();
+            return;
+        }
+
+        Payment charged = null;
+        try {
+            if (candidate.getGateway() == null) {
+                throw new IllegalStateException("Payment has no gateway to renew with");
+            }
+            Payment payment = writeTransactionTemplate.execute(status -> loadRenewable(paymentId));
+            if (payment == null) {
+                stats.skipped.incrementAndGet();
+                return;
+            }
+
+            // No transaction is open here, so a slow gateway holds no pooled connection
+            Semaphore gatewayPermit = permitsFor(candidate.getGateway());
+            gatewayPermit.acquireUninterruptibly();
+            try {
+                log.debug("Attempting to renew payment ID: {}", paymentId);
+                charged = paymentService.chargeRenewal(payment);
+            } finally {
+                gatewayPermit.release();
+            }
+            if (charged == null) {
+                throw new IllegalStateException("Gateway returned no renewal payment");
+            }
+
+            Payment renewal = charged;
+            writeTransactionTemplate.executeWithoutResult(status -> completeRenewal(paymentId, renewal));
+            stats.renewed.incrementAndGet();
+        } catch (Exception e) {
+            stats.failed.incrementAndGet();
+            String message = e.getMessage() != null && e.getMessage().length() > 500
+                    ? e.getMessage().substring(0, 500)
+                    : e.getMessage();
+            if (charged != null) {
+                // The customer has paid; retrying would charge them again
+                log.error("Payment ID: {} went through at {} ({}) but recording the renewal failed; "
+                        + "needs reconciliation", paymentId, candidate.getGateway(), charged.getPaymentId(), e);
+                String gatewayPaymentId = charged.getPaymentId();
+                writeTransactionTemplate.executeWithoutResult(status -> claimRepository.markChargedUnrecorded(
+                        paymentId, instanceId, gatewayPaymentId, message, LocalDateTime.now()));
+            } else {
+                log.error("Error renewing payment ID: {}", paymentId, e);
+                writeTransactionTemplate.executeWithoutResult(status -> claimRepository.markFailed(
+                        paymentId, instanceId, message, LocalDateTime.now().plusMinutes(retryDelayMinutes),
+                        LocalDateTime.now()));
+            }
+        }
+    }
+
+    /**
+     * Load a claimed payment if it still needs renewing, otherwise release
+     * the claim and return null.
+     */
+    private Payment loadRenewable(int paymentId) {
+        Payment payment = paymentRepository.findById(paymentId).orElse(null);
+        if (payment == null || payment.getStatus() != PaymentStatus.PENDING) {
+            claimRepository.release(paymentId, instanceId);
+            return null;
+        }
+
+        // Only the payment backing the user's current subscription is renewed
+        UserSubscription currentSubscription = subscriptionStateManager.getCurrentSubscription(payment.getUser());
+        if (currentSubscription == null || currentSubscription.getPayment() == null
+                || !currentSubscription.getPayment().getId().equals(payment.getId())) {
+            claimRepository.release(paymentId, instanceId);
+            return null;
+        }
+        return payment;
+    }
+
+    /**
+     * Record a renewal the gateway has accepted. Runs inside its own short
+     * transaction; the claim is marked RENEWED in that same transaction so a
+     * crash cannot leave a recorded renewal claimable again.
+     */
+    private void completeRenewal(int paymentId, Payment charged) {
+        // The user was loaded in an earlier transaction; fulfilment needs it managed
+        paymentRepository.findById(paymentId).ifPresent(payment -> charged.setUser(payment.getUser()));
+        Payment renewedPayment;
+        try {
+            renewedPayment = paymentService.completeRenewal(charged);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+
+        claimRepository.markRenewed(paymentId, instanceId, renewedPayment.getId(), LocalDateTime.now());
+        log.info("Successfully renewed payment ID: {}", paymentId);
+
+        User user = renewedPayment.getUser();
+        try {
+            UserSubscription renewedSubscription = subscriptionStateManager.getCurrentSubscription(user);
+            if (renewedSubscription != null) {
+                asyncNotificationHelper.sendSubscriptionRenewalNotificationAsync(user, renewedSubscription);
+                log.debug("Sent renewal notification to user: {}", user.getEmail());
+            }
+        } catch (Exception e) {
+            log.error("Failed to send renewal notification to user: {} - Error: {}",
+                    user.getEmail(), e.getMessage(), e);
+        }
+    }
+
+    private void awaitChunk(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Subscription renewal run was interrupted", e);
+            } catch (ExecutionException e) {
+                log.error("Unexpected error in renewal task", e.getCause());
+            }
+        }
+    }
+
+    private Semaphore permitsFor(GatewayName gateway) {
+        synchronized (gatewayPermits) {
+            return gatewayPermits.computeIfAbsent(gateway, g -> new Semaphore(gatewayConcurrency));
+        }
+    }
+
+    private static String resolveInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Counters for one renewal run.
+     */
+    public static class RenewalRunStats {
+        private final AtomicInteger candidates = new AtomicInteger();
+        private final AtomicInteger renewed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private long elapsedMillis;
+
+        public int getCandidates() {
+            return candidates.get();
+        }
+
+        public int getRenewed() {
+            return renewed.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getThroughputPerSecond() {
+            return elapsedMillis > 0 ? renewed.get() * 1000.0 / elapsedMillis : renewed.get();
+        }
+    }
+}
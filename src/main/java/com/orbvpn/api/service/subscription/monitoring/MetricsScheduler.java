@@ -2,17 +2,28 @@ package com.orbvpn.api.service.subscription.monitoring;
 
 import com.orbvpn.api.domain.enums.GatewayName;
 import com.orbvpn.api.repository.UserSubscriptionRepository;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 import java.math.BigDecimal;
-
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes subscription counts as gauges.
+ *
+ * Every gauge is registered once and reads an {@link AtomicLong} held by this
+ * bean; the scheduled refresh only updates those values. Micrometer holds
+ * gauge state weakly, so the holders must stay referenced here.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
@@ -20,32 +31,54 @@ public class MetricsScheduler {
     private final UserSubscriptionRepository subscriptionRepository;
     private final MeterRegistry meterRegistry;
 
+    private final AtomicLong activeCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong trialCount = new AtomicLong();
+    private final AtomicLong autoRenewCount = new AtomicLong();
+    private final AtomicLong expiringIn24h = new AtomicLong();
+    private final AtomicLong expiringIn7d = new AtomicLong();
+
+    private final Map<GatewayName, AtomicLong> gatewayCounts = new EnumMap<>(GatewayName.class);
+    private final Map<GatewayName, AtomicLong> gatewayWithPriceCounts = new EnumMap<>(GatewayName.class);
+    // Average price stored as raw double bits so it can live in an AtomicLong
+    private final Map<GatewayName, AtomicLong> gatewayAveragePrices = new EnumMap<>(GatewayName.class);
+
+    @PostConstruct
+    void registerGauges() {
+        registerGauge("subscription.active.count", Tags.empty(), activeCount);
+        registerGauge("subscription.expired.count", Tags.empty(), expiredCount);
+        registerGauge("subscription.trial.count", Tags.empty(), trialCount);
+        registerGauge("subscription.auto_renew.count", Tags.empty(), autoRenewCount);
+        registerGauge("subscription.expiring.24h", Tags.empty(), expiringIn24h);
+        registerGauge("subscription.expiring.7d", Tags.empty(), expiringIn7d);
+
+        for (GatewayName gateway : GatewayName.values()) {
+            Tags tags = Tags.of("gateway", gateway.name().toLowerCase());
+            gatewayCounts.put(gateway, registerGauge("subscription.gateway.count", tags, new AtomicLong()));
+            gatewayWithPriceCounts.put(gateway,
+                    registerGauge("subscription.gateway.with_price.count", tags, new AtomicLong()));
+
+            AtomicLong averagePrice = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+            gatewayAveragePrices.put(gateway, averagePrice);
+            Gauge.builder("subscription.gateway.average_price", averagePrice, v -> Double.longBitsToDouble(v.get()))
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+    }
+
     @Scheduled(fixedRate = 300000) // Every 5 minutes
     public void updateMetrics() {
         try {
             // Basic subscription counts
-            long activeCount = subscriptionRepository.countActiveSubscriptions();
-            long expiredCount = subscriptionRepository.countExpiredSubscriptions();
-            long trialCount = subscriptionRepository.countTrialSubscriptions();
-
-            // Register metrics
-            meterRegistry.gauge("subscription.active.count", activeCount);
-            meterRegistry.gauge("subscription.expired.count", expiredCount);
-            meterRegistry.gauge("subscription.trial.count", trialCount);
-
-            // Additional metrics
-            long autoRenewCount = subscriptionRepository.countAutoRenewSubscriptions();
-            meterRegistry.gauge("subscription.auto_renew.count", autoRenewCount);
+            activeCount.set(subscriptionRepository.countActiveSubscriptions());
+            expiredCount.set(subscriptionRepository.countExpiredSubscriptions());
+            trialCount.set(subscriptionRepository.countTrialSubscriptions());
+            autoRenewCount.set(subscriptionRepository.countAutoRenewSubscriptions());
 
             // Expiring soon metrics
             LocalDateTime now = LocalDateTime.now();
-            long expiringIn24h = subscriptionRepository.countSubscriptionsExpiringBetween(
-                    now, now.plusHours(24));
-            long expiringIn7d = subscriptionRepository.countSubscriptionsExpiringBetween(
-                    now, now.plusDays(7));
-
-            meterRegistry.gauge("subscription.expiring.24h", expiringIn24h);
-            meterRegistry.gauge("subscription.expiring.7d", expiringIn7d);
+            expiringIn24h.set(subscriptionRepository.countSubscriptionsExpiringBetween(now, now.plusHours(24)));
+            expiringIn7d.set(subscriptionRepository.countSubscriptionsExpiringBetween(now, now.plusDays(7)));
 
             // Gateway-specific metrics using enum
             updateGatewayMetrics();
@@ -60,27 +93,12 @@ public class MetricsScheduler {
     private void updateGatewayMetrics() {
         try {
             for (GatewayName gateway : GatewayName.values()) {
-                // Existing count metrics
-                long count = subscriptionRepository.countActiveSubscriptionsByGateway(gateway);
-                meterRegistry.gauge("subscription.gateway.count",
-                        Tags.of("gateway", gateway.name().toLowerCase()),
-                        count);
-
-                // Add price metrics
-                long withPriceCount = subscriptionRepository
-                        .countActiveSubscriptionsWithPrice(gateway);
-                BigDecimal avgPrice = subscriptionRepository
-                        .getAveragePriceByGateway(gateway);
-
-                meterRegistry.gauge("subscription.gateway.with_price.count",
-                        Tags.of("gateway", gateway.name().toLowerCase()),
-                        withPriceCount);
-
-                if (avgPrice != null) {
-                    meterRegistry.gauge("subscription.gateway.average_price",
-                            Tags.of("gateway", gateway.name().toLowerCase()),
-                            avgPrice.doubleValue());
-                }
+                gatewayCounts.get(gateway).set(subscriptionRepository.countActiveSubscriptionsByGateway(gateway));
+                gatewayWithPriceCounts.get(gateway).set(subscriptionRepository.countActiveSubscriptionsWithPrice(gateway));
+
+                BigDecimal avgPrice = subscriptionRepository.getAveragePriceByGateway(gateway);
+                gatewayAveragePrices.get(gateway).set(Double.doubleToLongBits(
+                        avgPrice != null ? avgPrice.doubleValue() : Double.NaN));
             }
 
             // Log summary with price information
@@ -92,31 +110,36 @@ public class MetricsScheduler {
                     - PayPal: {} (with price: {}, avg: {})
                     - Other: {}
                     """,
-                    subscriptionRepository.countActiveSubscriptionsByGateway(GatewayName.GOOGLE_PLAY),
-                    subscriptionRepository.countActiveSubscriptionsWithPrice(GatewayName.GOOGLE_PLAY),
-                    subscriptionRepository.getAveragePriceByGateway(GatewayName.GOOGLE_PLAY),
-                    subscriptionRepository.countActiveSubscriptionsByGateway(GatewayName.APPLE_STORE),
-                    subscriptionRepository.countActiveSubscriptionsWithPrice(GatewayName.APPLE_STORE),
-                    subscriptionRepository.getAveragePriceByGateway(GatewayName.APPLE_STORE),
-                    subscriptionRepository.countActiveSubscriptionsByGateway(GatewayName.STRIPE),
-                    subscriptionRepository.countActiveSubscriptionsWithPrice(GatewayName.STRIPE),
-                    subscriptionRepository.getAveragePriceByGateway(GatewayName.STRIPE),
-                    subscriptionRepository.countActiveSubscriptionsByGateway(GatewayName.PAYPAL),
-                    subscriptionRepository.countActiveSubscriptionsWithPrice(GatewayName.PAYPAL),
-                    subscriptionRepository.getAveragePriceByGateway(GatewayName.PAYPAL),
+                    gatewayCounts.get(GatewayName.GOOGLE_PLAY), gatewayWithPriceCounts.get(GatewayName.GOOGLE_PLAY),
+                    averagePrice(GatewayName.GOOGLE_PLAY),
+                    gatewayCounts.get(GatewayName.APPLE_STORE), gatewayWithPriceCounts.get(GatewayName.APPLE_STORE),
+                    averagePrice(GatewayName.APPLE_STORE),
+                    gatewayCounts.get(GatewayName.STRIPE), gatewayWithPriceCounts.get(GatewayName.STRIPE),
+                    averagePrice(GatewayName.STRIPE),
+                    gatewayCounts.get(GatewayName.PAYPAL), gatewayWithPriceCounts.get(GatewayName.PAYPAL),
+                    averagePrice(GatewayName.PAYPAL),
                     countOtherGateways());
         } catch (Exception e) {
             log.error("Failed to update gateway metrics", e);
         }
     }
 
+    private AtomicLong registerGauge(String name, Tags tags, AtomicLong value) {
+        Gauge.builder(name, value, AtomicLong::get).tags(tags).register(meterRegistry);
+        return value;
+    }
+
+    private double averagePrice(GatewayName gateway) {
+        return Double.longBitsToDouble(gatewayAveragePrices.get(gateway).get());
+    }
+
     private long countOtherGateways() {
-        return Arrays.stream(GatewayName.values())
-                .filter(gateway -> !gateway.equals(GatewayName.GOOGLE_PLAY)
-                        && !gateway.equals(GatewayName.APPLE_STORE)
-                        && !gateway.equals(GatewayName.STRIPE)
-                        && !gateway.equals(GatewayName.PAYPAL))
-                .mapToLong(gateway -> subscriptionRepository.countActiveSubscriptionsByGateway(gateway))
+        return gatewayCounts.entrySet().stream()
+                .filter(entry -> entry.getKey() != GatewayName.GOOGLE_PLAY
+                        && entry.getKey() != GatewayName.APPLE_STORE
+                        && entry.getKey() != GatewayName.STRIPE
+                        && entry.getKey() != GatewayName.PAYPAL)
+                .mapToLong(entry -> entry.getValue().get())
                 .sum();
     }
 }
@@ -3,9 +3,11 @@ package com.orbvpn.api.service.subscription.utils;
 import com.orbvpn.api.domain.entity.TransactionUserMapping;
 import com.orbvpn.api.domain.entity.User;
 import com.orbvpn.api.domain.enums.GatewayName;
+import com.orbvpn.api.event.TransactionMappingChangedEvent;
 import com.orbvpn.api.repository.TransactionUserMappingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,6 +18,7 @@ import java.util.Optional;
 @Slf4j
 public class TransactionMappingService {
     private final TransactionUserMappingRepository transactionUserMappingRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Ensures a mapping exists for the given user, token, and gateway.
@@ -36,6 +39,7 @@ public class TransactionMappingService {
                 if (!token.equals(mapping.getTransactionId())) {
                     mapping.setTransactionId(token);
                     transactionUserMappingRepository.save(mapping);
+                    eventPublisher.publishEvent(new TransactionMappingChangedEvent(this, token, gateway));
                     log.info("Updated existing email mapping for user: {} with new token: {}",
                             user.getEmail(), token);
                 }
@@ -53,6 +57,7 @@ public class TransactionMappingService {
                     mapping.setUser(user);
                     mapping.setEmail(user.getEmail());
                     transactionUserMappingRepository.save(mapping);
+                    eventPublisher.publishEvent(new TransactionMappingChangedEvent(this, token, gateway));
                     log.info("Updated existing token mapping for user: {} with token: {}",
                             user.getEmail(), token);
                 }
@@ -66,6 +71,7 @@ public class TransactionMappingService {
             newMapping.setTransactionId(token);
             newMapping.setGateway(gateway);
             transactionUserMappingRepository.save(newMapping);
+            eventPublisher.publishEvent(new TransactionMappingChangedEvent(this, token, gateway));
             log.info("Created new transaction mapping for user: {} with token: {}",
                     user.getEmail(), token);
         } catch (Exception e) {
@@ -0,0 +1,82 @@
+package com.orbvpn.api.service.token;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recomputes every token balance from the ledger and reports users whose
+ * stored balance differs from the sum of their ledger rows.
+ *
+ * Each page is read in one statement, so a balance and its ledger rows come
+ * from the same snapshot and changes committed while the check runs do not
+ * show up as drift. Balances changed before all writes went through
+ * {@link TokenLedgerService} will be reported until an adjustment is booked.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenLedgerConsistencyChecker {
+
+    static final int PAGE_SIZE = 1_000;
+    private static final int MAX_REPORTED = 1_000;
+
+    private static final String PAGE_SQL = "SELECT b.user_id, b.balance, COALESCE(l.total, 0) AS ledger_total "
+            + "FROM token_balances b "
+            + "LEFT JOIN LATERAL (SELECT SUM(t.amount) AS total FROM token_transaction t "
+            + "WHERE t.user_id = b.user_id) l ON true "
+            + "WHERE b.user_id > ? ORDER BY b.user_id LIMIT ?";
+
+    public record Drift(int userId, BigDecimal balance, BigDecimal ledgerTotal) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Scheduled(cron = "${token.ledger.check-cron:0 45 3 * * *}")
+    @SchedulerLock(name = "checkTokenLedger", lockAtLeastFor = "1m", lockAtMostFor = "2h")
+    public void scheduledCheck() {
+        List<Drift> drifts = check();
+        if (drifts.isEmpty()) {
+            log.info("Token ledger check passed");
+            return;
+        }
+        log.warn("Token ledger check found {}{} balances that differ from the ledger",
+                drifts.size(), drifts.size() >= MAX_REPORTED ? "+" : "");
+        drifts.stream().limit(20).forEach(drift -> log.warn("User {}: balance {}, ledger total {}",
+                drift.userId(), drift.balance(), drift.ledgerTotal()));
+    }
+
+    /**
+     * @return up to {@value #MAX_REPORTED} users whose balance differs from
+     *         their ledger total, in user id order
+     */
+    public List<Drift> check() {
+        List<Drift> drifts = new ArrayList<>();
+        int lastUserId = 0;
+        int checked = 0;
+        while (drifts.size() < MAX_REPORTED) {
+            List<Drift> page = jdbcTemplate.query(PAGE_SQL, (rs, rowNum) -> new Drift(
+                    rs.getInt("user_id"), rs.getBigDecimal("balance"), rs.getBigDecimal("ledger_total")),
+                    lastUserId, PAGE_SIZE);
+            for (Drift row : page) {
+                if (row.balance().compareTo(row.ledgerTotal()) != 0 && drifts.size() < MAX_REPORTED) {
+                    drifts.add(row);
+                }
+            }
+            checked += page.size();
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            lastUserId = page.get(page.size() - 1).userId();
+        }
+        log.debug("Checked {} token balances against the ledger, {} differ", checked, drifts.size());
+        return drifts;
+    }
+}
@@ -0,0 +1,221 @@
+package com.orbvpn.api.service.token;
+
+import com.orbvpn.api.domain.entity.TokenBalance;
+import com.orbvpn.api.domain.enums.TokenTransactionType;
+import com.orbvpn.api.exception.InsufficientTokensException;
+import com.orbvpn.api.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The only write path for token balances. Every change appends a row to the
+ * token_transaction ledger and applies the same delta to token_balances in
+ * SQL within one transaction, so concurrent changes to a balance serialize
+ * on its row lock instead of overwriting each other. Debits are conditional
+ * on the balance covering them and never take it below zero.
+ *
+ * Balances returned here are detached snapshots of the row after the change;
+ * a TokenBalance loaded earlier in the same transaction is not refreshed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenLedgerService {
+
+    static final int BATCH_SIZE = 500;
+
+    private static final String ENSURE_BALANCE_SQL = "INSERT INTO token_balances "
+            + "(user_id, balance, last_activity_date, created_at, updated_at) VALUES (?, 0, ?, ?, ?) "
+            + "ON CONFLICT (user_id) DO NOTHING";
+
+    private static final String APPLY_SQL = "UPDATE token_balances "
+            + "SET balance = balance + ?, last_activity_date = ?, updated_at = ? "
+            + "WHERE user_id = ? AND balance + ? >= 0 "
+            + "RETURNING id, balance, created_at";
+
+    private static final String CREDIT_SQL = "UPDATE token_balances "
+            + "SET balance = balance + ?, last_activity_date = ?, updated_at = ? WHERE user_id = ?";
+
+    private static final String APPEND_SQL = "INSERT INTO token_transaction "
+            + "(user_id, amount, type, ad_vendor, region, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Rows whose reference is already in the ledger are skipped; RETURNING gives exactly the ones appended
+    private static final String APPEND_BATCH_SQL = "INSERT INTO token_transaction "
+            + "(user_id, amount, type, reference, created_at) "
+            + "SELECT c.user_id, c.amount, ?, c.reference, ? "
+            + "FROM unnest(?::integer[], ?::numeric[], ?::varchar[]) AS c(user_id, amount, reference) "
+            + "ON CONFLICT (reference) DO NOTHING "
+            + "RETURNING user_id, amount, reference";
+
+    private static final String LOCK_BALANCE_SQL = "SELECT balance FROM token_balances WHERE user_id = ? FOR UPDATE";
+
+    /**
+     * One entry of a batched credit. A non-null reference makes the credit
+     * idempotent: it is applied only if no ledger row has that reference yet.
+     */
+    public record Credit(int userId, BigDecimal amount, String reference) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+
+    @Transactional
+    public TokenBalance credit(Integer userId, BigDecimal amount, TokenTransactionType type) {
+        return credit(userId, amount, type, null, null);
+    }
+
+    /**
+     * Adds tokens, creating the balance row if the user has none yet.
+     */
+    @Transactional
+    public TokenBalance credit(Integer userId, BigDecimal amount, TokenTransactionType type,
+            String adVendor, String region) {
+        requireNonNegative(amount);
+        return apply(userId, amount, type, adVendor, region);
+    }
+
+    @Transactional
+    public TokenBalance debit(Integer userId, BigDecimal amount, TokenTransactionType type) {
+        return debit(userId, amount, type, null, null);
+    }
+
+    /**
+     * Removes tokens if the balance covers the amount.
+     *
+     * @throws InsufficientTokensException if it does not; nothing is written
+     */
+    @Transactional
+    public TokenBalance debit(Integer userId, BigDecimal amount, TokenTransactionType type,
+            String adVendor, String region) {
+        requireNonNegative(amount);
+        return apply(userId, amount.negate(), type, adVendor, region);
+    }
+
+    /**
+     * Removes as much of the amount as the balance covers, for charges that
+     * are owed whether or not the user can pay them in full.
+     *
+     * @return the amount actually debited, possibly zero
+     */
+    @Transactional
+    public BigDecimal debitUpTo(Integer userId, BigDecimal amount, TokenTransactionType type) {
+        requireNonNegative(amount);
+        BigDecimal available = jdbcTemplate.query(LOCK_BALANCE_SQL,
+                rs -> rs.next() ? rs.getBigDecimal(1) : BigDecimal.ZERO, userId);
+        BigDecimal charged = amount.min(available);
+        if (charged.signum() > 0) {
+            apply(userId, charged.negate(), type, null, null);
+        }
+        return charged;
+    }
+
+    /**
+     * Credits many users at once: one set-based ledger insert and batched
+     * balance updates per {@value #BATCH_SIZE} entries, applied in user id
+     * order so concurrent batches cannot deadlock. Credits with a reference
+     * that is already in the ledger are skipped, which makes reruns of a
+     * partially applied distribution safe.
+     *
+     * @return the credits applied, without the skipped ones
+     */
+    @Transactional
+    public List<Credit> creditAll(List<Credit> credits, TokenTransactionType type) {
+        List<Credit> sorted = credits.stream()
+                .filter(credit -> credit.amount() != null && credit.amount().signum() > 0)
+                .sorted(Comparator.comparingInt(Credit::userId))
+                .toList();
+        if (sorted.isEmpty()) {
+            return List.of();
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Credit> applied = new ArrayList<>();
+        for (int from = 0; from < sorted.size(); from += BATCH_SIZE) {
+            List<Credit> chunk = sorted.subList(from, Math.min(from + BATCH_SIZE, sorted.size()));
+            List<Credit> appended = append(chunk, type, now);
+            if (appended.isEmpty()) {
+                continue;
+            }
+            applied.addAll(appended);
+
+            Map<Integer, BigDecimal> deltas = new TreeMap<>();
+            appended.forEach(credit -> deltas.merge(credit.userId(), credit.amount(), BigDecimal::add));
+            List<Integer> userIds = new ArrayList<>(deltas.keySet());
+            jdbcTemplate.batchUpdate(ENSURE_BALANCE_SQL, userIds, userIds.size(), (ps, userId) -> {
+                ps.setInt(1, userId);
+                ps.setTimestamp(2, now);
+                ps.setTimestamp(3, now);
+                ps.setTimestamp(4, now);
+            });
+            List<Map.Entry<Integer, BigDecimal>> updates = new ArrayList<>(deltas.entrySet());
+            jdbcTemplate.batchUpdate(CREDIT_SQL, updates, updates.size(), (ps, delta) -> {
+                ps.setBigDecimal(1, delta.getValue());
+                ps.setTimestamp(2, now);
+                ps.setTimestamp(3, now);
+                ps.setInt(4, delta.getKey());
+            });
+        }
+        log.debug("Applied {} of {} {} credits", applied.size(), sorted.size(), type);
+        return applied;
+    }
+
+    private List<Credit> append(List<Credit> chunk, TokenTransactionType type, Timestamp now) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(APPEND_BATCH_SQL);
+            ps.setString(1, type.name());
+            ps.setTimestamp(2, now);
+            ps.setArray(3, con.createArrayOf("integer", chunk.stream().map(Credit::userId).toArray()));
+            ps.setArray(4, con.createArrayOf("numeric", chunk.stream().map(Credit::amount).toArray()));
+            ps.setArray(5, con.createArrayOf("varchar", chunk.stream().map(Credit::reference).toArray()));
+            return ps;
+        }, (rs, rowNum) -> new Credit(rs.getInt("user_id"), rs.getBigDecimal("amount"), rs.getString("reference")));
+    }
+
+    private TokenBalance apply(Integer userId, BigDecimal delta, TokenTransactionType type,
+            String adVendor, String region) {
+        LocalDateTime now = LocalDateTime.now();
+        TokenBalance balance = update(userId, delta, now);
+        if (balance == null && delta.signum() >= 0) {
+            jdbcTemplate.update(ENSURE_BALANCE_SQL, userId, Timestamp.valueOf(now), Timestamp.valueOf(now),
+                    Timestamp.valueOf(now));
+            balance = update(userId, delta, now);
+        }
+        if (balance == null) {
+            throw new InsufficientTokensException("Insufficient tokens. Required: " + delta.negate());
+        }
+        jdbcTemplate.update(APPEND_SQL, userId, delta, type.name(), adVendor, region, Timestamp.valueOf(now));
+        return balance;
+    }
+
+    private TokenBalance update(Integer userId, BigDecimal delta, LocalDateTime now) {
+        Timestamp at = Timestamp.valueOf(now);
+        List<TokenBalance> rows = jdbcTemplate.query(APPLY_SQL, (rs, rowNum) -> TokenBalance.builder()
+                .id(rs.getLong("id"))
+                .user(userRepository.getReferenceById(userId))
+                .balance(rs.getBigDecimal("balance"))
+                .lastActivityDate(now)
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .updatedAt(now)
+                .build(), delta, at, at, userId, delta);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static void requireNonNegative(BigDecimal amount) {
+        if (amount == null || amount.signum() < 0) {
+            throw new IllegalArgumentException("Token amount must not be negative");
+        }
+    }
+}
@@ -4,6 +4,10 @@ import com.orbvpn.api.domain.entity.WebhookDelivery;
 import com.orbvpn.api.domain.entity.WebhookDeliveryAttempt;
 import com.orbvpn.api.repository.WebhookDeliveryAttemptRepository;
 import com.orbvpn.api.repository.WebhookDeliveryRepository;
+import com.orbvpn.api.service.common.DownstreamBulkhead;
+import com.orbvpn.api.service.common.DownstreamBulkhead.Downstream;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpEntity;
@@ -26,6 +30,8 @@ public class WebhookDeliveryService {
     private final WebhookDeliveryRepository deliveryRepository;
     private final WebhookDeliveryAttemptRepository attemptRepository;
     private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+    private final DownstreamBulkhead bulkhead;
     private static final int MAX_RETRIES = 5;
     private static final Duration[] RETRY_DELAYS = {
             Duration.ofSeconds(30),
@@ -38,6 +44,8 @@ public class WebhookDeliveryService {
     @Async
     public void deliverWebhook(WebhookDelivery delivery) {
         LocalDateTime start = LocalDateTime.now();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
         WebhookDeliveryAttempt attempt = new WebhookDeliveryAttempt();
         attempt.setDelivery(delivery);
 
@@ -47,10 +55,13 @@ public class WebhookDeliveryService {
 
             // Send request
             HttpEntity<String> request = new HttpEntity<>(delivery.getPayload(), headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                    delivery.getWebhook().getEndpoint(),
-                    request,
-                    String.class);
+            ResponseEntity<String> response;
+            try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.HTTP)) {
+                response = restTemplate.postForEntity(
+                        delivery.getWebhook().getEndpoint(),
+                        request,
+                        String.class);
+            }
 
             // Record response
             attempt.setStatusCode(response.getStatusCode().value());
@@ -59,7 +70,9 @@ public class WebhookDeliveryService {
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 delivery.setStatus("DELIVERED");
+                outcome = "delivered";
             } else {
+                outcome = "non_2xx";
                 handleDeliveryError(delivery, attempt,
                         "Non-200 response: " + response.getStatusCode().value());
             }
@@ -67,7 +80,8 @@ public class WebhookDeliveryService {
         } catch (Exception e) {
             handleDeliveryError(delivery, attempt, e.getMessage());
         } finally {
-            // Record timing
+            // Record timing; the endpoint is deliberately not a tag, it is unbounded
+            sample.stop(meterRegistry.timer("webhook.delivery.http", "outcome", outcome));
             attempt.setResponseTimeMs(
                     Duration.between(start, LocalDateTime.now()).toMillis());
             attemptRepository.save(attempt);
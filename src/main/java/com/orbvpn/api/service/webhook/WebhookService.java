@@ -11,6 +11,8 @@ import com.orbvpn.api.event.UserDeletedEvent;
 import com.orbvpn.api.exception.NotFoundException;
 import com.orbvpn.api.repository.WebhookConfigurationRepository;
 import com.orbvpn.api.repository.WebhookDeliveryRepository;
+import com.orbvpn.api.service.common.DownstreamBulkhead;
+import com.orbvpn.api.service.common.DownstreamBulkhead.Downstream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -42,6 +44,7 @@ public class WebhookService {
     private final WebhookDeliveryRepository webhookDeliveryRepository;
     private final ObjectMapper objectMapper;
     private final RestTemplate restTemplate;
+    private final DownstreamBulkhead bulkhead;
 
     private static final int MAX_RETRIES = 3;
     private static final long[] RETRY_DELAYS = { 30, 120, 300 }; // Delays in seconds
@@ -484,10 +487,13 @@ public class WebhookService {
             HttpEntity<String> request = new HttpEntity<>(delivery.getPayload(), headers);
 
             LocalDateTime startTime = LocalDateTime.now();
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                    delivery.getWebhook().getEndpoint(),
-                    request,
-                    String.class);
+            ResponseEntity<String> response;
+            try (DownstreamBulkhead.Permit ignored = bulkhead.acquire(Downstream.HTTP)) {
+                response = restTemplate.postForEntity(
+                        delivery.getWebhook().getEndpoint(),
+                        request,
+                        String.class);
+            }
             Duration requestDuration = Duration.between(startTime, LocalDateTime.now());
 
             delivery.setLastAttempt(LocalDateTime.now());
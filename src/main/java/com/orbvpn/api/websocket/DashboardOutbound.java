@@ -0,0 +1,163 @@
+package com.orbvpn.api.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound side of one dashboard connection. Messages are queued and written
+ * by one task at a time, so callers never wait on the socket and the session
+ * never sees concurrent sends.
+ *
+ * Alerts and command replies keep their order and are capped at the buffer
+ * size; a client that falls that far behind loses the oldest. Dashboard
+ * snapshots replace each other, so a slow client only receives the latest.
+ * A send still running after the send time limit marks the client as stuck,
+ * and it is closed the next time something is queued for it.
+ */
+@Slf4j
+class DashboardOutbound {
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final int bufferSize;
+    private final long sendTimeLimitNanos;
+    private final Runnable onClose;
+
+    // Guarded by this
+    private final Deque<TextMessage> queue = new ArrayDeque<>();
+    private TextMessage snapshot;
+    private boolean draining;
+
+    // When the send in progress started, 0 while idle
+    private volatile long sendStartedNanos;
+    private volatile boolean alertsEnabled;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+
+    DashboardOutbound(WebSocketSession session, Executor executor, int bufferSize, long sendTimeLimitMillis,
+            Runnable onClose) {
+        this.session = session;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.sendTimeLimitNanos = sendTimeLimitMillis * 1_000_000;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Queue a message behind the ones already waiting, dropping the oldest
+     * if the buffer is full.
+     */
+    void send(TextMessage message) {
+        synchronized (this) {
+            if (queue.size() >= bufferSize) {
+                queue.pollFirst();
+                long total = dropped.incrementAndGet();
+                if (total == 1 || total % 1_000 == 0) {
+                    log.debug("Dashboard session {} is behind, {} messages dropped so far", session.getId(), total);
+                }
+            }
+            queue.addLast(message);
+        }
+        schedule();
+    }
+
+    /**
+     * Replace any snapshot not yet sent; it goes out after the queued messages.
+     */
+    void sendSnapshot(TextMessage message) {
+        synchronized (this) {
+            snapshot = message;
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (isStuck()) {
+            log.warn("Dashboard session {} has been sending for over {} ms, closing it",
+                    session.getId(), sendTimeLimitNanos / 1_000_000);
+            close(CloseStatus.SESSION_NOT_RELIABLE);
+            return;
+        }
+        synchronized (this) {
+            if (draining || closed.get()) {
+                return;
+            }
+            draining = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    private void drain() {
+        while (true) {
+            TextMessage next;
+            synchronized (this) {
+                next = queue.pollFirst();
+                if (next == null) {
+                    next = snapshot;
+                    snapshot = null;
+                }
+                if (next == null || closed.get()) {
+                    draining = false;
+                    return;
+                }
+            }
+
+            sendStartedNanos = System.nanoTime();
+            try {
+                session.sendMessage(next);
+            } catch (Exception e) {
+                log.debug("Failed to send to dashboard session {}: {}", session.getId(), e.getMessage());
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+            } finally {
+                sendStartedNanos = 0;
+            }
+        }
+    }
+
+    private boolean isStuck() {
+        long startedAt = sendStartedNanos;
+        return startedAt != 0 && System.nanoTime() - startedAt > sendTimeLimitNanos;
+    }
+
+    /**
+     * Stop sending and close the connection. The close runs on the executor
+     * because a stuck socket may block it as well.
+     */
+    void close(CloseStatus status) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (this) {
+            queue.clear();
+            snapshot = null;
+        }
+        onClose.run();
+        executor.execute(() -> {
+            try {
+                session.close(status);
+            } catch (Exception e) {
+                log.debug("Error closing dashboard session {}: {}", session.getId(), e.getMessage());
+            }
+        });
+    }
+
+    boolean isAlertsEnabled() {
+        return alertsEnabled;
+    }
+
+    void setAlertsEnabled(boolean alertsEnabled) {
+        this.alertsEnabled = alertsEnabled;
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -3,6 +3,7 @@ package com.orbvpn.api.websocket;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.orbvpn.api.service.ConnectionAdminDashboardService;
 import com.orbvpn.api.domain.dto.AdminDashboardView;
+import com.orbvpn.api.domain.dto.AlertMessage;
 import com.orbvpn.api.service.ConnectionAlertService;
 import com.orbvpn.api.domain.enums.AlertSeverity;
 import com.orbvpn.api.domain.enums.AlertType;
@@ -10,30 +11,65 @@ import com.orbvpn.api.domain.enums.AlertType;
 import com.orbvpn.api.domain.dto.DashboardPreferences;
 import com.orbvpn.api.service.DashboardPreferencesService;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
+/**
+ * Admin dashboard socket. Every connection gets a {@link DashboardOutbound}
+ * that buffers and writes its messages on a virtual thread, so a slow or dead
+ * client never holds up alert processing or the other dashboards.
+ *
+ * The handler subscribes to alerts once and serializes each alert once, then
+ * queues the same message for every session that asked for alerts.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class DashboardWebSocketHandler implements WebSocketHandler {
+    static final String ALERT_SUBSCRIBER_ID = "dashboard-websocket";
+
     private final ObjectMapper objectMapper;
     private final ConnectionAdminDashboardService dashboardService;
     private final ConnectionAlertService alertService;
     private final DashboardPreferencesService preferencesService;
 
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    @Value("${dashboard.websocket.buffer-size:256}")
+    private int bufferSize = 256;
+
+    @Value("${dashboard.websocket.send-time-limit-ms:10000}")
+    private long sendTimeLimitMillis = 10_000;
+
+    private final Map<String, DashboardOutbound> sessions = new ConcurrentHashMap<>();
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PostConstruct
+    public void subscribeToAlerts() {
+        alertService.subscribeToAlerts(ALERT_SUBSCRIBER_ID, this::broadcastAlert);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        alertService.unsubscribeFromAlerts(ALERT_SUBSCRIBER_ID);
+        sessions.values().forEach(outbound -> outbound.close(CloseStatus.GOING_AWAY));
+        sendExecutor.shutdownNow();
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        sessions.put(session.getId(), session);
+        sessions.put(session.getId(), new DashboardOutbound(session, sendExecutor, bufferSize, sendTimeLimitMillis,
+                () -> sessions.remove(session.getId())));
         sendInitialData(session);
     }
 
@@ -52,7 +88,10 @@ public class DashboardWebSocketHandler implements WebSocketHandler {
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) {
         log.error("Transport error for session {}: {}", session.getId(), exception.getMessage(), exception);
-        sessions.remove(session.getId());
+        DashboardOutbound outbound = sessions.get(session.getId());
+        if (outbound != null) {
+            outbound.close(CloseStatus.SERVER_ERROR);
+        }
     }
 
     @Override
@@ -71,7 +110,7 @@ public class DashboardWebSocketHandler implements WebSocketHandler {
             String message = objectMapper.writeValueAsString(Map.of(
                     "type", "INITIAL_DATA",
                     "data", dashboardData));
-            session.sendMessage(new TextMessage(message));
+            sendSnapshot(session, message);
         } catch (Exception e) {
             log.error("Error sending initial data: {}", e.getMessage(), e);
         }
@@ -103,25 +142,15 @@ public class DashboardWebSocketHandler implements WebSocketHandler {
         String message = objectMapper.writeValueAsString(Map.of(
                 "type", "DASHBOARD_UPDATE",
                 "data", dashboardData));
-        session.sendMessage(new TextMessage(message));
+        sendSnapshot(session, message);
     }
 
     private void handleAlertSubscription(WebSocketSession session, DashboardCommand command) {
         try {
             boolean subscribeToAlerts = (boolean) command.getData().getOrDefault("subscribe", false);
-            if (subscribeToAlerts) {
-                alertService.subscribeToAlerts(session.getId(), alert -> {
-                    try {
-                        String message = objectMapper.writeValueAsString(Map.of(
-                                "type", "ALERT",
-                                "data", alert));
-                        session.sendMessage(new TextMessage(message));
-                    } catch (Exception e) {
-                        log.error("Error sending alert: {}", e.getMessage(), e);
-                    }
-                });
-            } else {
-                alertService.unsubscribeFromAlerts(session.getId());
+            DashboardOutbound outbound = sessions.get(session.getId());
+            if (outbound != null) {
+                outbound.setAlertsEnabled(subscribeToAlerts);
             }
         } catch (Exception e) {
             log.error("Error handling alert subscription: {}", e.getMessage(), e);
@@ -140,7 +169,7 @@ public class DashboardWebSocketHandler implements WebSocketHandler {
             String message = objectMapper.writeValueAsString(Map.of(
                     "type", "PREFERENCES_UPDATED",
                     "data", preferences));
-            session.sendMessage(new TextMessage(message));
+            send(session, message);
         } catch (Exception e) {
             log.error("Error updating preferences: {}", e.getMessage(), e);
             sendError(session, "Error updating preferences");
@@ -217,12 +246,52 @@ public class DashboardWebSocketHandler implements WebSocketHandler {
             String message = objectMapper.writeValueAsString(Map.of(
                     "type", "ERROR",
                     "message", errorMessage));
-            session.sendMessage(new TextMessage(message));
+            send(session, message);
         } catch (Exception e) {
             log.error("Error sending error message: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * Queue the alert for every session subscribed to alerts. Only enqueues,
+     * so it returns without waiting on any socket.
+     */
+    void broadcastAlert(AlertMessage alert) {
+        TextMessage message;
+        try {
+            message = new TextMessage(objectMapper.writeValueAsString(Map.of(
+                    "type", "ALERT",
+                    "data", alert)));
+        } catch (Exception e) {
+            log.error("Error serializing alert: {}", e.getMessage(), e);
+            return;
+        }
+        for (DashboardOutbound outbound : sessions.values()) {
+            if (outbound.isAlertsEnabled()) {
+                outbound.send(message);
+            }
+        }
+    }
+
+    private void send(WebSocketSession session, String message) {
+        DashboardOutbound outbound = sessions.get(session.getId());
+        if (outbound != null) {
+            outbound.send(new TextMessage(message));
+        }
+    }
+
+    // Dashboard data is a full snapshot, so a newer one replaces any still waiting
+    private void sendSnapshot(WebSocketSession session, String message) {
+        DashboardOutbound outbound = sessions.get(session.getId());
+        if (outbound != null) {
+            outbound.sendSnapshot(new TextMessage(message));
+        }
+    }
+
+    int sessionCount() {
+        return sessions.size();
+    }
+
     @Data
     public static class DashboardCommand {
         private String type;
@@ -0,0 +1,80 @@
+package com.orbvpn.api.config.startup;
+
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recreates a token_balances table from before the unique index, with
+ * duplicate rows per user, and checks that the startup step merges them and
+ * restores the index.
+ */
+class TokenBalanceUniqueIndexRunnerTest extends PostgresIntegrationTest {
+
+    private static final String PREFIX = "token-balance-index-";
+
+    @Autowired
+    private TokenBalanceUniqueIndexRunner runner;
+
+    private List<Integer> userIds;
+
+    @BeforeAll
+    void createUsers() {
+        cleanup();
+        userIds = insertUsers(PREFIX, 2);
+    }
+
+    @AfterAll
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM token_balances WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+        deleteUsers(PREFIX);
+        // Put the index back even if the test failed half way
+        runner.run();
+    }
+
+    @Test
+    void mergesDuplicateBalancesAndAddsTheIndex() {
+        jdbcTemplate.execute("ALTER TABLE token_balances DROP CONSTRAINT " + TokenBalanceUniqueIndexRunner.CONSTRAINT);
+        int duplicated = userIds.get(0);
+        int single = userIds.get(1);
+        LocalDateTime now = LocalDateTime.now();
+        insertBalance(duplicated, "5.5", now.minusDays(2));
+        insertBalance(duplicated, "7", now.minusDays(1));
+        insertBalance(duplicated, "0.5", now);
+        insertBalance(single, "3", now);
+
+        runner.run();
+
+        assertEquals(List.of(new BigDecimal("13.00000000")), balancesOf(duplicated));
+        assertEquals(List.of(new BigDecimal("3.00000000")), balancesOf(single));
+        Timestamp lastActivity = jdbcTemplate.queryForObject(
+                "SELECT last_activity_date FROM token_balances WHERE user_id = ?", Timestamp.class, duplicated);
+        assertEquals(Timestamp.valueOf(now).getTime() / 1000, lastActivity.getTime() / 1000);
+
+        assertThrows(Exception.class, () -> insertBalance(single, "1", now));
+
+        // Nothing to do the second time
+        runner.run();
+        assertEquals(List.of(new BigDecimal("13.00000000")), balancesOf(duplicated));
+    }
+
+    private void insertBalance(int userId, String balance, LocalDateTime lastActivity) {
+        Timestamp at = Timestamp.valueOf(lastActivity);
+        jdbcTemplate.update("INSERT INTO token_balances (user_id, balance, last_activity_date, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?)", userId, new BigDecimal(balance), at, at, at);
+    }
+
+    private List<BigDecimal> balancesOf(int userId) {
+        return jdbcTemplate.queryForList(
+                "SELECT balance FROM token_balances WHERE user_id = ?", BigDecimal.class, userId);
+    }
+}
@@ -0,0 +1,168 @@
+package com.orbvpn.api.resolver;
+
+import com.orbvpn.api.config.QueryCountInspector;
+import com.orbvpn.api.domain.entity.Group;
+import com.orbvpn.api.domain.entity.Role;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.domain.entity.UserProfile;
+import com.orbvpn.api.domain.entity.UserSubscription;
+import com.orbvpn.api.domain.enums.RoleName;
+import com.orbvpn.api.repository.GroupRepository;
+import com.orbvpn.api.repository.RoleRepository;
+import com.orbvpn.api.repository.UserProfileRepository;
+import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.repository.UserSubscriptionRepository;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.test.tester.ExecutionGraphQlServiceTester;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Asserts that nested {@code UserView} selections are batch-loaded: the number
+ * of SQL statements for a user page must not grow with the page size.
+ *
+ * Runs against a throwaway PostgreSQL container; skipped when Docker is not
+ * available.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserViewBatchQueryCountTest {
+
+    private static final int USERS = 40;
+    private static final int MAX_QUERIES = 15;
+
+    private static final String ALL_USERS = """
+            query AllUsers($size: Int) {
+              allUsers(page: 0, size: $size) {
+                content {
+                  id
+                  email
+                  profile { firstName lastName }
+                  managedBy { id email }
+                  subscription { expiresAt group { name } }
+                  userSubscriptionList { expiresAt group { name } }
+                }
+              }
+            }
+            """;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.flyway.enabled", () -> "false");
+    }
+
+    @Autowired
+    private ExecutionGraphQlService graphQlService;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private UserSubscriptionRepository userSubscriptionRepository;
+
+    @BeforeAll
+    void seed() {
+        Role role = new Role();
+        role.setId(3);
+        role.setName(RoleName.USER);
+        role = roleRepository.save(role);
+
+        Group group = new Group();
+        group.setName("Query count test");
+        group.setDescription("Query count test");
+        group.setTagName("query-count");
+        group.setDuration(30);
+        group.setPrice(BigDecimal.TEN);
+        group = groupRepository.save(group);
+
+        User manager = saveUser(role, "query-count-manager", null);
+        for (int i = 0; i < USERS; i++) {
+            User user = saveUser(role, "query-count-" + i, manager);
+            for (int month = 0; month < 2; month++) {
+                UserSubscription subscription = new UserSubscription();
+                subscription.setUser(user);
+                subscription.setGroup(group);
+                subscription.setDuration(30);
+                subscription.setExpiresAt(LocalDateTime.now().plusMonths(month + 1));
+                userSubscriptionRepository.save(subscription);
+            }
+        }
+    }
+
+    @Test
+    @WithMockUser(authorities = RoleName.Constants.ADMIN)
+    void userPageQueryCountDoesNotGrowWithPageSize() {
+        int small = countQueries(5);
+        int large = countQueries(USERS);
+
+        assertEquals(small, large, "Statement count grew with page size (N+1 in a UserView field)");
+        assertTrue(large <= MAX_QUERIES, "Expected at most " + MAX_QUERIES + " statements, got " + large);
+    }
+
+    private int countQueries(int size) {
+        // Counted the way QueryCountConfig counts a web request, through the Reactor context
+        AtomicInteger counter = new AtomicInteger();
+        ExecutionGraphQlServiceTester tester = ExecutionGraphQlServiceTester.create(
+                request -> graphQlService.execute(request).contextWrite(QueryCountInspector.context(counter)));
+        tester.document(ALL_USERS)
+                .variable("size", size)
+                .execute()
+                .path("allUsers.content").entityList(Object.class).hasSize(size)
+                .path("allUsers.content[0].subscription.group.name").entity(String.class)
+                .isEqualTo("Query count test")
+                .path("allUsers.content[0].userSubscriptionList").entityList(Object.class).hasSizeGreaterThan(0);
+        int counted = counter.get();
+        assertTrue(counted > 0, "No statements were counted for the request");
+
+        userRepository.count();
+        assertEquals(counted, counter.get(), "Statements after the request were counted");
+        return counted;
+    }
+
+    private User saveUser(Role role, String username, User manager) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.test");
+        user.setPassword("x");
+        user.setRole(role);
+        user.setManagedBy(manager);
+        user = userRepository.save(user);
+
+        UserProfile profile = new UserProfile();
+        profile.setUser(user);
+        profile.setFirstName("Query");
+        profile.setLastName(username);
+        userProfileRepository.save(profile);
+        return user;
+    }
+}
@@ -0,0 +1,209 @@
+package com.orbvpn.api.scheduled;
+
+import com.orbvpn.api.domain.dto.GoogleNotification;
+import com.orbvpn.api.domain.enums.GatewayName;
+import com.orbvpn.api.event.TransactionMappingChangedEvent;
+import com.orbvpn.api.repository.PendingSubscriptionRepository;
+import com.orbvpn.api.service.subscription.notification.AppleNotificationProcessor;
+import com.orbvpn.api.service.subscription.notification.GooglePlayNotificationProcessor;
+import com.orbvpn.api.service.subscription.utils.TransactionMappingService;
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs {@link PendingSubscriptionProcessor} against PostgreSQL with the store
+ * notification processors stubbed: overlapping claims must take disjoint
+ * rows, a leased row must wait for its lease, a row that keeps failing must
+ * stop after its last attempt, and a new mapping must apply only the rows
+ * for its purchase token.
+ */
+class PendingSubscriptionProcessorTest extends PostgresIntegrationTest {
+
+    private static final String PREFIX = "pending-subscription-";
+    private static final int MATCHABLE = 40;
+    private static final int UNMAPPED = 5;
+    private static final int CLAIM_BATCH_SIZE = 20;
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private PendingSubscriptionRepository pendingSubscriptionRepository;
+
+    @Autowired
+    private TransactionMappingService transactionMappingService;
+
+    @Autowired
+    private TransactionTemplate writeTransactionTemplate;
+
+    private final GooglePlayNotificationProcessor googlePlayNotificationProcessor =
+            mock(GooglePlayNotificationProcessor.class);
+    private final Map<String, Integer> applied = new ConcurrentHashMap<>();
+
+    private PendingSubscriptionProcessor processor;
+    private int userId;
+
+    @BeforeAll
+    void createUser() {
+        cleanup();
+        userId = insertUsers(PREFIX, 1).get(0);
+        processor = new PendingSubscriptionProcessor(pendingSubscriptionRepository, transactionMappingService,
+                googlePlayNotificationProcessor, mock(AppleNotificationProcessor.class), writeTransactionTemplate);
+        doAnswer(inv -> {
+            String token = inv.<GoogleNotification>getArgument(0).getSubscriptionNotification().getPurchaseToken();
+            applied.merge(token, 1, Integer::sum);
+            if (token.endsWith("-failing")) {
+                throw new IllegalStateException("Google Play rejected " + token);
+            }
+            return null;
+        }).when(googlePlayNotificationProcessor).processNotification(any(GoogleNotification.class), anyString());
+    }
+
+    @AfterAll
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM pending_subscriptions WHERE subscription_id LIKE ?", PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM transaction_user_mappings WHERE transaction_id LIKE ?", PREFIX + "%");
+        deleteUsers(PREFIX);
+    }
+
+    @BeforeEach
+    void resetPending() {
+        jdbcTemplate.update("DELETE FROM pending_subscriptions WHERE subscription_id LIKE ?", PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM transaction_user_mappings WHERE transaction_id LIKE ?", PREFIX + "%");
+        applied.clear();
+    }
+
+    @Test
+    void overlappingClaimsTakeDisjointRows() throws Exception {
+        List<Integer> matchable = new ArrayList<>();
+        for (int i = 0; i < MATCHABLE; i++) {
+            matchable.add(insertPending(PREFIX + i, true));
+        }
+        for (int i = 0; i < UNMAPPED; i++) {
+            insertPending(PREFIX + "unmapped-" + i, false);
+        }
+
+        // The first claim keeps its transaction, and so its row locks, open while the second one runs
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch secondDone = new CountDownLatch(1);
+        List<Integer> first;
+        List<Integer> second;
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<List<Integer>> holding = executor.submit(() -> writeTransactionTemplate.execute(status -> {
+                List<Integer> ids = claimBatch(null);
+                firstClaimed.countDown();
+                try {
+                    secondDone.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return ids;
+            }));
+            assertTrue(firstClaimed.await(30, TimeUnit.SECONDS));
+            second = executor.submit(() -> claimBatch(null)).get();
+            secondDone.countDown();
+            first = holding.get();
+        }
+
+        assertEquals(CLAIM_BATCH_SIZE, first.size());
+        assertEquals(CLAIM_BATCH_SIZE, second.size());
+        Set<Integer> claimed = new HashSet<>(first);
+        claimed.addAll(second);
+        assertEquals(new HashSet<>(matchable), claimed);
+
+        // Every row is leased now; once the leases run out they can be claimed again
+        assertTrue(claimBatch(null).isEmpty());
+        jdbcTemplate.update("UPDATE pending_subscriptions SET lease_until = ? WHERE subscription_id LIKE ?",
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)), PREFIX + "%");
+        assertEquals(CLAIM_BATCH_SIZE, claimBatch(null).size());
+    }
+
+    @Test
+    void failingRowIsRetriedAfterItsLeaseUntilItsLastAttempt() {
+        int failing = insertPending(PREFIX + "failing", true);
+        int working = insertPending(PREFIX + "working", true);
+
+        for (int run = 0; run < MAX_ATTEMPTS * 2; run++) {
+            processor.processPendingSubscriptions();
+            // A second run inside the lease leaves the failed row alone
+            processor.processPendingSubscriptions();
+            assertEquals(Math.min(run + 1, MAX_ATTEMPTS), applied.get(PREFIX + "failing"),
+                    "attempts after run " + run);
+            jdbcTemplate.update("UPDATE pending_subscriptions SET lease_until = ? WHERE id = ?",
+                    Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)), failing);
+        }
+
+        assertEquals(MAX_ATTEMPTS, attemptsOf(failing));
+        assertNull(processedAtOf(failing));
+        assertEquals(1, applied.get(PREFIX + "working"));
+        assertEquals(1, attemptsOf(working));
+        assertNotNull(processedAtOf(working));
+    }
+
+    @Test
+    void newMappingAppliesOnlyItsOwnToken() {
+        int mapped = insertPending(PREFIX + "mapped", false);
+        int other = insertPending(PREFIX + "other", true);
+        jdbcTemplate.update("UPDATE transaction_user_mappings SET user_id = ? WHERE transaction_id = ?",
+                userId, PREFIX + "mapped");
+
+        processor.onTransactionMappingChanged(
+                new TransactionMappingChangedEvent(this, PREFIX + "mapped", GatewayName.GOOGLE_PLAY));
+
+        assertEquals(Map.of(PREFIX + "mapped", 1), applied);
+        assertNotNull(processedAtOf(mapped));
+        assertNull(processedAtOf(other));
+        assertEquals(0, attemptsOf(other));
+    }
+
+    private List<Integer> claimBatch(String subscriptionId) {
+        return ReflectionTestUtils.invokeMethod(processor, "claimBatch", subscriptionId);
+    }
+
+    /**
+     * A pending Google Play subscription for {@code token}, with a mapping
+     * that names the test user or, if {@code mapped} is false, only an email.
+     *
+     * @return its id
+     */
+    private int insertPending(String token, boolean mapped) {
+        jdbcTemplate.update("INSERT INTO transaction_user_mappings (transaction_id, gateway, email, user_id) "
+                + "VALUES (?, 'GOOGLE_PLAY', ?, ?)", token, token + "@example.test", mapped ? userId : null);
+        return jdbcTemplate.queryForObject("INSERT INTO pending_subscriptions (payment_id, subscription_id, "
+                + "purchase_token, user_id, group_id, gateway, created_at, attempts) "
+                + "VALUES (0, ?, ?, ?, 1, 'GOOGLE_PLAY', ?, 0) RETURNING id", Integer.class,
+                token, token, userId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private int attemptsOf(int id) {
+        return jdbcTemplate.queryForObject("SELECT attempts FROM pending_subscriptions WHERE id = ?",
+                Integer.class, id);
+    }
+
+    private Timestamp processedAtOf(int id) {
+        return jdbcTemplate.queryForObject("SELECT processed_at FROM pending_subscriptions WHERE id = ?",
+                Timestamp.class, id);
+    }
+}
@@ -0,0 +1,245 @@
+package com.orbvpn.api.service;
+
+import com.orbvpn.api.domain.entity.AdViewingSession;
+import com.orbvpn.api.domain.entity.AdViewingSession.AdSessionStatus;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.exception.AdLimitExceededException;
+import com.orbvpn.api.exception.BadRequestException;
+import com.orbvpn.api.repository.AdViewingSessionRepository;
+import com.orbvpn.api.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the in-memory ad session limits and conditional completion of
+ * {@link AdVerificationService}, including many threads requesting sessions
+ * at once.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AdVerificationServiceTest {
+
+    private static final int CONCURRENT_REQUESTS = 50_000;
+    private static final int CONCURRENT_THREADS = 32;
+
+    @Mock
+    private AdViewingSessionRepository sessionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TokenServiceInterface tokenService;
+
+    private AdVerificationService adVerificationService;
+    private final Map<String, AdViewingSession> saved = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.getReferenceById(anyInt())).thenAnswer(inv -> {
+            User user = new User();
+            user.setId(inv.getArgument(0));
+            return user;
+        });
+        when(sessionRepository.save(any(AdViewingSession.class))).thenAnswer(inv -> {
+            AdViewingSession session = inv.getArgument(0);
+            saved.put(session.getSessionId(), session);
+            return session;
+        });
+        when(sessionRepository.findBySessionId(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(saved.get(inv.<String>getArgument(0))));
+        when(sessionRepository.completePendingSession(anyString(), anyInt(), any())).thenReturn(1);
+
+        adVerificationService = service(sessionRepository);
+    }
+
+    @Test
+    void pendingSessionsAreLimitedPerUserUntilOneCompletes() {
+        List<AdVerificationService.AdSessionResponse> sessions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sessions.add(adVerificationService.requestAdSession(1, "google", "us", "device-" + i, "10.0.0." + i));
+        }
+        assertThrows(AdLimitExceededException.class,
+                () -> adVerificationService.requestAdSession(1, "google", "us", "device-3", "10.0.0.3"));
+
+        AdVerificationService.AdSessionResponse first = sessions.get(0);
+        adVerificationService.completeAdSession(1, first.sessionId(), first.signature(), 30, "10.0.0.0");
+        adVerificationService.requestAdSession(1, "google", "us", "device-3", "10.0.0.3");
+
+        verify(sessionRepository, never()).countPendingSessionsForUser(anyInt(), any());
+        verify(sessionRepository, never()).countRecentSessionsFromIp(anyString(), any());
+        verify(sessionRepository, never()).countRecentSessionsFromDevice(anyString(), any());
+        verify(userRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    void completedSessionStaysPendingUntilItsTransactionCommits() {
+        List<AdVerificationService.AdSessionResponse> sessions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sessions.add(adVerificationService.requestAdSession(1, "google", "us", "device-" + i, "10.0.0." + i));
+        }
+        when(tokenService.earnTokens(anyInt(), anyString(), anyString()))
+                .thenThrow(new AdLimitExceededException(AdLimitExceededException.LimitType.UNKNOWN, 10, 10))
+                .thenReturn(null);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            AdVerificationService.AdSessionResponse first = sessions.get(0);
+            assertThrows(AdLimitExceededException.class, () -> adVerificationService.completeAdSession(
+                    1, first.sessionId(), first.signature(), 30, "10.0.0.0"));
+        } finally {
+            // Rolled back, so the after-commit callbacks never run
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThrows(AdLimitExceededException.class,
+                () -> adVerificationService.requestAdSession(1, "google", "us", "device-3", "10.0.0.3"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            AdVerificationService.AdSessionResponse second = sessions.get(1);
+            adVerificationService.completeAdSession(1, second.sessionId(), second.signature(), 30, "10.0.0.1");
+            assertThrows(AdLimitExceededException.class,
+                    () -> adVerificationService.requestAdSession(1, "google", "us", "device-3", "10.0.0.3"));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        adVerificationService.requestAdSession(1, "google", "us", "device-3", "10.0.0.3");
+    }
+
+    @Test
+    void sessionsAreLimitedPerIpAndDevicePerHour() {
+        for (int user = 1; user <= 20; user++) {
+            adVerificationService.requestAdSession(user, "unity", "de", "device-" + user, "10.0.0.1");
+        }
+        assertThrows(AdLimitExceededException.class,
+                () -> adVerificationService.requestAdSession(21, "unity", "de", "device-21", "10.0.0.1"));
+
+        for (int user = 101; user <= 115; user++) {
+            adVerificationService.requestAdSession(user, "unity", "de", "shared-device", "10.1.0." + user);
+        }
+        assertThrows(AdLimitExceededException.class,
+                () -> adVerificationService.requestAdSession(116, "unity", "de", "shared-device", "10.2.0.1"));
+        // The rejected request does not count against its IP or user
+        for (int i = 0; i < 3; i++) {
+            adVerificationService.requestAdSession(116, "unity", "de", "device-116-" + i, "10.2.0.1");
+        }
+    }
+
+    @Test
+    void limitsAreRebuiltFromRecentSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> recent = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            recent.add(new Object[] { 100 + i, "recent-" + i, "10.9.9.9", "device-" + i,
+                    now.minusMinutes(50 - i), now.minusMinutes(45 - i), AdSessionStatus.EXPIRED });
+        }
+        recent.add(new Object[] { 7, "pending-0", "10.8.0.1", "device-7", now.minusMinutes(1), now.plusMinutes(4),
+                AdSessionStatus.PENDING });
+        recent.add(new Object[] { 7, "pending-1", "10.8.0.2", "device-7", now.minusMinutes(1), now.plusMinutes(4),
+                AdSessionStatus.PENDING });
+        recent.add(new Object[] { 7, "pending-2", "10.8.0.3", "device-7", now.minusMinutes(1), now.plusMinutes(4),
+                AdSessionStatus.PENDING });
+        when(sessionRepository.findRecentSessionsForLimits(any())).thenReturn(recent);
+
+        AdVerificationService restarted = service(sessionRepository);
+
+        assertThrows(AdLimitExceededException.class,
+                () -> restarted.requestAdSession(1, "google", "us", "device-new", "10.9.9.9"));
+        assertThrows(AdLimitExceededException.class,
+                () -> restarted.requestAdSession(7, "google", "us", "device-8", "10.8.0.4"));
+    }
+
+    @Test
+    void onlyOneCompletionGrantsTokens() {
+        AdVerificationService.AdSessionResponse session =
+                adVerificationService.requestAdSession(1, "admob", "us", "device-1", "10.0.0.1");
+        // The second call loses the conditional update to the first
+        when(sessionRepository.completePendingSession(eq(session.sessionId()), anyInt(), any()))
+                .thenReturn(1, 0);
+
+        adVerificationService.completeAdSession(1, session.sessionId(), session.signature(), 30, "10.0.0.1");
+        assertThrows(BadRequestException.class, () -> adVerificationService.completeAdSession(
+                1, session.sessionId(), session.signature(), 30, "10.0.0.1"));
+
+        verify(tokenService, times(1)).earnTokens(1, "ADMOB", "US");
+        verify(sessionRepository, never()).closePendingSession(anyString(), any(), any());
+    }
+
+    @Test
+    void rejectionIsOneConditionalUpdate() {
+        AdVerificationService.AdSessionResponse session =
+                adVerificationService.requestAdSession(1, "admob", "us", "device-1", "10.0.0.1");
+
+        assertThrows(BadRequestException.class, () -> adVerificationService.completeAdSession(
+                1, session.sessionId(), session.signature(), 5, "10.0.0.1"));
+
+        verify(sessionRepository).closePendingSession(session.sessionId(), AdSessionStatus.REJECTED,
+                "Duration too short: 5s");
+        verify(sessionRepository, times(1)).save(any(AdViewingSession.class));
+        verifyNoInteractions(tokenService);
+    }
+
+    @Test
+    void concurrentSessionRequestsAreAllCreated() throws Exception {
+        // Records no invocations, so Mockito does not hold on to every request
+        AdViewingSessionRepository repository = mock(AdViewingSessionRepository.class, withSettings().stubOnly());
+        when(repository.save(any(AdViewingSession.class))).thenAnswer(inv -> inv.getArgument(0));
+        AdVerificationService service = service(repository);
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger created = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_THREADS)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < CONCURRENT_THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < CONCURRENT_REQUESTS) {
+                        service.requestAdSession(i, "google", "us", "device-" + (i % 20_000),
+                                "10." + (i % 250) + "." + (i / 250 % 250) + ".1");
+                        created.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+
+        assertEquals(CONCURRENT_REQUESTS, created.get());
+    }
+
+    private AdVerificationService service(AdViewingSessionRepository repository) {
+        AdSessionLimiter limiter = new AdSessionLimiter(repository);
+        limiter.rebuild();
+        AdVerificationService service = new AdVerificationService(repository, userRepository, tokenService, limiter);
+        ReflectionTestUtils.setField(service, "verificationSecret", "test-ad-verification-secret");
+        ReflectionTestUtils.setField(service, "sessionExpiryMinutes", 5);
+        ReflectionTestUtils.setField(service, "minAdDurationSeconds", 15);
+        return service;
+    }
+}
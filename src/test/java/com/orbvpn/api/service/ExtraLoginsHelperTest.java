@@ -0,0 +1,179 @@
+package com.orbvpn.api.service;
+
+import com.orbvpn.api.domain.entity.UserExtraLogins;
+import com.orbvpn.api.repository.UserExtraLoginsRepository;
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the extra logins reminder and expiry jobs several times at once
+ * against PostgreSQL, without the scheduler lock, and repeats them: the
+ * rows claimed with SKIP LOCKED and the reminder stage recorded with them
+ * must keep every reminder stage and every expiry notice to one per record.
+ */
+class ExtraLoginsHelperTest extends PostgresIntegrationTest {
+
+    private static final String PREFIX = "extra-logins-reminder-";
+    private static final int USERS = 30;
+    private static final int OVERLAPPING_RUNS = 4;
+
+    @Autowired
+    private UserExtraLoginsRepository extraLoginsRepository;
+
+    @Autowired
+    private RadiusService radiusService;
+
+    @Autowired
+    private TransactionTemplate writeTransactionTemplate;
+
+    private final AsyncNotificationHelper asyncNotificationHelper = mock(AsyncNotificationHelper.class);
+    private final Map<Long, List<Integer>> reminders = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> expiredNotices = new ConcurrentHashMap<>();
+
+    private ExtraLoginsHelper extraLoginsHelper;
+    private List<Integer> userIds;
+    private long planId;
+
+    @BeforeAll
+    void createUsers() {
+        cleanup();
+        userIds = insertUsers(PREFIX, USERS);
+        jdbcTemplate.update("INSERT INTO extra_logins_plan (name, description, login_count, base_price, "
+                + "duration_days, subscription, giftable, minimum_quantity, active) "
+                + "VALUES (?, 'test plan', 1, 1.00, 30, false, false, 1, true)", PREFIX + "plan");
+        planId = jdbcTemplate.queryForObject("SELECT id FROM extra_logins_plan WHERE name = ?", Long.class,
+                PREFIX + "plan");
+
+        extraLoginsHelper = new ExtraLoginsHelper(extraLoginsRepository, radiusService, asyncNotificationHelper,
+                writeTransactionTemplate);
+        doAnswer(inv -> {
+            for (UserExtraLogins extraLogins : inv.<List<UserExtraLogins>>getArgument(0)) {
+                reminders.computeIfAbsent(extraLogins.getId(), id -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(inv.getArgument(1));
+            }
+            return null;
+        }).when(asyncNotificationHelper).sendExtraLoginsExpirationRemindersAsync(anyList(), anyInt());
+        doAnswer(inv -> {
+            for (UserExtraLogins extraLogins : inv.<List<UserExtraLogins>>getArgument(0)) {
+                expiredNotices.merge(extraLogins.getId(), 1, Integer::sum);
+            }
+            return null;
+        }).when(asyncNotificationHelper).sendExtraLoginsExpiredNotificationsAsync(anyList());
+    }
+
+    @AfterAll
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM radcheck WHERE username LIKE ?", PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM user_extra_logins WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM extra_logins_plan WHERE name = ?", PREFIX + "plan");
+        deleteUsers(PREFIX);
+    }
+
+    @BeforeEach
+    void resetExtraLogins() {
+        jdbcTemplate.update("DELETE FROM user_extra_logins WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+        reminders.clear();
+        expiredNotices.clear();
+    }
+
+    @Test
+    void overlappingAndRepeatedReminderRunsSendEachStageOnce() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> inOneDay = insertExtraLogins(now.plusHours(12));
+        List<Long> inThreeDays = insertExtraLogins(now.plusDays(2));
+        List<Long> inSevenDays = insertExtraLogins(now.plusDays(5));
+        List<Long> later = insertExtraLogins(now.plusDays(30));
+
+        runAtOnce(extraLoginsHelper::checkExpiringExtraLogins);
+        extraLoginsHelper.checkExpiringExtraLogins();
+
+        inOneDay.forEach(id -> assertEquals(List.of(1), reminders.get(id), "reminders for " + id));
+        inThreeDays.forEach(id -> assertEquals(List.of(3), reminders.get(id), "reminders for " + id));
+        inSevenDays.forEach(id -> assertEquals(List.of(7), reminders.get(id), "reminders for " + id));
+        later.forEach(id -> assertNull(reminders.get(id), "reminders for " + id));
+
+        // Time passes: the records reminded at seven days are now three days out and get that stage once
+        jdbcTemplate.update("UPDATE user_extra_logins SET expiry_date = ? WHERE reminder_days_sent = 7 "
+                + "AND user_id IN " + USER_IDS_LIKE, Timestamp.valueOf(LocalDateTime.now().plusDays(2)), PREFIX + "%");
+        runAtOnce(extraLoginsHelper::checkExpiringExtraLogins);
+        extraLoginsHelper.checkExpiringExtraLogins();
+
+        inOneDay.forEach(id -> assertEquals(List.of(1), reminders.get(id), "reminders for " + id));
+        inThreeDays.forEach(id -> assertEquals(List.of(3), reminders.get(id), "reminders for " + id));
+        inSevenDays.forEach(id -> assertEquals(List.of(7, 3), reminders.get(id), "reminders for " + id));
+    }
+
+    @Test
+    void overlappingAndRepeatedExpiryRunsNotifyEachRecordOnce() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> expired = insertExtraLogins(now.minusHours(1));
+        List<Long> active = insertExtraLogins(now.plusDays(30));
+
+        runAtOnce(extraLoginsHelper::deactivateExpiredExtraLogins);
+        extraLoginsHelper.deactivateExpiredExtraLogins();
+
+        expired.forEach(id -> assertEquals(1, expiredNotices.get(id), "expiry notices for " + id));
+        active.forEach(id -> assertNull(expiredNotices.get(id), "expiry notices for " + id));
+        Integer stillActive = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_extra_logins WHERE active = true "
+                + "AND user_id IN " + USER_IDS_LIKE, Integer.class, PREFIX + "%");
+        assertEquals(active.size(), stillActive);
+    }
+
+    /**
+     * One active record per user expiring at {@code expiryDate}.
+     *
+     * @return their ids
+     */
+    private List<Long> insertExtraLogins(LocalDateTime expiryDate) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp expiry = Timestamp.valueOf(expiryDate.withNano(0));
+        List<Object[]> rows = new ArrayList<>(USERS);
+        for (int userId : userIds) {
+            rows.add(new Object[] { userId, planId, now, expiry, now, now });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user_extra_logins (user_id, plan_id, start_date, expiry_date, "
+                + "login_count, active, subscription, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, 1, true, false, ?, ?)", rows);
+        return jdbcTemplate.queryForList("SELECT id FROM user_extra_logins WHERE expiry_date = ? AND user_id IN "
+                + USER_IDS_LIKE + " ORDER BY id", Long.class, expiry, PREFIX + "%");
+    }
+
+    private void runAtOnce(Runnable job) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(OVERLAPPING_RUNS)) {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < OVERLAPPING_RUNS; i++) {
+                runs.add(executor.submit(() -> {
+                    start.await();
+                    job.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        }
+    }
+}
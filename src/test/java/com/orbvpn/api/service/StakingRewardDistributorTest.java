@@ -0,0 +1,179 @@
+package com.orbvpn.api.service;
+
+import com.orbvpn.api.domain.entity.StakingRewardRun;
+import com.orbvpn.api.domain.enums.StakingRewardRunStatus;
+import com.orbvpn.api.domain.enums.TokenTransactionType;
+import com.orbvpn.api.repository.StakingRewardRunRepository;
+import com.orbvpn.api.repository.TokenStakeRepository;
+import com.orbvpn.api.service.token.TokenLedgerService;
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the staking reward distribution for one day over a few pages of
+ * stakes: a run that dies between pages is resumed, a finished run is
+ * repeated, and stakes that an earlier, forgotten run already paid are
+ * skipped. Every stake must end up credited exactly once and the run must
+ * count only what it credited itself.
+ */
+class StakingRewardDistributorTest extends PostgresIntegrationTest {
+
+    private static final String PREFIX = "staking-reward-";
+    private static final int USERS = 20;
+    private static final int STAKES_PER_USER = 60;
+    private static final int STAKES = USERS * STAKES_PER_USER;
+    private static final LocalDate REWARD_DATE = LocalDate.of(2020, 1, 15);
+
+    @Autowired
+    private StakingRewardDistributor distributor;
+
+    @Autowired
+    private TokenStakeRepository stakeRepository;
+
+    @Autowired
+    private StakingRewardRunRepository runRepository;
+
+    @Autowired
+    private TokenLedgerService tokenLedgerService;
+
+    @Autowired
+    private TransactionTemplate writeTransactionTemplate;
+
+    private final Map<Long, Integer> stakeOwners = new HashMap<>();
+    private final Map<Long, BigDecimal> stakeRewards = new HashMap<>();
+    private final List<Long> stakeIds = new ArrayList<>();
+
+    @BeforeAll
+    void createStakes() {
+        cleanup();
+        List<Integer> userIds = insertUsers(PREFIX, USERS);
+        Timestamp stakedAt = Timestamp.valueOf(REWARD_DATE.minusDays(14).atStartOfDay());
+        List<Object[]> rows = new ArrayList<>(STAKES);
+        for (int i = 0; i < STAKES; i++) {
+            rows.add(new Object[] { userIds.get(i % USERS), new BigDecimal(365 * (i % 5 + 1)), stakedAt,
+                    new BigDecimal("0.1000"), stakedAt, stakedAt });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO token_stake (user_id, amount, staked_at, reward_rate, "
+                + "lock_period_days, created_at, updated_at) VALUES (?, ?, ?, ?, 30, ?, ?)", rows);
+
+        jdbcTemplate.query("SELECT id, user_id, amount, reward_rate FROM token_stake WHERE user_id IN "
+                + USER_IDS_LIKE + " ORDER BY id", rs -> {
+                    long stakeId = rs.getLong("id");
+                    stakeIds.add(stakeId);
+                    stakeOwners.put(stakeId, rs.getInt("user_id"));
+                    stakeRewards.put(stakeId, StakingRewardDistributor.calculateDailyReward(
+                            rs.getBigDecimal("amount"), rs.getBigDecimal("reward_rate")));
+                }, PREFIX + "%");
+        assertEquals(STAKES, stakeIds.size());
+    }
+
+    @AfterAll
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM staking_reward_run WHERE reward_date = ?", REWARD_DATE);
+        jdbcTemplate.update("DELETE FROM token_transaction WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM token_balances WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM token_stake WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+        deleteUsers(PREFIX);
+    }
+
+    @Test
+    void interruptedAndRepeatedRunsCreditEachStakeOnce() {
+        // An earlier run whose record was lost already paid every seventh stake
+        List<TokenLedgerService.Credit> prepaid = new ArrayList<>();
+        for (int i = 0; i < STAKES; i += 7) {
+            long stakeId = stakeIds.get(i);
+            prepaid.add(new TokenLedgerService.Credit(stakeOwners.get(stakeId), stakeRewards.get(stakeId),
+                    reference(stakeId)));
+        }
+        writeTransactionTemplate.executeWithoutResult(
+                status -> tokenLedgerService.creditAll(prepaid, TokenTransactionType.STAKE_REWARD));
+        BigDecimal prepaidTokens = sum(prepaid.stream().map(TokenLedgerService.Credit::amount).toList());
+
+        // The process dies while reading the second page
+        StakingRewardDistributor dying = new StakingRewardDistributor(failingOnPage(2), runRepository,
+                tokenLedgerService, writeTransactionTemplate);
+        assertThrows(IllegalStateException.class, () -> dying.distribute(REWARD_DATE));
+
+        StakingRewardRun interrupted = runRepository.findByRewardDate(REWARD_DATE).orElseThrow();
+        assertEquals(StakingRewardRunStatus.RUNNING, interrupted.getStatus());
+        assertEquals(stakeIds.get(StakingRewardDistributor.PAGE_SIZE - 1), interrupted.getLastStakeId());
+
+        StakingRewardRun resumed = distributor.distribute(REWARD_DATE);
+        assertEquals(StakingRewardRunStatus.COMPLETED, resumed.getStatus());
+        assertEquals(STAKES, resumed.getStakesProcessed());
+        assertEquals(STAKES - prepaid.size(), resumed.getRewardsCredited());
+        BigDecimal expectedTokens = sum(stakeRewards.values()).subtract(prepaidTokens);
+        assertEquals(0, expectedTokens.compareTo(resumed.getTokensDistributed()),
+                "tokens distributed " + resumed.getTokensDistributed());
+
+        // Running the day again does nothing, with or without its run record
+        StakingRewardRun repeated = distributor.distribute(REWARD_DATE);
+        assertEquals(resumed.getId(), repeated.getId());
+        assertEquals(resumed.getRewardsCredited(), repeated.getRewardsCredited());
+        jdbcTemplate.update("DELETE FROM staking_reward_run WHERE reward_date = ?", REWARD_DATE);
+        StakingRewardRun fromScratch = distributor.distribute(REWARD_DATE);
+        assertEquals(STAKES, fromScratch.getStakesProcessed());
+        assertEquals(0, fromScratch.getRewardsCredited());
+        assertEquals(0, BigDecimal.ZERO.compareTo(fromScratch.getTokensDistributed()));
+
+        Map<Integer, BigDecimal> expectedBalances = new HashMap<>();
+        for (long stakeId : stakeIds) {
+            Integer paid = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM token_transaction WHERE reference = ?",
+                    Integer.class, reference(stakeId));
+            assertEquals(1, paid, "rewards for stake " + stakeId);
+            expectedBalances.merge(stakeOwners.get(stakeId), stakeRewards.get(stakeId), BigDecimal::add);
+        }
+        expectedBalances.forEach((userId, expected) -> {
+            BigDecimal balance = jdbcTemplate.queryForObject(
+                    "SELECT balance FROM token_balances WHERE user_id = ?", BigDecimal.class, userId);
+            assertEquals(0, expected.compareTo(balance), "balance of user " + userId);
+        });
+    }
+
+    /**
+     * The real repository, except that reading page {@code failingPage} throws.
+     */
+    private TokenStakeRepository failingOnPage(int failingPage) {
+        AtomicInteger pages = new AtomicInteger();
+        return (TokenStakeRepository) Proxy.newProxyInstance(TokenStakeRepository.class.getClassLoader(),
+                new Class<?>[] { TokenStakeRepository.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("findRewardableAfter") && pages.incrementAndGet() == failingPage) {
+                        throw new IllegalStateException("process died");
+                    }
+                    try {
+                        return method.invoke(stakeRepository, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static String reference(long stakeId) {
+        return "stake-reward:" + stakeId + ":" + REWARD_DATE;
+    }
+
+    private static BigDecimal sum(Iterable<BigDecimal> amounts) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : amounts) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+}
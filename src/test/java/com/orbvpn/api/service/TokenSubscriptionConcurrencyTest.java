@@ -0,0 +1,114 @@
+package com.orbvpn.api.service;
+
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test for the ad counters of {@link TokenSubscriptionService}: many
+ * threads count watched ads for the same few users at once, then every
+ * latest token-based subscription must hold exactly the number counted, and
+ * the weekly reset must clear all of them and move their expiry forward.
+ */
+class TokenSubscriptionConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final String PREFIX = "token-subscription-stress-";
+    private static final int USERS = 10;
+    private static final int THREADS = 32;
+    private static final int ADS_PER_THREAD = 500;
+
+    @Autowired
+    private TokenSubscriptionService tokenSubscriptionService;
+
+    private List<Integer> userIds;
+
+    @BeforeAll
+    void createUsers() {
+        cleanup();
+        userIds = insertUsers(PREFIX, USERS);
+        assertEquals(USERS, userIds.size());
+
+        // An older subscription per user, which must not be counted against
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> subscriptions = new ArrayList<>();
+        for (int userId : userIds) {
+            subscriptions.add(new Object[] { userId, Timestamp.valueOf(now.minusWeeks(2)) });
+            subscriptions.add(new Object[] { userId, Timestamp.valueOf(now) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user_subscription (user_id, duration, multi_login_count, status, "
+                + "is_token_based, weekly_ads_watched, created_at) VALUES (?, 7, 1, 'ACTIVE', true, 0, ?)",
+                subscriptions);
+    }
+
+    @AfterAll
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM radcheck WHERE username LIKE ?", PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM user_subscription WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+        deleteUsers(PREFIX);
+    }
+
+    @Test
+    void concurrentAdCountsLoseNoUpdatesAndResetClearsThem() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ADS_PER_THREAD; i++) {
+                        User user = new User();
+                        user.setId(userIds.get((offset + i) % USERS));
+                        tokenSubscriptionService.incrementAdsWatched(user);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        int ads = THREADS * ADS_PER_THREAD;
+
+        for (int userId : userIds) {
+            assertEquals(List.of(0, ads / USERS), adsWatchedOf(userId), "ads watched by user " + userId);
+        }
+
+        LocalDateTime beforeReset = LocalDateTime.now().withNano(0);
+        tokenSubscriptionService.resetWeeklyStats();
+
+        for (int userId : userIds) {
+            assertEquals(List.of(0, 0), adsWatchedOf(userId), "ads watched by user " + userId);
+        }
+        Integer stale = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_subscription WHERE user_id IN "
+                + USER_IDS_LIKE + " AND (expires_at IS NULL OR expires_at < ? OR last_weekly_reset IS NULL)",
+                Integer.class, PREFIX + "%",
+                Timestamp.valueOf(beforeReset.plusWeeks(1)));
+        assertEquals(0, stale);
+        Integer expirations = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM radcheck WHERE attribute = 'Expiration' AND username LIKE ?",
+                Integer.class, PREFIX + "%");
+        assertEquals(USERS, expirations);
+    }
+
+    private List<Integer> adsWatchedOf(int userId) {
+        return jdbcTemplate.queryForList(
+                "SELECT weekly_ads_watched FROM user_subscription WHERE user_id = ? ORDER BY created_at",
+                Integer.class, userId);
+    }
+}
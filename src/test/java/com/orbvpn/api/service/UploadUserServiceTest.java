@@ -0,0 +1,71 @@
+package com.orbvpn.api.service;
+
+import com.orbvpn.api.domain.entity.Role;
+import com.orbvpn.api.domain.entity.UserImportJob;
+import com.orbvpn.api.domain.enums.RoleName;
+import com.orbvpn.api.domain.enums.UserImportStatus;
+import com.orbvpn.api.exception.InternalException;
+import com.orbvpn.api.repository.UserImportJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class UploadUserServiceTest {
+
+    @Mock
+    private RoleService roleService;
+    @Mock
+    private UserImportSheetReader sheetReader;
+    @Mock
+    private UserImportJobRepository importJobRepository;
+
+    @InjectMocks
+    private UploadUserService uploadUserService;
+
+    private final AtomicReference<UserImportJob> stored = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role();
+        role.setId(3);
+        when(roleService.getByName(RoleName.USER)).thenReturn(role);
+        when(importJobRepository.save(any(UserImportJob.class))).thenAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return stored.get();
+        });
+        when(importJobRepository.findByJobId(anyString())).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+    }
+
+    @Test
+    void unreadableWorkbookFailsTheUpload() throws Exception {
+        doThrow(new IllegalStateException("not a workbook"))
+                .when(sheetReader).read(any(File.class), anyInt(), any());
+
+        InternalException e = assertThrows(InternalException.class,
+                () -> uploadUserService.uploadUsers(new ByteArrayInputStream(new byte[] { 1, 2, 3 })));
+        assertTrue(e.getMessage().contains("not a workbook"));
+        assertEquals(UserImportStatus.FAILED, stored.get().getStatus());
+    }
+
+    @Test
+    void emptyWorkbookUploads() throws Exception {
+        assertTrue(uploadUserService.uploadUsers(new ByteArrayInputStream(new byte[0])));
+        assertEquals(UserImportStatus.COMPLETED, stored.get().getStatus());
+    }
+}
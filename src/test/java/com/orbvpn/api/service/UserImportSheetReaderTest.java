@@ -0,0 +1,80 @@
+package com.orbvpn.api.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserImportSheetReaderTest {
+
+    private static final int ROWS = 100_000;
+    private static final LocalDateTime EXPIRES_AT = LocalDateTime.of(2027, 3, 1, 12, 0);
+
+    private final UserImportSheetReader reader = new UserImportSheetReader();
+    private File file;
+
+    @BeforeEach
+    void writeWorkbook() throws Exception {
+        file = Files.createTempFile("user-import-test-", ".xlsx").toFile();
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100)) {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            header.createCell(1).setCellValue("Username");
+            for (int i = 1; i <= ROWS; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(1).setCellValue("user" + i);
+                row.createCell(2).setCellValue(123456);
+                row.createCell(7).setCellValue(EXPIRES_AT);
+                row.getCell(7).setCellStyle(dateStyle);
+                row.createCell(11).setCellValue(3);
+                row.createCell(13).setCellValue(989121234567d);
+                row.createCell(14).setCellValue("user" + i + "@example.com");
+            }
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+        }
+    }
+
+    @AfterEach
+    void cleanup() throws Exception {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    void streamsEveryRowWithRawNumericValues() throws Exception {
+        AtomicInteger rows = new AtomicInteger();
+        AtomicReference<UserImportSheetReader.SheetRow> last = new AtomicReference<>();
+
+        reader.read(file, 18, row -> {
+            rows.incrementAndGet();
+            last.set(row);
+        });
+
+        assertEquals(ROWS + 1, rows.get());
+        UserImportSheetReader.SheetRow row = last.get();
+        assertEquals(ROWS + 1, row.rowNumber());
+        assertEquals("user" + ROWS, row.cell(1));
+        assertEquals("123456", row.cell(2));
+        assertEquals("3", row.cell(11));
+        assertEquals("989121234567", row.cell(13));
+        assertEquals(EXPIRES_AT, DateUtil.getLocalDateTime(Double.parseDouble(row.cell(7))));
+        assertEquals("", row.cell(17));
+    }
+}
@@ -0,0 +1,118 @@
+package com.orbvpn.api.service.giftcard;
+
+import com.orbvpn.api.domain.dto.GiftCardCreate;
+import com.orbvpn.api.domain.dto.GiftCardView;
+import com.orbvpn.api.domain.entity.Group;
+import com.orbvpn.api.repository.GroupRepository;
+import com.orbvpn.api.service.GroupService;
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks bulk gift card creation against the unique index on gift_cards.code:
+ * every requested card is inserted once, across several JDBC batches, and
+ * codes that collide with existing cards are regenerated. Timings for 100k
+ * cards are in the GiftCardBulkCreationBenchmark JMH benchmark.
+ */
+class GiftCardBulkCreationTest extends PostgresIntegrationTest {
+
+    private static final int CARD_COUNT = 2_500;
+
+    @Autowired
+    private GiftCardService giftCardService;
+
+    @Autowired
+    private GroupService groupService;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    private Group group;
+
+    @BeforeAll
+    void createGroup() {
+        group = new Group();
+        group.setName("Gift card bulk test");
+        group.setDescription("Gift card bulk test");
+        group.setTagName("gift-card-bulk");
+        group.setDuration(30);
+        group.setPrice(BigDecimal.TEN);
+        group = groupRepository.save(group);
+    }
+
+    @AfterEach
+    void deleteCards() {
+        jdbcTemplate.update("DELETE FROM gift_cards WHERE group_id = ?", group.getId());
+    }
+
+    @AfterAll
+    void deleteGroup() {
+        groupRepository.deleteById(group.getId());
+    }
+
+    @Test
+    void createsEveryCardOnce() {
+        List<GiftCardView> cards = giftCardService.createBulkGiftCards(create(), CARD_COUNT);
+
+        assertEquals(CARD_COUNT, cards.size());
+        Set<String> codes = new HashSet<>();
+        GiftCardCodeGenerator generator = new GiftCardCodeGenerator();
+        for (GiftCardView card : cards) {
+            assertNotNull(card.getId());
+            assertTrue(generator.isValidFormat(card.getCode()), card.getCode());
+            assertEquals(0, BigDecimal.TEN.compareTo(card.getAmount()));
+            codes.add(card.getCode());
+        }
+        assertEquals(CARD_COUNT, codes.size());
+
+        Integer stored = jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT code) FROM gift_cards "
+                + "WHERE group_id = ? AND amount = ? AND NOT used AND NOT cancelled", Integer.class,
+                group.getId(), BigDecimal.TEN);
+        assertEquals(CARD_COUNT, stored);
+    }
+
+    @Test
+    void regeneratesCodesThatAlreadyExist() {
+        GiftCardView existing = giftCardService.createBulkGiftCards(create(), 1).get(0);
+
+        // The first code drawn is already stored; it must be skipped and replaced by a fresh one
+        Deque<String> scripted = new ArrayDeque<>(List.of(existing.getCode(), "ORB-AAAA-AAAA-AAAA"));
+        GiftCardCodeGenerator generator = new GiftCardCodeGenerator() {
+            @Override
+            public String generateCode() {
+                return scripted.isEmpty() ? super.generateCode() : scripted.poll();
+            }
+        };
+        GiftCardService service = new GiftCardService(null, generator, groupService, null, null, null, null,
+                null, null, jdbcTemplate);
+
+        List<GiftCardView> cards = service.createBulkGiftCards(create(), 2);
+
+        assertEquals(2, cards.size());
+        assertTrue(cards.stream().noneMatch(card -> card.getCode().equals(existing.getCode())));
+        assertTrue(cards.stream().anyMatch(card -> card.getCode().equals("ORB-AAAA-AAAA-AAAA")));
+        Integer stored = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM gift_cards WHERE group_id = ?",
+                Integer.class, group.getId());
+        assertEquals(3, stored);
+    }
+
+    private GiftCardCreate create() {
+        return GiftCardCreate.builder()
+                .groupId(group.getId())
+                .validityDays(30)
+                .build();
+    }
+}
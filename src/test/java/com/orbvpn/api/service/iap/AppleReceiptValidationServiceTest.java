@@ -0,0 +1,159 @@
+package com.orbvpn.api.service.iap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orbvpn.api.config.ConcurrencyProperties;
+import com.orbvpn.api.service.common.DownstreamBulkhead;
+import com.orbvpn.api.service.iap.AppleReceiptValidationService.AppleReceiptValidationResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs receipt validation against a local stub of Apple's verifyReceipt
+ * endpoints, counting how often each one is actually called.
+ */
+class AppleReceiptValidationServiceTest {
+
+    private static final String BUNDLE_ID = "com.orbvpn.app";
+    private static final String PRODUCT_ID = "orb.monthly";
+    private static final String TRANSACTION_ID = "1000000000000001";
+    private static final long STUB_LATENCY_MS = 100;
+
+    private HttpServer server;
+    private final AtomicInteger productionCalls = new AtomicInteger();
+    private final AtomicInteger sandboxCalls = new AtomicInteger();
+    private volatile int productionStatus = 0;
+
+    private AppleReceiptValidationService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/production", exchange -> {
+            productionCalls.incrementAndGet();
+            respond(exchange, productionStatus, "Production");
+        });
+        server.createContext("/sandbox", exchange -> {
+            sandboxCalls.incrementAndGet();
+            respond(exchange, 0, "Sandbox");
+        });
+        server.start();
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        service = new AppleReceiptValidationService(new RestTemplate(), new ObjectMapper(),
+                new DownstreamBulkhead(new ConcurrencyProperties(), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "sharedSecret", "test-secret");
+        ReflectionTestUtils.setField(service, "bundleId", BUNDLE_ID);
+        ReflectionTestUtils.setField(service, "productionUrl", baseUrl + "/production");
+        ReflectionTestUtils.setField(service, "sandboxUrl", baseUrl + "/sandbox");
+        service.initCaches();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentValidationsOfSameReceiptShareOneCall() throws Exception {
+        int callers = 20;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<AppleReceiptValidationResult>> futures = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return service.validateReceipt("receipt-a", PRODUCT_ID, TRANSACTION_ID);
+                }));
+            }
+            start.countDown();
+            for (Future<AppleReceiptValidationResult> future : futures) {
+                assertTrue(future.get().isValid());
+            }
+        }
+
+        assertEquals(1, productionCalls.get());
+    }
+
+    @Test
+    void validResultIsServedFromCache() {
+        assertTrue(service.validateReceipt("receipt-b", PRODUCT_ID, TRANSACTION_ID).isValid());
+        assertTrue(service.validateReceipt("receipt-b", PRODUCT_ID, TRANSACTION_ID).isValid());
+
+        assertEquals(1, productionCalls.get());
+    }
+
+    @Test
+    void sandboxReceiptSkipsProductionOnceKnown() {
+        productionStatus = 21007;
+
+        AppleReceiptValidationResult first = service.validateReceipt("receipt-c", PRODUCT_ID, TRANSACTION_ID);
+        assertTrue(first.isValid());
+        assertEquals("Sandbox", first.getEnvironment());
+        assertEquals(1, productionCalls.get());
+        assertEquals(1, sandboxCalls.get());
+
+        // Different product, so not a cache hit, but the receipt is known to be from the sandbox
+        assertTrue(service.validateReceipt("receipt-c", "orb.yearly", TRANSACTION_ID).isValid());
+        assertEquals(1, productionCalls.get());
+        assertEquals(2, sandboxCalls.get());
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        productionStatus = 21005;
+
+        assertFalse(service.validateReceipt("receipt-d", PRODUCT_ID, TRANSACTION_ID).isValid());
+        assertFalse(service.validateReceipt("receipt-d", PRODUCT_ID, TRANSACTION_ID).isValid());
+
+        assertEquals(2, productionCalls.get());
+    }
+
+    private void respond(HttpExchange exchange, int status, String environment) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        try {
+            Thread.sleep(STUB_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long now = System.currentTimeMillis();
+        String body = status != 0
+                ? "{\"status\":" + status + "}"
+                : "{\"status\":0,\"environment\":\"" + environment + "\","
+                        + "\"receipt\":{\"bundle_id\":\"" + BUNDLE_ID + "\",\"in_app\":[]},"
+                        + "\"latest_receipt_info\":[{\"product_id\":\"" + PRODUCT_ID + "\","
+                        + "\"transaction_id\":\"" + TRANSACTION_ID + "\","
+                        + "\"original_transaction_id\":\"" + TRANSACTION_ID + "\","
+                        + "\"purchase_date_ms\":\"" + (now - 86_400_000L) + "\","
+                        + "\"expires_date_ms\":\"" + (now + 30 * 86_400_000L) + "\"}]}";
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.orbvpn.api.service.maintenance;
+
+import com.orbvpn.api.domain.entity.PasswordReEncryptionNotice;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.repository.PasswordReEncryptionNoticeRepository;
+import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.service.AsyncNotificationHelper;
+import com.orbvpn.api.service.PasswordService;
+import com.orbvpn.api.service.RadiusService;
+import com.orbvpn.api.service.notification.NotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the password re-encryption job over users whose encryption keys are
+ * missing, with in-memory users, checkpoint and notices, checking that one
+ * failing user does not stop the range and that a run that dies while
+ * emailing is finished by the next one.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PasswordReEncryptionJobTest {
+
+    private static final int USERS = 250;
+    private static final String JOB = "reencrypt-passwords:1-" + USERS;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordReEncryptionNoticeRepository noticeRepository;
+
+    @Mock
+    private PasswordService passwordService;
+
+    @Mock
+    private RadiusService radiusService;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private AsyncNotificationHelper asyncNotificationHelper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private MaintenanceCheckpointService checkpointService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PasswordReEncryptionJob job;
+
+    private final Map<Integer, User> users = new TreeMap<>();
+    private final List<PasswordReEncryptionNotice> notices = new ArrayList<>();
+    private final Map<Integer, List<String>> emailed = new HashMap<>();
+    private int checkpoint;
+    private boolean completed;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        job = new PasswordReEncryptionJob(userRepository, noticeRepository, passwordService, radiusService,
+                notificationService, asyncNotificationHelper, eventPublisher, checkpointService,
+                transactionTemplate, transactionTemplate);
+        ReflectionTestUtils.setField(job, "emailPauseMillis", 0L);
+
+        for (int id = 1; id <= USERS; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setEmail("reencrypt-" + id + "@example.test");
+            user.setPassword("legacy-" + id);
+            users.put(id, user);
+        }
+        when(userRepository.findById(anyInt()))
+                .thenAnswer(inv -> Optional.ofNullable(users.get(inv.<Integer>getArgument(0))));
+        when(userRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(anyInt(), anyInt(), any(Pageable.class)))
+                .thenAnswer(inv -> users.values().stream()
+                        .filter(user -> user.getId() > inv.<Integer>getArgument(0)
+                                && user.getId() <= inv.<Integer>getArgument(1))
+                        .limit(inv.<Pageable>getArgument(2).getPageSize())
+                        .toList());
+        doAnswer(inv -> {
+            User user = inv.getArgument(0);
+            user.setPassword(inv.getArgument(1));
+            user.setAesKey("key");
+            user.setAesIv("iv");
+            return null;
+        }).when(passwordService).setPassword(any(User.class), anyString());
+        when(radiusService.hasValidRadCheckPassword(any(User.class))).thenReturn(true);
+
+        when(noticeRepository.save(any(PasswordReEncryptionNotice.class))).thenAnswer(inv -> {
+            notices.add(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        when(noticeRepository.findByJobNameOrderByUserIdAsc(anyString())).thenAnswer(inv -> notices.stream()
+                .filter(notice -> notice.getJobName().equals(inv.getArgument(0))).toList());
+        when(noticeRepository.deleteByJobNameAndUserId(anyString(), anyInt())).thenAnswer(inv -> notices.removeIf(
+                notice -> notice.getJobName().equals(inv.getArgument(0))
+                        && notice.getUserId() == inv.<Integer>getArgument(1)) ? 1 : 0);
+
+        when(checkpointService.resume(JOB)).thenAnswer(inv -> {
+            if (completed) {
+                completed = false;
+                checkpoint = 0;
+            }
+            return checkpoint;
+        });
+        doAnswer(inv -> checkpoint = inv.getArgument(1)).when(checkpointService).advance(eq(JOB), anyInt(), anyInt());
+        doAnswer(inv -> completed = true).when(checkpointService).complete(JOB);
+
+        doAnswer(inv -> {
+            emailed.computeIfAbsent(inv.<User>getArgument(0).getId(), id -> new ArrayList<>()).add(inv.getArgument(1));
+            return null;
+        }).when(notificationService).notifyUserPasswordReEncryption(any(User.class), anyString());
+    }
+
+    @Test
+    void failingUserIsReportedAndTheRangeCarriesOn() {
+        doThrow(new IllegalStateException("encryption failed")).when(passwordService)
+                .setPassword(argThat((User user) -> user.getId() == 42), anyString());
+
+        List<Integer> failed = job.run(1, USERS, true);
+
+        assertEquals(List.of(42), failed);
+        assertTrue(completed);
+        assertEquals(USERS, checkpoint);
+        assertNull(users.get(42).getAesKey());
+        assertFalse(emailed.containsKey(42));
+        for (User user : users.values()) {
+            if (user.getId() != 42) {
+                assertEquals(List.of(user.getPassword()), emailed.get(user.getId()), "emails to user " + user.getId());
+            }
+        }
+        assertTrue(notices.isEmpty());
+    }
+
+    @Test
+    void rerunSendsPasswordsThatADeadRunNeverSent() {
+        // The process dies while emailing the first chunk, after it committed
+        doAnswer(inv -> {
+            throw new ProcessDied();
+        }).when(notificationService).notifyUserPasswordReEncryption(argThat(user -> user.getId() == 10), anyString());
+        assertThrows(ProcessDied.class, () -> job.run(1, USERS, true));
+
+        assertEquals(100, checkpoint);
+        assertFalse(completed);
+        assertEquals(91, notices.size(), "users 10 to 100 still have to be told their password");
+
+        doAnswer(inv -> {
+            emailed.computeIfAbsent(inv.<User>getArgument(0).getId(), id -> new ArrayList<>()).add(inv.getArgument(1));
+            return null;
+        }).when(notificationService).notifyUserPasswordReEncryption(any(User.class), anyString());
+        List<Integer> failed = job.run(1, USERS, true);
+
+        assertTrue(failed.isEmpty());
+        assertTrue(completed);
+        assertTrue(notices.isEmpty());
+        // Everyone was emailed once, with the password they hold now
+        for (User user : users.values()) {
+            assertEquals(List.of(user.getPassword()), emailed.get(user.getId()), "emails to user " + user.getId());
+        }
+        verify(passwordService, times(USERS + 91)).setPassword(any(User.class), anyString());
+    }
+
+    @Test
+    void failedEmailKeepsTheNoticeForTheNextRun() {
+        doThrow(new IllegalStateException("SMTP down")).when(notificationService)
+                .notifyUserPasswordReEncryption(argThat(user -> user.getId() == 7), anyString());
+
+        assertTrue(job.run(1, USERS, true).isEmpty());
+
+        assertEquals(1, notices.size());
+        assertEquals(7, notices.get(0).getUserId());
+    }
+
+    /**
+     * Stands in for the JVM going away: not an Exception, so nothing in the
+     * job catches it.
+     */
+    private static class ProcessDied extends Error {
+    }
+}
@@ -0,0 +1,203 @@
+package com.orbvpn.api.service.notification;
+
+import com.orbvpn.api.domain.entity.NotificationPreferences;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.domain.entity.UserProfile;
+import com.orbvpn.api.domain.enums.NotificationCategory;
+import com.orbvpn.api.domain.enums.NotificationChannel;
+import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.repository.UserSubscriptionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs a campaign against stub channels that take 10 ms per send, checking
+ * that recipients are filtered by their preferences, every channel stays
+ * within its cap and emails go out in batches.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class NotificationCampaignServiceTest {
+
+    private static final int USER_COUNT = 300;
+    private static final long CHANNEL_LATENCY_MS = 10;
+    private static final int EMAIL_CONCURRENCY = 8;
+    private static final int TELEGRAM_CONCURRENCY = 4;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserSubscriptionRepository userSubscriptionRepository;
+
+    @Mock
+    private MultiChannelNotificationService multiChannelService;
+
+    @Mock
+    private LocaleResolverService localeResolverService;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private NotificationCampaignService campaignService;
+
+    private final Map<Integer, User> users = new TreeMap<>();
+    private final Map<NotificationChannel, AtomicInteger> inFlightByChannel = new ConcurrentHashMap<>();
+    private final Map<NotificationChannel, AtomicInteger> peakByChannel = new ConcurrentHashMap<>();
+    private final Set<String> telegramMessages = ConcurrentHashMap.newKeySet();
+    private final Set<String> emailed = ConcurrentHashMap.newKeySet();
+    private final Set<String> failingEmails = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage("telegram.greeting", Locale.ENGLISH, "Hello {0}");
+        messageSource.addMessage("telegram.greeting", Locale.GERMAN, "Hallo {0}");
+
+        campaignService = new NotificationCampaignService(userRepository, userSubscriptionRepository,
+                multiChannelService, localeResolverService, emailService, messageSource,
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(campaignService, "pageSize", 50);
+        ReflectionTestUtils.setField(campaignService, "emailConcurrency", EMAIL_CONCURRENCY);
+        ReflectionTestUtils.setField(campaignService, "emailBatchSize", 10);
+        ReflectionTestUtils.setField(campaignService, "telegramConcurrency", TELEGRAM_CONCURRENCY);
+
+        for (int id = 1; id <= USER_COUNT; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setEmail("campaign-" + id + "@example.test");
+            UserProfile profile = new UserProfile();
+            profile.setUser(user);
+            profile.setFirstName("User" + id);
+            profile.setTelegramChatId("chat-" + id);
+            profile.setLanguage(id % 2 == 0 ? Locale.GERMAN : Locale.ENGLISH);
+            user.setProfile(profile);
+            users.put(id, user);
+        }
+
+        when(userRepository.findAllWithProfileByIdIn(anyCollection())).thenAnswer(inv -> inv
+                .<Collection<Integer>>getArgument(0).stream().map(users::get).toList());
+        when(localeResolverService.resolveUserLocale(any(User.class)))
+                .thenAnswer(inv -> inv.<User>getArgument(0).getProfile().getLanguage());
+        when(multiChannelService.getPreferences(anyCollection())).thenAnswer(inv -> {
+            Map<Integer, NotificationPreferences> byUser = new HashMap<>();
+            for (User user : inv.<Collection<User>>getArgument(0)) {
+                NotificationPreferences prefs = NotificationPreferences.createDefault(user);
+                prefs.disableChannel(NotificationChannel.FCM);
+                // Every tenth user opted out of billing notifications
+                if (user.getId() % 10 == 0) {
+                    prefs.disableCategory(NotificationCategory.BILLING);
+                }
+                byUser.put(user.getId(), prefs);
+            }
+            return byUser;
+        });
+        doAnswer(inv -> {
+            send(NotificationChannel.TELEGRAM);
+            telegramMessages.add(inv.getArgument(3));
+            return null;
+        }).when(multiChannelService).sendToChannel(eq(NotificationChannel.TELEGRAM), any(), any(), anyString(),
+                anyString(), anyMap());
+        when(emailService.sendTemplatedEmails(anyString(), anyList())).thenAnswer(inv -> {
+            int sent = 0;
+            for (EmailService.TemplatedEmail email : inv.<List<EmailService.TemplatedEmail>>getArgument(1)) {
+                send(NotificationChannel.EMAIL);
+                if (!failingEmails.contains(email.toEmail())) {
+                    emailed.add(email.toEmail());
+                    sent++;
+                }
+            }
+            return sent;
+        });
+    }
+
+    @Test
+    void sendsToOptedInRecipientsConcurrentlyWithinChannelCaps() {
+        NotificationCampaignService.CampaignRunStats stats = campaignService.run(campaign());
+
+        int optedIn = USER_COUNT - USER_COUNT / 10;
+        assertEquals(USER_COUNT, stats.getRecipients());
+        assertEquals(USER_COUNT / 10, stats.getSkipped());
+        assertEquals(0, stats.getFailed());
+        assertEquals(optedIn, stats.getSentByChannel().get(NotificationChannel.EMAIL));
+        assertEquals(optedIn, stats.getSentByChannel().get(NotificationChannel.TELEGRAM));
+        assertEquals(optedIn, emailed.size());
+        assertFalse(emailed.contains("campaign-10@example.test"));
+        verify(emailService, never()).sendTemplatedEmail(anyString(), anyString(), anyMap(), any(Locale.class));
+        // 45 emails per page in batches of 10
+        verify(emailService, times(USER_COUNT / 50 * 5)).sendTemplatedEmails(eq("campaign-test"), anyList());
+
+        assertTrue(telegramMessages.contains("Hello User1"));
+        assertTrue(telegramMessages.contains("Hallo User2"));
+
+        // Sends overlapped within each channel, and never beyond its cap
+        int emailPeak = peakByChannel.get(NotificationChannel.EMAIL).get();
+        int telegramPeak = peakByChannel.get(NotificationChannel.TELEGRAM).get();
+        assertTrue(emailPeak > 1, "Expected parallel email batches, peak was " + emailPeak);
+        assertTrue(emailPeak <= EMAIL_CONCURRENCY, "email exceeded its cap: " + emailPeak);
+        assertTrue(telegramPeak > 1, "Expected parallel telegram sends, peak was " + telegramPeak);
+        assertTrue(telegramPeak <= TELEGRAM_CONCURRENCY, "telegram exceeded its cap: " + telegramPeak);
+    }
+
+    @Test
+    void failedDeliveryDoesNotStopTheCampaign() {
+        failingEmails.add("campaign-1@example.test");
+
+        NotificationCampaignService.CampaignRunStats stats = campaignService.run(campaign());
+
+        int optedIn = USER_COUNT - USER_COUNT / 10;
+        assertEquals(1, stats.getFailed());
+        assertEquals(optedIn - 1, stats.getSentByChannel().get(NotificationChannel.EMAIL));
+        assertEquals(optedIn, stats.getSentByChannel().get(NotificationChannel.TELEGRAM));
+    }
+
+    private NotificationCampaign campaign() {
+        return NotificationCampaign.builder()
+                .name("campaign-test")
+                .messageKey("campaign-test")
+                .category(NotificationCategory.BILLING)
+                .recipients((afterUserId, limit) -> users.keySet().stream()
+                        .filter(id -> id > afterUserId)
+                        .limit(limit)
+                        .toList())
+                .variables(recipient -> Map.of("userName", recipient.displayName()))
+                .content((channel, recipient, variables, messages) -> channel == NotificationChannel.TELEGRAM
+                        ? messages.get("telegram.greeting", recipient.locale(), recipient.displayName())
+                        : null)
+                .build();
+    }
+
+    private void send(NotificationChannel channel) throws InterruptedException {
+        AtomicInteger inFlight = inFlightByChannel.computeIfAbsent(channel, c -> new AtomicInteger());
+        int now = inFlight.incrementAndGet();
+        peakByChannel.computeIfAbsent(channel, c -> new AtomicInteger()).accumulateAndGet(now, Math::max);
+        try {
+            Thread.sleep(CHANNEL_LATENCY_MS);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.orbvpn.api.service.notification;
+
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sends through {@link SmtpConnectionPool} to a local SMTP sink that takes
+ * 20 ms to accept each connection, standing in for the TLS handshake and
+ * login of a real server, and compares it with one connection per message.
+ */
+class SmtpConnectionPoolTest {
+
+    private static final int MESSAGES = 200;
+    private static final int THREADS = 8;
+    private static final int POOL_SIZE = 4;
+    private static final long CONNECT_DELAY_MS = 20;
+
+    private SmtpSink sink;
+    private SmtpConnectionPool pool;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (pool != null) {
+            pool.close();
+        }
+        if (sink != null) {
+            sink.close();
+        }
+    }
+
+    @Test
+    void pooledConnectionsAreReusedAcrossSends() throws Exception {
+        sink = new SmtpSink(CONNECT_DELAY_MS, 0);
+        JavaMailSenderImpl sender = sender(sink);
+        pool = new SmtpConnectionPool(sender, POOL_SIZE, Duration.ofSeconds(30), 1_000);
+
+        sendConcurrently(message -> sender.send(message), sender);
+        int unpooledConnections = sink.connections.get();
+        assertEquals(MESSAGES, sink.messages.get());
+        assertEquals(MESSAGES, unpooledConnections);
+
+        sendConcurrently(pool::send, sender);
+        int pooledConnections = sink.connections.get() - unpooledConnections;
+        assertEquals(2 * MESSAGES, sink.messages.get());
+        assertTrue(pooledConnections <= POOL_SIZE, "opened " + pooledConnections + " connections");
+        assertEquals(pooledConnections, pool.getConnectionsOpened());
+    }
+
+    @Test
+    void batchIsSentOverOneConnection() throws Exception {
+        sink = new SmtpSink(0, 0);
+        JavaMailSenderImpl sender = sender(sink);
+        pool = new SmtpConnectionPool(sender, POOL_SIZE, Duration.ofSeconds(30), 1_000);
+
+        List<MimeMessage> batch = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            batch.add(message(sender, i));
+        }
+        pool.sendAll(batch);
+
+        assertEquals(50, sink.messages.get());
+        assertEquals(1, sink.connections.get());
+        assertEquals(1, pool.idleConnections());
+    }
+
+    @Test
+    void connectionDroppedByTheServerIsReplaced() throws Exception {
+        // The sink hangs up after every fifth message
+        sink = new SmtpSink(0, 5);
+        JavaMailSenderImpl sender = sender(sink);
+        pool = new SmtpConnectionPool(sender, POOL_SIZE, Duration.ofSeconds(30), 1_000);
+
+        for (int i = 0; i < 20; i++) {
+            pool.send(message(sender, i));
+        }
+
+        assertEquals(20, sink.messages.get());
+        assertEquals(4, pool.getConnectionsOpened());
+    }
+
+    @Test
+    void connectionIsReplacedAfterItsMessageLimit() throws Exception {
+        sink = new SmtpSink(0, 0);
+        JavaMailSenderImpl sender = sender(sink);
+        pool = new SmtpConnectionPool(sender, POOL_SIZE, Duration.ofSeconds(30), 10);
+
+        for (int i = 0; i < 25; i++) {
+            pool.send(message(sender, i));
+        }
+
+        assertEquals(25, sink.messages.get());
+        assertEquals(3, pool.getConnectionsOpened());
+    }
+
+    private void sendConcurrently(Consumer<MimeMessage> send, JavaMailSenderImpl sender) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < MESSAGES) {
+                        send.accept(message(sender, i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+    }
+
+    private static JavaMailSenderImpl sender(SmtpSink sink) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+        sender.setPort(sink.port());
+        return sender;
+    }
+
+    private static MimeMessage message(JavaMailSenderImpl sender, int i) throws Exception {
+        MimeMessage message = sender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.toString());
+        helper.setFrom("info@orbvpn.com");
+        helper.setTo("user-" + i + "@example.test");
+        helper.setSubject("Message " + i);
+        helper.setText("<p>Hello " + i + "</p>", true);
+        return message;
+    }
+
+    /**
+     * Accepts any mail and counts connections and messages. Optionally waits
+     * before greeting each connection and hangs up after a number of messages.
+     */
+    private static final class SmtpSink implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final long connectDelayMs;
+        private final int closeAfterMessages;
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger messages = new AtomicInteger();
+
+        private SmtpSink(long connectDelayMs, int closeAfterMessages) throws IOException {
+            this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            this.connectDelayMs = connectDelayMs;
+            this.closeAfterMessages = closeAfterMessages;
+            executor.submit(this::acceptLoop);
+        }
+
+        private int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    executor.submit(() -> handle(socket));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void handle(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                 Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+                Thread.sleep(connectDelayMs);
+                reply(out, "220 localhost ESMTP test sink");
+                int accepted = 0;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line;
+                    switch (command) {
+                        case "EHLO", "HELO" -> reply(out, "250 localhost");
+                        case "DATA" -> {
+                            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                // discard the message body
+                            }
+                            messages.incrementAndGet();
+                            reply(out, "250 OK");
+                            if (closeAfterMessages > 0 && ++accepted >= closeAfterMessages) {
+                                return;
+                            }
+                        }
+                        case "QUIT" -> {
+                            reply(out, "221 Bye");
+                            return;
+                        }
+                        default -> reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // client went away
+            }
+        }
+
+        private static void reply(Writer out, String line) throws IOException {
+            out.write(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.orbvpn.api.service.notification;
+
+import com.orbvpn.api.config.scheduler.SchedulerManager;
+import com.orbvpn.api.domain.entity.WhatsAppMessage.MessageStatus;
+import it.auties.whatsapp.api.Whatsapp;
+import it.auties.whatsapp.controller.Store;
+import it.auties.whatsapp.model.jid.Jid;
+import it.auties.whatsapp.model.jid.JidProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Sends through {@link WhatsAppService} to a fake WhatsApp client whose sends
+ * complete after 5 ms, checking that chat lookups are cached per recipient and
+ * that every message is recorded once, in batches, with its final status.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class WhatsAppServiceTest {
+
+    private static final int MESSAGES = 1_000;
+    private static final int RECIPIENTS = 50;
+    private static final long SEND_LATENCY_MS = 5;
+
+    @Mock
+    private Whatsapp whatsapp;
+
+    @Mock
+    private Store store;
+
+    @Mock
+    private SchedulerManager schedulerManager;
+
+    @Mock
+    private MessageRateLimiter rateLimiter;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private WhatsAppDeliveryTracker deliveryTracker;
+    private WhatsAppService whatsAppService;
+
+    private final List<WhatsAppDeliveryTracker.TrackedMessage> written = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        when(whatsapp.isConnected()).thenReturn(true);
+        when(whatsapp.store()).thenReturn(store);
+        when(store.jid()).thenReturn(Optional.of(Jid.of("15550000000@s.whatsapp.net")));
+        when(store.contacts()).thenReturn(List.of());
+        when(store.findChatByJid(any())).thenReturn(Optional.empty());
+        when(store.findContactByJid(any())).thenReturn(Optional.empty());
+        when(store.findContactByName(anyString())).thenReturn(Optional.empty());
+        when(rateLimiter.tryConsumeWhatsApp(anyString())).thenReturn(true);
+
+        // Stands in for the WhatsApp servers: every send completes after a fixed delay
+        doAnswer(inv -> CompletableFuture.supplyAsync(() -> null,
+                CompletableFuture.delayedExecutor(SEND_LATENCY_MS, TimeUnit.MILLISECONDS)))
+                .when(whatsapp).sendMessage(any(JidProvider.class), anyString());
+
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(inv -> {
+                    written.addAll(inv.<Collection<WhatsAppDeliveryTracker.TrackedMessage>>getArgument(1));
+                    return new int[0][];
+                });
+
+        deliveryTracker = new WhatsAppDeliveryTracker(jdbcTemplate);
+        whatsAppService = new WhatsAppService(whatsapp, schedulerManager, rateLimiter, deliveryTracker);
+    }
+
+    @Test
+    void sendsAreTrackedInMemoryAndWrittenInBatches() {
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            sends.add(whatsAppService.sendMessage(String.format("+1555%07d", i % RECIPIENTS), "Message " + i));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+
+        // Nothing is written on the sending path
+        verifyNoInteractions(jdbcTemplate);
+        deliveryTracker.flush();
+
+        assertEquals(MESSAGES, written.size());
+        assertTrue(written.stream().allMatch(message -> message.status() == MessageStatus.SENT));
+        assertEquals(0, deliveryTracker.inFlight());
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        // Each recipient is resolved against the store once
+        verify(store, times(RECIPIENTS)).findContactByName(anyString());
+    }
+
+    @Test
+    void failedSendsAndRateLimitedMessagesAreRecorded() {
+        when(rateLimiter.tryConsumeWhatsApp("+15550000001")).thenReturn(false);
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("Stream closed")))
+                .when(whatsapp).sendMessage(any(JidProvider.class), eq("fails"));
+
+        assertThrows(Exception.class, () -> whatsAppService.sendMessage("+15550000001", "limited").join());
+        assertThrows(Exception.class, () -> whatsAppService.sendMessage("+15550000002", "fails").join());
+        whatsAppService.sendMessage("+15550000003", "works").join();
+        deliveryTracker.flush();
+
+        assertEquals(List.of(MessageStatus.RATE_LIMITED, MessageStatus.FAILED, MessageStatus.SENT),
+                written.stream().map(WhatsAppDeliveryTracker.TrackedMessage::status).toList());
+        assertTrue(written.get(1).errorMessage().contains("Stream closed"));
+    }
+
+    @Test
+    void lateResultDoesNotOverrideFinalStatus() {
+        long id = deliveryTracker.start("15550000004", "timed out");
+        deliveryTracker.sending(id);
+        deliveryTracker.failed(id, "Timed out");
+        deliveryTracker.sent(id, "late-id");
+        deliveryTracker.flush();
+
+        assertEquals(1, written.size());
+        assertEquals(MessageStatus.FAILED, written.get(0).status());
+        assertNull(written.get(0).whatsappMessageId());
+    }
+}
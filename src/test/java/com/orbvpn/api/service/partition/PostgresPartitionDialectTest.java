@@ -0,0 +1,158 @@
+package com.orbvpn.api.service.partition;
+
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the PostgreSQL partition DDL on scratch tables shaped like
+ * connection_stats: conversion keeps rows outside the ranges in the default
+ * partition, new ranges take their rows back from it, and expired partitions
+ * are removed, including after an interrupted concurrent detach. Retention
+ * timings are in the ConnectionStatsRetentionBenchmark JMH benchmark.
+ */
+class PostgresPartitionDialectTest extends PostgresIntegrationTest {
+
+    private static final String TABLE = "pt_connection_stats";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+    private static final List<PartitionRange> RANGES = List.of(
+            new PartitionRange(FIRST_DAY, FIRST_DAY.plusMonths(1)),
+            new PartitionRange(FIRST_DAY.plusMonths(1), FIRST_DAY.plusMonths(2)),
+            new PartitionRange(FIRST_DAY.plusMonths(2), FIRST_DAY.plusMonths(3)));
+
+    private final PartitionedTable table = new PartitionedTable(
+            TABLE, "connection_start", "connection_end", "updated_at",
+            Map.of("pt_connection_stats_user_start", "user_id, connection_start"));
+    private PostgresPartitionDialect dialect;
+
+    @BeforeAll
+    void createDialect() {
+        dialect = new PostgresPartitionDialect(jdbcTemplate);
+    }
+
+    @AfterEach
+    void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE + ", " + TABLE + "_legacy, "
+                + TABLE + "_partitioned CASCADE");
+        for (PartitionRange range : RANGES) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + range.name(TABLE));
+        }
+    }
+
+    @Test
+    void conversionKeepsRowsOutsideTheRanges() {
+        createPlainTable();
+        insert(FIRST_DAY.plusDays(3), FIRST_DAY.plusMonths(1).plusDays(3), FIRST_DAY.plusMonths(2).plusDays(3),
+                FIRST_DAY.minusYears(1), FIRST_DAY.plusYears(5));
+
+        dialect.convert(table, RANGES);
+
+        assertTrue(dialect.isPartitioned(table));
+        assertTrue(dialect.partitionNames(table).contains(TABLE + "_default"));
+        assertEquals(5, count(TABLE));
+        assertEquals(2, count(TABLE + "_default"));
+        assertEquals(1, count(RANGES.get(0).name(TABLE)));
+
+        // Past the last range, inserts land in the default partition instead of failing
+        insert(FIRST_DAY.plusYears(6));
+        assertEquals(3, count(TABLE + "_default"));
+    }
+
+    @Test
+    void newRangeTakesItsRowsFromTheDefaultPartition() {
+        createPartitionedTable();
+        dialect.createDefaultPartition(table);
+        insert(FIRST_DAY.plusMonths(2).plusDays(1), FIRST_DAY.plusMonths(2).plusDays(2), FIRST_DAY.plusYears(1));
+        assertEquals(3, count(TABLE + "_default"));
+
+        dialect.createPartition(table, RANGES.get(2));
+
+        assertEquals(2, count(RANGES.get(2).name(TABLE)));
+        assertEquals(1, count(TABLE + "_default"));
+        assertEquals(3, count(TABLE));
+    }
+
+    @Test
+    void removingPartitionsWithADefaultPartition() {
+        createPartitionedTable();
+        dialect.createDefaultPartition(table);
+        insert(FIRST_DAY.plusDays(1), FIRST_DAY.plusMonths(1).plusDays(1));
+
+        dialect.removePartition(table, RANGES.get(0), true);
+        dialect.removePartition(table, RANGES.get(1), false);
+
+        assertEquals(0, count(TABLE));
+        assertFalse(exists(RANGES.get(0).name(TABLE)));
+        assertEquals(1, count(RANGES.get(1).name(TABLE)));
+        assertFalse(dialect.partitionNames(table).contains(RANGES.get(1).name(TABLE)));
+    }
+
+    @Test
+    void interruptedConcurrentDetachIsFinalized() throws SQLException {
+        createPartitionedTable();
+        insert(FIRST_DAY.plusDays(1), FIRST_DAY.plusMonths(1).plusDays(1));
+        String partition = RANGES.get(0).name(TABLE);
+
+        // A reader holding the parent makes the detach wait in its second phase, where the timeout cancels it
+        try (Connection reader = jdbcTemplate.getDataSource().getConnection();
+             Connection detacher = jdbcTemplate.getDataSource().getConnection();
+             Statement read = reader.createStatement();
+             Statement detach = detacher.createStatement()) {
+            reader.setAutoCommit(false);
+            read.executeQuery("SELECT COUNT(*) FROM " + TABLE).close();
+            detach.execute("SET statement_timeout = '1s'");
+            assertThrows(SQLException.class, () -> detach.execute(
+                    "ALTER TABLE " + TABLE + " DETACH PARTITION " + partition + " CONCURRENTLY"));
+            detach.execute("RESET statement_timeout");
+            reader.rollback();
+        }
+        assertTrue(jdbcTemplate.queryForObject(
+                "SELECT inhdetachpending FROM pg_inherits WHERE inhrelid = ?::regclass", Boolean.class, partition));
+
+        dialect.removePartition(table, RANGES.get(0), true);
+
+        assertFalse(exists(partition));
+        assertEquals(1, count(TABLE));
+    }
+
+    private void createPlainTable() {
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (id BIGSERIAL PRIMARY KEY, user_id INTEGER, "
+                + "connection_start TIMESTAMP NOT NULL, connection_end TIMESTAMP, updated_at TIMESTAMP)");
+    }
+
+    private void createPartitionedTable() {
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (id BIGSERIAL, user_id INTEGER, "
+                + "connection_start TIMESTAMP NOT NULL, connection_end TIMESTAMP, updated_at TIMESTAMP, "
+                + "PRIMARY KEY (id, connection_start)) PARTITION BY RANGE (connection_start)");
+        for (PartitionRange range : RANGES) {
+            dialect.createPartition(table, range);
+        }
+    }
+
+    private void insert(LocalDate... days) {
+        for (LocalDate day : days) {
+            Timestamp start = Timestamp.valueOf(day.atTime(12, 0));
+            jdbcTemplate.update("INSERT INTO " + TABLE + " (user_id, connection_start, connection_end, updated_at) "
+                    + "VALUES (1, ?, ?, ?)", start, start, start);
+        }
+    }
+
+    private int count(String name) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + name, Integer.class);
+    }
+
+    private boolean exists(String name) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name);
+    }
+}
@@ -0,0 +1,93 @@
+package com.orbvpn.api.service.referral;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReferralClickRecorderTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ReferralClickRecorder recorder;
+    private final List<List<ReferralClickRecorder.PendingClick>> written = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+                    Collection<ReferralClickRecorder.PendingClick> batch = invocation.getArgument(1);
+                    written.add(new ArrayList<>(batch));
+                    return new int[][] { new int[batch.size()] };
+                });
+        recorder = new ReferralClickRecorder(jdbcTemplate, eventPublisher);
+    }
+
+    @Test
+    void conversionFlushWritesOnlyTheVisitorsClicks() {
+        recorder.record(click(1, "ip-a"));
+        recorder.record(click(1, "ip-b"));
+        recorder.record(click(2, "ip-a"));
+        recorder.record(click(1, "ip-a"));
+
+        recorder.flush(1, "ip-a");
+
+        assertEquals(1, written.size());
+        assertEquals(2, written.get(0).size());
+        assertTrue(written.get(0).stream().allMatch(c -> c.referrerId() == 1 && c.ipHash().equals("ip-a")));
+        assertEquals(2, recorder.buffered());
+
+        recorder.flush();
+        assertEquals(0, recorder.buffered());
+        assertEquals(2, written.get(1).size());
+    }
+
+    @Test
+    void conversionFlushWithoutBufferedClicksWritesNothing() {
+        recorder.record(click(1, "ip-b"));
+
+        recorder.flush(1, "ip-a");
+
+        assertTrue(written.isEmpty());
+        assertEquals(1, recorder.buffered());
+    }
+
+    @Test
+    void fullFlushWritesInBatches() {
+        for (int i = 0; i < 2_500; i++) {
+            recorder.record(click(i % 10, "ip-" + i));
+        }
+
+        recorder.flush();
+
+        assertEquals(List.of(1_000, 1_000, 500), written.stream().map(List::size).toList());
+        assertEquals(0, recorder.buffered());
+    }
+
+    private static ReferralClickRecorder.PendingClick click(int referrerId, String ipHash) {
+        return new ReferralClickRecorder.PendingClick("code" + referrerId, referrerId, ipHash, "test", null, "DE",
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,135 @@
+package com.orbvpn.api.service.referral;
+
+import com.orbvpn.api.domain.entity.ReferralConfig;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.repostitory.ReferralConfigRepository;
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives referral click tracking from many threads while the buffer is
+ * flushed concurrently, then checks that every accepted click was stored once,
+ * and that a conversion finds a click that was still buffered. Click
+ * throughput is in the ReferralClickBenchmark JMH benchmark.
+ */
+class ReferralClickTrackingTest extends PostgresIntegrationTest {
+
+    private static final String PREFIX = "referral-click-";
+    private static final String CODE = "clicktrackts";
+    private static final int THREADS = 8;
+    private static final int CLICKS_PER_THREAD = 500;
+
+    @Autowired
+    private ReferralConfigRepository configRepository;
+
+    @Autowired
+    private ReferralClickTrackingService clickTrackingService;
+
+    @Autowired
+    private ReferralClickRecorder clickRecorder;
+
+    private int referrerId;
+    private int newUserId;
+
+    @BeforeAll
+    void createReferrer() {
+        cleanup();
+        List<Integer> ids = insertUsers(PREFIX, 2);
+        referrerId = ids.get(0);
+        newUserId = ids.get(1);
+        jdbcTemplate.update("INSERT INTO referral_code (user_id, code, invitations, created_at) VALUES (?, ?, 0, ?)",
+                referrerId, CODE, Timestamp.valueOf(LocalDateTime.now()));
+
+        ReferralConfig config = configRepository.getConfig();
+        config.setClickTrackingEnabled(true);
+        configRepository.save(config);
+    }
+
+    @AfterAll
+    void cleanup() {
+        clickRecorder.flush();
+        jdbcTemplate.update("DELETE FROM referral_link_click WHERE referral_code = ?", CODE);
+        jdbcTemplate.update("DELETE FROM referral_leaderboard_score WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM referral_code WHERE code = ?", CODE);
+        deleteUsers(PREFIX);
+    }
+
+    @Test
+    void everyAcceptedClickIsStoredOnce() throws Exception {
+        long storedBefore = storedClicks();
+        AtomicLong accepted = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < CLICKS_PER_THREAD; i++) {
+                        // Distinct client IPs, so throttling does not kick in
+                        if (clickTrackingService.trackClick(CODE, "10.1." + thread + "." + i, "tracking-test",
+                                null, "DE")) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            Future<?> flusher = executor.submit(() -> {
+                start.await();
+                while (workers.stream().anyMatch(worker -> !worker.isDone())) {
+                    clickRecorder.flush();
+                }
+                return null;
+            });
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            flusher.get();
+        }
+        clickRecorder.flush();
+
+        assertEquals(THREADS * CLICKS_PER_THREAD, accepted.get());
+        assertEquals(0, clickRecorder.buffered());
+        assertEquals(accepted.get(), storedClicks() - storedBefore);
+    }
+
+    @Test
+    void conversionMatchesABufferedClick() {
+        String ip = "192.0.2.10";
+        assertTrue(clickTrackingService.trackClick(CODE, ip, "tracking-test", null, "DE"));
+
+        User referrer = new User();
+        referrer.setId(referrerId);
+        User newUser = new User();
+        newUser.setId(newUserId);
+        newUser.setReferredBy(referrer);
+        clickTrackingService.markConversion(CODE, ip, newUser);
+
+        Integer converted = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM referral_link_click "
+                + "WHERE referral_code = ? AND converted AND converted_user_id = ?", Integer.class, CODE, newUserId);
+        assertEquals(1, converted);
+    }
+
+    private long storedClicks() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM referral_link_click WHERE referral_code = ?", Long.class, CODE);
+    }
+}
@@ -0,0 +1,99 @@
+package com.orbvpn.api.service.referral;
+
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.repository.UserRepository;
+import com.orbvpn.api.repository.projections.ReferralTreeNodeProjection;
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the recursive-CTE referral queries of {@link ReferralMLMService} on a
+ * complete 5-ary tree of 781 users (4 levels below the root). Timings on a
+ * 100k-user tree are in the ReferralTreeQueryBenchmark JMH benchmark.
+ */
+class ReferralTreeQueryTest extends PostgresIntegrationTest {
+
+    private static final String PREFIX = "referral-tree-";
+    private static final int FAN_OUT = 5;
+    private static final int LEVELS = 4;
+    private static final int MAX_LEVELS = 10;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReferralMLMService referralMLMService;
+
+    private final List<Integer> ids = new ArrayList<>();
+    private int treeSize;
+
+    @BeforeAll
+    void generateTree() {
+        cleanup();
+        for (int level = 0, width = 1; level <= LEVELS; level++, width *= FAN_OUT) {
+            treeSize += width;
+        }
+        ids.addAll(insertUsers(PREFIX, treeSize));
+        assertEquals(treeSize, ids.size());
+
+        // Node i is referred by node (i - 1) / FAN_OUT, giving a complete 5-ary tree
+        List<Object[]> links = new ArrayList<>(treeSize - 1);
+        for (int i = 1; i < treeSize; i++) {
+            links.add(new Object[] { ids.get((i - 1) / FAN_OUT), ids.get(i) });
+        }
+        jdbcTemplate.batchUpdate("UPDATE \"user\" SET referred_by_id = ? WHERE id = ?", links);
+    }
+
+    @AfterAll
+    void cleanup() {
+        deleteUsers(PREFIX);
+    }
+
+    @Test
+    void levelCountsForWholeTree() {
+        User root = userRepository.findById(ids.get(0)).orElseThrow();
+
+        Map<Integer, Long> counts = referralMLMService.getDownlineLevelCounts(root, MAX_LEVELS);
+        assertEquals(Map.of(1, 5L, 2, 25L, 3, 125L, 4, 625L), counts);
+        assertEquals(Map.of(1, 5L, 2, 25L), referralMLMService.getDownlineLevelCounts(root, 2));
+    }
+
+    @Test
+    void downlinePages() {
+        User root = userRepository.findById(ids.get(0)).orElseThrow();
+
+        Page<ReferralTreeNodeProjection> first = referralMLMService.getDownlinePage(root, MAX_LEVELS,
+                PageRequest.of(0, 50));
+        assertEquals(treeSize - 1, first.getTotalElements());
+        assertEquals(50, first.getContent().size());
+        assertEquals(1, first.getContent().get(0).getDepth());
+        assertEquals(ids.get(1), first.getContent().get(0).getUserId());
+
+        Page<ReferralTreeNodeProjection> last = referralMLMService.getDownlinePage(root, MAX_LEVELS,
+                PageRequest.of(first.getTotalPages() - 1, 50));
+        assertEquals(LEVELS, last.getContent().get(last.getContent().size() - 1).getDepth());
+    }
+
+    @Test
+    void uplineChainFromLeaf() {
+        User leaf = userRepository.findById(ids.get(treeSize - 1)).orElseThrow();
+
+        List<User> chain = referralMLMService.getReferralChain(leaf, MAX_LEVELS);
+        assertEquals(LEVELS, chain.size());
+        assertEquals(ids.get((treeSize - 2) / FAN_OUT), chain.get(0).getId());
+        assertEquals(ids.get(0), chain.get(chain.size() - 1).getId());
+
+        assertEquals(2, referralMLMService.getReferralChain(leaf, 2).size());
+    }
+}
@@ -0,0 +1,253 @@
+package com.orbvpn.api.service.subscription;
+
+import com.orbvpn.api.domain.entity.Payment;
+import com.orbvpn.api.domain.entity.User;
+import com.orbvpn.api.domain.entity.UserSubscription;
+import com.orbvpn.api.domain.enums.GatewayName;
+import com.orbvpn.api.domain.enums.PaymentStatus;
+import com.orbvpn.api.repository.PaymentRepository;
+import com.orbvpn.api.repository.SubscriptionRenewalClaimRepository;
+import com.orbvpn.api.repository.projections.RenewalCandidateProjection;
+import com.orbvpn.api.service.AsyncNotificationHelper;
+import com.orbvpn.api.service.payment.PaymentService;
+import com.orbvpn.api.service.subscription.utils.SubscriptionStateManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the renewal processor against a stub gateway that takes 20 ms per call,
+ * checking parallelism, per-gateway caps, claim-based idempotency and that no
+ * transaction is open while a gateway is called.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SubscriptionRenewalProcessorTest {
+
+    private static final int PAYMENT_COUNT = 200;
+    private static final long GATEWAY_LATENCY_MS = 20;
+    private static final int GATEWAY_CONCURRENCY = 4;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private SubscriptionRenewalClaimRepository claimRepository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private SubscriptionStateManager subscriptionStateManager;
+
+    @Mock
+    private AsyncNotificationHelper asyncNotificationHelper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SubscriptionRenewalProcessor processor;
+
+    private final Map<Integer, Payment> payments = new TreeMap<>();
+    private final Map<Integer, UserSubscription> subscriptionsByUser = new HashMap<>();
+    private final Map<GatewayName, AtomicInteger> inFlightByGateway = new ConcurrentHashMap<>();
+    private final Map<GatewayName, AtomicInteger> peakByGateway = new ConcurrentHashMap<>();
+    private final ThreadLocal<Integer> openTransactions = ThreadLocal.withInitial(() -> 0);
+    private final AtomicInteger gatewayCallsInTransaction = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> {
+            openTransactions.set(openTransactions.get() + 1);
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(inv -> {
+            openTransactions.set(openTransactions.get() - 1);
+            return null;
+        }).when(transactionManager).commit(any());
+        doAnswer(inv -> {
+            openTransactions.set(openTransactions.get() - 1);
+            return null;
+        }).when(transactionManager).rollback(any());
+
+        processor = new SubscriptionRenewalProcessor(paymentRepository, claimRepository, paymentService,
+                subscriptionStateManager, asyncNotificationHelper, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(processor, "chunkSize", 50);
+        ReflectionTestUtils.setField(processor, "maxConcurrency", 16);
+        ReflectionTestUtils.setField(processor, "gatewayConcurrency", GATEWAY_CONCURRENCY);
+
+        for (int id = 1; id <= PAYMENT_COUNT; id++) {
+            GatewayName gateway = id % 2 == 0 ? GatewayName.STRIPE : GatewayName.RESELLER_CREDIT;
+            User user = new User();
+            user.setId(id);
+            user.setEmail("renewal-" + id + "@example.test");
+            Payment payment = Payment.builder()
+                    .id(id)
+                    .user(user)
+                    .gateway(gateway)
+                    .status(PaymentStatus.PENDING)
+                    .expiresAt(LocalDateTime.now().minusHours(1))
+                    .build();
+            UserSubscription subscription = new UserSubscription();
+            subscription.setPayment(payment);
+            payments.put(id, payment);
+            subscriptionsByUser.put(id, subscription);
+        }
+
+        when(paymentRepository.findRenewalCandidatesAfter(any(), anyInt(), any(Pageable.class)))
+                .thenAnswer(inv -> {
+                    int afterId = inv.getArgument(1);
+                    int limit = inv.<Pageable>getArgument(2).getPageSize();
+                    return payments.values().stream()
+                            .filter(p -> p.getId() > afterId)
+                            .limit(limit)
+                            .map(p -> candidate(p.getId(), p.getGateway()))
+                            .toList();
+                });
+        when(paymentRepository.findById(anyInt()))
+                .thenAnswer(inv -> Optional.ofNullable(payments.get(inv.<Integer>getArgument(0))));
+        when(subscriptionStateManager.getCurrentSubscription(any(User.class)))
+                .thenAnswer(inv -> subscriptionsByUser.get(inv.<User>getArgument(0).getId()));
+        when(paymentService.chargeRenewal(any(Payment.class))).thenAnswer(inv -> {
+            Payment payment = inv.getArgument(0);
+            if (openTransactions.get() > 0) {
+                gatewayCallsInTransaction.incrementAndGet();
+            }
+            AtomicInteger inFlight = inFlightByGateway.computeIfAbsent(payment.getGateway(), g -> new AtomicInteger());
+            int now = inFlight.incrementAndGet();
+            peakByGateway.computeIfAbsent(payment.getGateway(), g -> new AtomicInteger())
+                    .accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(GATEWAY_LATENCY_MS);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return Payment.builder().id(payment.getId() + 10_000).user(payment.getUser())
+                    .gateway(payment.getGateway()).build();
+        });
+        when(paymentService.completeRenewal(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @Test
+    void renewsAllDuePaymentsConcurrentlyWithinGatewayCaps() throws Exception {
+        when(claimRepository.claim(anyInt(), anyString(), any(), any(), anyInt())).thenReturn(1);
+
+        SubscriptionRenewalProcessor.RenewalRunStats stats = processor.processDueRenewals();
+
+        assertEquals(PAYMENT_COUNT, stats.getRenewed());
+        assertEquals(0, stats.getFailed());
+        verify(paymentService, times(PAYMENT_COUNT)).chargeRenewal(any(Payment.class));
+        verify(paymentService, times(PAYMENT_COUNT)).completeRenewal(any(Payment.class));
+        verify(claimRepository, times(PAYMENT_COUNT)).markRenewed(anyInt(), anyString(), anyInt(), any());
+
+        assertEquals(2, peakByGateway.size());
+        peakByGateway.forEach((gateway, peak) -> {
+            assertTrue(peak.get() > 1, gateway + " was called one payment at a time");
+            assertTrue(peak.get() <= GATEWAY_CONCURRENCY, gateway + " exceeded its cap: " + peak.get());
+        });
+        assertEquals(0, gatewayCallsInTransaction.get(), "gateway called with a transaction open");
+    }
+
+    @Test
+    void paymentsClaimedByAnotherReplicaAreNotRenewed() throws Exception {
+        when(claimRepository.claim(anyInt(), anyString(), any(), any(), anyInt()))
+                .thenAnswer(inv -> inv.<Integer>getArgument(0) % 2 == 0 ? 0 : 1);
+
+        SubscriptionRenewalProcessor.RenewalRunStats stats = processor.processDueRenewals();
+
+        assertEquals(PAYMENT_COUNT / 2, stats.getRenewed());
+        assertEquals(PAYMENT_COUNT / 2, stats.getSkipped());
+        verify(paymentService, never()).chargeRenewal(argThat(p -> p.getId() % 2 == 0));
+    }
+
+    @Test
+    void failedRenewalIsRecordedOnTheClaim() throws Exception {
+        when(claimRepository.claim(anyInt(), anyString(), any(), any(), anyInt())).thenReturn(1);
+        when(paymentService.chargeRenewal(any(Payment.class))).thenThrow(new RuntimeException("card declined"));
+
+        SubscriptionRenewalProcessor.RenewalRunStats stats = processor.processDueRenewals();
+
+        assertEquals(PAYMENT_COUNT, stats.getFailed());
+        verify(claimRepository, times(PAYMENT_COUNT))
+                .markFailed(anyInt(), anyString(), eq("card declined"), any(), any());
+        verify(claimRepository, never()).markRenewed(anyInt(), anyString(), any(), any());
+        verify(paymentService, never()).completeRenewal(any(Payment.class));
+    }
+
+    @Test
+    void chargedButUnrecordedRenewalIsNotChargedAgain() throws Exception {
+        // Claims as the database keeps them: FAILED is taken again, the rest are not
+        Map<Integer, String> claims = new ConcurrentHashMap<>();
+        when(claimRepository.claim(anyInt(), anyString(), any(), any(), anyInt())).thenAnswer(inv -> {
+            String previous = claims.putIfAbsent(inv.getArgument(0), "CLAIMED");
+            return previous == null || claims.replace(inv.getArgument(0), "FAILED", "CLAIMED") ? 1 : 0;
+        });
+        when(claimRepository.markFailed(anyInt(), anyString(), any(), any(), any()))
+                .thenAnswer(inv -> claims.put(inv.getArgument(0), "FAILED") != null ? 1 : 0);
+        when(claimRepository.markChargedUnrecorded(anyInt(), anyString(), any(), any(), any()))
+                .thenAnswer(inv -> claims.put(inv.getArgument(0), "CHARGED_UNRECORDED") != null ? 1 : 0);
+        when(paymentService.chargeRenewal(any(Payment.class))).thenAnswer(inv -> {
+            Payment payment = inv.getArgument(0);
+            return Payment.builder().id(payment.getId() + 10_000).paymentId("ch_" + payment.getId())
+                    .user(payment.getUser()).gateway(payment.getGateway()).build();
+        });
+        when(paymentService.completeRenewal(any(Payment.class))).thenThrow(new RuntimeException("database down"));
+
+        SubscriptionRenewalProcessor.RenewalRunStats stats = processor.processDueRenewals();
+
+        assertEquals(PAYMENT_COUNT, stats.getFailed());
+        verify(claimRepository).markChargedUnrecorded(eq(1), anyString(), eq("ch_1"), eq("database down"), any());
+        verify(claimRepository, never()).markFailed(anyInt(), anyString(), any(), any(), any());
+
+        SubscriptionRenewalProcessor.RenewalRunStats rerun = processor.processDueRenewals();
+
+        assertEquals(PAYMENT_COUNT, rerun.getSkipped());
+        verify(paymentService, times(PAYMENT_COUNT)).chargeRenewal(any(Payment.class));
+    }
+
+    @Test
+    void paymentWithoutGatewayIsMarkedFailed() throws Exception {
+        when(claimRepository.claim(anyInt(), anyString(), any(), any(), anyInt())).thenReturn(1);
+        payments.get(1).setGateway(null);
+
+        SubscriptionRenewalProcessor.RenewalRunStats stats = processor.processDueRenewals();
+
+        assertEquals(PAYMENT_COUNT - 1, stats.getRenewed());
+        assertEquals(1, stats.getFailed());
+        verify(claimRepository).markFailed(eq(1), anyString(), eq("Payment has no gateway to renew with"), any(),
+                any());
+        verify(paymentService, never()).chargeRenewal(argThat(p -> p.getId() == 1));
+    }
+
+    private static RenewalCandidateProjection candidate(int id, GatewayName gateway) {
+        return new RenewalCandidateProjection() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public GatewayName getGateway() {
+                return gateway;
+            }
+        };
+    }
+}
@@ -0,0 +1,154 @@
+package com.orbvpn.api.service.token;
+
+import com.orbvpn.api.domain.enums.TokenTransactionType;
+import com.orbvpn.api.exception.InsufficientTokensException;
+import com.orbvpn.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test for {@link TokenLedgerService}: many threads credit and debit
+ * the same few balances at once, then every balance must equal the credits
+ * minus the debits that succeeded, match its ledger total and never have gone
+ * negative.
+ */
+class TokenLedgerConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final String PREFIX = "token-ledger-stress-";
+    private static final int USERS = 10;
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 500;
+    private static final BigDecimal CREDIT = new BigDecimal("1.25000000");
+    private static final BigDecimal DEBIT = new BigDecimal("2.00000000");
+
+    @Autowired
+    private TokenLedgerService tokenLedgerService;
+
+    @Autowired
+    private TokenLedgerConsistencyChecker consistencyChecker;
+
+    private final List<Integer> userIds = new ArrayList<>();
+
+    @BeforeAll
+    void createUsers() {
+        cleanup();
+        userIds.addAll(insertUsers(PREFIX, USERS));
+        assertEquals(USERS, userIds.size());
+    }
+
+    @AfterAll
+    void cleanup() {
+        resetBalances();
+        deleteUsers(PREFIX);
+    }
+
+    @BeforeEach
+    void resetBalances() {
+        jdbcTemplate.update("DELETE FROM token_transaction WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM token_balances WHERE user_id IN " + USER_IDS_LIKE, PREFIX + "%");
+    }
+
+    @Test
+    void concurrentCreditsAndDebitsLoseNoUpdates() throws Exception {
+        Map<Integer, BigDecimal> expected = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        int userId = userIds.get(random.nextInt(USERS));
+                        if (random.nextBoolean()) {
+                            tokenLedgerService.credit(userId, CREDIT, TokenTransactionType.ADMIN_CREDIT);
+                            expected.merge(userId, CREDIT, BigDecimal::add);
+                        } else {
+                            try {
+                                tokenLedgerService.debit(userId, DEBIT, TokenTransactionType.ADMIN_DEBIT);
+                                expected.merge(userId, DEBIT.negate(), BigDecimal::add);
+                            } catch (InsufficientTokensException e) {
+                                // Rejected whole; the balance must not have moved
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+
+        for (int userId : userIds) {
+            BigDecimal balance = balanceOf(userId);
+            assertEquals(0, expected.getOrDefault(userId, BigDecimal.ZERO).compareTo(balance),
+                    "balance of user " + userId);
+            assertTrue(balance.signum() >= 0, "balance of user " + userId + " went negative");
+            assertEquals(0, ledgerTotalOf(userId).compareTo(balance), "ledger total of user " + userId);
+        }
+        assertTrue(consistencyChecker.check().stream().noneMatch(drift -> userIds.contains(drift.userId())));
+    }
+
+    @Test
+    void concurrentBatchCreditsWithSameReferencesApplyOnce() throws Exception {
+        List<TokenLedgerService.Credit> credits = new ArrayList<>();
+        for (int round = 0; round < 100; round++) {
+            for (int userId : userIds) {
+                credits.add(new TokenLedgerService.Credit(userId, CREDIT,
+                        "token-ledger-stress:" + userId + ":" + round));
+            }
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        int applied = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<Integer>> runs = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                runs.add(executor.submit(() -> {
+                    start.await();
+                    return tokenLedgerService.creditAll(credits, TokenTransactionType.STAKE_REWARD).size();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> run : runs) {
+                applied += run.get();
+            }
+        }
+
+        assertEquals(credits.size(), applied);
+        BigDecimal perUser = CREDIT.multiply(BigDecimal.valueOf(100));
+        for (int userId : userIds) {
+            assertEquals(0, perUser.compareTo(balanceOf(userId)), "balance of user " + userId);
+            assertEquals(0, perUser.compareTo(ledgerTotalOf(userId)), "ledger total of user " + userId);
+        }
+    }
+
+    private BigDecimal balanceOf(int userId) {
+        return jdbcTemplate.query("SELECT balance FROM token_balances WHERE user_id = ?",
+                rs -> rs.next() ? rs.getBigDecimal(1) : BigDecimal.ZERO, userId);
+    }
+
+    private BigDecimal ledgerTotalOf(int userId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM token_transaction WHERE user_id = ?", BigDecimal.class, userId);
+    }
+}
@@ -0,0 +1,93 @@
+package com.orbvpn.api.support;
+
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base for tests that need a real PostgreSQL database. All subclasses share
+ * one throwaway container and one application context, with the schema
+ * created by Hibernate; the tests are skipped when Docker is not available.
+ *
+ * The database outlives each test class, so subclasses remove the rows they
+ * create, using a prefix of their own for user names.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class PostgresIntegrationTest {
+
+    /**
+     * Ids of the users inserted with a prefix; bind the prefix followed by %.
+     */
+    protected static final String USER_IDS_LIKE = "(SELECT id FROM \"user\" WHERE username LIKE ?)";
+
+    // Started on first use and removed when the test JVM exits
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        POSTGRES.start();
+        createMySqlTypes();
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.flyway.enabled", () -> "false");
+    }
+
+    // A few entities still declare MySQL's MEDIUMTEXT; without a type by that name their tables are not created
+    private static void createMySqlTypes() {
+        try (Connection connection = DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(),
+                POSTGRES.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("DO $$ BEGIN CREATE DOMAIN mediumtext AS text; "
+                    + "EXCEPTION WHEN duplicate_object THEN NULL; END $$");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not prepare the test database", e);
+        }
+    }
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert {@code count} plain users named {@code prefix0}, {@code prefix1}, ...
+     *
+     * @return their ids in insertion order
+     */
+    protected List<Integer> insertUsers(String prefix, int count) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] { prefix + i, prefix + i + "@example.test", now });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO \"user\" (username, email, rad_access, active, enabled, auto_renew, "
+                + "created_at) VALUES (?, ?, 'not-a-regular-user', true, true, false, ?)", rows);
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM \"user\" WHERE username LIKE ? ORDER BY id", Integer.class, prefix + "%");
+    }
+
+    /**
+     * Delete the users inserted with {@code prefix}. Rows referencing them must
+     * be removed first.
+     */
+    protected void deleteUsers(String prefix) {
+        jdbcTemplate.update("UPDATE \"user\" SET referred_by_id = NULL WHERE username LIKE ?", prefix + "%");
+        jdbcTemplate.update("DELETE FROM \"user\" WHERE username LIKE ?", prefix + "%");
+    }
+}
@@ -0,0 +1,224 @@
+package com.orbvpn.api.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orbvpn.api.domain.dto.AdminDashboardView;
+import com.orbvpn.api.domain.dto.AlertMessage;
+import com.orbvpn.api.domain.enums.AlertSeverity;
+import com.orbvpn.api.domain.enums.AlertType;
+import com.orbvpn.api.service.ConnectionAdminDashboardService;
+import com.orbvpn.api.service.ConnectionAlertService;
+import com.orbvpn.api.service.DashboardPreferencesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Broadcasts alerts to a thousand simulated dashboard clients that take
+ * 20 ms per send, a few of which never finish a send, checking that the
+ * broadcast does not wait on any of them and that stuck clients are closed.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DashboardWebSocketHandlerTest {
+
+    private static final int CLIENTS = 1_000;
+    private static final int STUCK_CLIENTS = 10;
+    private static final int ALERTS = 20;
+    private static final int BUFFER_SIZE = 8;
+    private static final long SEND_LATENCY_MS = 20;
+    private static final long SEND_TIME_LIMIT_MS = 200;
+    private static final String SUBSCRIBE = "{\"type\":\"SUBSCRIBE_ALERTS\",\"data\":{\"subscribe\":true}}";
+
+    @Mock
+    private ConnectionAdminDashboardService dashboardService;
+
+    @Mock
+    private ConnectionAlertService alertService;
+
+    @Mock
+    private DashboardPreferencesService preferencesService;
+
+    private ObjectMapper objectMapper;
+    private DashboardWebSocketHandler handler;
+    private Consumer<AlertMessage> alertSubscriber;
+
+    private final List<WebSocketSession> healthy = new ArrayList<>();
+    private final List<WebSocketSession> stuck = new ArrayList<>();
+    private final Map<WebSocketSession, Queue<String>> received = new ConcurrentHashMap<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger healthySends = new AtomicInteger();
+    private final AtomicInteger peakHealthySends = new AtomicInteger();
+    private final AtomicInteger stuckSends = new AtomicInteger();
+    private final Queue<Thread> sendingThreads = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        objectMapper = spy(new ObjectMapper().findAndRegisterModules());
+        when(dashboardService.getDashboardData()).thenReturn(AdminDashboardView.builder().build());
+
+        handler = new DashboardWebSocketHandler(objectMapper, dashboardService, alertService, preferencesService);
+        ReflectionTestUtils.setField(handler, "bufferSize", BUFFER_SIZE);
+        ReflectionTestUtils.setField(handler, "sendTimeLimitMillis", SEND_TIME_LIMIT_MS);
+        handler.subscribeToAlerts();
+
+        ArgumentCaptor<Consumer<AlertMessage>> subscriber = ArgumentCaptor.forClass(Consumer.class);
+        verify(alertService).subscribeToAlerts(eq(DashboardWebSocketHandler.ALERT_SUBSCRIBER_ID),
+                subscriber.capture());
+        alertSubscriber = subscriber.getValue();
+
+        for (int i = 0; i < CLIENTS; i++) {
+            boolean isStuck = i % (CLIENTS / STUCK_CLIENTS) == 0;
+            WebSocketSession session = session("session-" + i, isStuck);
+            (isStuck ? stuck : healthy).add(session);
+            handler.afterConnectionEstablished(session);
+            handler.handleMessage(session, new TextMessage(SUBSCRIBE));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        handler.shutdown();
+    }
+
+    @Test
+    void broadcastDoesNotWaitOnSlowClients() throws Exception {
+        // Wait until every stuck client is blocked in its first send
+        long blockedBy = System.currentTimeMillis() + 5_000;
+        while (stuckSends.get() < STUCK_CLIENTS) {
+            assertTrue(System.currentTimeMillis() < blockedBy, "stuck clients did not start sending");
+            Thread.sleep(10);
+        }
+        peakHealthySends.set(0);
+        sendingThreads.clear();
+        for (int i = 0; i < ALERTS; i++) {
+            alertSubscriber.accept(alert(i));
+        }
+
+        // The broadcast returned while every stuck client is still blocked in a send
+        assertEquals(STUCK_CLIENTS, stuckSends.get());
+        assertFalse(sendingThreads.contains(Thread.currentThread()), "the broadcasting thread sent a message");
+        verify(objectMapper, times(ALERTS)).writeValueAsString(
+                argThat(value -> value instanceof Map<?, ?> map && "ALERT".equals(map.get("type"))));
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        String lastAlert = "alert-" + (ALERTS - 1);
+        while (!healthy.stream().allMatch(session -> receivedAlerts(session).contains(lastAlert))) {
+            assertTrue(System.currentTimeMillis() < deadline, "clients did not receive the last alert in time");
+            Thread.sleep(50);
+        }
+
+        for (WebSocketSession session : healthy) {
+            List<String> alerts = receivedAlerts(session);
+            // The oldest alerts are dropped for clients that fall behind, the rest arrive in order
+            assertTrue(alerts.size() <= BUFFER_SIZE + 1, session.getId() + " received " + alerts.size());
+            assertEquals(alerts.stream().sorted((a, b) -> Integer.compare(number(a), number(b))).toList(), alerts);
+        }
+        // Clients are sent to side by side, not one after another
+        assertTrue(peakHealthySends.get() >= CLIENTS / 10, "peak concurrent sends " + peakHealthySends.get());
+    }
+
+    @Test
+    void stuckClientsAreClosedAndRemoved() throws Exception {
+        Thread.sleep(SEND_TIME_LIMIT_MS + 100);
+        alertSubscriber.accept(alert(0));
+
+        for (WebSocketSession session : stuck) {
+            verify(session, timeout(1_000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        }
+        assertEquals(CLIENTS - STUCK_CLIENTS, handler.sessionCount());
+        for (WebSocketSession session : healthy) {
+            verify(session, never()).close(any(CloseStatus.class));
+        }
+    }
+
+    @Test
+    void closedSessionsStopReceivingAlerts() throws Exception {
+        WebSocketSession closed = healthy.get(0);
+        int open = handler.sessionCount();
+        handler.afterConnectionClosed(closed, CloseStatus.NORMAL);
+        assertEquals(open - 1, handler.sessionCount());
+
+        alertSubscriber.accept(alert(0));
+
+        // The initial data and the alert
+        verify(healthy.get(1), timeout(1_000).times(2)).sendMessage(any());
+        assertTrue(receivedAlerts(closed).isEmpty());
+    }
+
+    private WebSocketSession session(String id, boolean isStuck) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        Queue<String> messages = new ConcurrentLinkedQueue<>();
+        received.put(session, messages);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            sendingThreads.add(Thread.currentThread());
+            if (isStuck) {
+                stuckSends.incrementAndGet();
+                try {
+                    release.await();
+                } finally {
+                    stuckSends.decrementAndGet();
+                }
+            } else {
+                peakHealthySends.accumulateAndGet(healthySends.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(SEND_LATENCY_MS);
+                } finally {
+                    healthySends.decrementAndGet();
+                }
+            }
+            messages.add(inv.<TextMessage>getArgument(0).getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    private List<String> receivedAlerts(WebSocketSession session) {
+        return received.get(session).stream()
+                .filter(payload -> payload.contains("\"type\":\"ALERT\""))
+                .map(payload -> payload.replaceAll(".*\"message\":\"(alert-\\d+)\".*", "$1"))
+                .toList();
+    }
+
+    private static int number(String alert) {
+        return Integer.parseInt(alert.substring("alert-".length()));
+    }
+
+    private static AlertMessage alert(int i) {
+        return AlertMessage.builder()
+                .id("id-" + i)
+                .type(AlertType.HIGH_CPU)
+                .serverId("1")
+                .serverName("server-1")
+                .message("alert-" + i)
+                .severity(AlertSeverity.WARNING)
+                .build();
+    }
+}